@@ -44,4 +44,11 @@ public interface UIMessages extends Messages {
     @DefaultMessage("Team")
     String team();
 
+    @DefaultMessage("LDAP Status Refresh")
+    String ldapStatusRefreshCaption();
+
+    @DefaultMessage("LDAP account status of all users is being refreshed in background. Reload the list "
+            + "in a few minutes to see the updated statuses.")
+    String ldapStatusRefreshMessage();
+
 }
@@ -3,12 +3,14 @@ package org.jboss.set.mjolnir.client.application.admin.gitHubMembers;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.i18n.client.DateTimeFormat;
 import com.google.gwt.safehtml.client.SafeHtmlTemplates;
 import com.google.gwt.safehtml.shared.SafeHtml;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.Anchor;
 import com.google.gwt.user.client.ui.FlowPanel;
 import com.google.gwt.user.client.ui.HTMLPanel;
+import com.google.gwt.user.client.ui.Label;
 import com.google.inject.Inject;
 import com.gwtplatform.mvp.client.ViewWithUiHandlers;
 import org.jboss.set.mjolnir.client.component.ConfirmationDialog;
@@ -20,6 +22,7 @@ import org.jboss.set.mjolnir.shared.domain.Subscription;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -37,6 +40,7 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
     private SelectionTable<GithubOrganization> organizationsTable;
     private SelectionTable<GithubTeam> teamsTable;
     private SubscriptionsTable subscriptionsTable;
+    private Label syncedAtLabel = new Label();
     private GithubOrganization selectedOrg;
     private GithubTeam selectedTeam;
 
@@ -70,6 +74,7 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
             }
         });
         panel.add(downloadLink);
+        panel.add(syncedAtLabel);
         panel.add(subscriptionsTable = createSubscriptionTable());
     }
 
@@ -83,6 +88,7 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
             @Override
             protected void onSelectionChanged(GithubOrganization selectedObject) {
                 selectedOrg = selectedObject;
+                updateSyncedAtLabel();
                 subscriptionsTable.setData(Collections.<Subscription>emptyList());
                 teamsTable.setData(selectedObject != null ?
                         selectedObject.getTeams() : Collections.<GithubTeam>emptyList());
@@ -100,6 +106,7 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
             @Override
             protected void onSelectionChanged(GithubTeam selectedTeam) {
                 GitHubMembersView.this.selectedTeam = selectedTeam;
+                updateSyncedAtLabel();
                 subscriptionsTable.setData(Collections.<Subscription>emptyList());
                 if (selectedOrg != null) {
                     getUiHandlers().retrieveSubscriptions(selectedOrg, selectedTeam);
@@ -117,6 +124,18 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
         };
     }
 
+    private void updateSyncedAtLabel() {
+        Date syncedAt = null;
+        if (selectedTeam != null && selectedTeam.getId() != null) {
+            syncedAt = selectedTeam.getMembersSyncedAt();
+        } else if (selectedOrg != null) {
+            syncedAt = selectedOrg.getMembersSyncedAt();
+        }
+        syncedAtLabel.setText(syncedAt != null
+                ? "Membership data as of " + DateTimeFormat.getFormat("yyyy-MM-dd HH:mm").format(syncedAt)
+                : "Membership data retrieved from GitHub");
+    }
+
     private SubscriptionsTable createSubscriptionTable() {
         SubscriptionsTable table = new SubscriptionsTable() {
             @Override
@@ -153,6 +172,12 @@ public class GitHubMembersView extends ViewWithUiHandlers<GitHubMembersHandlers>
     @Override
     public void setSubscriptions(List<Subscription> items) {
         subscriptionsTable.setData(items);
+        if (!items.isEmpty() && items.get(0).getStaleSince() != null) {
+            syncedAtLabel.setText("GitHub is not available, showing members retrieved at "
+                    + DateTimeFormat.getFormat("yyyy-MM-dd HH:mm").format(items.get(0).getStaleSince()));
+        } else {
+            updateSyncedAtLabel();
+        }
     }
 
     @Override
@@ -2,7 +2,10 @@ package org.jboss.set.mjolnir.client.application.admin.registeredUsers;
 
 import java.util.List;
 
+import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.gwtplatform.mvp.client.UiHandlers;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 
 /**
@@ -13,4 +16,6 @@ public interface RegisteredUsersHandlers extends UiHandlers {
     void delete(List<Subscription> items);
     void edit(Subscription item);
     void register(Subscription item);
+    void refreshLdapStatus();
+    void loadPage(RegisteredUsersQuery query, AsyncCallback<RegisteredUsersPage> callback);
 }
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
 import com.google.web.bindery.event.shared.EventBus;
 import com.gwtplatform.mvp.client.HasUiHandlers;
@@ -15,15 +17,19 @@ import com.gwtplatform.mvp.client.annotations.UseGatekeeper;
 import com.gwtplatform.mvp.client.proxy.ProxyPlace;
 import com.gwtplatform.mvp.shared.proxy.PlaceRequest;
 import org.jboss.set.mjolnir.client.NameTokens;
+import org.jboss.set.mjolnir.client.UIMessages;
 import org.jboss.set.mjolnir.client.application.ApplicationPresenter;
 import org.jboss.set.mjolnir.client.application.SplitBundles;
 import org.jboss.set.mjolnir.client.application.events.loadingIndicator.LoadingIndicationEvent;
 import org.jboss.set.mjolnir.client.application.security.IsAdminGatekeeper;
+import org.jboss.set.mjolnir.client.component.NotificationDialog;
 import org.jboss.set.mjolnir.client.component.ProcessingIndicatorPopup;
 import org.jboss.set.mjolnir.client.service.AdministrationService;
 import org.jboss.set.mjolnir.client.service.AdministrationServiceAsync;
 import org.jboss.set.mjolnir.client.service.DefaultCallback;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 
 /**
@@ -35,7 +41,6 @@ public class RegisteredUsersPresenter extends Presenter<RegisteredUsersPresenter
         implements RegisteredUsersHandlers, LoadingIndicationEvent.LoadingIndicatorHandler {
 
     public interface MyView extends View, HasUiHandlers<RegisteredUsersHandlers> {
-        void setData(List<Subscription> items);
         List<Subscription> getCurrentSubscriptionList();
         void refresh();
     }
@@ -46,6 +51,7 @@ public class RegisteredUsersPresenter extends Presenter<RegisteredUsersPresenter
     public interface MyProxy extends ProxyPlace<RegisteredUsersPresenter> {}
 
     private AdministrationServiceAsync administrationService = AdministrationService.Util.getInstance();
+    private UIMessages uiMessages = GWT.create(UIMessages.class);
 
     @Inject
     public RegisteredUsersPresenter(EventBus eventBus, MyView view, MyProxy proxy) {
@@ -60,23 +66,9 @@ public class RegisteredUsersPresenter extends Presenter<RegisteredUsersPresenter
 
     @Override
     public void prepareFromRequest(PlaceRequest request) {
-        LoadingIndicationEvent.fire(this, true);
-
-        administrationService.getRegisteredUsers(new DefaultCallback<List<Subscription>>() {
-            @Override
-            public void onSuccess(List<Subscription> result) {
-                getView().setData(result);
-                getProxy().manualReveal(RegisteredUsersPresenter.this);
-                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
-            }
-
-            @Override
-            public void onFailure(Throwable caught) {
-                super.onFailure(caught);
-                getProxy().manualRevealFailed();
-                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
-            }
-        });
+        // users are loaded page by page as the table requests them
+        getView().refresh();
+        getProxy().manualReveal(this);
     }
 
     @Override
@@ -139,6 +131,48 @@ public class RegisteredUsersPresenter extends Presenter<RegisteredUsersPresenter
         // TODO refactor functionality from dialog
     }
 
+    @Override
+    public void refreshLdapStatus() {
+        LoadingIndicationEvent.fire(this, true);
+
+        // LDAP account status is stored on server, drop the caches and let the server refresh the statuses
+        // in background, they are not updated yet when the call returns
+        administrationService.invalidateLdapCache(new DefaultCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
+                new NotificationDialog(uiMessages.ldapStatusRefreshCaption(), uiMessages.ldapStatusRefreshMessage())
+                        .center();
+            }
+
+            @Override
+            public void onFailure(Throwable caught) {
+                super.onFailure(caught);
+                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
+            }
+        });
+    }
+
+    @Override
+    public void loadPage(RegisteredUsersQuery query, final AsyncCallback<RegisteredUsersPage> callback) {
+        LoadingIndicationEvent.fire(this, true);
+
+        administrationService.getRegisteredUsersPage(query, new DefaultCallback<RegisteredUsersPage>() {
+            @Override
+            public void onSuccess(RegisteredUsersPage result) {
+                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(Throwable caught) {
+                super.onFailure(caught);
+                LoadingIndicationEvent.fire(RegisteredUsersPresenter.this, false);
+                callback.onFailure(caught);
+            }
+        });
+    }
+
     @Override
     public void onLoadingEvent(LoadingIndicationEvent event) {
         if (event.isStart()) {
@@ -1,5 +1,6 @@
 package org.jboss.set.mjolnir.client.application.admin.registeredUsers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.google.inject.Inject;
@@ -10,11 +11,14 @@ import com.google.gwt.safehtml.client.SafeHtmlTemplates;
 import com.google.gwt.safehtml.shared.SafeHtml;
 import com.google.gwt.user.client.ui.FlowPanel;
 import com.google.gwt.user.client.ui.HTMLPanel;
+import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.gwtplatform.mvp.client.ViewWithUiHandlers;
 import org.jboss.set.mjolnir.client.component.ConfirmationDialog;
 import org.jboss.set.mjolnir.client.component.administration.SubscriptionsTable;
 import org.jboss.set.mjolnir.client.component.administration.UserDialog;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 
 /**
@@ -40,7 +44,7 @@ public class RegisteredUsersView extends ViewWithUiHandlers<RegisteredUsersHandl
 
         panel.add(new HTMLPanel("h2", "Users Registered in Mjolnir"));
 
-        subscriptionsTable = new SubscriptionsTable() {
+        subscriptionsTable = new SubscriptionsTable(new RegisteredUsersDataSource()) {
             @Override
             protected void dispatchWhitelist(List<Subscription> selectedItems, boolean whitelist) {
 
@@ -48,14 +52,15 @@ public class RegisteredUsersView extends ViewWithUiHandlers<RegisteredUsersHandl
         };
         subscriptionsTable.addAction("Delete", new DeleteClickHandler(), true, false);
         subscriptionsTable.addAction("Register", new RegisterHandler(), true, true);
+        subscriptionsTable.addAction("Refresh LDAP Status", new ClickHandler() {
+            @Override
+            public void onClick(ClickEvent event) {
+                getUiHandlers().refreshLdapStatus();
+            }
+        }, true, true);
         panel.add(subscriptionsTable);
     }
 
-    @Override
-    public void setData(List<Subscription> items) {
-        subscriptionsTable.setData(items);
-    }
-
     @Override
     public List<Subscription> getCurrentSubscriptionList() {
         return subscriptionsTable.getItemList();
@@ -67,6 +72,62 @@ public class RegisteredUsersView extends ViewWithUiHandlers<RegisteredUsersHandl
     }
 
 
+    /**
+     * Loads pages of registered users from the server.
+     *
+     * Pages are addressed by cursors returned with preceding pages, so cursors of visited pages are remembered
+     * for the current query.
+     */
+    private class RegisteredUsersDataSource implements SubscriptionsTable.RemoteDataSource {
+
+        private RegisteredUsersQuery currentQuery;
+        private final List<String> cursors = new ArrayList<>(); // index is page number
+
+        @Override
+        public void load(SubscriptionsTable.SubscriptionSearchPredicate predicate, boolean sortByGitHubName,
+                         boolean ascending, int start, int length, final SubscriptionsTable.PageCallback callback) {
+            final RegisteredUsersQuery query = new RegisteredUsersQuery();
+            query.setKrbNameExpression(predicate.getKrbNameExpression());
+            query.setGitHubNameExpression(predicate.getGitHubNameExpression());
+            query.setKrbAccount(predicate.getKrbAccount());
+            query.setWhitelisted(predicate.getWhitelisted());
+            query.setSortColumn(sortByGitHubName ? RegisteredUsersQuery.SortColumn.GITHUB_NAME
+                    : RegisteredUsersQuery.SortColumn.KRB_NAME);
+            query.setAscending(ascending);
+            query.setPageSize(length);
+
+            if (!query.equals(currentQuery)) {
+                currentQuery = query;
+                cursors.clear();
+                cursors.add(null);
+            }
+
+            // pages beyond the last known cursor can't be addressed, start over
+            final int page = start / length < cursors.size() ? start / length : 0;
+
+            getUiHandlers().loadPage(query.withCursor(cursors.get(page)), new AsyncCallback<RegisteredUsersPage>() {
+                @Override
+                public void onSuccess(RegisteredUsersPage result) {
+                    if (query.equals(currentQuery)) {
+                        // cursors of following pages may have changed together with data
+                        while (cursors.size() > page + 1) {
+                            cursors.remove(cursors.size() - 1);
+                        }
+                        if (result.hasNextPage()) {
+                            cursors.add(result.getNextCursor());
+                        }
+                    }
+                    callback.onPage(page * query.getPageSize(), result.getSubscriptions(), result.hasNextPage());
+                }
+
+                @Override
+                public void onFailure(Throwable caught) {
+                    // reported by presenter
+                }
+            });
+        }
+    }
+
     private class DeleteClickHandler implements ClickHandler {
 
         @Override
@@ -5,6 +5,8 @@ import java.util.List;
 import com.google.gwt.cell.client.ButtonCell;
 import com.google.gwt.cell.client.FieldUpdater;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.safehtml.shared.SafeHtml;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy;
@@ -57,10 +59,20 @@ public abstract class MySubscriptionsWidget implements IsWidget {
         };
         cellTable.addColumn(subscribedColumn, uiMessages.membership());
 
-        final ButtonCell cell = new ButtonCell();
+        final ButtonCell cell = new ButtonCell() {
+            @Override
+            public void render(Context context, SafeHtml data, SafeHtmlBuilder sb) {
+                if (data != null) {
+                    super.render(context, data, sb);
+                }
+            }
+        };
         final Column<GithubTeam, String> actionColumn = new Column<GithubTeam, String>(cell) {
             @Override
             public String getValue(GithubTeam object) {
+                if (MembershipStates.UNKNOWN.equals(object.getMembershipState())) {
+                    return null; // no action offered until the membership is known
+                }
                 return MembershipStates.NONE.equals(object.getMembershipState())
                         ? uiMessages.subscribe() : uiMessages.unsubscribe();
             }
@@ -68,6 +80,9 @@ public abstract class MySubscriptionsWidget implements IsWidget {
         actionColumn.setFieldUpdater(new FieldUpdater<GithubTeam, String>() {
             @Override
             public void update(int index, final GithubTeam object, String value) {
+                if (MembershipStates.UNKNOWN.equals(object.getMembershipState())) {
+                    return;
+                }
                 if (MembershipStates.NONE.equals(object.getMembershipState())) {
                     dispatchSubscribe(object);
                 } else {
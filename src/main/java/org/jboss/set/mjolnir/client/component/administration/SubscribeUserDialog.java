@@ -32,6 +32,8 @@ public class SubscribeUserDialog extends DialogBox {
     private AdministrationServiceAsync administrationService = AdministrationService.Util.getInstance();
     private HTMLPanel checkboxPanel;
     private Map<Integer, CheckBox> checkBoxes = new HashMap<Integer, CheckBox>();
+    // membership shown when the dialog was opened, only changed memberships are submitted
+    private Map<Integer, Boolean> initialValues = new HashMap<Integer, Boolean>();
     private String gitHubName;
 
     public SubscribeUserDialog(final String gitHubName) {
@@ -79,6 +81,7 @@ public class SubscribeUserDialog extends DialogBox {
     private void createCheckboxes() {
         checkboxPanel.clear();
         checkBoxes.clear();
+        initialValues.clear();
 
         checkboxPanel.add(new LoadingPanel());
 
@@ -106,7 +109,17 @@ public class SubscribeUserDialog extends DialogBox {
                                         || MembershipStates.PENDING.equals(team.getMembershipState());
                                 checkBox.setValue(value);
                                 item.add(checkBox);
-                                checkBoxes.put(team.getId(), checkBox);
+
+                                if (MembershipStates.UNKNOWN.equals(team.getMembershipState())) {
+                                    // membership couldn't be determined, so it can't be changed either
+                                    checkBox.setEnabled(false);
+                                    final HTMLPanel unknownLabel = new HTMLPanel("span", " *unknown*");
+                                    unknownLabel.setStyleName("lightText");
+                                    item.add(unknownLabel);
+                                } else {
+                                    checkBoxes.put(team.getId(), checkBox);
+                                    initialValues.put(team.getId(), value);
+                                }
 
                                 if (MembershipStates.PENDING.equals(team.getMembershipState())) {
                                     final HTMLPanel pendingLabel = new HTMLPanel("span", " *pending*");
@@ -130,7 +143,9 @@ public class SubscribeUserDialog extends DialogBox {
         for (Map.Entry<Integer, CheckBox> entry: checkBoxes.entrySet()) {
             final Integer teamId = entry.getKey();
             final CheckBox checkBox = entry.getValue();
-            data.put(teamId, checkBox.getValue());
+            if (!checkBox.getValue().equals(initialValues.get(teamId))) {
+                data.put(teamId, checkBox.getValue());
+            }
         }
         return data;
     }
@@ -27,6 +27,7 @@ import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.ColumnSortEvent;
+import com.google.gwt.user.cellview.client.ColumnSortList;
 import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy;
 import com.google.gwt.user.cellview.client.Header;
 import com.google.gwt.user.cellview.client.SimplePager;
@@ -36,7 +37,10 @@ import com.google.gwt.user.client.ui.Button;
 import com.google.gwt.user.client.ui.HTMLPanel;
 import com.google.gwt.user.client.ui.IsWidget;
 import com.google.gwt.user.client.ui.Widget;
+import com.google.gwt.view.client.AsyncDataProvider;
+import com.google.gwt.view.client.HasData;
 import com.google.gwt.view.client.ListDataProvider;
+import com.google.gwt.view.client.Range;
 import org.jboss.set.mjolnir.client.component.table.ConditionalActionCell;
 import org.jboss.set.mjolnir.client.component.table.DefaultCellTable;
 import org.jboss.set.mjolnir.client.component.table.DropDownCell;
@@ -49,6 +53,9 @@ import org.jboss.set.mjolnir.shared.domain.Subscription;
  *
  * Contains action button for editing and deleting related users. Allows filtering and sorting.
  *
+ * By default the table filters, sorts and pages data given by {@link #setData(List)}. Tables created with
+ * a {@link RemoteDataSource} leave that to the data source and only hold the currently displayed page.
+ *
  * @author Tomas Hofman (thofman@redhat.com)
  */
 public abstract class SubscriptionsTable implements IsWidget {
@@ -73,13 +80,27 @@ public abstract class SubscriptionsTable implements IsWidget {
     private List<HasCell<Subscription, ?>> hasCells = new ArrayList<>();
     private Column<Subscription, Subscription> actionColumn;
     private List<AbstractInputCell> filterCells = new ArrayList<>();
+    private final CellTable<Subscription> subscriptionTable;
+    private final RemoteDataSource remoteDataSource;
+    private AsyncDataProvider<Subscription> remoteDataProvider;
+    private TextColumn<Subscription> gitHubNameCol;
+    private int remoteRequestCounter;
 
     public SubscriptionsTable() {
+        this(null);
+    }
+
+    /**
+     * @param remoteDataSource source of table pages, or null if data are going to be given by {@link #setData(List)}
+     */
+    protected SubscriptionsTable(RemoteDataSource remoteDataSource) {
+        this.remoteDataSource = remoteDataSource;
+
         initStyles();
 
         initActionPanel();
 
-        final CellTable<Subscription> subscriptionTable = new DefaultCellTable<>();
+        subscriptionTable = new DefaultCellTable<>();
         subscriptionTable.setKeyboardSelectionPolicy(HasKeyboardSelectionPolicy.KeyboardSelectionPolicy.DISABLED);
         HTMLPanel dataPanel = new HTMLPanel("");
         dataPanel.add(subscriptionTable);
@@ -87,7 +108,13 @@ public abstract class SubscriptionsTable implements IsWidget {
 
         searchPredicate = new SubscriptionSearchPredicate();
         dataProvider = new ListDataProvider<>();
-        dataProvider.addDataDisplay(subscriptionTable);
+        if (remoteDataSource == null) {
+            dataProvider.addDataDisplay(subscriptionTable);
+        } else {
+            // display is attached on first refresh, when the data source is ready to serve
+            data = new ArrayList<>();
+            remoteDataProvider = new RemoteDataProvider();
+        }
 
 
         // column definitions
@@ -122,7 +149,7 @@ public abstract class SubscriptionsTable implements IsWidget {
         krbNameCol.setSortable(true);
         subscriptionTable.addColumn(krbNameCol, "Kerberos Username");
 
-        final TextColumn<Subscription> gitHubNameCol = new TextColumn<Subscription>() {
+        gitHubNameCol = new TextColumn<Subscription>() {
             @Override
             public String getValue(Subscription object) {
                 return object.getGitHubName();
@@ -146,7 +173,7 @@ public abstract class SubscriptionsTable implements IsWidget {
                 return object.isActiveKerberosAccount() ? "yes" : "no";
             }
         };
-        krbAccCol.setSortable(true);
+        krbAccCol.setSortable(remoteDataSource == null); // data source only sorts by names
         subscriptionTable.addColumn(krbAccCol, "Krb Account?");
 
         final TextColumn<Subscription> whitelistCol = new TextColumn<Subscription>() {
@@ -155,7 +182,7 @@ public abstract class SubscriptionsTable implements IsWidget {
                 return object.isWhitelisted() ? "yes" : "no";
             }
         };
-        whitelistCol.setSortable(true);
+        whitelistCol.setSortable(remoteDataSource == null);
         subscriptionTable.addColumn(whitelistCol, "Whitelist?");
 
         subscriptionTable.addColumn(actionColumn = createActionColumn(), "Actions");
@@ -163,23 +190,37 @@ public abstract class SubscriptionsTable implements IsWidget {
 
         // sorting
 
-        sortHandler = new ColumnSortEvent.ListHandler<Subscription>(dataProvider.getList()) {
-            @Override
-            public void onColumnSort(ColumnSortEvent event) {
-                super.onColumnSort(event);
-                dataProvider.refresh();
-            }
-        };
-        sortHandler.setComparator(krbNameCol, new KrbNameComparator());
-        sortHandler.setComparator(gitHubNameCol, new GitHubNameComparator());
-        sortHandler.setComparator(krbAccCol, new IsRegisteredComparator());
-        subscriptionTable.addColumnSortHandler(sortHandler);
-//        subscriptionTable.getColumnSortList().push(krbNameCol);
+        if (remoteDataSource == null) {
+            sortHandler = new ColumnSortEvent.ListHandler<Subscription>(dataProvider.getList()) {
+                @Override
+                public void onColumnSort(ColumnSortEvent event) {
+                    super.onColumnSort(event);
+                    dataProvider.refresh();
+                }
+            };
+            sortHandler.setComparator(krbNameCol, new KrbNameComparator());
+            sortHandler.setComparator(gitHubNameCol, new GitHubNameComparator());
+            sortHandler.setComparator(krbAccCol, new IsRegisteredComparator());
+            subscriptionTable.addColumnSortHandler(sortHandler);
+//            subscriptionTable.getColumnSortList().push(krbNameCol);
+        } else {
+            subscriptionTable.addColumnSortHandler(new ColumnSortEvent.Handler() {
+                @Override
+                public void onColumnSort(ColumnSortEvent event) {
+                    // pages are only reachable from the first one under the new order
+                    reloadFromFirstPage();
+                }
+            });
+            subscriptionTable.getColumnSortList().push(krbNameCol);
+        }
 
 
         // paging
 
-        final SimplePager pager = new SimplePager();
+        // data source pages can only be reached one after another, so there is no jumping forward
+        final SimplePager pager = remoteDataSource == null
+                ? new SimplePager()
+                : new SimplePager(SimplePager.TextLocation.CENTER, false, false);
         pager.setDisplay(subscriptionTable);
         pager.setPageSize(PAGE_SIZE);
         dataPanel.add(pager);
@@ -278,12 +319,38 @@ public abstract class SubscriptionsTable implements IsWidget {
     }
 
     public void refresh() {
+        if (remoteDataSource != null) {
+            // reload current page
+            clearSelection();
+            if (remoteDataProvider.getDataDisplays().isEmpty()) {
+                remoteDataProvider.addDataDisplay(subscriptionTable);
+            } else {
+                subscriptionTable.setVisibleRangeAndClearData(subscriptionTable.getVisibleRange(), true);
+            }
+            return;
+        }
+
         List<Subscription> filteredList = Lists.newArrayList(Iterables.filter(data, searchPredicate));
         clearSelection();
         dataProvider.setList(filteredList);
         sortHandler.setList(filteredList);
     }
 
+    private void applyFilter() {
+        if (remoteDataSource != null) {
+            reloadFromFirstPage();
+        } else {
+            refresh();
+        }
+    }
+
+    private void reloadFromFirstPage() {
+        clearSelection();
+        if (!remoteDataProvider.getDataDisplays().isEmpty()) {
+            subscriptionTable.setVisibleRangeAndClearData(new Range(0, PAGE_SIZE), true);
+        }
+    }
+
     /**
      * Creates list of headers containing input boxes for specifying filtering criteria.
      *
@@ -306,7 +373,7 @@ public abstract class SubscriptionsTable implements IsWidget {
             @Override
             public void update(String value) {
                 searchPredicate.setKrbNameExpression(value);
-                refresh();
+                applyFilter();
             }
         });
         filterHeaders.add(krbNameFilterHeader);
@@ -324,7 +391,7 @@ public abstract class SubscriptionsTable implements IsWidget {
             @Override
             public void update(String value) {
                 searchPredicate.setGitHubNameExpression(value);
-                refresh();
+                applyFilter();
             }
         });
         filterHeaders.add(gitHubNameFilterHeader);
@@ -352,7 +419,7 @@ public abstract class SubscriptionsTable implements IsWidget {
                     boolValue = null;
                 }
                 searchPredicate.setKrbAccount(boolValue);
-                refresh();
+                applyFilter();
             }
         });
         filterHeaders.add(krbAccountFilterHeader);
@@ -379,7 +446,7 @@ public abstract class SubscriptionsTable implements IsWidget {
                 }
 
                 searchPredicate.setWhitelisted(boolValue);
-                refresh();
+                applyFilter();
             }
         });
         filterHeaders.add(whitelistFilterHeader);
@@ -433,6 +500,75 @@ public abstract class SubscriptionsTable implements IsWidget {
     protected abstract void dispatchWhitelist(List<Subscription> selectedItems, boolean whitelist);
 
 
+    // remote data
+
+    /**
+     * Source of table pages for tables whose data are filtered, sorted and paged elsewhere, typically on the server.
+     */
+    public interface RemoteDataSource {
+
+        /**
+         * Loads page of rows. Besides the first page, only pages adjacent to previously loaded ones are requested.
+         *
+         * @param predicate filtering criteria
+         * @param sortByGitHubName sort by GitHub name rather than krb name
+         * @param ascending sort order
+         * @param start index of the first row of the page
+         * @param length page size
+         * @param callback receives the page
+         */
+        void load(SubscriptionSearchPredicate predicate, boolean sortByGitHubName, boolean ascending,
+                  int start, int length, PageCallback callback);
+    }
+
+    public interface PageCallback {
+
+        /**
+         * @param start index of the first row of the page, may differ from the requested one if the data source
+         *              had to start over from the first page
+         * @param rows page rows
+         * @param hasMore whether more rows follow the page
+         */
+        void onPage(int start, List<Subscription> rows, boolean hasMore);
+    }
+
+    /**
+     * Requests pages from the remote data source when the displayed range changes.
+     */
+    private class RemoteDataProvider extends AsyncDataProvider<Subscription> {
+
+        @Override
+        protected void onRangeChanged(HasData<Subscription> display) {
+            final Range range = display.getVisibleRange();
+            final ColumnSortList sortList = subscriptionTable.getColumnSortList();
+            final ColumnSortList.ColumnSortInfo sortInfo = sortList.size() > 0 ? sortList.get(0) : null;
+            final boolean sortByGitHubName = sortInfo != null && sortInfo.getColumn() == gitHubNameCol;
+            final boolean ascending = sortInfo == null || sortInfo.isAscending();
+            final int request = ++remoteRequestCounter;
+
+            remoteDataSource.load(searchPredicate, sortByGitHubName, ascending, range.getStart(), range.getLength(),
+                    new PageCallback() {
+                        @Override
+                        public void onPage(int start, List<Subscription> rows, boolean hasMore) {
+                            if (request != remoteRequestCounter) {
+                                return; // superseded by later request
+                            }
+                            if (start != subscriptionTable.getVisibleRange().getStart()) {
+                                // data source started over, move the display there, which loads the page again
+                                subscriptionTable.setVisibleRange(start, range.getLength());
+                                return;
+                            }
+                            data = new ArrayList<>(rows);
+                            clearSelection();
+                            // exact row count is only known on the last page
+                            updateRowCount(start + rows.size() + (hasMore ? 1 : 0), !hasMore);
+                            updateRowData(start, data);
+                        }
+                    });
+        }
+    }
+
+
     // comparators
 
     /**
@@ -46,6 +46,8 @@ public abstract class UserAndSubscriptionsUserDialog extends DialogBox {
     private AdministrationServiceAsync administrationService = AdministrationService.Util.getInstance();
     private HTMLPanel checkboxPanel;
     private Map<Integer, CheckBox> checkBoxes = new HashMap<>();
+    // membership shown when the dialog was opened, only changed memberships are submitted
+    private Map<Integer, Boolean> initialValues = new HashMap<>();
     private Subscription subscription;
 
     private TextBox krbNameBox = new TextBox();
@@ -139,6 +141,7 @@ public abstract class UserAndSubscriptionsUserDialog extends DialogBox {
     private void createCheckboxes() {
         checkboxPanel.clear();
         checkBoxes.clear();
+        initialValues.clear();
 
         checkboxPanel.add(new LoadingPanel());
 
@@ -166,7 +169,17 @@ public abstract class UserAndSubscriptionsUserDialog extends DialogBox {
                                         || MembershipStates.PENDING.equals(team.getMembershipState());
                                 checkBox.setValue(value);
                                 item.add(checkBox);
-                                checkBoxes.put(team.getId(), checkBox);
+
+                                if (MembershipStates.UNKNOWN.equals(team.getMembershipState())) {
+                                    // membership couldn't be determined, so it can't be changed either
+                                    checkBox.setEnabled(false);
+                                    final HTMLPanel unknownLabel = new HTMLPanel("span", " *unknown*");
+                                    unknownLabel.setStyleName("lightText");
+                                    item.add(unknownLabel);
+                                } else {
+                                    checkBoxes.put(team.getId(), checkBox);
+                                    initialValues.put(team.getId(), value);
+                                }
 
                                 if (MembershipStates.PENDING.equals(team.getMembershipState())) {
                                     final HTMLPanel pendingLabel = new HTMLPanel("span", " *pending*");
@@ -268,7 +281,9 @@ public abstract class UserAndSubscriptionsUserDialog extends DialogBox {
         for (Map.Entry<Integer, CheckBox> entry: checkBoxes.entrySet()) {
             final Integer teamId = entry.getKey();
             final CheckBox checkBox = entry.getValue();
-            data.put(teamId, checkBox.getValue());
+            if (!checkBox.getValue().equals(initialValues.get(teamId))) {
+                data.put(teamId, checkBox.getValue());
+            }
         }
         return data;
     }
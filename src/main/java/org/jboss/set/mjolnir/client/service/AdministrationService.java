@@ -11,6 +11,8 @@ import org.jboss.set.mjolnir.shared.domain.EntityUpdateResult;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
 import org.jboss.set.mjolnir.shared.domain.GithubTeam;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 import org.jboss.set.mjolnir.shared.domain.SubscriptionSummary;
 
@@ -35,8 +37,12 @@ public interface AdministrationService extends RemoteService {
 
     List<Subscription> getRegisteredUsers() throws ApplicationException;
 
+    RegisteredUsersPage getRegisteredUsersPage(RegisteredUsersQuery query) throws ApplicationException;
+
     Boolean checkUserExists(String userName);
 
+    void invalidateLdapCache() throws ApplicationException;
+
     EntityUpdateResult<RegisteredUser> registerUser(RegisteredUser user) throws ApplicationException;
 
     void deleteUser(RegisteredUser user) throws ApplicationException;
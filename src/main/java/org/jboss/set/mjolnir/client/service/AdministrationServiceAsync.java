@@ -5,6 +5,8 @@ import org.jboss.set.mjolnir.shared.domain.EntityUpdateResult;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
 import org.jboss.set.mjolnir.shared.domain.GithubTeam;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 import org.jboss.set.mjolnir.shared.domain.SubscriptionSummary;
 
@@ -25,8 +27,12 @@ public interface AdministrationServiceAsync {
 
     void getRegisteredUsers(AsyncCallback<List<Subscription>> async);
 
+    void getRegisteredUsersPage(RegisteredUsersQuery query, AsyncCallback<RegisteredUsersPage> async);
+
     void checkUserExists(String userName, AsyncCallback<Boolean> async);
 
+    void invalidateLdapCache(AsyncCallback<Void> async);
+
     void registerUser(RegisteredUser user, AsyncCallback<EntityUpdateResult<RegisteredUser>> async);
 
     void deleteUser(RegisteredUser user, AsyncCallback<Void> asyncCallback);
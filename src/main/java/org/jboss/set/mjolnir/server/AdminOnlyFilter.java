@@ -14,9 +14,9 @@ public class AdminOnlyFilter extends AuthenticationFilter {
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
-        super.doFilter(servletRequest, servletResponse, filterChain);
+        // the chain must only be invoked once, so super.doFilter() is not called
         RegisteredUser authenticatedUser = getAuthenticatedUser((HttpServletRequest) servletRequest);
-        if (authenticatedUser != null && authenticatedUser.isAdmin()) {
+        if (authenticatedUser != null && authenticatedUser.isLoggedIn() && authenticatedUser.isAdmin()) {
             filterChain.doFilter(servletRequest, servletResponse);
         } else {
             ((HttpServletResponse) servletResponse).sendError(HttpServletResponse.SC_UNAUTHORIZED);
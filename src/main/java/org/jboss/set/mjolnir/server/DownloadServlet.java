@@ -4,6 +4,7 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.set.mjolnir.server.bean.GitHubSubscriptionBean;
+import org.jboss.set.mjolnir.server.bean.MembershipRepository;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 
 import javax.ejb.EJB;
@@ -12,6 +13,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -23,6 +25,9 @@ public class DownloadServlet extends HttpServlet {
     @EJB
     private GitHubSubscriptionBean gitHubSubscriptionBean;
 
+    @EJB
+    private MembershipRepository membershipRepository;
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String org = req.getParameter("org");
@@ -44,12 +49,19 @@ public class DownloadServlet extends HttpServlet {
         resp.addHeader("Content-Disposition", "attachment;filename=gh_org_members.csv");
 
         List<Subscription> subscriptions;
+        Date syncedAt;
         if (!StringUtils.isBlank(team)) {
             int teamId = Integer.parseInt(team);
+            syncedAt = membershipRepository.getTeamSyncTime(teamId);
             subscriptions = gitHubSubscriptionBean.getTeamSubscriptions(teamId);
         } else {
+            syncedAt = membershipRepository.getOrganizationSyncTime(org);
             subscriptions = gitHubSubscriptionBean.getOrganizationSubscriptions(org);
         }
+        if (syncedAt != null) {
+            // members were served from the local mirror, tell the client how fresh they are
+            resp.setDateHeader("Last-Modified", syncedAt.getTime());
+        }
 
         CollectionUtils.filter(subscriptions, new FilteringPredicate(ghName, krbName, krbAccountBoolean,
                 whitelistedBoolean));
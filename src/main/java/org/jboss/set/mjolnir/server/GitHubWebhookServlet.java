@@ -0,0 +1,139 @@
+package org.jboss.set.mjolnir.server;
+
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
+import org.jboss.set.mjolnir.server.bean.WebhookEventProcessor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ejb.EJB;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Receives GitHub webhook deliveries and passes them to {@link WebhookEventProcessor}.
+ *
+ * Deliveries must be signed with the secret configured by "github.webhook_secret" application parameter
+ * (X-Hub-Signature-256 header), unsigned deliveries are rejected. If the secret is not configured, the endpoint
+ * is disabled.
+ *
+ * (See https://developer.github.com/webhooks/securing/).
+ */
+@WebServlet("/github-webhook")
+public class GitHubWebhookServlet extends HttpServlet {
+
+    static final String HEADER_EVENT = "X-GitHub-Event";
+    static final String HEADER_DELIVERY = "X-GitHub-Delivery";
+    static final String HEADER_SIGNATURE = "X-Hub-Signature-256";
+    static final String SIGNATURE_PREFIX = "sha256=";
+
+    private static final int MAX_PAYLOAD_SIZE = 5 * 1024 * 1024; // GitHub caps payloads at 25 MB, ours are small
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private ApplicationParameters applicationParameters;
+
+    @EJB
+    private WebhookEventProcessor eventProcessor;
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final String secret = applicationParameters.getParameter(ApplicationParameters.GITHUB_WEBHOOK_SECRET_KEY);
+        if (secret == null || secret.isEmpty()) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Webhook secret not configured.");
+            return;
+        }
+
+        final String event = req.getHeader(HEADER_EVENT);
+        if (event == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing " + HEADER_EVENT + " header.");
+            return;
+        }
+
+        final byte[] body = readBody(req.getInputStream());
+        if (body == null) {
+            resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        if (!isSignatureValid(secret, body, req.getHeader(HEADER_SIGNATURE))) {
+            logger.warnf("Rejecting webhook delivery %s with invalid signature", req.getHeader(HEADER_DELIVERY));
+            resp.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid signature.");
+            return;
+        }
+
+        final boolean processed;
+        try {
+            processed = eventProcessor.process(req.getHeader(HEADER_DELIVERY), event, new String(body, UTF_8));
+        } catch (IllegalArgumentException e) {
+            logger.warnf("Rejecting malformed webhook delivery %s: %s", req.getHeader(HEADER_DELIVERY), e.getMessage());
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType("text/plain");
+        resp.getWriter().println(processed ? "Processed" : "Already processed");
+    }
+
+    /**
+     * Verifies HMAC SHA-256 signature of the payload.
+     *
+     * @param secret webhook secret
+     * @param body raw payload
+     * @param signatureHeader value of X-Hub-Signature-256 header
+     * @return true if the signature matches
+     */
+    static boolean isSignatureValid(String secret, byte[] body, String signatureHeader) {
+        if (signatureHeader == null || !signatureHeader.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        final byte[] expected = sign(secret, body).getBytes(UTF_8);
+        final byte[] actual = signatureHeader.substring(SIGNATURE_PREFIX.length()).toLowerCase().getBytes(UTF_8);
+        return MessageDigest.isEqual(expected, actual); // constant time comparison
+    }
+
+    /**
+     * @return hex encoded HMAC SHA-256 of the payload
+     */
+    static String sign(String secret, byte[] body) {
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(UTF_8), "HmacSHA256"));
+            final byte[] digest = mac.doFinal(body);
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    /**
+     * @return payload bytes or null if the payload exceeds {@link #MAX_PAYLOAD_SIZE}
+     */
+    private static byte[] readBody(InputStream is) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+            if (os.size() > MAX_PAYLOAD_SIZE) {
+                return null;
+            }
+        }
+        return os.toByteArray();
+    }
+}
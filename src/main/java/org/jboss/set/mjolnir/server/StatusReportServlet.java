@@ -12,6 +12,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.jboss.set.mjolnir.server.service.statuscheck.AbstractStatusCheck;
+import org.jboss.set.mjolnir.server.service.statuscheck.CacheStatusCheck;
 import org.jboss.set.mjolnir.server.service.statuscheck.DatabaseStatusCheck;
 import org.jboss.set.mjolnir.server.service.statuscheck.GitHubStatusCheck;
 import org.jboss.set.mjolnir.server.service.statuscheck.KerberosStatusCheck;
@@ -39,6 +40,9 @@ public class StatusReportServlet extends HttpServlet {
     @Inject
     private LdapStatusCheck ldapStatusCheck;
 
+    @Inject
+    private CacheStatusCheck cacheStatusCheck;
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
@@ -46,7 +50,7 @@ public class StatusReportServlet extends HttpServlet {
         boolean statusOK = true;
 
         AbstractStatusCheck[] checks = new AbstractStatusCheck[] {
-                databaseStatusCheck, gitHubStatusCheck, kerberosStatusCheck, ldapStatusCheck
+                databaseStatusCheck, gitHubStatusCheck, kerberosStatusCheck, ldapStatusCheck, cacheStatusCheck
         };
 
         for (AbstractStatusCheck check: checks) {
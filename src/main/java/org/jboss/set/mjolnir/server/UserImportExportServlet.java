@@ -0,0 +1,153 @@
+package org.jboss.set.mjolnir.server;
+
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.bean.UserImportBean;
+import org.jboss.set.mjolnir.server.bean.UserImportResult;
+import org.jboss.set.mjolnir.server.bean.UserPage;
+import org.jboss.set.mjolnir.server.bean.UserRepository;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
+
+import javax.ejb.EJB;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk import and export of registered users, admin only (see AdminOnlyFilter mapping in web.xml).
+ *
+ * GET exports all registered users in format selected by "format" parameter ("csv" or "jsonl"), CSV is
+ * the default. POST imports users from the request body and responds with result of each row. Imports must declare
+ * their format by content type (text/csv or application/x-ndjson), other content types are rejected, so that
+ * the import can't be triggered by a cross-site form post. Admin flags of imported users are ignored, whitelist
+ * flags are stored.
+ *
+ * Both directions are streamed: the export reads users page by page, the import processes rows in batches
+ * (see {@link UserImportBean}) and writes their results before reading further rows.
+ */
+@WebServlet("/mjolnir/auth/users")
+public class UserImportExportServlet extends HttpServlet {
+
+    static final int EXPORT_PAGE_SIZE = 500;
+    static final int IMPORT_BATCH_SIZE = 100;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private UserRepository userRepository;
+
+    @EJB
+    private UserImportBean userImportBean;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final UserRecordFormat format;
+        try {
+            format = UserRecordFormat.forName(req.getParameter("format"));
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        resp.setContentType(format.getContentType());
+        resp.setCharacterEncoding(UTF_8);
+        resp.addHeader("Content-Disposition", "attachment;filename=users." + format.getExtension());
+
+        final Writer writer = new OutputStreamWriter(resp.getOutputStream(), UTF_8);
+        format.writeHeader(writer);
+
+        RegisteredUsersQuery query = new RegisteredUsersQuery();
+        int count = 0;
+        while (true) {
+            final UserPage page = userRepository.getUsers(query, EXPORT_PAGE_SIZE);
+            for (RegisteredUser user : page.getUsers()) {
+                format.write(writer, user);
+            }
+            count += page.getUsers().size();
+            writer.flush();
+            if (!page.hasMore() || page.getUsers().isEmpty()) {
+                break;
+            }
+            query = query.withCursor(page.getCursor(page.getUsers().size() - 1));
+        }
+        writer.close();
+        logger.debugf("Exported %d users", count);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final UserRecordFormat format = UserRecordFormat.forContentType(req.getContentType());
+        if (format == null) {
+            resp.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Content type must be "
+                    + UserRecordFormat.CSV.getContentType() + " or " + UserRecordFormat.JSON_LINES.getContentType());
+            return;
+        }
+        final String name = req.getParameter("format");
+        if (name != null && !name.equalsIgnoreCase(format.getExtension())) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Format doesn't match content type");
+            return;
+        }
+
+        final String encoding = req.getCharacterEncoding() != null ? req.getCharacterEncoding() : UTF_8;
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(req.getInputStream(), encoding));
+
+        resp.setContentType(format.getContentType());
+        resp.setCharacterEncoding(UTF_8);
+        final Writer writer = new OutputStreamWriter(resp.getOutputStream(), UTF_8);
+        format.writeResultHeader(writer);
+
+        final int[] counts = new int[UserImportResult.Status.values().length];
+        final List<UserImportResult> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int row = 0;
+        boolean end = false;
+        while (!end) {
+            try {
+                final RegisteredUser user = format.read(reader);
+                if (user == null) {
+                    end = true;
+                } else {
+                    batch.add(new UserImportResult(++row, user));
+                }
+            } catch (IllegalArgumentException e) {
+                final UserImportResult result = new UserImportResult(++row, null);
+                result.addFailure(e.getMessage());
+                batch.add(result);
+            }
+
+            if (batch.size() >= IMPORT_BATCH_SIZE || (end && !batch.isEmpty())) {
+                userImportBean.importUsers(batch);
+                for (UserImportResult result : batch) {
+                    format.writeResult(writer, result);
+                    counts[result.getStatus().ordinal()]++;
+                }
+                writer.flush();
+                batch.clear();
+            }
+        }
+        writer.close();
+
+        logger.infof("Imported %d users, %d rows invalid, %d rows failed",
+                counts[UserImportResult.Status.IMPORTED.ordinal()], counts[UserImportResult.Status.INVALID.ordinal()],
+                counts[UserImportResult.Status.FAILED.ordinal()]);
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserImportBean(UserImportBean userImportBean) {
+        this.userImportBean = userImportBean;
+    }
+}
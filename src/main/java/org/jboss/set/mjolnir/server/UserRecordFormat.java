@@ -0,0 +1,322 @@
+package org.jboss.set.mjolnir.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.jboss.set.mjolnir.server.bean.UserImportResult;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats of user import and export, both are read and written record by record, so that imports and exports
+ * of any size can be streamed.
+ */
+enum UserRecordFormat {
+
+    /**
+     * Semicolon separated values with header line, values containing separators or quotes are quoted.
+     */
+    CSV("text/csv", "csv") {
+
+        @Override
+        RegisteredUser read(BufferedReader reader) throws IOException {
+            List<String> fields;
+            do {
+                fields = readCsvRecord(reader);
+                if (fields == null) {
+                    return null;
+                }
+                // skip blank lines and header
+            } while ((fields.size() == 1 && fields.get(0).trim().isEmpty())
+                    || USER_HEADER[0].equalsIgnoreCase(fields.get(0).trim()));
+
+            final RegisteredUser user = new RegisteredUser();
+            user.setKrbName(emptyToNull(field(fields, 0)));
+            user.setGitHubName(emptyToNull(field(fields, 1)));
+            user.setNote(emptyToNull(field(fields, 2)));
+            user.setResponsiblePerson(emptyToNull(field(fields, 3)));
+            user.setAdmin(parseBoolean(USER_HEADER[4], field(fields, 4)));
+            user.setWhitelisted(parseBoolean(USER_HEADER[5], field(fields, 5)));
+            return user;
+        }
+
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writeCsvRecord(writer, USER_HEADER);
+        }
+
+        @Override
+        void write(Writer writer, RegisteredUser user) throws IOException {
+            writeCsvRecord(writer, user.getKrbName(), user.getGitHubName(), user.getNote(),
+                    user.getResponsiblePerson(), String.valueOf(user.isAdmin()), String.valueOf(user.isWhitelisted()));
+        }
+
+        @Override
+        void writeResultHeader(Writer writer) throws IOException {
+            writeCsvRecord(writer, "Row", "KRB name", "GH name", "Result", "Messages");
+        }
+
+        @Override
+        void writeResult(Writer writer, UserImportResult result) throws IOException {
+            final RegisteredUser user = result.getUser();
+            final StringBuilder messages = new StringBuilder();
+            for (String message : result.getMessages()) {
+                messages.append(messages.length() > 0 ? " " : "").append(message);
+            }
+            writeCsvRecord(writer, String.valueOf(result.getRow()), user != null ? user.getKrbName() : null,
+                    user != null ? user.getGitHubName() : null, result.getStatus().name(), messages.toString());
+        }
+    },
+
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES("application/x-ndjson", "jsonl") {
+
+        @Override
+        RegisteredUser read(BufferedReader reader) throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+
+            final JsonElement element;
+            try {
+                element = new JsonParser().parse(line);
+            } catch (JsonParseException e) {
+                throw new IllegalArgumentException("Invalid JSON.");
+            }
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("Record is not a JSON object.");
+            }
+            final JsonObject object = element.getAsJsonObject();
+            final RegisteredUser user = new RegisteredUser();
+            user.setKrbName(emptyToNull(getString(object, "krbName")));
+            user.setGitHubName(emptyToNull(getString(object, "gitHubName")));
+            user.setNote(emptyToNull(getString(object, "note")));
+            user.setResponsiblePerson(emptyToNull(getString(object, "responsiblePerson")));
+            user.setAdmin(parseBoolean("admin", getString(object, "admin")));
+            user.setWhitelisted(parseBoolean("whitelisted", getString(object, "whitelisted")));
+            return user;
+        }
+
+        @Override
+        void writeHeader(Writer writer) {
+        }
+
+        @Override
+        void write(Writer writer, RegisteredUser user) throws IOException {
+            final JsonObject object = new JsonObject();
+            addProperty(object, "krbName", user.getKrbName());
+            addProperty(object, "gitHubName", user.getGitHubName());
+            addProperty(object, "note", user.getNote());
+            addProperty(object, "responsiblePerson", user.getResponsiblePerson());
+            object.addProperty("admin", user.isAdmin());
+            object.addProperty("whitelisted", user.isWhitelisted());
+            writer.write(object.toString());
+            writer.write('\n');
+        }
+
+        @Override
+        void writeResultHeader(Writer writer) {
+        }
+
+        @Override
+        void writeResult(Writer writer, UserImportResult result) throws IOException {
+            final JsonObject object = new JsonObject();
+            object.addProperty("row", result.getRow());
+            if (result.getUser() != null) {
+                addProperty(object, "krbName", result.getUser().getKrbName());
+                addProperty(object, "gitHubName", result.getUser().getGitHubName());
+            }
+            object.addProperty("result", result.getStatus().name());
+            final JsonArray messages = new JsonArray();
+            for (String message : result.getMessages()) {
+                messages.add(new JsonPrimitive(message));
+            }
+            object.add("messages", messages);
+            writer.write(object.toString());
+            writer.write('\n');
+        }
+    };
+
+    private static final char CSV_DELIMITER = ';';
+    private static final String[] USER_HEADER = {
+            "KRB name", "GH name", "Note", "Responsible person", "Admin", "Whitelisted"
+    };
+
+    private final String contentType;
+    private final String extension;
+
+    UserRecordFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Reads next user.
+     *
+     * @return user, or null at the end of input
+     * @throws IllegalArgumentException if the record is malformed, reading can continue with the next record
+     */
+    abstract RegisteredUser read(BufferedReader reader) throws IOException;
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void write(Writer writer, RegisteredUser user) throws IOException;
+
+    abstract void writeResultHeader(Writer writer) throws IOException;
+
+    abstract void writeResult(Writer writer, UserImportResult result) throws IOException;
+
+    /**
+     * @param name format parameter value ("csv" or "jsonl")
+     * @return matching format, CSV if name is not given
+     */
+    static UserRecordFormat forName(String name) {
+        if (name == null) {
+            return CSV;
+        }
+        for (UserRecordFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format: " + name);
+    }
+
+    /**
+     * Content types that HTML forms can send (e.g. text/plain) are not recognized, so that a cross-site form
+     * can't submit an import.
+     *
+     * @param contentType content type of the request
+     * @return matching format, or null if the content type is not CSV or JSON lines
+     */
+    static UserRecordFormat forContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        final String mediaType = contentType.split(";")[0].trim().toLowerCase();
+        if (mediaType.equals(CSV.contentType)) {
+            return CSV;
+        }
+        if (mediaType.equals(JSON_LINES.contentType) || mediaType.equals("application/jsonl")
+                || mediaType.equals("application/json")) {
+            return JSON_LINES;
+        }
+        return null;
+    }
+
+    /**
+     * @return fields of next record, or null at the end of input
+     */
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (; c != -1; c = reader.read()) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == CSV_DELIMITER) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static void writeCsvRecord(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(CSV_DELIMITER);
+            }
+            final String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf(CSV_DELIMITER) >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+                    || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if (value == null || value.isEmpty() || "false".equalsIgnoreCase(value)) {
+            return false;
+        } else if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Invalid value of " + name + ": " + value);
+    }
+
+    private static String getString(JsonObject object, String name) {
+        final JsonElement element = object.get(name);
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Invalid value of " + name + ".");
+        }
+        return element.getAsString();
+    }
+
+    private static void addProperty(JsonObject object, String name, String value) {
+        if (value != null) {
+            object.addProperty(name, value);
+        }
+    }
+}
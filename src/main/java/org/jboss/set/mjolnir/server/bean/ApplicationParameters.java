@@ -10,7 +10,11 @@ import java.sql.SQLException;
 public interface ApplicationParameters {
 
     String  GITHUB_TOKEN_KEY = "github.token";
+    String GITHUB_CONNECT_TIMEOUT_KEY = "github.connect_timeout";
+    String GITHUB_READ_TIMEOUT_KEY = "github.read_timeout";
+    String GITHUB_WEBHOOK_SECRET_KEY = "github.webhook_secret";
     String LDAP_URL_KEY = "ldap.url";
+    String LDAP_PAGE_SIZE_KEY = "ldap.page_size";
     String KRB5_REALM_KEY = "krb5.realm";
     String KRB5_KDC_KEY = "krb5.kdc";
 
@@ -33,6 +33,7 @@ public class EntityManagerFactoryProducer {
         Map<String, String> properties = new HashMap<>();
         properties.put("hibernate.connection.datasource", "java:jboss/datasources/" + appName + "/MjolnirDS");
 
+        // the unit isn't managed by the server, its second-level cache provider is set in persistence.xml
         return new HibernatePersistenceProvider().createEntityManagerFactory("MjolnirPU", properties);
     }
 
@@ -2,26 +2,46 @@ package org.jboss.set.mjolnir.server.bean;
 
 import org.eclipse.egit.github.core.User;
 import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
 import org.eclipse.egit.github.core.client.RequestException;
-import org.eclipse.egit.github.core.service.OrganizationService;
 import org.hibernate.HibernateException;
 import org.jboss.logging.Logger;
 import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.jboss.set.mjolnir.server.github.ExtendedOrganizationService;
 import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
+import org.jboss.set.mjolnir.server.github.GitHubCircuitBreaker;
+import org.jboss.set.mjolnir.server.github.GitHubRequestExecutor;
+import org.jboss.set.mjolnir.server.github.MemberListCache;
+import org.jboss.set.mjolnir.server.github.PagePrefetcher;
+import org.jboss.set.mjolnir.server.util.SingleFlight;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
 import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+import org.jboss.set.mjolnir.shared.domain.MembershipStates;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 import org.jboss.set.mjolnir.shared.domain.SubscriptionSummary;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author Tomas Hofman (thofman@redhat.com)
@@ -29,6 +49,12 @@ import java.util.Map;
 @Stateless
 public class GitHubSubscriptionBean {
 
+    private static final int MEMBERSHIP_LOOKUP_TIMEOUT = 10; // seconds
+    private static final int MEMBERS_PAGE_SIZE = 100;
+    private static final int STALE_MEMBERS_TIMEOUT = 5; // seconds
+    static final long STALE_MEMBERS_AGE = TimeUnit.MINUTES.toMillis(30);
+    static final int MAX_REGISTERED_USERS_PAGE_SIZE = 500;
+
     private final Logger logger = Logger.getLogger(getClass().getName());
 
     @EJB
@@ -43,32 +69,73 @@ public class GitHubSubscriptionBean {
     @EJB
     private UserRepository userRepository;
 
-    private OrganizationService organizationService;
+    @EJB
+    private MembershipRepository membershipRepository;
+
+    @Inject
+    private GitHubClient gitHubClient;
+
+    @Inject
+    private GitHubRequestExecutor requestExecutor;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    private MemberListCache memberListCache;
+
+    @Inject
+    private GitHubCircuitBreaker circuitBreaker;
+
+    private ExtendedOrganizationService organizationService;
     private ExtendedTeamService teamService;
 
 
     @PostConstruct
     public void initBean() {
-        final String token = applicationParameters.getMandatoryParameter(ApplicationParameters.GITHUB_TOKEN_KEY);
-
-        final GitHubClient client = new GitHubClient();
-        client.setOAuth2Token(token);
-        organizationService = new OrganizationService(client);
-        teamService = new ExtendedTeamService(client);
+        organizationService = new ExtendedOrganizationService(gitHubClient);
+        teamService = new ExtendedTeamService(gitHubClient);
     }
 
     /**
      * Retrieves users subscribed to a team.
      *
+     * Members are read from the local mirror if the team has been synchronized already, otherwise from GitHub
+     * (and stored in the mirror). Concurrent calls for the same team share single computation.
+     *
      * @param teamId GH team id
      * @return subscriptions
      */
-    public List<Subscription> getTeamSubscriptions(int teamId) {
+    public List<Subscription> getTeamSubscriptions(final int teamId) {
+        return new ArrayList<>(singleFlight.execute("team-subscriptions:" + teamId,
+                new Callable<List<Subscription>>() {
+                    @Override
+                    public List<Subscription> call() {
+                        return loadTeamSubscriptions(teamId);
+                    }
+                }));
+    }
+
+    private List<Subscription> loadTeamSubscriptions(int teamId) {
         try {
+            final List<String> members = membershipRepository.getTeamMembers(teamId);
+            if (members != null) {
+                logger.debugf("Retrieved %d team members from mirror", members.size());
+                return markStale(createSubscriptions(members), membershipRepository.getTeamSyncTime(teamId));
+            }
             logger.debug("Retrieving team members");
-            List<User> members = teamService.getMembers(teamId);
-            logger.debugf("Retrieved %d users", members.size());
-            return createSubscriptions(members);
+            final List<Subscription> subscriptions = loadLiveSubscriptions("team:" + teamId,
+                    teamService.pageMembers(teamId, MEMBERS_PAGE_SIZE));
+            if (!isStale(subscriptions)) {
+                try {
+                    membershipRepository.updateTeamMembers(teamId, getGitHubNames(subscriptions),
+                            teamService.getInvitedLogins(teamId));
+                } catch (IOException | RuntimeException e) {
+                    // the mirror is going to be populated by the next synchronization
+                    logger.warnf("Couldn't store members of team %d: %s", teamId, e);
+                }
+            }
+            return subscriptions;
         } catch (IOException e) {
             throw new ApplicationException(e);
         }
@@ -77,20 +144,132 @@ public class GitHubSubscriptionBean {
     /**
      * Retrieves users subscribed to an organization.
      *
+     * Members are read from the local mirror if the organization has been synchronized already, otherwise
+     * from GitHub (and stored in the mirror). Concurrent calls for the same organization share single computation.
+     *
      * @param org GH organization
      * @return subscriptions
      */
-    public List<Subscription> getOrganizationSubscriptions(String org) {
+    public List<Subscription> getOrganizationSubscriptions(final String org) {
+        return new ArrayList<>(singleFlight.execute("org-subscriptions:" + org.toLowerCase(),
+                new Callable<List<Subscription>>() {
+                    @Override
+                    public List<Subscription> call() {
+                        return loadOrganizationSubscriptions(org);
+                    }
+                }));
+    }
+
+    private List<Subscription> loadOrganizationSubscriptions(String org) {
         try {
+            final List<String> members = membershipRepository.getOrganizationMembers(org);
+            if (members != null) {
+                logger.debugf("Retrieved %d organization members from mirror", members.size());
+                return markStale(createSubscriptions(members), membershipRepository.getOrganizationSyncTime(org));
+            }
             logger.debug("Retrieving organization members");
-            List<User> members = organizationService.getMembers(org);
-            logger.debugf("Retrieved %d users", members.size());
-            return createSubscriptions(members);
+            final List<Subscription> subscriptions = loadLiveSubscriptions("org:" + org.toLowerCase(),
+                    organizationService.pageMembers(org, MEMBERS_PAGE_SIZE));
+            if (!isStale(subscriptions)) {
+                try {
+                    membershipRepository.updateOrganizationMembers(org, getGitHubNames(subscriptions));
+                } catch (RuntimeException e) {
+                    logger.warnf("Couldn't store members of organization %s: %s", org, e);
+                }
+            }
+            return subscriptions;
         } catch (IOException e) {
             throw new ApplicationException(e);
         }
     }
 
+    /**
+     * Marks subscriptions read from the mirror as stale, if the mirror wasn't synchronized for a while (e.g.
+     * because GitHub is unavailable).
+     */
+    private List<Subscription> markStale(List<Subscription> subscriptions, Date syncedAt) {
+        if (syncedAt != null && currentTimeMillis() - syncedAt.getTime() > STALE_MEMBERS_AGE) {
+            for (Subscription subscription : subscriptions) {
+                subscription.setStaleSince(syncedAt);
+            }
+        }
+        return subscriptions;
+    }
+
+    /**
+     * Retrieves members from GitHub. If the members were retrieved before, and GitHub is unavailable or doesn't
+     * respond within {@link #STALE_MEMBERS_TIMEOUT}, previously retrieved members are returned (marked as stale)
+     * while the refresh continues in background.
+     *
+     * This covers organizations and teams missing in the mirror, e.g. when storing of retrieved members failed
+     * or when a team has been reset by a webhook event, until the next synchronization.
+     */
+    private List<Subscription> loadLiveSubscriptions(String cacheKey, final PageIterator<User> pages)
+            throws IOException {
+        final MemberListCache.Entry cached = memberListCache.get(cacheKey);
+        if (cached == null) {
+            final List<Subscription> subscriptions = createSubscriptions(pages);
+            memberListCache.put(cacheKey, getGitHubNames(subscriptions));
+            return subscriptions;
+        }
+
+        final Future<List<String>> refresh = memberListCache.refresh(cacheKey, new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws IOException {
+                return fetchLogins(pages);
+            }
+        });
+        if (circuitBreaker.isClosed()) {
+            try {
+                return createSubscriptions(refresh.get(STALE_MEMBERS_TIMEOUT, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while retrieving members");
+            } catch (TimeoutException e) {
+                logger.warnf("Members of %s not retrieved in time, returning members retrieved at %s",
+                        cacheKey, cached.getRetrievedAt());
+            } catch (ExecutionException e) {
+                logger.warnf("Members of %s couldn't be retrieved (%s), returning members retrieved at %s",
+                        cacheKey, e.getCause(), cached.getRetrievedAt());
+            }
+        } else {
+            logger.debugf("GitHub unavailable, returning members of %s retrieved at %s", cacheKey,
+                    cached.getRetrievedAt());
+        }
+
+        final List<Subscription> subscriptions = createSubscriptions(cached.getLogins());
+        for (Subscription subscription : subscriptions) {
+            subscription.setStaleSince(cached.getRetrievedAt());
+        }
+        return subscriptions;
+    }
+
+    private static List<String> fetchLogins(PageIterator<User> pages) throws IOException {
+        final List<String> logins = new ArrayList<>();
+        try {
+            while (pages.hasNext()) {
+                for (User user : pages.next()) {
+                    logins.add(user.getLogin());
+                }
+            }
+        } catch (NoSuchPageException e) {
+            throw e.getCause();
+        }
+        return logins;
+    }
+
+    private static boolean isStale(List<Subscription> subscriptions) {
+        return !subscriptions.isEmpty() && subscriptions.get(0).getStaleSince() != null;
+    }
+
+    private static List<String> getGitHubNames(List<Subscription> subscriptions) {
+        final List<String> gitHubNames = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            gitHubNames.add(subscription.getGitHubName());
+        }
+        return gitHubNames;
+    }
+
     /**
      * Provides list of all members of registered GitHub organizations together with information
      * whether they have an LDAP record.
@@ -104,14 +283,13 @@ public class GitHubSubscriptionBean {
 
             // create single SubscriptionSummary for each organization
             final List<GithubOrganization> organizations = organizationRepository.getOrganizations();
+            membershipRepository.setSyncTimes(organizations);
             for (GithubOrganization organization : organizations) {
                 final SubscriptionSummary summary = new SubscriptionSummary();
                 summary.setOrganization(organization);
 
                 // for each organization member create Subscription object
-                final List<User> members = organizationService.getMembers(organization.getName());
-
-                List<Subscription> subscriptions = createSubscriptions(members);
+                final List<Subscription> subscriptions = getOrganizationSubscriptions(organization.getName());
                 summary.getSubscriptions().addAll(subscriptions);
                 subscriptionSummaries.add(summary);
             }
@@ -127,6 +305,7 @@ public class GitHubSubscriptionBean {
             for (GithubOrganization org : organizationRepository.getOrganizations()) {
                 try {
                     organizationService.removeMember(org.getName(), gitHubName);
+                    membershipRepository.removeOrganizationMember(org.getName(), gitHubName);
                 } catch (RequestException e) {
                     //noinspection StatementWithEmptyBody
                     if (e.getStatus() == 404) {
@@ -148,65 +327,147 @@ public class GitHubSubscriptionBean {
      */
     public List<Subscription> getRegisteredUsers() {
         try {
-            final List<RegisteredUser> allUsers = userRepository.getAllUsers();
-
-            // fetch users and create Subscription objects
-            final Map<String, Subscription> subscriptionMap = new HashMap<>(allUsers.size());
-            //list needed to hold the null values, to avoid creating collection for each entry key
-            final List<Subscription> result = new ArrayList<>();
-            for (RegisteredUser user: allUsers) {
-                final Subscription subscription = new Subscription();
-                subscription.setRegisteredUser(user);
-                subscription.setGitHubName(user.getGitHubName());
-
-                if(user.getKrbName() != null) {
-                    subscriptionMap.put(user.getKrbName(), subscription);
-                } else {
-                    //cannot be active when the value is null
-                    subscription.setActiveKerberosAccount(false);
-                    result.add(subscription);
-                }
-            }
+            return createRegisteredSubscriptions(userRepository.getAllUsers());
+        } catch (HibernateException e) {
+            throw new ApplicationException(e);
+        }
+    }
 
-            // check LDAP records for retrieved users
-            final Map<String, Boolean> checkedLdapUsers = ldapRepository.checkUsersExists(subscriptionMap.keySet());
-            for (Map.Entry<String, Subscription> entry : subscriptionMap.entrySet()) {
-                if (checkedLdapUsers.get(entry.getKey())) {
-                    entry.getValue().setActiveKerberosAccount(true);
-                }
-            }
+    /**
+     * Retrieves a page of registered users and their LDAP status.
+     *
+     * Filtering (including the LDAP account filter, which uses the stored LDAP status), sorting and paging is done
+     * by the database, so that the time doesn't depend on the number of registered users.
+     *
+     * @param query filters, sort order and page position
+     * @return page of subscription objects representing registered users
+     */
+    public RegisteredUsersPage getRegisteredUsersPage(RegisteredUsersQuery query) {
+        final int pageSize = Math.max(1, Math.min(query.getPageSize(), MAX_REGISTERED_USERS_PAGE_SIZE));
 
-            result.addAll(0, subscriptionMap.values());
-            return result;
+        final UserPage page;
+        try {
+            page = userRepository.getUsers(query, pageSize);
         } catch (HibernateException e) {
             throw new ApplicationException(e);
         }
+
+        final RegisteredUsersPage result = new RegisteredUsersPage();
+        result.setSubscriptions(createRegisteredSubscriptions(page.getUsers()));
+        result.setNextCursor(page.hasMore() ? page.getCursor(page.getUsers().size() - 1) : null);
+        return result;
+    }
+
+    /**
+     * Creates Subscription objects for given registered users, in the same order, with their LDAP status.
+     */
+    private List<Subscription> createRegisteredSubscriptions(List<RegisteredUser> users) {
+        final List<Subscription> result = new ArrayList<>(users.size());
+        for (RegisteredUser user : users) {
+            final Subscription subscription = new Subscription();
+            subscription.setRegisteredUser(user);
+            subscription.setGitHubName(user.getGitHubName());
+            result.add(subscription);
+        }
+        setLdapStatus(result);
+        return result;
+    }
+
+    /**
+     * Sets LDAP status of given subscriptions of registered users.
+     *
+     * Stored status of the users is used (see {@link LdapStatusRefreshBean}), LDAP is only queried for users whose
+     * status wasn't checked yet, and their status is stored then.
+     */
+    private void setLdapStatus(Collection<Subscription> subscriptions) {
+        final Map<String, List<Subscription>> uncheckedByKrbName = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            final RegisteredUser user = subscription.getRegisteredUser();
+            if (user == null || user.getKrbName() == null) {
+                // cannot be active when the value is null
+                subscription.setActiveKerberosAccount(false);
+            } else if (user.getLdapActive() != null) {
+                subscription.setActiveKerberosAccount(user.getLdapActive());
+            } else {
+                List<Subscription> list = uncheckedByKrbName.get(user.getKrbName());
+                if (list == null) {
+                    list = new ArrayList<>(1);
+                    uncheckedByKrbName.put(user.getKrbName(), list);
+                }
+                list.add(subscription);
+            }
+        }
+
+        if (uncheckedByKrbName.isEmpty()) {
+            return;
+        }
+        logger.debugf("Looking for LDAP accounts of %d unchecked users", uncheckedByKrbName.size());
+        final Map<String, Boolean> checkedLdapUsers = ldapRepository.checkUsersExists(uncheckedByKrbName.keySet());
+        for (Map.Entry<String, List<Subscription>> entry : uncheckedByKrbName.entrySet()) {
+            final boolean active = Boolean.TRUE.equals(checkedLdapUsers.get(entry.getKey()));
+            for (Subscription subscription : entry.getValue()) {
+                subscription.setActiveKerberosAccount(active);
+                subscription.getRegisteredUser().setLdapActive(active);
+            }
+        }
+        try {
+            userRepository.updateLdapStatus(checkedLdapUsers);
+        } catch (RuntimeException e) {
+            // will be stored by the next background refresh
+            logger.warn("Couldn't store LDAP status of users", e);
+        }
     }
 
     /**
      * Retrieves subscriptions of given GitHub user.
      *
+     * Membership states are resolved from the mirror managed by {@link MembershipRepository}, GitHub is only
+     * queried for teams that haven't been synchronized yet. Such queries run in parallel, teams whose lookup fails
+     * or times out are returned with {@link MembershipStates#UNKNOWN} membership state.
+     *
      * @param gitHubName GitHub username
      * @return subscription data
      */
-    public List<GithubOrganization> getSubscriptions(String gitHubName) {
-        try {
-            final List<GithubOrganization> organizations = organizationRepository.getOrganizations();
-            for (GithubOrganization organization: organizations) {
-                for (GithubTeam team: organization.getTeams()) {
-                    final String membershipState = teamService.getMembership(team.getId(), gitHubName);
+    public List<GithubOrganization> getSubscriptions(final String gitHubName) {
+        // membership states are set on a private copy of the shared catalogue
+        final List<GithubOrganization> organizations = organizationRepository.getCatalogue().copyOrganizations();
+
+        final Map<Integer, String> membershipStates = membershipRepository.getTeamMembershipStates(gitHubName);
+        final List<GithubTeam> unresolvedTeams = new ArrayList<>();
+        final List<Callable<String>> lookups = new ArrayList<>();
+        for (GithubOrganization organization: organizations) {
+            for (final GithubTeam team: organization.getTeams()) {
+                final String membershipState = membershipStates.get(team.getId());
+                if (membershipState != null) {
                     team.setMembershipState(membershipState);
+                } else {
+                    unresolvedTeams.add(team);
+                    lookups.add(new Callable<String>() {
+                        @Override
+                        public String call() throws IOException {
+                            return teamService.getMembership(team.getId(), gitHubName);
+                        }
+                    });
                 }
             }
-            return organizations;
-        } catch (IOException e) {
-            throw new ApplicationException(e);
         }
+
+        if (!lookups.isEmpty()) {
+            final List<String> states = requestExecutor.invokeAll(lookups, MEMBERSHIP_LOOKUP_TIMEOUT, TimeUnit.SECONDS);
+            for (int i = 0; i < unresolvedTeams.size(); i++) {
+                final String state = states.get(i);
+                unresolvedTeams.get(i).setMembershipState(state != null ? state : MembershipStates.UNKNOWN);
+            }
+        }
+        return organizations;
     }
 
     /**
      * Sets subscriptions of given GitHub user.
      *
+     * Membership is only removed after its current state has been resolved from GitHub, so that a team whose
+     * membership couldn't be determined (see {@link MembershipStates#UNKNOWN}) is never removed by mistake.
+     *
      * @param gitHubName GitHub username
      * @param subscriptions subscription map (team id : subscribe?)
      */
@@ -215,14 +476,26 @@ public class GitHubSubscriptionBean {
                 final Integer teamId = entry.getKey();
                 if (entry.getValue()) {
                     try {
-                        teamService.addMembership(teamId, gitHubName);
+                        final String state = teamService.addMembership(teamId, gitHubName);
+                        membershipRepository.addTeamMember(teamId, gitHubName, state);
                     } catch (IOException e) {
                         logger.warn("Couldn't add membership", e);
                         throw new ApplicationException("Couldn't add membership: user: " + gitHubName + ", team: " + teamId, e);
                     }
                 } else {
+                    final String state;
                     try {
-                        teamService.removeMembership(teamId, gitHubName);
+                        state = teamService.getMembership(teamId, gitHubName);
+                    } catch (IOException e) {
+                        logger.warn("Couldn't resolve membership", e);
+                        throw new ApplicationException("Couldn't resolve membership, membership not removed: user: "
+                                + gitHubName + ", team: " + teamId, e);
+                    }
+                    try {
+                        if (!MembershipStates.NONE.equals(state)) {
+                            teamService.removeMembership(teamId, gitHubName);
+                        }
+                        membershipRepository.removeTeamMember(teamId, gitHubName);
                     } catch (IOException e) {
                         logger.warn("Couldn't remove membership", e);
                         throw new ApplicationException("Couldn't remove membership: user: " + gitHubName + ", team: " + teamId, e);
@@ -234,23 +507,49 @@ public class GitHubSubscriptionBean {
     public void unsubscribeUser(String organization, String gitHubName) {
         try {
             organizationService.removeMember(organization, gitHubName);
+            membershipRepository.removeOrganizationMember(organization, gitHubName);
         } catch (IOException e) {
             throw new ApplicationException(e);
         }
     }
 
     /**
-     * Takes a list of GH users and returns a list of Subcription objects. Adds information about linked KRB name
+     * Creates Subscription objects for users listed by given page iterator.
+     *
+     * Pages are fetched from GitHub in background, while registrations and LDAP accounts are being looked up
+     * for already fetched pages.
+     */
+    private List<Subscription> createSubscriptions(PageIterator<User> pages) throws IOException {
+        final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+        final PagePrefetcher<User> prefetcher = new PagePrefetcher<>(pages, requestExecutor);
+        try {
+            Collection<User> page;
+            while ((page = prefetcher.nextPage()) != null) {
+                final List<String> logins = new ArrayList<>(page.size());
+                for (User user : page) {
+                    logins.add(user.getLogin());
+                }
+                for (Subscription subscription : createSubscriptions(logins)) {
+                    subscriptions.put(subscription.getGitHubName().toLowerCase(), subscription);
+                }
+            }
+        } finally {
+            prefetcher.close();
+        }
+        logger.debugf("Retrieved %d users", subscriptions.size());
+        return new ArrayList<>(subscriptions.values());
+    }
+
+    /**
+     * Takes a list of GH names and returns a list of Subcription objects. Adds information about linked KRB name
      * and whether the KRB account is still active.
      */
-    private List<Subscription> createSubscriptions(List<User> users) {
-        logger.debugf("Transforming %d GH users to Subscription entities", users.size());
+    private List<Subscription> createSubscriptions(Collection<String> gitHubNames) {
+        logger.debugf("Transforming %d GH users to Subscription entities", gitHubNames.size());
 
-        // for each organization user create Subscription object
-        final Map<String, Subscription> subscriptions = new HashMap<>();
-        final Map<String, Subscription> ldapUsersToCheck = new HashMap<>();
-        for (User user: users) {
-            final String gitHubName = user.getLogin();
+        // for each organization user create Subscription object, keeping the order of given names
+        final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+        for (String gitHubName: gitHubNames) {
 
             final Subscription subscription = new Subscription();
             subscription.setGitHubName(gitHubName);
@@ -263,21 +562,17 @@ public class GitHubSubscriptionBean {
         for (Map.Entry<String, RegisteredUser> entry: registeredUsers.entrySet()) {
             Subscription subscription = subscriptions.get(entry.getKey());
             subscription.setRegisteredUser(entry.getValue());
-            ldapUsersToCheck.put(entry.getValue().getKrbName(), subscription);
         }
 
-        // check LDAP records for retrieved users
-        logger.debugf("Looking for LDAP accounts of %d users", ldapUsersToCheck.size());
-        final Map<String, Boolean> checkedLdapUsers = ldapRepository.checkUsersExists(ldapUsersToCheck.keySet());
-        for (Map.Entry<String, Subscription> entry : ldapUsersToCheck.entrySet()) {
-            if (checkedLdapUsers.get(entry.getKey())) {
-                entry.getValue().setActiveKerberosAccount(true);
-            }
-        }
+        setLdapStatus(subscriptions.values());
 
         return new ArrayList<>(subscriptions.values());
     }
 
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
 
     // setters
 
@@ -298,7 +593,7 @@ public class GitHubSubscriptionBean {
         this.userRepository = userRepository;
     }
 
-    public void setOrganizationService(OrganizationService organizationService) {
+    public void setOrganizationService(ExtendedOrganizationService organizationService) {
         this.organizationService = organizationService;
     }
 
@@ -306,4 +601,29 @@ public class GitHubSubscriptionBean {
     public void setTeamService(ExtendedTeamService teamService) {
         this.teamService = teamService;
     }
+
+    @SuppressWarnings("unused")
+    public void setRequestExecutor(GitHubRequestExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMembershipRepository(MembershipRepository membershipRepository) {
+        this.membershipRepository = membershipRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMemberListCache(MemberListCache memberListCache) {
+        this.memberListCache = memberListCache;
+    }
+
+    @SuppressWarnings("unused")
+    public void setCircuitBreaker(GitHubCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
 }
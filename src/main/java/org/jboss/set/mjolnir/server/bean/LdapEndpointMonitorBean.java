@@ -0,0 +1,64 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically checks health and latency of configured LDAP servers, which determines where LDAP searches are sent,
+ * and closes LDAP contexts that have been idle in the context pools for too long.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class LdapEndpointMonitorBean {
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Inject
+    private LdapClient ldapClient;
+
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    @Schedule(hour = "*", minute = "*", second = "*/15", persistent = false)
+    public void checkEndpoints() {
+        // check of an unreachable server may take the whole connect timeout, don't let checks pile up
+        if (!checking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final int healthy = ldapClient.checkEndpoints();
+            if (healthy == 0) {
+                logger.warn("No LDAP server is available");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't check LDAP servers", e);
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void evictIdleContexts() {
+        try {
+            ldapClient.evictIdleContexts();
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't evict idle LDAP contexts", e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void setLdapClient(LdapClient ldapClient) {
+        this.ldapClient = ldapClient;
+    }
+}
@@ -33,4 +33,9 @@ public interface LdapRepository {
      * @return list of current and prior UIDs
      */
     List<String> findAllUserUids(String uid);
+
+    /**
+     * Discards cached results of previous queries, so that following queries reflect current directory content.
+     */
+    void invalidateCache();
 }
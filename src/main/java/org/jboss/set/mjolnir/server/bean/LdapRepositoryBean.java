@@ -2,12 +2,15 @@ package org.jboss.set.mjolnir.server.bean;
 
 import org.jboss.logging.Logger;
 import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.jboss.set.mjolnir.server.ldap.LdapAccountCache;
+import org.jboss.set.mjolnir.server.ldap.LdapBatchExecutor;
 import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.SearchResultHandler;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
 import org.jboss.set.mjolnir.server.util.KerberosUtils;
 
-import javax.annotation.PostConstruct;
-import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -15,8 +18,10 @@ import javax.naming.directory.SearchResult;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -28,40 +33,41 @@ import java.util.Set;
 @Stateless
 public class LdapRepositoryBean implements LdapRepository {
 
-    private static final String CONTEXT_NAME = "ou=users,dc=redhat,dc=com";
-    private static final int GROUPING_FACTOR = 50; // query for so many users at a time
+    static final String CONTEXT_NAME = "ou=users,dc=redhat,dc=com";
     private static final String LDAP_SEARCH_ERROR = "LDAP search error: ";
     private static final Logger logger = Logger.getLogger(LdapRepositoryBean.class);
 
-    @EJB
-    private ApplicationParameters applicationParameters;
-
+    @Inject
     private LdapClient ldapClient;
 
-    @PostConstruct
-    public void init() {
-        // fetch ldap url
-        final String ldapUrl = applicationParameters.getMandatoryParameter(ApplicationParameters.LDAP_URL_KEY);
+    @Inject
+    private LdapBatchExecutor batchExecutor;
 
-        try {
-            ldapClient = new LdapClient(ldapUrl);
-        } catch (NamingException e) {
-            throw new ApplicationException("Couldn't create LDAP client instance", e);
-        }
-    }
+    @Inject
+    private LdapAccountCache accountCache;
+
+    @Inject
+    private UidDirectorySnapshot uidSnapshot;
 
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean checkUserExists(String uid) {
+        final String normalizedUid = normalizeUid(uid);
+        if (Boolean.TRUE.equals(uidSnapshot.contains(normalizedUid))) {
+            return true; // accounts missing in the snapshot may have been created since its last refresh
+        }
+        final Boolean cached = accountCache.getExists(normalizedUid);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            String normalizedUid = KerberosUtils.normalizeUsername(uid);
-            final NamingEnumeration<SearchResult> results =
-                    ldapClient.search(CONTEXT_NAME, String.format("(|(uid=%s)(rhatPriorUid=%s))", normalizedUid, normalizedUid));
-            final boolean found = results.hasMore();
-            results.close();
-            return found;
+            final String escapedUid = escapeFilterValue(normalizedUid);
+            final List<SearchResult> results =
+                    ldapClient.search(CONTEXT_NAME, String.format("(|(uid=%s)(rhatPriorUid=%s))", escapedUid, escapedUid));
+            accountCache.putExists(normalizedUid, !results.isEmpty());
+            return !results.isEmpty();
         } catch (NamingException e) {
             logger.error(LDAP_SEARCH_ERROR, e);
             throw new ApplicationException(LDAP_SEARCH_ERROR + e.getMessage(), e);
@@ -72,34 +78,107 @@ public class LdapRepositoryBean implements LdapRepository {
      * {@inheritDoc}
      *
      * Note: This implementation tries to minimize number of LDAP requests by searching for set of users in every query.
-     * Exact number of users every query is searching for is determined by static property GROUPING_FACTOR.
+     * User names are normalized (stripped of realm and lower cased) and deduplicated first, then queried in chunks
+     * by {@link LdapBatchExecutor}, which runs several chunks in parallel and adapts the chunk size. The result map
+     * contains all given user names, as given.
+     *
+     * Users found in the {@link UidDirectorySnapshot} are not queried, as in {@link #checkUserExists(String)}
+     * the snapshot is trusted only for existing accounts, since accounts may have been created since its last
+     * refresh. Results of the remaining users are cached in {@link LdapAccountCache}, only users missing
+     * in the cache are queried.
      */
     @Override
     public Map<String, Boolean> checkUsersExists(Set<String> users) {
         logger.debugf("calling checkUsersExists for %d users", users.size());
-        final Map<String, Boolean> result = new HashMap<>();
-        final Iterator<String> iterator = users.iterator();
-        final List<String> tempUserList = new ArrayList<>(GROUPING_FACTOR);
-        while (iterator.hasNext()) {
-            tempUserList.add(iterator.next());
-            if (tempUserList.size() >= GROUPING_FACTOR || !iterator.hasNext()) {
-                final Map<String, Boolean> tempResultMap = checkUsersSubsetExists(tempUserList);
-                result.putAll(tempResultMap);
-                tempUserList.clear();
+
+        final Set<String> existingUids = new HashSet<>();
+        final Set<String> uncachedUids = new LinkedHashSet<>();
+        for (String user : users) {
+            final String normalizedUid = normalizeUid(user);
+            if (Boolean.TRUE.equals(uidSnapshot.contains(normalizedUid))) {
+                existingUids.add(normalizedUid);
+                continue;
+            }
+            final Boolean cached = accountCache.getExists(normalizedUid);
+            if (cached == null) {
+                uncachedUids.add(normalizedUid);
+            } else if (cached) {
+                existingUids.add(normalizedUid);
             }
         }
+        logger.debugf("%d users not found in cache", uncachedUids.size());
+
+        final Set<String> foundUids = new HashSet<>();
+        try {
+            final List<Set<String>> chunkResults = batchExecutor.execute(new ArrayList<>(uncachedUids),
+                    new LdapBatchExecutor.ChunkQuery<Set<String>>() {
+                        @Override
+                        public Set<String> query(List<String> chunk) throws NamingException {
+                            return findExistingUids(chunk);
+                        }
+                    });
+            for (Set<String> chunkResult : chunkResults) {
+                foundUids.addAll(chunkResult);
+            }
+        } catch (NamingException e) {
+            logger.error(LDAP_SEARCH_ERROR, e);
+            throw new ApplicationException(LDAP_SEARCH_ERROR + e.getMessage(), e);
+        }
+
+        for (String uid : uncachedUids) {
+            final boolean exists = foundUids.contains(uid);
+            accountCache.putExists(uid, exists);
+            if (exists) {
+                existingUids.add(uid);
+            }
+        }
+
+        final Map<String, Boolean> result = new HashMap<>();
+        for (String user : users) {
+            result.put(user, existingUids.contains(normalizeUid(user)));
+        }
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Results are cached in {@link LdapAccountCache}.
+     */
     @Override
     public List<String> findAllUserUids(String uid) {
+        final String normalizedUid = normalizeUid(uid);
+        final List<String> cached = accountCache.getAllUids(normalizedUid);
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+        final List<String> uids = searchAllUserUids(normalizedUid);
+        accountCache.putAllUids(normalizedUid, uids);
+        return uids;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The {@link UidDirectorySnapshot} is cleared too, it's loaded again by the next {@link LdapSnapshotSyncBean}
+     * refresh.
+     */
+    @Override
+    public void invalidateCache() {
+        accountCache.invalidateAll();
+        uidSnapshot.clear();
+        logger.info("LDAP account cache and uid snapshot invalidated");
+    }
+
+    private List<String> searchAllUserUids(String uid) {
         try {
-            final NamingEnumeration<SearchResult> results =
-                    ldapClient.search(CONTEXT_NAME, "(|(uid=" + uid + ")(rhatPriorUid=" + uid + "))");
-            if (results.hasMore()) {
+            final String escapedUid = escapeFilterValue(uid);
+            final List<SearchResult> results =
+                    ldapClient.search(CONTEXT_NAME, "(|(uid=" + escapedUid + ")(rhatPriorUid=" + escapedUid + "))");
+            if (!results.isEmpty()) {
                 ArrayList<String> uids = new ArrayList<>();
 
-                SearchResult searchResult = results.next();
+                SearchResult searchResult = results.get(0);
                 String currentUid = (String) searchResult.getAttributes().get("uid").get();
                 uids.add(currentUid);
 
@@ -122,53 +201,99 @@ public class LdapRepositoryBean implements LdapRepository {
         }
     }
 
-    private Map<String, Boolean> checkUsersSubsetExists(List<String> users) {
-        try {
-            logger.debugf("Querying LDAP for %d users", users.size());
+    @SuppressWarnings("unused")
+    public void setLdapClient(LdapClient ldapClient) {
+        this.ldapClient = ldapClient;
+    }
 
-            // build a query
-            final StringBuilder query = new StringBuilder("(|");
-            for (String uid: users) {
-                query.append(String.format("(|(uid=%s)(rhatPriorUid=%s))", uid, uid));
-            }
-            query.append(")");
+    @SuppressWarnings("unused")
+    public void setBatchExecutor(LdapBatchExecutor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    @SuppressWarnings("unused")
+    public void setAccountCache(LdapAccountCache accountCache) {
+        this.accountCache = accountCache;
+    }
 
-            final NamingEnumeration<SearchResult> searchResults =
-                    ldapClient.search(CONTEXT_NAME, query.toString());
+    @SuppressWarnings("unused")
+    public void setUidSnapshot(UidDirectorySnapshot uidSnapshot) {
+        this.uidSnapshot = uidSnapshot;
+    }
+
+    /**
+     * Searches for given users.
+     *
+     * @param uids normalized uids
+     * @return normalized current and prior uids of found users
+     */
+    private Set<String> findExistingUids(List<String> uids) throws NamingException {
+        logger.debugf("Querying LDAP for %d users", uids.size());
 
-            // fill the result map with found users
-            final Map<String, Boolean> result = new HashMap<>();
-            while (searchResults.hasMore()) {
-                final SearchResult record = searchResults.next();
+        // build a query
+        final StringBuilder query = new StringBuilder("(|");
+        for (String uid: uids) {
+            final String escapedUid = escapeFilterValue(uid);
+            query.append(String.format("(uid=%s)(rhatPriorUid=%s)", escapedUid, escapedUid));
+        }
+        query.append(")");
 
-                // add user's UID to the map of existing users
+        final Set<String> result = new HashSet<>();
+        ldapClient.search(CONTEXT_NAME, query.toString(), new SearchResultHandler() {
+            @Override
+            public void handle(SearchResult record) throws NamingException {
+                // add user's UID to the set of existing users
                 String uid = (String) record.getAttributes().get("uid").get();
-                result.put(uid, true);
+                result.add(normalizeUid(uid));
 
-                // add user's prior UIDs to the map of existing users
+                // add user's prior UIDs to the set of existing users
                 Attribute priorUidAttr = record.getAttributes().get("rhatPriorUid");
                 if (priorUidAttr != null) {
                     NamingEnumeration<?> priorUids = priorUidAttr.getAll();
                     while (priorUids.hasMore()) {
                         String priorUid = (String) priorUids.next();
-                        result.put(priorUid, true);
+                        result.add(normalizeUid(priorUid));
                     }
                 }
             }
-            searchResults.close();
+        });
+        return result;
+    }
 
-            // fill the result map with users that weren't found
-            for (String uid: users) {
-                if (!result.containsKey(uid)) {
-                    result.put(uid, false);
-                }
-            }
+    /**
+     * UIDs are case insensitive in the directory, lower case is used for comparison.
+     */
+    static String normalizeUid(String user) {
+        return KerberosUtils.normalizeUsername(user).trim().toLowerCase(Locale.ENGLISH);
+    }
 
-            return result;
-        } catch (NamingException e) {
-            logger.error(LDAP_SEARCH_ERROR, e);
-            throw new ApplicationException(LDAP_SEARCH_ERROR + e.getMessage(), e);
+    /**
+     * Escapes special characters in a filter assertion value, as per RFC 4515.
+     */
+    static String escapeFilterValue(String value) {
+        final StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\\':
+                    sb.append("\\5c");
+                    break;
+                case '*':
+                    sb.append("\\2a");
+                    break;
+                case '(':
+                    sb.append("\\28");
+                    break;
+                case ')':
+                    sb.append("\\29");
+                    break;
+                case '\0':
+                    sb.append("\\00");
+                    break;
+                default:
+                    sb.append(c);
+            }
         }
+        return sb.toString();
     }
 
 }
@@ -0,0 +1,160 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.SearchResultHandler;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.SearchResult;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps {@link UidDirectorySnapshot} up to date.
+ *
+ * The snapshot is loaded as a whole on startup and every six hours. In between, entries
+ * modified since the last refresh are fetched every five minutes, based on their modifyTimestamp. Snapshot that
+ * was cleared (see {@link LdapRepository#invalidateCache()}) is loaded as a whole by the next refresh.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class LdapSnapshotSyncBean {
+
+    private static final String[] ATTRIBUTES = {"uid", "rhatPriorUid", "modifyTimestamp"};
+    private static final String FULL_FILTER = "(uid=*)";
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Inject
+    private LdapClient ldapClient;
+
+    @Inject
+    private UidDirectorySnapshot snapshot;
+
+    @Resource
+    private TimerService timerService;
+
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    @PostConstruct
+    public void initBean() {
+        // initial load in background, so that deployment is not blocked
+        timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    public void initialLoad() {
+        load();
+    }
+
+    /**
+     * Reloads the whole snapshot, which also drops uids of deleted entries.
+     */
+    @Schedule(hour = "*/6", minute = "30", persistent = false)
+    public void load() {
+        if (!syncing.compareAndSet(false, true)) {
+            logger.debug("LDAP snapshot synchronization already in progress");
+            return;
+        }
+        try {
+            final long start = System.currentTimeMillis();
+            final UidCollector collector = new UidCollector();
+            ldapClient.search(LdapRepositoryBean.CONTEXT_NAME, FULL_FILTER, ATTRIBUTES, collector);
+            snapshot.replace(collector.uids, collector.watermark);
+            logger.infof("LDAP uid snapshot loaded, %d uids in %d ms", snapshot.size(),
+                    System.currentTimeMillis() - start);
+        } catch (NamingException | RuntimeException e) {
+            logger.warn("Couldn't load LDAP uid snapshot", e);
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    /**
+     * Adds uids of entries modified since the last refresh.
+     */
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void refresh() {
+        final String watermark = snapshot.getWatermark();
+        if (watermark == null) {
+            load();
+            return;
+        }
+        if (!syncing.compareAndSet(false, true)) {
+            logger.debug("LDAP snapshot synchronization already in progress");
+            return;
+        }
+        try {
+            final UidCollector collector = new UidCollector();
+            final String filter = String.format("(&%s(modifyTimestamp>=%s))", FULL_FILTER,
+                    LdapRepositoryBean.escapeFilterValue(watermark));
+            ldapClient.search(LdapRepositoryBean.CONTEXT_NAME, filter, ATTRIBUTES, collector);
+            snapshot.addAll(collector.uids, collector.watermark);
+            logger.debugf("LDAP uid snapshot refreshed, %d modified uids", collector.uids.size());
+        } catch (NamingException | RuntimeException e) {
+            logger.warn("Couldn't refresh LDAP uid snapshot", e);
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void setLdapClient(LdapClient ldapClient) {
+        this.ldapClient = ldapClient;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSnapshot(UidDirectorySnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+
+    /**
+     * Collects normalized uids and the highest modifyTimestamp of search results.
+     */
+    static class UidCollector implements SearchResultHandler {
+
+        private final Set<String> uids = new HashSet<>();
+        private String watermark;
+
+        @Override
+        public void handle(SearchResult result) throws NamingException {
+            final Attribute uidAttr = result.getAttributes().get("uid");
+            if (uidAttr != null) {
+                uids.add(LdapRepositoryBean.normalizeUid((String) uidAttr.get()));
+            }
+
+            final Attribute priorUidAttr = result.getAttributes().get("rhatPriorUid");
+            if (priorUidAttr != null) {
+                final NamingEnumeration<?> priorUids = priorUidAttr.getAll();
+                while (priorUids.hasMore()) {
+                    uids.add(LdapRepositoryBean.normalizeUid((String) priorUids.next()));
+                }
+            }
+
+            final Attribute modifyTimestampAttr = result.getAttributes().get("modifyTimestamp");
+            if (modifyTimestampAttr != null) {
+                watermark = UidDirectorySnapshot.maxWatermark(watermark, (String) modifyTimestampAttr.get());
+            }
+        }
+    }
+}
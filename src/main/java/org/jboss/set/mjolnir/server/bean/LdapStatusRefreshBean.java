@@ -0,0 +1,175 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps LDAP account status stored with registered users up to date, so that views listing users don't have to
+ * query LDAP.
+ *
+ * Users whose status is older than {@link #MAX_AGE} (or wasn't checked yet) are refreshed in batches of
+ * {@link #BATCH_SIZE}, at most {@link #MAX_BATCHES_PER_RUN} batches per run, so that a large number of expired
+ * statuses is spread over several runs. Runs are scheduled every {@link #INTERVAL} plus random jitter, so that
+ * nodes of a cluster don't query LDAP at the same time.
+ *
+ * Refresh of all users (see {@link #refreshAll()}) runs in background. When requested during another refresh, it
+ * is performed after that refresh finishes.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class LdapStatusRefreshBean {
+
+    static final long MAX_AGE = TimeUnit.HOURS.toMillis(1);
+    static final long INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    static final long JITTER = TimeUnit.MINUTES.toMillis(2);
+    static final int BATCH_SIZE = 200;
+    static final int MAX_BATCHES_PER_RUN = 25;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private UserRepository userRepository;
+
+    @EJB
+    private LdapRepository ldapRepository;
+
+    @Resource
+    private TimerService timerService;
+
+    private final Random random = new Random();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // time of pending refreshAll() request, 0 if there's none
+    private final AtomicLong refreshAllRequestedAt = new AtomicLong();
+
+    @PostConstruct
+    public void initBean() {
+        // first run in background, so that deployment is not blocked
+        scheduleNext(jitter());
+    }
+
+    @Timeout
+    public void scheduledRefresh() {
+        try {
+            refresh(new Date(currentTimeMillis() - MAX_AGE), MAX_BATCHES_PER_RUN);
+        } finally {
+            scheduleNext(INTERVAL + jitter());
+        }
+    }
+
+    /**
+     * Refreshes status of all users in background, e.g. after LDAP cache was invalidated.
+     */
+    @Asynchronous
+    public void refreshAll() {
+        refreshAllRequestedAt.set(currentTimeMillis());
+        runPendingRefreshAll();
+    }
+
+    /**
+     * @param checkedBefore statuses checked before this time are refreshed
+     * @param maxBatches maximum number of batches to refresh
+     * @return number of users whose status changed, or -1 if a refresh was already in progress
+     */
+    int refresh(Date checkedBefore, int maxBatches) {
+        if (!refreshing.compareAndSet(false, true)) {
+            logger.debug("LDAP status refresh already in progress");
+            return -1;
+        }
+        try {
+            return refreshBatches(checkedBefore, maxBatches);
+        } finally {
+            refreshing.set(false);
+            runPendingRefreshAll();
+        }
+    }
+
+    /**
+     * Performs requested refresh of all users, unless another refresh is in progress, which then performs it when
+     * it finishes.
+     */
+    private void runPendingRefreshAll() {
+        while (refreshAllRequestedAt.get() != 0 && refreshing.compareAndSet(false, true)) {
+            try {
+                final long requestedAt = refreshAllRequestedAt.getAndSet(0);
+                if (requestedAt != 0) {
+                    // the margin covers databases storing timestamps with second precision, users refreshed by this
+                    // call mustn't be selected again
+                    refreshBatches(new Date(requestedAt - TimeUnit.SECONDS.toMillis(1)), Integer.MAX_VALUE);
+                }
+            } finally {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    private int refreshBatches(Date checkedBefore, int maxBatches) {
+        int checked = 0;
+        int changed = 0;
+        try {
+            List<String> previous = null;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                final List<String> krbNames = userRepository.getKrbNamesWithStaleLdapStatus(checkedBefore, BATCH_SIZE);
+                if (krbNames.isEmpty() || krbNames.equals(previous)) {
+                    // no progress, e.g. the users were renamed meanwhile
+                    break;
+                }
+                previous = krbNames;
+                final Map<String, Boolean> statuses = ldapRepository.checkUsersExists(new HashSet<>(krbNames));
+                changed += userRepository.updateLdapStatus(statuses);
+                checked += krbNames.size();
+                if (krbNames.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't refresh LDAP status of users", e);
+        }
+        logger.debugf("LDAP status of %d users refreshed, %d changed", checked, changed);
+        return changed;
+    }
+
+    private void scheduleNext(long delay) {
+        timerService.createSingleActionTimer(delay, new TimerConfig(null, false));
+    }
+
+    private long jitter() {
+        return (long) (random.nextDouble() * JITTER);
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setLdapRepository(LdapRepository ldapRepository) {
+        this.ldapRepository = ldapRepository;
+    }
+}
@@ -0,0 +1,128 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages local mirror of GitHub organization and team memberships.
+ *
+ * GitHub is queried directly only for organizations and teams that haven't been synchronized yet (the last member
+ * lists retrieved that way are kept by MemberListCache, to be served while GitHub is unavailable). Users are matched
+ * by lower case GitHub name (GitHub logins are case insensitive), names are returned as returned by GitHub. Mirror
+ * is kept current by {@link MembershipSyncBean}.
+ */
+public interface MembershipRepository {
+
+    /**
+     * Returns mirrored members of given organization.
+     *
+     * @param organization organization name
+     * @return GitHub names of members, or null if the organization hasn't been synchronized yet
+     */
+    List<String> getOrganizationMembers(String organization);
+
+    /**
+     * Returns mirrored active members of given team.
+     *
+     * @param teamId GitHub team id
+     * @return GitHub names of members, or null if the team hasn't been synchronized yet
+     */
+    List<String> getTeamMembers(int teamId);
+
+    /**
+     * Returns membership states of given user in all synchronized teams.
+     *
+     * Resolves the states with a single query, so that subscriptions of a user can be shown without calling GitHub
+     * for every team. The mirror is persistent and shared by cluster nodes, so the states are available right after
+     * a restart.
+     *
+     * @param gitHubName GitHub name
+     * @return map of GitHub team id to membership state (see MembershipStates), teams which haven't been
+     * synchronized yet are not present
+     */
+    Map<Integer, String> getTeamMembershipStates(String gitHubName);
+
+    /**
+     * @param organization organization name
+     * @return time of last synchronization of organization members, or null
+     */
+    Date getOrganizationSyncTime(String organization);
+
+    /**
+     * @param teamId GitHub team id
+     * @return time of last synchronization of team members, or null
+     */
+    Date getTeamSyncTime(int teamId);
+
+    /**
+     * Sets times of last synchronization of members on given organizations and their teams. The times are not part
+     * of the organization catalogue, which would otherwise change with every synchronization.
+     *
+     * @param organizations organizations to update, must not be shared (e.g. copies returned by
+     * {@link OrganizationRepository#getOrganizations()})
+     */
+    void setSyncTimes(List<GithubOrganization> organizations);
+
+    /**
+     * Replaces mirrored members of given organization. Only the differences are written.
+     *
+     * @param organization organization name
+     * @param gitHubNames current members
+     */
+    void updateOrganizationMembers(String organization, Collection<String> gitHubNames);
+
+    /**
+     * Replaces mirrored members of given team. Only the differences are written.
+     *
+     * @param teamId GitHub team id
+     * @param gitHubNames current active members
+     * @param invitedGitHubNames users with pending invitation
+     */
+    void updateTeamMembers(int teamId, Collection<String> gitHubNames, Collection<String> invitedGitHubNames);
+
+    /**
+     * Adds user to mirrored members of given organization. Does nothing if the user is already present.
+     *
+     * @param organization organization name
+     * @param gitHubName GitHub name
+     */
+    void addOrganizationMember(String organization, String gitHubName);
+
+    /**
+     * Adds user to mirrored members of given team, or updates membership state of the user.
+     *
+     * @param teamId GitHub team id
+     * @param gitHubName GitHub name
+     * @param state membership state, "active" or "pending" (see MembershipStates)
+     */
+    void addTeamMember(int teamId, String gitHubName, String state);
+
+    /**
+     * Removes user from mirrored members of given organization and its teams.
+     *
+     * @param organization organization name
+     * @param gitHubName GitHub name
+     */
+    void removeOrganizationMember(String organization, String gitHubName);
+
+    /**
+     * Removes user from mirrored members of given team.
+     *
+     * @param teamId GitHub team id
+     * @param gitHubName GitHub name
+     */
+    void removeTeamMember(int teamId, String gitHubName);
+
+    /**
+     * Removes all mirrored members of given team and marks the team as not synchronized, e.g. because the team
+     * has been deleted on GitHub.
+     *
+     * @param teamId GitHub team id
+     */
+    void removeTeamMembers(int teamId);
+
+}
@@ -0,0 +1,371 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.hibernate.annotations.QueryHints;
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.entities.GithubOrganizationEntity;
+import org.jboss.set.mjolnir.server.entities.GithubTeamEntity;
+import org.jboss.set.mjolnir.server.entities.OrgMemberEntity;
+import org.jboss.set.mjolnir.server.entities.TeamMemberEntity;
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+import org.jboss.set.mjolnir.shared.domain.MembershipStates;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Stateless
+public class MembershipRepositoryBean implements MembershipRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public List<String> getOrganizationMembers(String organization) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubOrganizationEntity orgEntity = findOrganization(em, organization);
+            if (orgEntity == null || orgEntity.getMembersSyncedAt() == null) {
+                return null;
+            }
+            return em.createQuery("SELECT m.githubName FROM OrgMemberEntity m WHERE m.orgId = :id "
+                    + "ORDER BY m.githubNameLower", String.class)
+                    .setParameter("id", orgEntity.getId())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public List<String> getTeamMembers(int teamId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            if (teamEntity == null || teamEntity.getMembersSyncedAt() == null) {
+                return null;
+            }
+            return em.createQuery("SELECT m.githubName FROM TeamMemberEntity m WHERE m.teamId = :id "
+                    + "AND m.state = :state ORDER BY m.githubNameLower", String.class)
+                    .setParameter("id", teamEntity.getId())
+                    .setParameter("state", MembershipStates.ACTIVE)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> getTeamMembershipStates(String gitHubName) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final Map<Integer, String> states = new HashMap<>();
+            for (Long teamId : em.createQuery("SELECT t.githubId FROM GithubTeamEntity t "
+                    + "WHERE t.membersSyncedAt IS NOT NULL", Long.class).getResultList()) {
+                states.put(teamId.intValue(), MembershipStates.NONE);
+            }
+            final List<Object[]> memberships = em.createQuery("SELECT t.githubId, m.state FROM GithubTeamEntity t, "
+                    + "TeamMemberEntity m WHERE m.teamId = t.id AND m.githubNameLower = :name "
+                    + "AND t.membersSyncedAt IS NOT NULL", Object[].class)
+                    .setParameter("name", gitHubName.toLowerCase())
+                    .getResultList();
+            for (Object[] membership : memberships) {
+                states.put(((Long) membership[0]).intValue(), (String) membership[1]);
+            }
+            return states;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public Date getOrganizationSyncTime(String organization) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubOrganizationEntity orgEntity = findOrganization(em, organization);
+            return orgEntity != null ? orgEntity.getMembersSyncedAt() : null;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public Date getTeamSyncTime(int teamId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            return teamEntity != null ? teamEntity.getMembersSyncedAt() : null;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void setSyncTimes(List<GithubOrganization> organizations) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final Map<String, Date> orgSyncTimes = new HashMap<>();
+            for (Object[] row : em.createQuery("SELECT o.name, o.membersSyncedAt FROM GithubOrganizationEntity o",
+                    Object[].class).getResultList()) {
+                orgSyncTimes.put(((String) row[0]).toLowerCase(), (Date) row[1]);
+            }
+            final Map<Integer, Date> teamSyncTimes = new HashMap<>();
+            for (Object[] row : em.createQuery("SELECT t.githubId, t.membersSyncedAt FROM GithubTeamEntity t",
+                    Object[].class).getResultList()) {
+                teamSyncTimes.put(((Long) row[0]).intValue(), (Date) row[1]);
+            }
+
+            for (GithubOrganization organization : organizations) {
+                organization.setMembersSyncedAt(orgSyncTimes.get(organization.getName().toLowerCase()));
+                for (GithubTeam team : organization.getTeams()) {
+                    team.setMembersSyncedAt(teamSyncTimes.get(team.getId()));
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void updateOrganizationMembers(String organization, Collection<String> gitHubNames) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubOrganizationEntity orgEntity = findOrganization(em, organization);
+            if (orgEntity == null) {
+                logger.warnf("Organization %s not found, members not updated", organization);
+                return;
+            }
+
+            final Map<String, String> current = byLowerCase(gitHubNames);
+            final List<String> removed = new ArrayList<>();
+            for (OrgMemberEntity member : em.createQuery("FROM OrgMemberEntity m WHERE m.orgId = :id",
+                    OrgMemberEntity.class).setParameter("id", orgEntity.getId()).getResultList()) {
+                final String gitHubName = current.remove(member.getGithubNameLower());
+                if (gitHubName == null) {
+                    removed.add(member.getGithubNameLower());
+                } else if (!gitHubName.equals(member.getGithubName())) {
+                    // user changed case of the login
+                    member.setGithubName(gitHubName);
+                }
+            }
+            deleteMembers(em, "OrgMemberEntity", "orgId", orgEntity.getId(), removed);
+            for (String gitHubName : current.values()) {
+                em.persist(new OrgMemberEntity(orgEntity.getId(), gitHubName));
+            }
+            orgEntity.setMembersSyncedAt(new Date());
+            logger.debugf("Updating organization %s: %d members added, %d removed", organization, current.size(),
+                    removed.size());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void updateTeamMembers(int teamId, Collection<String> gitHubNames, Collection<String> invitedGitHubNames) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            if (teamEntity == null) {
+                logger.warnf("Team %d not found, members not updated", teamId);
+                return;
+            }
+
+            final Map<String, String> current = byLowerCase(gitHubNames);
+            final Map<String, String> invited = byLowerCase(invitedGitHubNames);
+            invited.keySet().removeAll(current.keySet());
+            final List<String> removed = new ArrayList<>();
+            for (TeamMemberEntity member : em.createQuery("FROM TeamMemberEntity m WHERE m.teamId = :id",
+                    TeamMemberEntity.class).setParameter("id", teamEntity.getId()).getResultList()) {
+                String state = MembershipStates.ACTIVE;
+                String gitHubName = current.remove(member.getGithubNameLower());
+                if (gitHubName == null) {
+                    state = MembershipStates.PENDING;
+                    gitHubName = invited.remove(member.getGithubNameLower());
+                }
+                if (gitHubName == null) {
+                    removed.add(member.getGithubNameLower());
+                } else {
+                    if (!gitHubName.equals(member.getGithubName())) {
+                        member.setGithubName(gitHubName);
+                    }
+                    if (!state.equals(member.getState())) {
+                        member.setState(state);
+                    }
+                }
+            }
+            deleteMembers(em, "TeamMemberEntity", "teamId", teamEntity.getId(), removed);
+            for (String gitHubName : current.values()) {
+                em.persist(new TeamMemberEntity(teamEntity.getId(), gitHubName, MembershipStates.ACTIVE));
+            }
+            for (String gitHubName : invited.values()) {
+                em.persist(new TeamMemberEntity(teamEntity.getId(), gitHubName, MembershipStates.PENDING));
+            }
+            teamEntity.setMembersSyncedAt(new Date());
+            logger.debugf("Updating team %d: %d members added, %d invited, %d removed", teamId, current.size(),
+                    invited.size(), removed.size());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void addOrganizationMember(String organization, String gitHubName) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubOrganizationEntity orgEntity = findOrganization(em, organization);
+            if (orgEntity == null) {
+                return;
+            }
+
+            OrgMemberEntity member = em.find(OrgMemberEntity.class,
+                    new OrgMemberEntity.Key(orgEntity.getId(), gitHubName.toLowerCase()));
+            if (member == null) {
+                em.persist(new OrgMemberEntity(orgEntity.getId(), gitHubName));
+            } else {
+                member.setGithubName(gitHubName);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void addTeamMember(int teamId, String gitHubName, String state) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            if (teamEntity == null) {
+                return;
+            }
+
+            TeamMemberEntity member = em.find(TeamMemberEntity.class,
+                    new TeamMemberEntity.Key(teamEntity.getId(), gitHubName.toLowerCase()));
+            if (member == null) {
+                em.persist(new TeamMemberEntity(teamEntity.getId(), gitHubName, state));
+            } else {
+                member.setGithubName(gitHubName);
+                member.setState(state);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void removeOrganizationMember(String organization, String gitHubName) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubOrganizationEntity orgEntity = findOrganization(em, organization);
+            if (orgEntity == null) {
+                return;
+            }
+
+            em.createQuery("DELETE FROM OrgMemberEntity WHERE orgId = :id AND githubNameLower = :name")
+                    .setParameter("id", orgEntity.getId())
+                    .setParameter("name", gitHubName.toLowerCase())
+                    .executeUpdate();
+            em.createQuery("DELETE FROM TeamMemberEntity WHERE githubNameLower = :name AND teamId IN "
+                    + "(SELECT t.id FROM GithubTeamEntity t WHERE t.organization.id = :id)")
+                    .setParameter("id", orgEntity.getId())
+                    .setParameter("name", gitHubName.toLowerCase())
+                    .executeUpdate();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void removeTeamMember(int teamId, String gitHubName) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            if (teamEntity == null) {
+                return;
+            }
+
+            em.createQuery("DELETE FROM TeamMemberEntity WHERE teamId = :id AND githubNameLower = :name")
+                    .setParameter("id", teamEntity.getId())
+                    .setParameter("name", gitHubName.toLowerCase())
+                    .executeUpdate();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void removeTeamMembers(int teamId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            GithubTeamEntity teamEntity = findTeam(em, teamId);
+            if (teamEntity == null) {
+                return;
+            }
+
+            em.createQuery("DELETE FROM TeamMemberEntity WHERE teamId = :id")
+                    .setParameter("id", teamEntity.getId())
+                    .executeUpdate();
+            teamEntity.setMembersSyncedAt(null);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * @return map of lower case GitHub names to GitHub names
+     */
+    private static Map<String, String> byLowerCase(Collection<String> gitHubNames) {
+        final Map<String, String> result = new HashMap<>();
+        for (String gitHubName : gitHubNames) {
+            result.put(gitHubName.toLowerCase(), gitHubName);
+        }
+        return result;
+    }
+
+    private static void deleteMembers(EntityManager em, String entityName, String idAttribute, Long id,
+                                      List<String> gitHubNamesLower) {
+        for (int i = 0; i < gitHubNamesLower.size(); i += BATCH_SIZE) {
+            em.createQuery("DELETE FROM " + entityName + " WHERE " + idAttribute + " = :id AND githubNameLower IN (:names)")
+                    .setParameter("id", id)
+                    .setParameter("names", gitHubNamesLower.subList(i, Math.min(i + BATCH_SIZE, gitHubNamesLower.size())))
+                    .executeUpdate();
+        }
+    }
+
+    private GithubOrganizationEntity findOrganization(EntityManager em, String organization) {
+        List<GithubOrganizationEntity> result = em.createQuery("FROM GithubOrganizationEntity WHERE name = :name",
+                GithubOrganizationEntity.class)
+                .setParameter("name", organization)
+                .setHint(QueryHints.CACHEABLE, true)
+                .getResultList();
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private GithubTeamEntity findTeam(EntityManager em, int teamId) {
+        List<GithubTeamEntity> result = em.createQuery("FROM GithubTeamEntity WHERE githubId = :id",
+                GithubTeamEntity.class)
+                .setParameter("id", (long) teamId)
+                .setHint(QueryHints.CACHEABLE, true)
+                .getResultList();
+        return result.isEmpty() ? null : result.get(0);
+    }
+}
@@ -0,0 +1,179 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.github.ExtendedOrganizationService;
+import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
+import org.jboss.set.mjolnir.server.github.GitHubRequestExecutor;
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically synchronizes members (and pending team invitations) of managed organizations and teams into the
+ * local mirror (see {@link MembershipRepository}).
+ *
+ * Member listings are fetched through the shared GitHub client, which uses conditional requests, so listings
+ * that didn't change since the last synchronization don't consume rate limit. Only changed rows are written
+ * to the database. Each organization / team is written in its own transaction, failure to fetch one listing
+ * leaves its previous data in place.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class MembershipSyncBean {
+
+    private static final int SYNC_TIMEOUT = 10; // minutes
+    private static final int PAGE_SIZE = 100;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private OrganizationRepository organizationRepository;
+
+    @EJB
+    private MembershipRepository membershipRepository;
+
+    @Inject
+    private GitHubClient gitHubClient;
+
+    @Inject
+    private GitHubRequestExecutor requestExecutor;
+
+    @Resource
+    private TimerService timerService;
+
+    private ExtendedOrganizationService organizationService;
+    private ExtendedTeamService teamService;
+
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    @PostConstruct
+    public void initBean() {
+        organizationService = new ExtendedOrganizationService(gitHubClient);
+        teamService = new ExtendedTeamService(gitHubClient);
+
+        // initial synchronization in background, so that deployment is not blocked
+        timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    public void initialSync() {
+        sync();
+    }
+
+    /**
+     * Synchronizes members of all managed organizations and teams.
+     */
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    public void sync() {
+        if (!syncing.compareAndSet(false, true)) {
+            logger.debug("Membership synchronization already in progress");
+            return;
+        }
+        try {
+            final List<GithubOrganization> organizations = organizationRepository.getOrganizations();
+            final List<Callable<Members>> tasks = new ArrayList<>();
+            for (final GithubOrganization organization : organizations) {
+                tasks.add(new Callable<Members>() {
+                    @Override
+                    public Members call() {
+                        return new Members(getLogins(organizationService.pageMembers(organization.getName(),
+                                PAGE_SIZE)), Collections.<String>emptyList());
+                    }
+                });
+                for (final GithubTeam team : organization.getTeams()) {
+                    tasks.add(new Callable<Members>() {
+                        @Override
+                        public Members call() throws IOException {
+                            return new Members(getLogins(teamService.pageMembers(team.getId(), PAGE_SIZE)),
+                                    teamService.getInvitedLogins(team.getId()));
+                        }
+                    });
+                }
+            }
+
+            final List<Members> results = requestExecutor.invokeAll(tasks, SYNC_TIMEOUT, TimeUnit.MINUTES);
+
+            // results are ordered as tasks: organization, its teams, next organization...
+            int i = 0;
+            int teamCount = 0;
+            for (GithubOrganization organization : organizations) {
+                store(organization, results.get(i++));
+                for (GithubTeam team : organization.getTeams()) {
+                    store(team, results.get(i++));
+                    teamCount++;
+                }
+            }
+            // synchronization times changed
+            organizationRepository.invalidateCatalogue();
+            logger.debugf("Membership synchronization finished, %d organizations, %d teams",
+                    organizations.size(), teamCount);
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    private void store(GithubOrganization organization, Members members) {
+        if (members == null) {
+            logger.warnf("Couldn't fetch members of organization %s, keeping previous state", organization.getName());
+            return;
+        }
+        membershipRepository.updateOrganizationMembers(organization.getName(), members.active);
+    }
+
+    private void store(GithubTeam team, Members members) {
+        if (members == null) {
+            logger.warnf("Couldn't fetch members of team %d, keeping previous state", team.getId());
+            return;
+        }
+        membershipRepository.updateTeamMembers(team.getId(), members.active, members.pending);
+    }
+
+    private static List<String> getLogins(PageIterator<User> pages) {
+        final List<String> logins = new ArrayList<>();
+        for (Collection<User> page : pages) {
+            for (User user : page) {
+                logins.add(user.getLogin());
+            }
+        }
+        return logins;
+    }
+
+
+    private static class Members {
+
+        private final List<String> active;
+        private final List<String> pending;
+
+        Members(List<String> active, List<String> pending) {
+            this.active = active;
+            this.pending = pending;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only snapshot of managed organizations and their teams.
+ *
+ * Snapshot is shared by all threads, so neither the snapshot nor the organization and team objects it contains
+ * may be modified. Callers that need to attach per-user data (e.g. membership states) work on
+ * {@link #copyOrganizations() a copy}.
+ */
+public final class OrganizationCatalogue {
+
+    private final long version;
+    private final List<GithubOrganization> organizations;
+    private final Map<String, GithubOrganization> organizationsByName = new HashMap<>();
+    private final Map<Integer, GithubTeam> teamsById = new HashMap<>();
+
+    /**
+     * @param version snapshot version, increases whenever catalogue content changes
+     * @param organizations organizations with their teams, must not be modified afterwards
+     */
+    public OrganizationCatalogue(long version, List<GithubOrganization> organizations) {
+        this.version = version;
+        this.organizations = Collections.unmodifiableList(new ArrayList<>(organizations));
+        for (GithubOrganization organization : organizations) {
+            organizationsByName.put(organization.getName().toLowerCase(), organization);
+            for (GithubTeam team : organization.getTeams()) {
+                teamsById.put(team.getId(), team);
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return shared organization instances, not to be modified
+     */
+    public List<GithubOrganization> getOrganizations() {
+        return organizations;
+    }
+
+    /**
+     * @param name organization name, case insensitive
+     * @return shared organization instance or null if organization is not managed
+     */
+    public GithubOrganization getOrganization(String name) {
+        return name != null ? organizationsByName.get(name.toLowerCase()) : null;
+    }
+
+    /**
+     * @param teamId GitHub team id
+     * @return shared team instance or null if team is not managed
+     */
+    public GithubTeam getTeam(int teamId) {
+        return teamsById.get(teamId);
+    }
+
+    /**
+     * @return private copies of organizations and teams, without membership states
+     */
+    public List<GithubOrganization> copyOrganizations() {
+        final List<GithubOrganization> copies = new ArrayList<>(organizations.size());
+        for (GithubOrganization organization : organizations) {
+            final GithubOrganization copy = new GithubOrganization(organization.getName());
+            for (GithubTeam team : organization.getTeams()) {
+                copy.addTeam(new GithubTeam(team.getName(), team.getId()));
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * @return whether given organizations have the same names and teams as this catalogue
+     */
+    boolean hasSameContent(List<GithubOrganization> other) {
+        if (other.size() != organizations.size()) {
+            return false;
+        }
+        for (int i = 0; i < organizations.size(); i++) {
+            final GithubOrganization a = organizations.get(i);
+            final GithubOrganization b = other.get(i);
+            if (!a.getName().equals(b.getName()) || a.getTeams().size() != b.getTeams().size()) {
+                return false;
+            }
+            for (int j = 0; j < a.getTeams().size(); j++) {
+                final GithubTeam teamA = a.getTeams().get(j);
+                final GithubTeam teamB = b.getTeams().get(j);
+                if (!teamA.getId().equals(teamB.getId()) || !equal(teamA.getName(), teamB.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -14,8 +14,20 @@ public interface OrganizationRepository {
     /**
      * Retrieves configured organizations and their teams.
      *
+     * Returns private copies of the current {@link #getCatalogue() catalogue}, callers may modify them.
+     *
      * @return organizations
      */
     List<GithubOrganization> getOrganizations();
 
+    /**
+     * @return current snapshot of configured organizations and teams
+     */
+    OrganizationCatalogue getCatalogue();
+
+    /**
+     * Makes the next read reload the catalogue, to be called after organizations or teams were modified.
+     */
+    void invalidateCatalogue();
+
 }
@@ -1,66 +1,149 @@
 package org.jboss.set.mjolnir.server.bean;
 
+import org.jboss.logging.Logger;
 import org.jboss.set.mjolnir.server.entities.GithubOrganizationEntity;
 import org.jboss.set.mjolnir.server.entities.GithubTeamEntity;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
 import org.jboss.set.mjolnir.shared.domain.GithubTeam;
 
-import javax.ejb.Stateless;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@inheritDoc}
  *
+ * Organizations are served from an in-memory {@link OrganizationCatalogue} snapshot. Reads don't lock, the snapshot
+ * is reloaded by the first reader after it's invalidated or gets older than {@link #MAX_AGE}, while other readers
+ * keep using the previous one. The reload reads the database directly, bypassing the second level and query caches,
+ * and a new snapshot (with new version) is only published if the content changed.
+ *
  * @author Tomas Hofman (thofman@redhat.com)
  */
-@Stateless
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 public class OrganizationRepositoryBean implements OrganizationRepository {
 
+    // bounds staleness of changes made directly in database or by other cluster nodes
+    static final long MAX_AGE = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+    private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
     @Inject
     private EntityManagerFactory entityManagerFactory;
 
+    private volatile OrganizationCatalogue catalogue;
+    private volatile long loadedAt;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
     @Override
     public List<GithubOrganization> getOrganizations() {
-        // load organizations into a map
-        EntityManager em = entityManagerFactory.createEntityManager();
-
-        final List<GithubOrganizationEntity> organizationsList =
-                em.createQuery("FROM GithubOrganizationEntity WHERE subscriptionsEnabled = true", GithubOrganizationEntity.class)
-                        .getResultList();
+        return getCatalogue().copyOrganizations();
+    }
 
-        em.close();
+    @Override
+    public OrganizationCatalogue getCatalogue() {
+        final OrganizationCatalogue current = catalogue;
+        if (current == null) {
+            synchronized (this) {
+                if (catalogue == null) {
+                    reload(null);
+                }
+                return catalogue;
+            }
+        }
+        if (currentTimeMillis() - loadedAt > MAX_AGE && reloading.compareAndSet(false, true)) {
+            try {
+                reload(current);
+            } catch (RuntimeException e) {
+                logger.warn("Couldn't reload organization catalogue, keeping previous version", e);
+                loadedAt = currentTimeMillis();
+            } finally {
+                reloading.set(false);
+            }
+            return catalogue;
+        }
+        return current;
+    }
 
-        final Map<Long, GithubOrganization> orgMap = new HashMap<>();
+    @Override
+    public void invalidateCatalogue() {
+        loadedAt = 0;
+    }
 
-        for (GithubOrganizationEntity organization : organizationsList) {
-            final GithubOrganization org = new GithubOrganization(organization.getName());
-            orgMap.put(organization.getId(), org);
+    private void reload(OrganizationCatalogue previous) {
+        final List<GithubOrganization> organizations = loadOrganizations();
+        loadedAt = currentTimeMillis();
+        if (previous == null) {
+            catalogue = new OrganizationCatalogue(1, organizations);
+        } else if (!previous.hasSameContent(organizations)) {
+            catalogue = new OrganizationCatalogue(previous.getVersion() + 1, organizations);
+            logger.debugf("Organization catalogue changed, version %d", catalogue.getVersion());
         }
+    }
 
-        // load teams and add them to organizations
-        em = entityManagerFactory.createEntityManager();
+    private List<GithubOrganization> loadOrganizations() {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            // load organizations into a map
+            final List<GithubOrganizationEntity> organizationsList =
+                    em.createQuery("FROM GithubOrganizationEntity WHERE subscriptionsEnabled = true ORDER BY name",
+                            GithubOrganizationEntity.class)
+                            .setHint(RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                            .setHint(STORE_MODE, CacheStoreMode.REFRESH)
+                            .getResultList();
 
-        final List<GithubTeamEntity> teamsList =
-                em.createQuery("FROM GithubTeamEntity", GithubTeamEntity.class).getResultList();
+            final Map<Long, GithubOrganization> orgMap = new LinkedHashMap<>();
+            for (GithubOrganizationEntity organization : organizationsList) {
+                final GithubOrganization org = new GithubOrganization(organization.getName());
+                orgMap.put(organization.getId(), org);
+            }
 
-        em.close();
+            // load teams of enabled organizations and add them to organizations
+            final List<GithubTeamEntity> teamsList =
+                    em.createQuery("SELECT t FROM GithubTeamEntity t WHERE t.organization.subscriptionsEnabled = true "
+                            + "ORDER BY t.name, t.githubId", GithubTeamEntity.class)
+                            .setHint(RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                            .setHint(STORE_MODE, CacheStoreMode.REFRESH)
+                            .getResultList();
 
-        for (GithubTeamEntity teamEnt : teamsList) {
-            final GithubTeam team = new GithubTeam(teamEnt.getName(), teamEnt.getGithubId().intValue());
-            final Long orgId = teamEnt.getOrganization().getId();
-            final GithubOrganization org = orgMap.get(orgId);
-            if (org != null) {
-                org.addTeam(team);
+            for (GithubTeamEntity teamEnt : teamsList) {
+                final GithubOrganization org = orgMap.get(teamEnt.getOrganization().getId());
+                if (org != null) {
+                    final GithubTeam team = new GithubTeam(teamEnt.getName(), teamEnt.getGithubId().intValue());
+                    org.addTeam(team);
+                }
             }
+
+            return new ArrayList<>(orgMap.values());
+        } finally {
+            em.close();
         }
+    }
 
-        return new ArrayList<>(orgMap.values());
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
     }
 
+    @SuppressWarnings("unused")
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
 }
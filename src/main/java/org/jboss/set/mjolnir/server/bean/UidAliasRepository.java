@@ -0,0 +1,38 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.UidAliasEntity;
+
+import java.util.Collection;
+
+/**
+ * Persistent map of LDAP uids (current and prior) to canonical uids and registered users.
+ *
+ * Lets login resolve a registered user by a single lookup, without querying LDAP for prior uids.
+ */
+public interface UidAliasRepository {
+
+    /**
+     * @param uid current or prior uid, lower case
+     * @return alias entry with its user loaded, or null if the uid is not mapped
+     */
+    UidAliasEntity getAlias(String uid);
+
+    /**
+     * Maps all given uids to the canonical uid and the user, replacing previous mappings.
+     *
+     * Executed in a new transaction, so that a failure (e.g. concurrent insert of the same alias) doesn't affect
+     * the caller.
+     *
+     * @param uids current and prior uids, lower case
+     * @param canonicalUid current uid, lower case
+     * @param userId id of the registered user
+     */
+    void storeAliases(Collection<String> uids, String canonicalUid, Long userId);
+
+    /**
+     * Removes mappings pointing to given user, e.g. because the user's kerberos name changed.
+     *
+     * @param userId id of the registered user
+     */
+    void removeAliasesOfUser(Long userId);
+}
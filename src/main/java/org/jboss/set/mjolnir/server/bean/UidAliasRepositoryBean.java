@@ -0,0 +1,68 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.UidAliasEntity;
+import org.jboss.set.mjolnir.server.entities.UserEntity;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * {@inheritDoc}
+ */
+@Stateless
+public class UidAliasRepositoryBean implements UidAliasRepository {
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public UidAliasEntity getAlias(String uid) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            return em.find(UidAliasEntity.class, uid);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void storeAliases(Collection<String> uids, String canonicalUid, Long userId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final UserEntity user = em.getReference(UserEntity.class, userId);
+            final Date now = new Date();
+            for (String uid : uids) {
+                UidAliasEntity alias = em.find(UidAliasEntity.class, uid);
+                if (alias == null) {
+                    em.persist(new UidAliasEntity(uid, canonicalUid, user, now));
+                } else {
+                    alias.setCanonicalUid(canonicalUid);
+                    alias.setUser(user);
+                    alias.setResolvedAt(now);
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void removeAliasesOfUser(Long userId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.createQuery("DELETE FROM UidAliasEntity WHERE user.id = :id")
+                    .setParameter("id", userId)
+                    .executeUpdate();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Set-based writes of batches of users, each batch in its own transaction. Used by {@link UserRepository} bulk
+ * operations, which split their input into batches.
+ *
+ * Deleted and whitelisted users are identified by exact GitHub name, users whose GitHub name doesn't match
+ * by kerberos name (as in {@link UserRepositoryBean#deleteUser(RegisteredUser)}). Upserts match GitHub names
+ * case insensitively.
+ */
+public interface UserBatchRepository {
+
+    /**
+     * Deletes given users.
+     *
+     * @param users users to delete
+     * @return users that weren't found
+     */
+    List<RegisteredUser> deleteUsers(List<RegisteredUser> users);
+
+    /**
+     * Sets whitelist flag of given users.
+     *
+     * @param users users to update
+     * @param whitelisted new flag value
+     * @return users that weren't found
+     */
+    List<RegisteredUser> setWhitelisted(List<RegisteredUser> users, boolean whitelisted);
+
+    /**
+     * Updates existing users and inserts the others.
+     *
+     * @param users users to save
+     */
+    void saveOrUpdateUsers(List<RegisteredUser> users);
+
+    /**
+     * Stores LDAP account status of users with given kerberos names.
+     *
+     * @param activeKrbNames kerberos names with active account
+     * @param inactiveKrbNames kerberos names without active account
+     * @param checkedAt time of the check
+     * @return number of users whose status changed
+     */
+    int updateLdapStatus(Collection<String> activeKrbNames, Collection<String> inactiveKrbNames, Date checkedAt);
+
+}
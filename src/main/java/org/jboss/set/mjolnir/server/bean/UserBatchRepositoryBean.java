@@ -0,0 +1,225 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.UserEntity;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@inheritDoc}
+ *
+ * All operations load existing users of the batch by one query, and the resulting deletes, inserts and updates
+ * are sent in JDBC batches (see hibernate.jdbc.batch_size in persistence.xml) when the transaction is flushed.
+ * Unlike bulk JPQL statements, which make Hibernate evict the whole users cache region and the query cache, this
+ * only evicts cache entries of the modified users.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+public class UserBatchRepositoryBean implements UserBatchRepository {
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public List<RegisteredUser> deleteUsers(List<RegisteredUser> users) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final List<RegisteredUser> notFound = new ArrayList<>();
+            // uid aliases are removed by the database (on delete cascade)
+            for (UserEntity entity : findExistingUsers(em, users, notFound)) {
+                em.remove(entity);
+            }
+            return notFound;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public List<RegisteredUser> setWhitelisted(List<RegisteredUser> users, boolean whitelisted) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final List<RegisteredUser> notFound = new ArrayList<>();
+            for (UserEntity entity : findExistingUsers(em, users, notFound)) {
+                entity.setWhitelisted(whitelisted);
+            }
+            return notFound;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void saveOrUpdateUsers(List<RegisteredUser> users) {
+        final List<String> gitHubNames = new ArrayList<>();
+        final List<String> krbNames = new ArrayList<>();
+        for (RegisteredUser user : users) {
+            if (user.getGitHubName() != null) {
+                gitHubNames.add(user.getGitHubName().toLowerCase());
+            }
+            if (user.getKrbName() != null) {
+                krbNames.add(user.getKrbName());
+            }
+        }
+
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            // load existing users of the batch by single query
+            final Map<String, UserEntity> byGitHubName = new HashMap<>();
+            final Map<String, UserEntity> byKrbName = new HashMap<>();
+            for (UserEntity entity : UserRepositoryBean.findUsersByNames(em, gitHubNames, krbNames)) {
+                if (entity.getGithubName() != null) {
+                    byGitHubName.put(entity.getGithubNameLower(), entity);
+                }
+                if (entity.getKerberosName() != null) {
+                    byKrbName.put(entity.getKerberosName(), entity);
+                }
+            }
+
+            // as in UserRepositoryBean.updateUser(), aliases of changed kerberos names are dropped
+            final List<Long> changedKrbNames = new ArrayList<>();
+            for (RegisteredUser user : users) {
+                final UserEntity entity = findUser(user, byGitHubName, byKrbName);
+                if (entity != null && entity.getKerberosName() != null
+                        && !entity.getKerberosName().equals(user.getKrbName())) {
+                    changedKrbNames.add(entity.getId());
+                }
+            }
+            if (!changedKrbNames.isEmpty()) {
+                em.createQuery("DELETE FROM UidAliasEntity WHERE user.id IN (:ids)")
+                        .setParameter("ids", changedKrbNames)
+                        .executeUpdate();
+            }
+
+            for (RegisteredUser user : users) {
+                final UserEntity entity = findUser(user, byGitHubName, byKrbName);
+                if (entity == null) {
+                    final UserEntity newEntity = new UserEntity();
+                    UserRepositoryBean.copyToEntity(user, newEntity);
+                    em.persist(newEntity);
+                    // the same user may appear in the batch again
+                    if (newEntity.getGithubName() != null) {
+                        byGitHubName.put(newEntity.getGithubNameLower(), newEntity);
+                    }
+                    if (newEntity.getKerberosName() != null) {
+                        byKrbName.put(newEntity.getKerberosName(), newEntity);
+                    }
+                } else {
+                    UserRepositoryBean.copyToEntity(user, entity);
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public int updateLdapStatus(Collection<String> activeKrbNames, Collection<String> inactiveKrbNames,
+                                Date checkedAt) {
+        final List<String> krbNames = new ArrayList<>(activeKrbNames);
+        krbNames.addAll(inactiveKrbNames);
+        if (krbNames.isEmpty()) {
+            return 0;
+        }
+        final Set<String> active = new HashSet<>(activeKrbNames);
+
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final List<UserEntity> entities =
+                    em.createQuery("FROM UserEntity WHERE kerberosName IN (:names)", UserEntity.class)
+                            .setParameter("names", krbNames)
+                            .getResultList();
+            int changed = 0;
+            for (UserEntity entity : entities) {
+                final boolean isActive = active.contains(entity.getKerberosName());
+                // change time is only moved when the status changes
+                if (entity.getLdapActive() == null || entity.getLdapActive() != isActive) {
+                    entity.setLdapActive(isActive);
+                    entity.setLdapChangedAt(checkedAt);
+                    changed++;
+                }
+                entity.setLdapCheckedAt(checkedAt);
+            }
+            return changed;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Loads entities of given users by single query. Users are matched by exact GitHub name first, by kerberos name
+     * if there's no user with the same GitHub name (as in UserRepositoryBean.getUserFromDB()).
+     *
+     * @param notFound collects users that weren't found
+     * @return distinct entities of found users
+     */
+    private static Collection<UserEntity> findExistingUsers(EntityManager em, List<RegisteredUser> users,
+                                                            List<RegisteredUser> notFound) {
+        final List<String> gitHubNames = new ArrayList<>();
+        final List<String> krbNames = new ArrayList<>();
+        for (RegisteredUser user : users) {
+            if (user.getGitHubName() != null) {
+                gitHubNames.add(user.getGitHubName().toLowerCase());
+            }
+            if (user.getKrbName() != null) {
+                krbNames.add(user.getKrbName());
+            }
+        }
+
+        final Map<String, UserEntity> byGitHubName = new HashMap<>();
+        final Map<String, UserEntity> byKrbName = new HashMap<>();
+        for (UserEntity entity : UserRepositoryBean.findUsersByNames(em, gitHubNames, krbNames)) {
+            if (entity.getGithubName() != null) {
+                byGitHubName.put(entity.getGithubName(), entity);
+            }
+            if (entity.getKerberosName() != null) {
+                byKrbName.put(entity.getKerberosName(), entity);
+            }
+        }
+
+        final Map<Long, UserEntity> found = new LinkedHashMap<>();
+        for (RegisteredUser user : users) {
+            UserEntity entity = user.getGitHubName() != null ? byGitHubName.get(user.getGitHubName()) : null;
+            if (entity == null && user.getKrbName() != null) {
+                entity = byKrbName.get(user.getKrbName());
+            }
+            if (entity == null) {
+                notFound.add(user);
+            } else {
+                found.put(entity.getId(), entity);
+            }
+        }
+        return found.values();
+    }
+
+    /**
+     * Matches user by GitHub name first, because kerberos name can be null (as in UserRepositoryBean).
+     */
+    private static UserEntity findUser(RegisteredUser user, Map<String, UserEntity> byGitHubName,
+                                       Map<String, UserEntity> byKrbName) {
+        UserEntity entity = user.getGitHubName() != null ? byGitHubName.get(user.getGitHubName().toLowerCase()) : null;
+        if (entity == null && user.getKrbName() != null) {
+            entity = byKrbName.get(user.getKrbName());
+        }
+        return entity;
+    }
+
+    @SuppressWarnings("unused")
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
@@ -0,0 +1,217 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.UserService;
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.github.GitHubRequestExecutor;
+import org.jboss.set.mjolnir.server.service.validation.ResponsiblePersonAddedValidation;
+import org.jboss.set.mjolnir.server.service.validation.Validation;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.ValidationResult;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports batches of new users.
+ *
+ * Performs the same validations as registration of a single user in the administration UI, but in bulk: taken
+ * names of the whole batch are looked up by single query, existence of GitHub names is verified by parallel
+ * requests (see {@link GitHubRequestExecutor}) and valid users are stored by {@link UserRepository} bulk
+ * operation.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class UserImportBean {
+
+    private static final int GITHUB_CHECK_TIMEOUT = 2; // minutes
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private UserRepository userRepository;
+
+    @Inject
+    private GitHubClient gitHubClient;
+
+    @Inject
+    private GitHubRequestExecutor requestExecutor;
+
+    private UserService userService;
+
+    private final Validation<RegisteredUser> responsiblePersonValidation = new ResponsiblePersonAddedValidation();
+
+    @PostConstruct
+    public void initBean() {
+        userService = new UserService(gitHubClient);
+    }
+
+    /**
+     * Validates and stores users of given rows. Rows that are already rejected are skipped, results of the other
+     * rows are updated. Admin flags of the users are ignored.
+     *
+     * @param rows rows to import
+     */
+    public void importUsers(List<UserImportResult> rows) {
+        List<UserImportResult> candidates = retainImported(rows);
+        for (UserImportResult row : candidates) {
+            // admin rights are only granted in the administration UI
+            row.getUser().setAdmin(false);
+        }
+
+        validateNames(candidates);
+        for (UserImportResult row : candidates) {
+            final ValidationResult result = responsiblePersonValidation.validate(row.getUser());
+            if (!result.isOK()) {
+                for (String failure : result.getFailures()) {
+                    row.addFailure(failure);
+                }
+            }
+        }
+
+        // GitHub is only asked about users that passed the other validations
+        candidates = retainImported(candidates);
+        verifyGitHubNames(candidates);
+
+        candidates = retainImported(candidates);
+        if (candidates.isEmpty()) {
+            return;
+        }
+        final List<RegisteredUser> users = new ArrayList<>(candidates.size());
+        for (UserImportResult row : candidates) {
+            users.add(row.getUser());
+        }
+        try {
+            userRepository.saveOrUpdateUsers(users);
+        } catch (RuntimeException e) {
+            logger.warnf(e, "Couldn't store %d imported users", users.size());
+            for (UserImportResult row : candidates) {
+                row.fail("Couldn't store user.");
+            }
+        }
+    }
+
+    /**
+     * Rejects users whose names are already registered, or repeat in the batch.
+     */
+    private void validateNames(List<UserImportResult> rows) {
+        final List<String> krbNames = new ArrayList<>();
+        final List<String> gitHubNames = new ArrayList<>();
+        for (UserImportResult row : rows) {
+            if (!StringUtils.isEmpty(row.getUser().getKrbName())) {
+                krbNames.add(row.getUser().getKrbName());
+            }
+            if (!StringUtils.isEmpty(row.getUser().getGitHubName())) {
+                gitHubNames.add(row.getUser().getGitHubName());
+            }
+        }
+
+        final Set<String> takenKrbNames = new HashSet<>();
+        final Set<String> takenGitHubNames = new HashSet<>();
+        if (!rows.isEmpty()) {
+            for (RegisteredUser existing : userRepository.getUsersByNames(krbNames, gitHubNames)) {
+                if (existing.getKrbName() != null) {
+                    takenKrbNames.add(existing.getKrbName());
+                }
+                if (existing.getGitHubName() != null) {
+                    takenGitHubNames.add(existing.getGitHubName().toLowerCase());
+                }
+            }
+        }
+
+        final Set<String> seenKrbNames = new HashSet<>();
+        final Set<String> seenGitHubNames = new HashSet<>();
+        for (UserImportResult row : rows) {
+            final String krbName = row.getUser().getKrbName();
+            final String gitHubName = row.getUser().getGitHubName();
+
+            if (StringUtils.isEmpty(gitHubName)) {
+                row.addFailure("GitHub name is required.");
+            } else if (takenGitHubNames.contains(gitHubName.toLowerCase())) {
+                row.addFailure("This GitHub name has already been registered.");
+            } else if (!seenGitHubNames.add(gitHubName.toLowerCase())) {
+                row.addFailure("This GitHub name is repeated in the import.");
+            }
+
+            if (!StringUtils.isEmpty(krbName)) {
+                if (takenKrbNames.contains(krbName)) {
+                    row.addFailure("This Kerberos name is already taken by different user.");
+                } else if (!seenKrbNames.add(krbName)) {
+                    row.addFailure("This Kerberos name is repeated in the import.");
+                }
+            }
+        }
+    }
+
+    private void verifyGitHubNames(List<UserImportResult> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        final List<Callable<Boolean>> checks = new ArrayList<>(rows.size());
+        for (UserImportResult row : rows) {
+            final String gitHubName = row.getUser().getGitHubName();
+            checks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws IOException {
+                    try {
+                        userService.getUser(gitHubName);
+                        return true;
+                    } catch (RequestException e) {
+                        if (e.getStatus() == 404) {
+                            return false;
+                        }
+                        throw e;
+                    }
+                }
+            });
+        }
+
+        final List<Boolean> results = requestExecutor.invokeAll(checks, GITHUB_CHECK_TIMEOUT, TimeUnit.MINUTES);
+        for (int i = 0; i < rows.size(); i++) {
+            final Boolean exists = results.get(i);
+            if (exists == null) {
+                rows.get(i).fail("GitHub call failed.");
+            } else if (!exists) {
+                rows.get(i).addFailure("Specified GitHub name is not registered on GitHub.");
+            }
+        }
+    }
+
+    private static List<UserImportResult> retainImported(List<UserImportResult> rows) {
+        final List<UserImportResult> result = new ArrayList<>(rows.size());
+        for (UserImportResult row : rows) {
+            if (row.isImported()) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setRequestExecutor(GitHubRequestExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserService(UserService userService) {
+        this.userService = userService;
+    }
+}
@@ -0,0 +1,79 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of importing single row of user import.
+ */
+public class UserImportResult {
+
+    public enum Status {
+        /**
+         * User was stored.
+         */
+        IMPORTED,
+        /**
+         * Row was rejected by validations, see messages.
+         */
+        INVALID,
+        /**
+         * Row couldn't be processed (e.g. GitHub or database failure), it can be imported again later.
+         */
+        FAILED
+    }
+
+    private final int row;
+    private final RegisteredUser user;
+    private Status status = Status.IMPORTED;
+    private final List<String> messages = new ArrayList<>();
+
+    /**
+     * @param row row number in the import, starting at 1
+     * @param user imported user, null if the row couldn't be parsed
+     */
+    public UserImportResult(int row, RegisteredUser user) {
+        this.row = row;
+        this.user = user;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public RegisteredUser getUser() {
+        return user;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public boolean isImported() {
+        return status == Status.IMPORTED;
+    }
+
+    /**
+     * Marks the row as invalid.
+     */
+    public void addFailure(String message) {
+        if (status == Status.IMPORTED) {
+            status = Status.INVALID;
+        }
+        messages.add(message);
+    }
+
+    /**
+     * Marks the row as failed.
+     */
+    public void fail(String message) {
+        status = Status.FAILED;
+        messages.add(message);
+    }
+}
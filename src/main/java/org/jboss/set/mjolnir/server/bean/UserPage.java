@@ -0,0 +1,41 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+
+import java.util.List;
+
+/**
+ * Users retrieved by a keyset paginated query (see {@link UserRepository#getUsers}), with cursors allowing to
+ * continue the query after any of them.
+ */
+public class UserPage {
+
+    private final List<RegisteredUser> users;
+    private final List<String> cursors;
+    private final boolean more;
+
+    public UserPage(List<RegisteredUser> users, List<String> cursors, boolean more) {
+        this.users = users;
+        this.cursors = cursors;
+        this.more = more;
+    }
+
+    public List<RegisteredUser> getUsers() {
+        return users;
+    }
+
+    /**
+     * @param index index of a user on this page
+     * @return cursor of the position right after given user
+     */
+    public String getCursor(int index) {
+        return cursors.get(index);
+    }
+
+    /**
+     * @return whether more users follow this page
+     */
+    public boolean hasMore() {
+        return more;
+    }
+}
@@ -1,8 +1,10 @@
 package org.jboss.set.mjolnir.server.bean;
 
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +39,16 @@ public interface UserRepository {
      */
     Map<String, RegisteredUser> getUsersByGitHubName(List<String> names);
 
+    /**
+     * Retrieves users whose krb name or github name (case insensitive) matches a name in given lists, by single
+     * query.
+     *
+     * @param krbNames krb names we are looking for
+     * @param gitHubNames github names we are looking for
+     * @return existing users with matching krb or github name
+     */
+    List<RegisteredUser> getUsersByNames(Collection<String> krbNames, Collection<String> gitHubNames);
+
     /**
      * Saves new user.
      *
@@ -63,6 +75,18 @@ public interface UserRepository {
      */
     List<RegisteredUser> getAllUsers();
 
+    /**
+     * Retrieves users matching the query filters, in the query sort order, following the query cursor.
+     *
+     * The LDAP account filter ({@link RegisteredUsersQuery#getKrbAccount()}) is applied to the stored LDAP status,
+     * users whose status wasn't checked yet match neither value.
+     *
+     * @param query filters, sort order and cursor
+     * @param maxResults maximum number of users to retrieve
+     * @return users with cursors
+     */
+    UserPage getUsers(RegisteredUsersQuery query, int maxResults);
+
     /**
      * Removes user from database.
      *
@@ -71,10 +95,46 @@ public interface UserRepository {
     void deleteUser(RegisteredUser user);
 
     /**
-     * Removes users from database.
+     * Removes users from database. Users that weren't found don't prevent deletion of the others.
      *
      * @param users users to delete
+     * @return users that weren't found
+     */
+    List<RegisteredUser> deleteUsers(Collection<RegisteredUser> users);
+
+    /**
+     * Sets whitelist flag of existing users, other user attributes are not modified.
+     *
+     * @param users users to update
+     * @param whitelisted new flag value
+     * @return users that weren't found
+     */
+    List<RegisteredUser> setWhitelisted(Collection<RegisteredUser> users, boolean whitelisted);
+
+    /**
+     * Saves or updates given users.
+     *
+     * @param users users
+     */
+    void saveOrUpdateUsers(Collection<RegisteredUser> users);
+
+
+    /**
+     * Retrieves kerberos names of users whose LDAP status was never checked or was checked before given time,
+     * unchecked first, then the oldest checked.
+     *
+     * @param checkedBefore status checked before this time is stale
+     * @param maxResults maximum number of names to retrieve
+     * @return kerberos names
+     */
+    List<String> getKrbNamesWithStaleLdapStatus(Date checkedBefore, int maxResults);
+
+    /**
+     * Stores LDAP account status of users.
+     *
+     * @param statuses kerberos name : has active LDAP account?
+     * @return number of users whose status changed
      */
-    void deleteUsers(Collection<RegisteredUser> users);
+    int updateLdapStatus(Map<String, Boolean> statuses);
 
 }
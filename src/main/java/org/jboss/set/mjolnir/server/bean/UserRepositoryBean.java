@@ -1,8 +1,11 @@
 package org.jboss.set.mjolnir.server.bean;
 
+import org.hibernate.annotations.QueryHints;
 import org.jboss.logging.Logger;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.jboss.set.mjolnir.server.entities.UidAliasEntity;
 import org.jboss.set.mjolnir.server.entities.UserEntity;
 
 import javax.ejb.Stateless;
@@ -11,12 +14,17 @@ import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@inheritDoc}
@@ -26,6 +34,11 @@ import java.util.Map;
 @Stateless
 public class UserRepositoryBean implements UserRepository {
 
+    static final long ALIAS_TTL = TimeUnit.DAYS.toMillis(1);
+
+    // users written by single transaction of bulk operations
+    static final int BATCH_SIZE = 500;
+
     private final Logger logger = Logger.getLogger(getClass().getName());
 
     @Inject
@@ -34,6 +47,12 @@ public class UserRepositoryBean implements UserRepository {
     @Inject
     private LdapRepository ldapRepository;
 
+    @Inject
+    private UidAliasRepository uidAliasRepository;
+
+    @Inject
+    private UserBatchRepository userBatchRepository;
+
     @Override
     public RegisteredUser getUser(String kerberosName) {
         return getUser(UserName.KERBEROS, kerberosName);
@@ -84,11 +103,11 @@ public class UserRepositoryBean implements UserRepository {
 
                 List<String> sublist = names.subList(i, highIndex);
 
-                TypedQuery<UserEntity> query = em.createQuery("FROM UserEntity WHERE lower(githubName) in (:list)", UserEntity.class);
+                TypedQuery<UserEntity> query = em.createQuery("FROM UserEntity WHERE githubNameLower in (:list)", UserEntity.class);
                 List<UserEntity> result = query.setParameter("list", sublist).getResultList();
 
                 for (UserEntity user : result) {
-                    users.put(user.getGithubName().toLowerCase(), convertUserEntity(user));
+                    users.put(user.getGithubNameLower(), convertUserEntity(user));
                 }
             }
 
@@ -98,30 +117,92 @@ public class UserRepositoryBean implements UserRepository {
         }
     }
 
-    private RegisteredUser getUser(UserName userName, String param) {
+    @Override
+    public List<RegisteredUser> getUsersByNames(Collection<String> krbNames, Collection<String> gitHubNames) {
         EntityManager em = entityManagerFactory.createEntityManager();
 
         try {
-            RegisteredUser user = null;
+            final List<RegisteredUser> users = new ArrayList<>();
+            for (UserEntity entity : findUsersByNames(em, toLowerCase(gitHubNames), krbNames)) {
+                users.add(convertUserEntity(entity));
+            }
+            return users;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves users matching any of given names by single query.
+     *
+     * @param gitHubNames lower case GitHub names
+     * @param krbNames kerberos names
+     */
+    static List<UserEntity> findUsersByNames(EntityManager em, Collection<String> gitHubNames,
+                                             Collection<String> krbNames) {
+        if (gitHubNames.isEmpty() && krbNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final StringBuilder jpql = new StringBuilder("FROM UserEntity WHERE ");
+        if (!gitHubNames.isEmpty()) {
+            jpql.append("githubNameLower IN (:gitHubNames)");
+        }
+        if (!krbNames.isEmpty()) {
+            jpql.append(gitHubNames.isEmpty() ? "" : " OR ").append("kerberosName IN (:krbNames)");
+        }
+        final TypedQuery<UserEntity> query = em.createQuery(jpql.toString(), UserEntity.class);
+        if (!gitHubNames.isEmpty()) {
+            query.setParameter("gitHubNames", gitHubNames);
+        }
+        if (!krbNames.isEmpty()) {
+            query.setParameter("krbNames", krbNames);
+        }
+        return query.getResultList();
+    }
+
+    private RegisteredUser getUser(UserName userName, String param) {
+        UserEntity userEntity = getUserEntity(userName, param);
+        return userEntity != null ? convertUserEntity(userEntity) : null;
+    }
+
+    private UserEntity getUserEntity(UserName userName, String param) {
+        EntityManager em = entityManagerFactory.createEntityManager();
 
+        try {
             TypedQuery<UserEntity> getUserQuery;
+            String name = param;
 
             if (userName == UserName.KERBEROS) {
                 logger.debug("Retrieving user by krb name");
                 getUserQuery = em.createQuery("FROM UserEntity WHERE kerberosName=:name", UserEntity.class);
             } else {
                 logger.debug("Retrieving user by github name");
-                getUserQuery = em.createQuery("FROM UserEntity WHERE githubName=:name", UserEntity.class);
+                // github names are case insensitive
+                getUserQuery = em.createQuery("FROM UserEntity WHERE githubNameLower=:name", UserEntity.class);
+                name = param != null ? param.toLowerCase() : null;
             }
 
-            List<UserEntity> result = getUserQuery.setParameter("name", param).getResultList();
+            // repeated lookups (e.g. by validations) are served from the query cache
+            List<UserEntity> result = getUserQuery.setParameter("name", name)
+                    .setHint(QueryHints.CACHEABLE, true)
+                    .getResultList();
 
             if (result.size() == 1) {
-                UserEntity userEntity = result.get(0);
-                user = convertUserEntity(userEntity);
+                return result.get(0);
             }
-
-            return user;
+            if (userName == UserName.GITHUB) {
+                // databases not migrated by migrate_users_github_name_lower_unique.sql may contain names differing
+                // only in case
+                for (UserEntity entity : result) {
+                    if (entity.getGithubName().equals(param)) {
+                        return entity;
+                    }
+                }
+                if (!result.isEmpty()) {
+                    logger.warnf("Several users with GitHub name %s found", param);
+                }
+            }
+            return null;
         } finally {
             em.close();
         }
@@ -141,9 +222,23 @@ public class UserRepositoryBean implements UserRepository {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The user is resolved from the persistent alias map (see {@link UidAliasRepository}) when possible. LDAP is
+     * only consulted for prior uids when the alias is not mapped yet or its mapping expired, the map is updated
+     * then.
+     */
     @Override
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
     public RegisteredUser getOrCreateUser(String kerberosName) {
+        final String alias = LdapRepositoryBean.normalizeUid(kerberosName);
+        final UidAliasEntity aliasEntity = uidAliasRepository.getAlias(alias);
+        if (aliasEntity != null && aliasEntity.getUser() != null
+                && aliasEntity.getResolvedAt().getTime() + ALIAS_TTL > System.currentTimeMillis()) {
+            return convertUserEntity(aliasEntity.getUser());
+        }
+
         List<String> uids = ldapRepository.findAllUserUids(kerberosName);
         List<UserEntity> userEntities = getUsersByKrbNames(uids);
 
@@ -151,28 +246,49 @@ public class UserRepositoryBean implements UserRepository {
             logger.warnf("Several possible registered users found for UID %s", kerberosName);
         }
 
-        RegisteredUser user;
+        UserEntity userEntity;
         if (userEntities.size() == 1) {
-            user = convertUserEntity(userEntities.get(0));
+            userEntity = userEntities.get(0);
         } else {
-            user = getUser(kerberosName);
+            userEntity = getUserEntity(UserName.KERBEROS, kerberosName);
         }
 
-        if (user == null) {
-            user = new RegisteredUser();
+        if (userEntity == null) {
+            RegisteredUser user = new RegisteredUser();
             user.setKrbName(kerberosName);
-            insertUser(user);
+            userEntity = insertUser(user);
+            // aliases are stored in separate transaction, which wouldn't see the new user yet, so they are stored
+            // on the next login
+            return convertUserEntity(userEntity);
         }
 
-        return user;
+        storeAliases(alias, uids, userEntity.getId());
+        return convertUserEntity(userEntity);
+    }
+
+    private void storeAliases(String alias, List<String> uids, Long userId) {
+        final Set<String> aliases = new HashSet<>();
+        aliases.add(alias);
+        for (String uid : uids) {
+            aliases.add(LdapRepositoryBean.normalizeUid(uid));
+        }
+        // first uid returned by LDAP is the current one
+        final String canonicalUid = uids.isEmpty() ? alias : LdapRepositoryBean.normalizeUid(uids.get(0));
+        try {
+            uidAliasRepository.storeAliases(aliases, canonicalUid, userId);
+        } catch (RuntimeException e) {
+            // e.g. the same user logging in concurrently, aliases will be stored next time
+            logger.debugf(e, "Couldn't store uid aliases of %s", alias);
+        }
     }
 
-    private void insertUser(RegisteredUser user) {
+    private UserEntity insertUser(RegisteredUser user) {
         UserEntity userEntity = convertUser(user);
 
         EntityManager em = entityManagerFactory.createEntityManager();
         try {
             em.persist(userEntity);
+            return userEntity;
         } finally {
             em.close();
         }
@@ -189,12 +305,12 @@ public class UserRepositoryBean implements UserRepository {
                 return false;
             }
 
-            userEntity.setKerberosName(user.getKrbName());
-            userEntity.setGithubName(user.getGitHubName());
-            userEntity.setNote(user.getNote());
-            userEntity.setAdmin(user.isAdmin());
-            userEntity.setWhitelisted(user.isWhitelisted());
-            userEntity.setResponsiblePerson(user.getResponsiblePerson());
+            if (userEntity.getKerberosName() != null && !userEntity.getKerberosName().equals(user.getKrbName())) {
+                // aliases map uids of the previous kerberos name to this user
+                uidAliasRepository.removeAliasesOfUser(userEntity.getId());
+            }
+
+            copyToEntity(user, userEntity);
 
             return true;
         } finally {
@@ -221,6 +337,76 @@ public class UserRepositoryBean implements UserRepository {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Keyset pagination is used: users are ordered by the lower cased sort column (empty if the user has no such
+     * name) and id, and the cursor holds these values of the last user of the previous page. Retrieving a page
+     * therefore doesn't depend on its position or on the table size. The krb_name_lower and github_name_lower
+     * columns are both indexed together with the id.
+     */
+    @Override
+    public UserPage getUsers(RegisteredUsersQuery query, int maxResults) {
+        final String sortKey = query.getSortColumn() == RegisteredUsersQuery.SortColumn.GITHUB_NAME
+                ? "u.githubNameLower" : "u.kerberosNameLower";
+        final String direction = query.isAscending() ? "asc" : "desc";
+        final String comparison = query.isAscending() ? ">" : "<";
+
+        final StringBuilder jpql = new StringBuilder("SELECT u FROM UserEntity u WHERE 1 = 1");
+        if (!isEmpty(query.getKrbNameExpression())) {
+            jpql.append(" AND u.kerberosNameLower LIKE :krbName ESCAPE '!'");
+        }
+        if (!isEmpty(query.getGitHubNameExpression())) {
+            jpql.append(" AND u.githubNameLower LIKE :gitHubName ESCAPE '!'");
+        }
+        if (query.getWhitelisted() != null) {
+            jpql.append(" AND u.whitelisted = :whitelisted");
+        }
+        if (query.getKrbAccount() != null) {
+            // users without kerberos name can't have an account
+            jpql.append(query.getKrbAccount() ? " AND u.ldapActive = true"
+                    : " AND (u.ldapActive = false OR u.kerberosName IS NULL)");
+        }
+        final Cursor cursor = Cursor.parse(query.getCursor());
+        if (cursor != null) {
+            jpql.append(String.format(" AND (%1$s %2$s :cursorKey OR (%1$s = :cursorKey AND u.id %2$s :cursorId))",
+                    sortKey, comparison));
+        }
+        jpql.append(String.format(" ORDER BY %s %s, u.id %s", sortKey, direction, direction));
+
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            final TypedQuery<UserEntity> typedQuery = em.createQuery(jpql.toString(), UserEntity.class);
+            if (!isEmpty(query.getKrbNameExpression())) {
+                typedQuery.setParameter("krbName", containsPattern(query.getKrbNameExpression()));
+            }
+            if (!isEmpty(query.getGitHubNameExpression())) {
+                typedQuery.setParameter("gitHubName", containsPattern(query.getGitHubNameExpression()));
+            }
+            if (query.getWhitelisted() != null) {
+                typedQuery.setParameter("whitelisted", query.getWhitelisted());
+            }
+            if (cursor != null) {
+                typedQuery.setParameter("cursorKey", cursor.key);
+                typedQuery.setParameter("cursorId", cursor.id);
+            }
+            // one more row tells whether there is a next page
+            final List<UserEntity> entities = typedQuery.setMaxResults(maxResults + 1).getResultList();
+
+            final List<RegisteredUser> users = new ArrayList<>();
+            final List<String> cursors = new ArrayList<>();
+            for (UserEntity entity : entities.subList(0, Math.min(maxResults, entities.size()))) {
+                users.add(convertUserEntity(entity));
+                final String key = query.getSortColumn() == RegisteredUsersQuery.SortColumn.GITHUB_NAME
+                        ? entity.getGithubNameLower() : entity.getKerberosNameLower();
+                cursors.add(new Cursor(key, entity.getId()).toString());
+            }
+            return new UserPage(users, cursors, entities.size() > maxResults);
+        } finally {
+            em.close();
+        }
+    }
+
     @Override
     public void deleteUser(RegisteredUser user) {
         EntityManager em = entityManagerFactory.createEntityManager();
@@ -238,11 +424,138 @@ public class UserRepositoryBean implements UserRepository {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Users are deleted {@link #BATCH_SIZE} per transaction, existing users of a batch are loaded by single query.
+     * Users that were found are deleted even if some of the others weren't.
+     */
     @Override
-    public void deleteUsers(Collection<RegisteredUser> users) {
+    public List<RegisteredUser> deleteUsers(Collection<RegisteredUser> users) {
+        final List<RegisteredUser> notFound = new ArrayList<>();
+        for (List<RegisteredUser> batch : partition(users)) {
+            notFound.addAll(userBatchRepository.deleteUsers(batch));
+        }
+        logger.debugf("Deleted %d of %d users", users.size() - notFound.size(), users.size());
+        if (!notFound.isEmpty()) {
+            logger.warnf("Users not found, not deleted: %s", describeUsers(notFound));
+        }
+        return notFound;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Flags are updated {@link #BATCH_SIZE} users per transaction, existing users of a batch are loaded by single
+     * query.
+     */
+    @Override
+    public List<RegisteredUser> setWhitelisted(Collection<RegisteredUser> users, boolean whitelisted) {
+        final List<RegisteredUser> notFound = new ArrayList<>();
+        for (List<RegisteredUser> batch : partition(users)) {
+            notFound.addAll(userBatchRepository.setWhitelisted(batch, whitelisted));
+        }
+        return notFound;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Users are saved {@link #BATCH_SIZE} per transaction, existing users of a batch are loaded by single query.
+     */
+    @Override
+    public void saveOrUpdateUsers(Collection<RegisteredUser> users) {
+        for (List<RegisteredUser> batch : partition(users)) {
+            userBatchRepository.saveOrUpdateUsers(batch);
+        }
+    }
+
+    private static List<List<RegisteredUser>> partition(Collection<RegisteredUser> users) {
+        final List<RegisteredUser> list = new ArrayList<>(users);
+        final List<List<RegisteredUser>> batches = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            batches.add(list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+        return batches;
+    }
+
+    @Override
+    public List<String> getKrbNamesWithStaleLdapStatus(Date checkedBefore, int maxResults) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+
+        try {
+            final List<String> names = new ArrayList<>(em.createQuery("SELECT u.kerberosName FROM UserEntity u "
+                    + "WHERE u.kerberosName IS NOT NULL AND u.ldapCheckedAt IS NULL", String.class)
+                    .setMaxResults(maxResults)
+                    .getResultList());
+            if (names.size() < maxResults) {
+                names.addAll(em.createQuery("SELECT u.kerberosName FROM UserEntity u "
+                        + "WHERE u.kerberosName IS NOT NULL AND u.ldapCheckedAt < :checkedBefore "
+                        + "ORDER BY u.ldapCheckedAt", String.class)
+                        .setParameter("checkedBefore", checkedBefore, TemporalType.TIMESTAMP)
+                        .setMaxResults(maxResults - names.size())
+                        .getResultList());
+            }
+            return names;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Statuses are stored {@link #BATCH_SIZE} users per transaction, users of a batch are loaded by single query.
+     */
+    @Override
+    public int updateLdapStatus(Map<String, Boolean> statuses) {
+        final Date checkedAt = new Date();
+        final List<Map.Entry<String, Boolean>> entries = new ArrayList<>(statuses.entrySet());
+        int changed = 0;
+        for (int i = 0; i < entries.size(); i += BATCH_SIZE) {
+            final List<String> active = new ArrayList<>();
+            final List<String> inactive = new ArrayList<>();
+            for (Map.Entry<String, Boolean> entry : entries.subList(i, Math.min(i + BATCH_SIZE, entries.size()))) {
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    active.add(entry.getKey());
+                } else {
+                    inactive.add(entry.getKey());
+                }
+            }
+            changed += userBatchRepository.updateLdapStatus(active, inactive, checkedAt);
+        }
+        return changed;
+    }
+
+    private static String describeUsers(List<RegisteredUser> users) {
+        final StringBuilder sb = new StringBuilder();
         for (RegisteredUser user : users) {
-            deleteUser(user);
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(user.getGitHubName() != null ? user.getGitHubName() : user.getKrbName());
         }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unused")
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @SuppressWarnings("unused")
+    public void setLdapRepository(LdapRepository ldapRepository) {
+        this.ldapRepository = ldapRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUidAliasRepository(UidAliasRepository uidAliasRepository) {
+        this.uidAliasRepository = uidAliasRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUserBatchRepository(UserBatchRepository userBatchRepository) {
+        this.userBatchRepository = userBatchRepository;
     }
 
     private enum UserName {
@@ -252,14 +565,18 @@ public class UserRepositoryBean implements UserRepository {
 
     private UserEntity convertUser(RegisteredUser user) {
         UserEntity userEntity = new UserEntity();
+        copyToEntity(user, userEntity);
+
+        return userEntity;
+    }
+
+    static void copyToEntity(RegisteredUser user, UserEntity userEntity) {
         userEntity.setKerberosName(user.getKrbName());
         userEntity.setGithubName(user.getGitHubName());
         userEntity.setNote(user.getNote());
         userEntity.setAdmin(user.isAdmin());
         userEntity.setWhitelisted(user.isWhitelisted());
-        userEntity.setResponsiblePerson((user.getResponsiblePerson()));
-
-        return userEntity;
+        userEntity.setResponsiblePerson(user.getResponsiblePerson());
     }
 
     private RegisteredUser convertUserEntity(UserEntity userEntity) {
@@ -270,6 +587,7 @@ public class UserRepositoryBean implements UserRepository {
         registeredUser.setAdmin(userEntity.isAdmin());
         registeredUser.setWhitelisted(userEntity.isWhitelisted());
         registeredUser.setResponsiblePerson(userEntity.getResponsiblePerson());
+        registeredUser.setLdapActive(userEntity.getLdapActive());
 
         return registeredUser;
     }
@@ -304,11 +622,72 @@ public class UserRepositoryBean implements UserRepository {
         return userEntity;
     }
 
-    private static List<String> toLowerCase(final List<String> strings) {
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * @return LIKE pattern matching values containing given expression, case insensitive
+     */
+    static String containsPattern(String expression) {
+        final String escaped = expression.toLowerCase()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+
+    private static List<String> toLowerCase(final Collection<String> strings) {
         final List<String> result = new ArrayList<>(strings.size());
         for (String str : strings) {
             result.add(str.toLowerCase());
         }
         return result;
     }
+
+
+    /**
+     * Position in keyset pagination: sort key and id of the last user of the previous page.
+     */
+    static class Cursor {
+
+        private final String key;
+        private final long id;
+
+        Cursor(String key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        /**
+         * @return parsed cursor, or null for null value
+         * @throws ApplicationException if the value is not a valid cursor
+         */
+        static Cursor parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            final int separator = value.indexOf(':');
+            try {
+                if (separator > 0) {
+                    return new Cursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            throw new ApplicationException("Invalid cursor: " + value);
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + key;
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import java.util.Date;
+
+/**
+ * Ids of processed GitHub webhook deliveries.
+ */
+public interface WebhookDeliveryRepository {
+
+    /**
+     * Records the delivery unless it has already been recorded.
+     *
+     * Executed in a new transaction. The delivery id is inserted under a unique key, so of two concurrent
+     * redeliveries only one succeeds.
+     *
+     * @param deliveryId value of X-GitHub-Delivery header
+     * @return true if the delivery has been recorded, false if it was recorded before
+     */
+    boolean recordDelivery(String deliveryId);
+
+    /**
+     * Removes the delivery, so that its redelivery is processed again (e.g. because the processing failed).
+     *
+     * @param deliveryId value of X-GitHub-Delivery header
+     */
+    void removeDelivery(String deliveryId);
+
+    /**
+     * Removes deliveries received before given time.
+     *
+     * @param time oldest kept delivery time
+     * @return number of removed deliveries
+     */
+    int removeDeliveriesBefore(Date time);
+}
@@ -0,0 +1,77 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.jboss.set.mjolnir.server.entities.WebhookDeliveryEntity;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.util.Date;
+
+/**
+ * {@inheritDoc}
+ */
+@Stateless
+public class WebhookDeliveryRepositoryBean implements WebhookDeliveryRepository {
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean recordDelivery(String deliveryId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.persist(new WebhookDeliveryEntity(deliveryId, new Date()));
+            em.flush();
+            return true;
+        } catch (PersistenceException e) {
+            if (isConstraintViolation(e)) {
+                // already recorded, the transaction has been marked for rollback
+                return false;
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void removeDelivery(String deliveryId) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.createQuery("DELETE FROM WebhookDeliveryEntity WHERE deliveryId = :id")
+                    .setParameter("id", deliveryId)
+                    .executeUpdate();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int removeDeliveriesBefore(Date time) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            return em.createQuery("DELETE FROM WebhookDeliveryEntity WHERE receivedAt < :time")
+                    .setParameter("time", time)
+                    .executeUpdate();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,328 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.github.ExtendedOrganizationService;
+import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.MembershipStates;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies GitHub webhook deliveries (events "organization", "membership" and "team") to the membership data
+ * used by {@link GitHubSubscriptionBean}, i.e. to the mirror managed by {@link MembershipRepository}.
+ *
+ * Events are applied as state assignments ("user X is / is not a member of Y"), so applying the same event
+ * twice is harmless. Redelivered events are recognized by their delivery id, recorded by
+ * {@link WebhookDeliveryRepository}, and skipped. GitHub doesn't
+ * guarantee delivery order, so when two opposite events for the same membership arrive within
+ * {@link #REORDER_WINDOW_MILLIS}, the current state is looked up on GitHub instead of trusting the later one.
+ *
+ * Events of organizations and teams not managed by Mjolnir are ignored.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class WebhookEventProcessor {
+
+    static final String EVENT_ORGANIZATION = "organization";
+    static final String EVENT_MEMBERSHIP = "membership";
+    static final String EVENT_TEAM = "team";
+    static final String EVENT_PING = "ping";
+
+    static final long DELIVERY_RETENTION_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    static final int CHANGE_HISTORY_SIZE = 10000;
+    static final long REORDER_WINDOW_MILLIS = 60 * 1000;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @EJB
+    private OrganizationRepository organizationRepository;
+
+    @EJB
+    private MembershipRepository membershipRepository;
+
+    @EJB
+    private WebhookDeliveryRepository deliveryRepository;
+
+    @Inject
+    private GitHubClient gitHubClient;
+
+    private ExtendedOrganizationService organizationService;
+    private ExtendedTeamService teamService;
+
+    // last applied change per membership, guarded by itself
+    private final Map<String, Change> changes = new LruMap<>(CHANGE_HISTORY_SIZE);
+
+    @PostConstruct
+    public void initBean() {
+        organizationService = new ExtendedOrganizationService(gitHubClient);
+        teamService = new ExtendedTeamService(gitHubClient);
+    }
+
+    /**
+     * Processes single webhook delivery.
+     *
+     * @param deliveryId value of X-GitHub-Delivery header, may be null
+     * @param event value of X-GitHub-Event header
+     * @param payload JSON payload
+     * @return false if the delivery has already been processed, true otherwise
+     * @throws IllegalArgumentException if the payload is malformed
+     * @throws IOException if current membership state couldn't be retrieved from GitHub
+     */
+    public boolean process(String deliveryId, String event, String payload) throws IOException {
+        final JsonObject json;
+        try {
+            final JsonElement element = new JsonParser().parse(payload);
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("Payload is not a JSON object");
+            }
+            json = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed payload: " + e.getMessage(), e);
+        }
+
+        if (deliveryId != null && !deliveryRepository.recordDelivery(deliveryId)) {
+            logger.debugf("Delivery %s already processed", deliveryId);
+            return false;
+        }
+
+        boolean processed = false;
+        try {
+            if (EVENT_ORGANIZATION.equals(event)) {
+                processOrganizationEvent(json);
+            } else if (EVENT_MEMBERSHIP.equals(event)) {
+                processMembershipEvent(json);
+            } else if (EVENT_TEAM.equals(event)) {
+                processTeamEvent(json);
+            } else if (!EVENT_PING.equals(event)) {
+                logger.debugf("Ignoring event %s", event);
+            }
+            processed = true;
+        } finally {
+            if (!processed && deliveryId != null) {
+                // let GitHub redeliver it
+                deliveryRepository.removeDelivery(deliveryId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes delivery ids older than {@link #DELIVERY_RETENTION_MILLIS}, GitHub doesn't redeliver such old events.
+     */
+    @Schedule(hour = "3", minute = "15", persistent = false)
+    public void removeOldDeliveries() {
+        final int removed = deliveryRepository.removeDeliveriesBefore(
+                new Date(currentTimeMillis() - DELIVERY_RETENTION_MILLIS));
+        logger.debugf("Removed %d old webhook deliveries", removed);
+    }
+
+    private void processOrganizationEvent(JsonObject json) throws IOException {
+        final String action = getString(json, "action");
+        final String organization = getString(json, "organization", "login");
+        if (!"member_added".equals(action) && !"member_removed".equals(action)) {
+            logger.debugf("Ignoring organization event %s", action);
+            return;
+        }
+        final GithubOrganization managedOrganization = findOrganization(organization);
+        if (managedOrganization == null) {
+            logger.debugf("Ignoring event of unmanaged organization %s", organization);
+            return;
+        }
+
+        final String login = getString(json, "membership", "user", "login");
+        boolean member = "member_added".equals(action);
+        if (isReordered("org:" + organization.toLowerCase() + ":" + login.toLowerCase(), member)) {
+            member = organizationService.isMember(organization, login);
+            logger.infof("Conflicting events received for %s in organization %s, current membership: %s",
+                    login, organization, member);
+        }
+
+        if (member) {
+            membershipRepository.addOrganizationMember(organization, login);
+        } else {
+            // also removes the user from teams of the organization
+            membershipRepository.removeOrganizationMember(organization, login);
+        }
+        logger.infof("Webhook: %s %s organization %s", login, member ? "added to" : "removed from", organization);
+    }
+
+    private void processMembershipEvent(JsonObject json) throws IOException {
+        final String action = getString(json, "action");
+        if (!"team".equals(getString(json, "scope"))) {
+            return;
+        }
+        if (!"added".equals(action) && !"removed".equals(action)) {
+            logger.debugf("Ignoring membership event %s", action);
+            return;
+        }
+        final int teamId = getInt(json, "team", "id");
+        if (!isManagedTeam(teamId)) {
+            logger.debugf("Ignoring event of unmanaged team %d", teamId);
+            return;
+        }
+
+        final String login = getString(json, "member", "login");
+        String state = "added".equals(action) ? MembershipStates.ACTIVE : MembershipStates.NONE;
+        if (isReordered("team:" + teamId + ":" + login.toLowerCase(), MembershipStates.ACTIVE.equals(state))) {
+            state = teamService.getMembership(teamId, login);
+            logger.infof("Conflicting events received for %s in team %d, current membership: %s",
+                    login, teamId, state);
+        }
+
+        if (MembershipStates.ACTIVE.equals(state) || MembershipStates.PENDING.equals(state)) {
+            membershipRepository.addTeamMember(teamId, login, state);
+        } else {
+            membershipRepository.removeTeamMember(teamId, login);
+        }
+        logger.infof("Webhook: membership of %s in team %d is %s", login, teamId, state);
+    }
+
+    private void processTeamEvent(JsonObject json) {
+        final String action = getString(json, "action");
+        if (!"deleted".equals(action)) {
+            logger.debugf("Ignoring team event %s", action);
+            return;
+        }
+        final int teamId = getInt(json, "team", "id");
+        if (!isManagedTeam(teamId)) {
+            logger.debugf("Ignoring event of unmanaged team %d", teamId);
+            return;
+        }
+
+        membershipRepository.removeTeamMembers(teamId);
+        logger.infof("Webhook: team %d deleted", teamId);
+    }
+
+    /**
+     * Records membership change and determines whether it conflicts with a recent opposite change.
+     */
+    private boolean isReordered(String key, boolean member) {
+        final long now = currentTimeMillis();
+        final Change previous;
+        synchronized (changes) {
+            previous = changes.put(key, new Change(member, now));
+        }
+        return previous != null && previous.member != member && now - previous.time < REORDER_WINDOW_MILLIS;
+    }
+
+    private GithubOrganization findOrganization(String name) {
+        return organizationRepository.getCatalogue().getOrganization(name);
+    }
+
+    private boolean isManagedTeam(int teamId) {
+        return organizationRepository.getCatalogue().getTeam(teamId) != null;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static JsonElement getElement(JsonObject json, String... path) {
+        JsonElement element = json;
+        for (String name : path) {
+            if (element == null || !element.isJsonObject()) {
+                return null;
+            }
+            element = element.getAsJsonObject().get(name);
+        }
+        return element != null && !element.isJsonNull() ? element : null;
+    }
+
+    private static String getString(JsonObject json, String... path) {
+        final JsonElement element = getElement(json, path);
+        if (element == null || !element.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Missing attribute " + join(path));
+        }
+        return element.getAsString();
+    }
+
+    private static int getInt(JsonObject json, String... path) {
+        try {
+            return Integer.parseInt(getString(json, path));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid attribute " + join(path), e);
+        }
+    }
+
+    private static String join(String... path) {
+        final StringBuilder sb = new StringBuilder();
+        for (String name : path) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(name);
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unused")
+    public void setOrganizationRepository(OrganizationRepository organizationRepository) {
+        this.organizationRepository = organizationRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMembershipRepository(MembershipRepository membershipRepository) {
+        this.membershipRepository = membershipRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setDeliveryRepository(WebhookDeliveryRepository deliveryRepository) {
+        this.deliveryRepository = deliveryRepository;
+    }
+
+    @SuppressWarnings("unused")
+    public void setOrganizationService(ExtendedOrganizationService organizationService) {
+        this.organizationService = organizationService;
+    }
+
+    @SuppressWarnings("unused")
+    public void setTeamService(ExtendedTeamService teamService) {
+        this.teamService = teamService;
+    }
+
+
+    private static class Change {
+
+        private final boolean member;
+        private final long time;
+
+        Change(boolean member, long time) {
+            this.member = member;
+            this.time = time;
+        }
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.jboss.set.mjolnir.server.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -7,11 +8,15 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
 
 /**
  * @author Martin Stefanko (mstefank@redhat.com)
  */
 @Entity
+@Cacheable
 @Table(name = "github_orgs")
 public class GithubOrganizationEntity {
 
@@ -25,6 +30,13 @@ public class GithubOrganizationEntity {
     @Column(name = "subscriptions_enabled")
     private boolean subscriptionsEnabled;
 
+    /**
+     * Time of last successful synchronization of members into the local mirror, null if never synchronized.
+     */
+    @Column(name = "members_synced_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date membersSyncedAt;
+
     public GithubOrganizationEntity() {
     }
 
@@ -56,4 +68,12 @@ public class GithubOrganizationEntity {
     public void setSubscriptionsEnabled(boolean subscriptionsEnabled) {
         this.subscriptionsEnabled = subscriptionsEnabled;
     }
+
+    public Date getMembersSyncedAt() {
+        return membersSyncedAt;
+    }
+
+    public void setMembersSyncedAt(Date membersSyncedAt) {
+        this.membersSyncedAt = membersSyncedAt;
+    }
 }
@@ -1,5 +1,6 @@
 package org.jboss.set.mjolnir.server.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -9,11 +10,15 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
 
 /**
  * @author Martin Stefanko (mstefank@redhat.com)
  */
 @Entity
+@Cacheable
 @Table(name = "github_teams")
 public class GithubTeamEntity {
 
@@ -31,6 +36,13 @@ public class GithubTeamEntity {
     @Column(name = "github_id", unique = true)
     private Long githubId;
 
+    /**
+     * Time of last successful synchronization of members into the local mirror, null if never synchronized.
+     */
+    @Column(name = "members_synced_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date membersSyncedAt;
+
     public GithubTeamEntity() {
     }
 
@@ -65,4 +77,12 @@ public class GithubTeamEntity {
     public void setGithubId(Long githubId) {
         this.githubId = githubId;
     }
+
+    public Date getMembersSyncedAt() {
+        return membersSyncedAt;
+    }
+
+    public void setMembersSyncedAt(Date membersSyncedAt) {
+        this.membersSyncedAt = membersSyncedAt;
+    }
 }
@@ -0,0 +1,87 @@
+package org.jboss.set.mjolnir.server.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Local copy of GitHub organization membership.
+ */
+@Entity
+@Table(name = "org_members")
+@IdClass(OrgMemberEntity.Key.class)
+public class OrgMemberEntity {
+
+    @Id
+    @Column(name = "org_id")
+    private Long orgId;
+
+    /**
+     * Lower case GitHub login, used for lookups (GitHub logins are case insensitive).
+     */
+    @Id
+    @Column(name = "github_name_lower")
+    private String githubNameLower;
+
+    /**
+     * GitHub login as returned by GitHub.
+     */
+    @Column(name = "github_name")
+    private String githubName;
+
+    public OrgMemberEntity() {
+    }
+
+    public OrgMemberEntity(Long orgId, String githubName) {
+        this.orgId = orgId;
+        this.githubNameLower = githubName.toLowerCase();
+        this.githubName = githubName;
+    }
+
+    public Long getOrgId() {
+        return orgId;
+    }
+
+    public String getGithubNameLower() {
+        return githubNameLower;
+    }
+
+    public String getGithubName() {
+        return githubName;
+    }
+
+    public void setGithubName(String githubName) {
+        this.githubName = githubName;
+    }
+
+
+    public static class Key implements Serializable {
+
+        private Long orgId;
+        private String githubNameLower;
+
+        public Key() {
+        }
+
+        public Key(Long orgId, String githubNameLower) {
+            this.orgId = orgId;
+            this.githubNameLower = githubNameLower;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return orgId.equals(key.orgId) && githubNameLower.equals(key.githubNameLower);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * orgId.hashCode() + githubNameLower.hashCode();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.jboss.set.mjolnir.server.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Local copy of GitHub team membership, including pending invitations.
+ */
+@Entity
+@Table(name = "team_members")
+@IdClass(TeamMemberEntity.Key.class)
+public class TeamMemberEntity {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    /**
+     * Lower case GitHub login, used for lookups (GitHub logins are case insensitive).
+     */
+    @Id
+    @Column(name = "github_name_lower")
+    private String githubNameLower;
+
+    /**
+     * GitHub login as returned by GitHub.
+     */
+    @Column(name = "github_name")
+    private String githubName;
+
+    /**
+     * Membership state, "active" or "pending" (see MembershipStates).
+     */
+    @Column(name = "state")
+    private String state;
+
+    public TeamMemberEntity() {
+    }
+
+    public TeamMemberEntity(Long teamId, String githubName, String state) {
+        this.teamId = teamId;
+        this.githubNameLower = githubName.toLowerCase();
+        this.githubName = githubName;
+        this.state = state;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public String getGithubNameLower() {
+        return githubNameLower;
+    }
+
+    public String getGithubName() {
+        return githubName;
+    }
+
+    public void setGithubName(String githubName) {
+        this.githubName = githubName;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+
+    public static class Key implements Serializable {
+
+        private Long teamId;
+        private String githubNameLower;
+
+        public Key() {
+        }
+
+        public Key(Long teamId, String githubNameLower) {
+            this.teamId = teamId;
+            this.githubNameLower = githubNameLower;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return teamId.equals(key.teamId) && githubNameLower.equals(key.githubNameLower);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * teamId.hashCode() + githubNameLower.hashCode();
+        }
+    }
+}
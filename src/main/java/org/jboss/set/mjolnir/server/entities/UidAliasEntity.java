@@ -0,0 +1,77 @@
+package org.jboss.set.mjolnir.server.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * Maps a current or prior LDAP uid to the canonical (current) uid of the person and to their registered user.
+ */
+@Entity
+@Table(name = "uid_aliases")
+public class UidAliasEntity {
+
+    /**
+     * Lower case current or prior uid.
+     */
+    @Id
+    private String alias;
+
+    /**
+     * Lower case current uid.
+     */
+    @Column(name = "canonical_uid")
+    private String canonicalUid;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id")
+    private UserEntity user;
+
+    @Column(name = "resolved_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date resolvedAt;
+
+    public UidAliasEntity() {
+    }
+
+    public UidAliasEntity(String alias, String canonicalUid, UserEntity user, Date resolvedAt) {
+        this.alias = alias;
+        this.canonicalUid = canonicalUid;
+        this.user = user;
+        this.resolvedAt = resolvedAt;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getCanonicalUid() {
+        return canonicalUid;
+    }
+
+    public void setCanonicalUid(String canonicalUid) {
+        this.canonicalUid = canonicalUid;
+    }
+
+    public UserEntity getUser() {
+        return user;
+    }
+
+    public void setUser(UserEntity user) {
+        this.user = user;
+    }
+
+    public Date getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(Date resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+}
@@ -1,5 +1,6 @@
 package org.jboss.set.mjolnir.server.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -7,11 +8,15 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
 
 /**
  * @author Martin Stefanko (mstefank@redhat.com)
  */
 @Entity
+@Cacheable
 @Table(name = "users")
 public class UserEntity {
 
@@ -23,9 +28,20 @@ public class UserEntity {
     @Column(name = "krb_name", unique = true)
     private String kerberosName;
 
+    // lower cased kerberos name, empty if there is none, maintained by setKerberosName(), indexed sort key of the
+    // user list
+    @Column(name = "krb_name_lower")
+    private String kerberosNameLower = "";
+
     @Column(name = "github_name", unique = true)
     private String githubName;
 
+    // lower cased github name, empty if there is none, maintained by setGithubName(), allows indexed case
+    // insensitive lookups and is indexed sort key of the user list; GitHub names are case insensitive, so non-empty
+    // values are unique as well
+    @Column(name = "github_name_lower")
+    private String githubNameLower = "";
+
     @Column(name = "responsible_person")
     private String responsiblePerson;
 
@@ -36,6 +52,19 @@ public class UserEntity {
 
     private boolean whitelisted;
 
+    // LDAP account status of the kerberos name, null until checked, see LdapStatusRefreshBean
+    @Column(name = "ldap_active")
+    private Boolean ldapActive;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "ldap_checked_at")
+    private Date ldapCheckedAt;
+
+    // when the status was first determined or last changed
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "ldap_changed_at")
+    private Date ldapChangedAt;
+
     public UserEntity() {
     }
 
@@ -52,7 +81,18 @@ public class UserEntity {
     }
 
     public void setKerberosName(String kerberosName) {
+        if (this.kerberosName == null ? kerberosName != null : !this.kerberosName.equals(kerberosName)) {
+            // status of the previous name doesn't apply
+            ldapActive = null;
+            ldapCheckedAt = null;
+            ldapChangedAt = null;
+        }
         this.kerberosName = kerberosName;
+        this.kerberosNameLower = kerberosName != null ? kerberosName.toLowerCase() : "";
+    }
+
+    public String getKerberosNameLower() {
+        return kerberosNameLower;
     }
 
     public String getGithubName() {
@@ -61,6 +101,11 @@ public class UserEntity {
 
     public void setGithubName(String githubName) {
         this.githubName = githubName;
+        this.githubNameLower = githubName != null ? githubName.toLowerCase() : "";
+    }
+
+    public String getGithubNameLower() {
+        return githubNameLower;
     }
 
     public String getNote() {
@@ -94,4 +139,28 @@ public class UserEntity {
     public void setWhitelisted(boolean whitelisted) {
         this.whitelisted = whitelisted;
     }
+
+    public Boolean getLdapActive() {
+        return ldapActive;
+    }
+
+    public Date getLdapCheckedAt() {
+        return ldapCheckedAt;
+    }
+
+    public Date getLdapChangedAt() {
+        return ldapChangedAt;
+    }
+
+    public void setLdapActive(Boolean ldapActive) {
+        this.ldapActive = ldapActive;
+    }
+
+    public void setLdapCheckedAt(Date ldapCheckedAt) {
+        this.ldapCheckedAt = ldapCheckedAt;
+    }
+
+    public void setLdapChangedAt(Date ldapChangedAt) {
+        this.ldapChangedAt = ldapChangedAt;
+    }
 }
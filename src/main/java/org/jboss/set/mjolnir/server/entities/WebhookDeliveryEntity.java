@@ -0,0 +1,45 @@
+package org.jboss.set.mjolnir.server.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * Processed GitHub webhook delivery. The delivery id is the primary key, so concurrent redeliveries of the same
+ * event can't both be recorded.
+ */
+@Entity
+@Table(name = "webhook_deliveries")
+public class WebhookDeliveryEntity {
+
+    /**
+     * Value of X-GitHub-Delivery header.
+     */
+    @Id
+    @Column(name = "delivery_id")
+    private String deliveryId;
+
+    @Column(name = "received_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date receivedAt;
+
+    public WebhookDeliveryEntity() {
+    }
+
+    public WebhookDeliveryEntity(String deliveryId, Date receivedAt) {
+        this.deliveryId = deliveryId;
+        this.receivedAt = receivedAt;
+    }
+
+    public String getDeliveryId() {
+        return deliveryId;
+    }
+
+    public Date getReceivedAt() {
+        return receivedAt;
+    }
+}
@@ -0,0 +1,286 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * GitHubClient which performs conditional GET requests, requests compressed responses and records request latency.
+ *
+ * Single instance is shared by the whole application (see {@link GitHubClientProducer}), so that all requests
+ * share the same connection pool (HttpURLConnection keep-alive cache), timeouts and rate limit state.
+ *
+ *
+ * ETag and Last-Modified validators of successful responses are stored in a {@link GitHubResponseCache} and sent
+ * back in If-None-Match / If-Modified-Since headers on subsequent requests to the same URI. When GitHub replies
+ * with 304 Not Modified, the cached body is returned. Such responses don't count against the rate limit, so
+ * the {@link RateLimitGovernor} gives back the budget it reserved for them.
+ *
+ * (See https://developer.github.com/v3/#conditional-requests).
+ *
+ * All requests (not only GETs) are subject to the {@link RateLimitGovernor} and the {@link GitHubCircuitBreaker}.
+ * Requests that didn't receive any response (connection errors, timeouts) and 5xx responses are reported
+ * to the circuit breaker as failures.
+ */
+public class CachingGitHubClient extends GitHubClient {
+
+    static final String HEADER_ETAG = "ETag";
+    static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    static final String HEADER_LINK = "Link";
+    static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    static final String ENCODING_GZIP = "gzip";
+
+    static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000;
+    static final int DEFAULT_READ_TIMEOUT = 30 * 1000;
+
+    private final GitHubResponseCache responseCache;
+    private final RateLimitGovernor rateLimitGovernor;
+    private final GitHubLatencyStats latencyStats;
+    private final GitHubCircuitBreaker circuitBreaker;
+    private final ThreadLocal<PendingRequest> pendingRequest = new ThreadLocal<>();
+
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    public CachingGitHubClient(GitHubResponseCache responseCache, RateLimitGovernor rateLimitGovernor,
+                               GitHubLatencyStats latencyStats, GitHubCircuitBreaker circuitBreaker) {
+        this.responseCache = responseCache;
+        this.rateLimitGovernor = rateLimitGovernor;
+        this.latencyStats = latencyStats;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * @param connectTimeout connect timeout in milliseconds
+     * @param readTimeout read timeout in milliseconds
+     */
+    public CachingGitHubClient setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(String uri, String method) throws IOException {
+        circuitBreaker.acquire();
+        rateLimitGovernor.acquire();
+        pendingRequest.set(new PendingRequest(method, uri, System.nanoTime()));
+        return super.createConnection(uri, method);
+    }
+
+    @Override
+    protected HttpURLConnection configureRequest(HttpURLConnection request) {
+        super.configureRequest(request);
+        request.setConnectTimeout(connectTimeout);
+        request.setReadTimeout(readTimeout);
+        request.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+        return request;
+    }
+
+    /**
+     * Called by GitHubClient right after the response code has been received.
+     */
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        final PendingRequest pending = pendingRequest.get();
+        if (pending != null) {
+            pendingRequest.remove();
+            latencyStats.record(pending.method, pending.uri, System.nanoTime() - pending.startNanos);
+        }
+        if (getResponseCode(request) >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+        rateLimitGovernor.update(request);
+        return super.updateRateLimits(request);
+    }
+
+    @Override
+    protected InputStream getStream(HttpURLConnection request) throws IOException {
+        final InputStream stream = super.getStream(request);
+        if (stream != null && ENCODING_GZIP.equalsIgnoreCase(request.getContentEncoding())) {
+            return new GZIPInputStream(stream);
+        }
+        return stream;
+    }
+
+    @Override
+    public GitHubResponse get(GitHubRequest request) throws IOException {
+        try {
+            return doGet(request);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public InputStream getStream(GitHubRequest request) throws IOException {
+        try {
+            return super.getStream(request);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public <V> V post(String uri, Object params, Type type) throws IOException {
+        try {
+            return super.post(uri, params, type);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public void post(String uri) throws IOException {
+        try {
+            super.post(uri);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public <V> V put(String uri, Object params, Type type) throws IOException {
+        try {
+            return super.put(uri, params, type);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public void put(String uri) throws IOException {
+        try {
+            super.put(uri);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public void delete(String uri) throws IOException {
+        try {
+            super.delete(uri);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    @Override
+    public void delete(String uri, Object params) throws IOException {
+        try {
+            super.delete(uri, params);
+        } finally {
+            completeRequest();
+        }
+    }
+
+    /**
+     * If a connection was created but response never arrived, the request failed on network level.
+     */
+    private void completeRequest() {
+        if (pendingRequest.get() != null) {
+            pendingRequest.remove();
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    private static int getResponseCode(HttpURLConnection request) {
+        try {
+            return request.getResponseCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private GitHubResponse doGet(GitHubRequest request) throws IOException {
+        final String uri = request.generateUri();
+        final GitHubResponseCache.CachedResponse cached = responseCache.get(uri);
+
+        final HttpURLConnection httpRequest = createGet(uri);
+        final String accept = request.getResponseContentType();
+        if (accept != null) {
+            httpRequest.setRequestProperty(HEADER_ACCEPT, accept);
+        }
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                httpRequest.setRequestProperty(HEADER_IF_NONE_MATCH, cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                httpRequest.setRequestProperty(HEADER_IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+        }
+
+        final int code = httpRequest.getResponseCode();
+        updateRateLimits(httpRequest);
+
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            return new CachedGitHubResponse(httpRequest, cached);
+        }
+        if (isOk(code)) {
+            final Object body = getBody(request, getStream(httpRequest));
+            final String eTag = httpRequest.getHeaderField(HEADER_ETAG);
+            final String lastModified = httpRequest.getHeaderField(HEADER_LAST_MODIFIED);
+            if (eTag != null || lastModified != null) {
+                responseCache.put(uri, new GitHubResponseCache.CachedResponse(eTag, lastModified,
+                        httpRequest.getHeaderField(HEADER_LINK), body));
+            } else if (cached != null) {
+                responseCache.remove(uri);
+            }
+            return new GitHubResponse(httpRequest, body);
+        }
+        if (cached != null) {
+            responseCache.remove(uri);
+        }
+        if (isEmpty(code)) {
+            return new GitHubResponse(httpRequest, null);
+        }
+        throw createException(getStream(httpRequest), code, httpRequest.getResponseMessage());
+    }
+
+
+    private static class PendingRequest {
+
+        private final String method;
+        private final String uri;
+        private final long startNanos;
+
+        PendingRequest(String method, String uri, long startNanos) {
+            this.method = method;
+            this.uri = uri;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Response served from cache. GitHub is not obliged to repeat the Link header in 304 responses, so the one
+     * from original response is used for paging.
+     */
+    private static class CachedGitHubResponse extends GitHubResponse {
+
+        private final String link;
+
+        CachedGitHubResponse(HttpURLConnection response, GitHubResponseCache.CachedResponse entry) {
+            super(response, entry.getBody());
+            this.link = entry.getLink();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HEADER_LINK.equalsIgnoreCase(name) && link != null) {
+                return link;
+            }
+            return super.getHeader(name);
+        }
+    }
+}
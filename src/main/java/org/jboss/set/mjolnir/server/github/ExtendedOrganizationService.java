@@ -0,0 +1,44 @@
+package org.jboss.set.mjolnir.server.github;
+
+import com.google.gson.reflect.TypeToken;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.eclipse.egit.github.core.client.PagedRequest;
+import org.eclipse.egit.github.core.service.OrganizationService;
+
+import java.util.List;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_MEMBERS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_ORGS;
+import static org.eclipse.egit.github.core.client.PagedRequest.PAGE_FIRST;
+
+/**
+ * Extension of OrganizationService which adds pageMembers() method.
+ */
+public class ExtendedOrganizationService extends OrganizationService {
+
+    public ExtendedOrganizationService(GitHubClient client) {
+        super(client);
+    }
+
+    /**
+     * Creates page iterator over members of given organization.
+     *
+     * @param organization organization name
+     * @param size page size
+     * @return page iterator
+     */
+    public PageIterator<User> pageMembers(String organization, int size) {
+        if (organization == null)
+            throw new IllegalArgumentException("Organization cannot be null");
+        if (organization.length() == 0)
+            throw new IllegalArgumentException("Organization cannot be empty");
+
+        final PagedRequest<User> request = createPagedRequest(PAGE_FIRST, size);
+        request.setUri(SEGMENT_ORGS + '/' + organization + SEGMENT_MEMBERS);
+        request.setType(new TypeToken<List<User>>() {
+        }.getType());
+        return createPageIterator(request);
+    }
+}
@@ -1,18 +1,26 @@
 package org.jboss.set.mjolnir.server.github;
 
+import com.google.gson.reflect.TypeToken;
+import org.eclipse.egit.github.core.User;
 import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.client.GitHubRequest;
 import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.eclipse.egit.github.core.client.PagedRequest;
 import org.eclipse.egit.github.core.client.RequestException;
 import org.eclipse.egit.github.core.service.TeamService;
 import org.jboss.set.mjolnir.shared.domain.MembershipStates;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_MEMBERS;
 import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TEAMS;
+import static org.eclipse.egit.github.core.client.PagedRequest.PAGE_FIRST;
 
 /**
  * Extension of TeamService which adds addMembership() method.
@@ -24,6 +32,7 @@ import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TEAMS
 public class ExtendedTeamService extends TeamService {
 
     private static String SEGMENT_MEMBERSHIPS = "/memberships";
+    private static String SEGMENT_INVITATIONS = "/invitations";
 
     public ExtendedTeamService(GitHubClient client) {
         super(client);
@@ -95,6 +104,45 @@ public class ExtendedTeamService extends TeamService {
         client.delete(SEGMENT_TEAMS + '/' + id + SEGMENT_MEMBERSHIPS + '/' + user);
     }
 
+    /**
+     * Retrieves logins of users with pending invitation to given team, i.e. users whose membership state
+     * is "pending". Invitations sent to an email address rather than to a GitHub user are skipped.
+     *
+     * (See https://developer.github.com/v3/teams/members/#list-pending-team-invitations).
+     *
+     * @param id team id
+     * @return invited user logins
+     * @throws IOException
+     */
+    public List<String> getInvitedLogins(int id) throws IOException {
+        final PagedRequest<Map<String, Object>> request = createPagedRequest();
+        request.setUri(SEGMENT_TEAMS + '/' + id + SEGMENT_INVITATIONS);
+        request.setType(new TypeToken<List<Map<String, Object>>>() {
+        }.getType());
+
+        final List<String> logins = new ArrayList<>();
+        for (Map<String, Object> invitation : getAll(request)) {
+            final Object login = invitation.get("login");
+            if (login != null) {
+                logins.add((String) login);
+            }
+        }
+        return logins;
+    }
 
+    /**
+     * Creates page iterator over members of given team.
+     *
+     * @param id team id
+     * @param size page size
+     * @return page iterator
+     */
+    public PageIterator<User> pageMembers(int id, int size) {
+        final PagedRequest<User> request = createPagedRequest(PAGE_FIRST, size);
+        request.setUri(SEGMENT_TEAMS + '/' + id + SEGMENT_MEMBERS);
+        request.setType(new TypeToken<List<User>>() {
+        }.getType());
+        return createPageIterator(request);
+    }
 
 }
@@ -0,0 +1,117 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Stops sending requests to GitHub while it's failing.
+ *
+ * After {@link #FAILURE_THRESHOLD} consecutive failures (connection errors, timeouts or 5xx responses) the breaker
+ * opens and requests fail immediately with {@link GitHubUnavailableException}, instead of blocking the caller for
+ * the whole socket timeout. After {@link #OPEN_DURATION_MILLIS} a single probe request is let through; if it
+ * succeeds, the breaker closes again, otherwise it stays open for another period.
+ */
+@ApplicationScoped
+public class GitHubCircuitBreaker {
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_DURATION_MILLIS = 30 * 1000;
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    // state is guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt; // millis
+    private long probeStartedAt; // millis, 0 if no probe is in progress
+    private long openedCount;
+    private long rejectedCount;
+
+    /**
+     * Called before a request is sent.
+     *
+     * @throws GitHubUnavailableException if the breaker is open
+     */
+    public void acquire() throws GitHubUnavailableException {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            final long now = currentTimeMillis();
+            if (state == State.OPEN && now - openedAt >= OPEN_DURATION_MILLIS) {
+                state = State.HALF_OPEN;
+            }
+            // let single probe through; if the probe got lost (e.g. rejected by the rate limit governor), let another
+            if (state == State.HALF_OPEN && (probeStartedAt == 0 || now - probeStartedAt >= OPEN_DURATION_MILLIS)) {
+                probeStartedAt = now;
+                logger.info("Sending probe request to GitHub");
+                return;
+            }
+            rejectedCount++;
+        }
+        throw new GitHubUnavailableException("GitHub API is unavailable, requests are suspended");
+    }
+
+    /**
+     * Called when a response (other than 5xx) has been received.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeStartedAt = 0;
+        if (state != State.CLOSED) {
+            logger.info("GitHub API available again, closing circuit breaker");
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * Called when a request failed to get a response, or received 5xx response.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)) {
+            logger.warnf("GitHub API failing (%d consecutive failures), suspending requests for %d seconds",
+                    consecutiveFailures, OPEN_DURATION_MILLIS / 1000);
+            state = State.OPEN;
+            openedAt = currentTimeMillis();
+            probeStartedAt = 0;
+            openedCount++;
+        }
+    }
+
+    /**
+     * @return true if requests are being sent normally
+     */
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return human readable description of current state, for status page
+     */
+    public synchronized String getStatus() {
+        final StringBuilder sb = new StringBuilder(state.name().toLowerCase().replace('_', '-'));
+        if (state != State.CLOSED) {
+            sb.append(" since ").append(new SimpleDateFormat("HH:mm:ss").format(new Date(openedAt)));
+        }
+        sb.append(", ").append(consecutiveFailures).append(" consecutive failures")
+                .append(", opened ").append(openedCount).append(" times")
+                .append(", ").append(rejectedCount).append(" requests rejected");
+        return sb.toString();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
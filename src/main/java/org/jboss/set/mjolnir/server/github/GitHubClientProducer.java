@@ -0,0 +1,65 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+/**
+ * Produces application wide GitHub client, authenticated by the application token.
+ *
+ * Connect and read timeouts (in milliseconds) can be configured by "github.connect_timeout" and
+ * "github.read_timeout" application parameters.
+ */
+public class GitHubClientProducer {
+
+    private static final Logger logger = Logger.getLogger(GitHubClientProducer.class);
+
+    @EJB
+    private ApplicationParameters applicationParameters;
+
+    @Inject
+    private GitHubResponseCache responseCache;
+
+    @Inject
+    private RateLimitGovernor rateLimitGovernor;
+
+    @Inject
+    private GitHubLatencyStats latencyStats;
+
+    @Inject
+    private GitHubCircuitBreaker circuitBreaker;
+
+    @Produces @ApplicationScoped
+    GitHubClient createGitHubClient() {
+        final String token = applicationParameters.getMandatoryParameter(ApplicationParameters.GITHUB_TOKEN_KEY);
+        final int connectTimeout = getIntParameter(ApplicationParameters.GITHUB_CONNECT_TIMEOUT_KEY,
+                CachingGitHubClient.DEFAULT_CONNECT_TIMEOUT);
+        final int readTimeout = getIntParameter(ApplicationParameters.GITHUB_READ_TIMEOUT_KEY,
+                CachingGitHubClient.DEFAULT_READ_TIMEOUT);
+        logger.debugf("Creating GitHub client, connect timeout %d ms, read timeout %d ms", connectTimeout, readTimeout);
+
+        final CachingGitHubClient client = new CachingGitHubClient(responseCache, rateLimitGovernor, latencyStats,
+                circuitBreaker);
+        client.setTimeouts(connectTimeout, readTimeout);
+        client.setOAuth2Token(token);
+        return client;
+    }
+
+    private int getIntParameter(String name, int defaultValue) {
+        final String value = applicationParameters.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warnf("Invalid value of parameter %s: %s, using default %d", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jboss.set.mjolnir.server.github;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency counters of GitHub API requests, grouped by endpoint.
+ *
+ * Endpoint is the HTTP method plus request path with query string removed and names / ids replaced by "*",
+ * e.g. "GET /teams/&#42;/memberships/&#42;".
+ */
+@ApplicationScoped
+public class GitHubLatencyStats {
+
+    /**
+     * Path segments which are followed by an id or a name.
+     */
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList(
+            "orgs", "users", "teams", "members", "public_members", "memberships", "repos"));
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public void record(String method, String uri, long durationNanos) {
+        final String endpoint = method + " " + toEndpoint(uri);
+        Counter counter = counters.get(endpoint);
+        if (counter == null) {
+            final Counter newCounter = new Counter();
+            counter = counters.putIfAbsent(endpoint, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.add(TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    /**
+     * @return one line per endpoint in the form "endpoint: count requests, avg X ms, max Y ms", sorted by endpoint
+     */
+    public List<String> getSummary() {
+        final List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            final Counter counter = entry.getValue();
+            final long count = counter.count.get();
+            lines.add(String.format("%s: %d requests, avg %d ms, max %d ms", entry.getKey(), count,
+                    count > 0 ? counter.totalMillis.get() / count : 0, counter.maxMillis.get()));
+        }
+        return lines;
+    }
+
+    static String toEndpoint(String uri) {
+        String path = uri;
+        final int queryStart = path.indexOf('?');
+        if (queryStart > -1) {
+            path = path.substring(0, queryStart);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        String previous = null;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            previous = COLLECTIONS.contains(previous) ? "*" : segment;
+            sb.append('/').append(previous);
+        }
+        return sb.length() > 0 ? sb.toString() : "/";
+    }
+
+
+    private static class Counter {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        void add(long millis) {
+            count.incrementAndGet();
+            totalMillis.addAndGet(millis);
+            long max;
+            while ((max = maxMillis.get()) < millis) {
+                if (maxMillis.compareAndSet(max, millis)) {
+                    break;
+                }
+            }
+        }
+    }
+}
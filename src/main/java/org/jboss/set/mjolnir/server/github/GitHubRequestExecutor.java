@@ -0,0 +1,226 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.jboss.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared bounded executor for GitHub API calls that can be performed in parallel (e.g. membership lookups
+ * for many teams).
+ *
+ * Tasks run on threads of the container managed executor service. At most {@link #MAX_THREADS} tasks run at
+ * the same time, which caps the number of in-flight GitHub requests issued through this executor, at most
+ * {@link #QUEUE_CAPACITY} tasks wait for execution. Tasks submitted when the queue is full are rejected.
+ *
+ * Prefetching of listing pages occupies a thread for the whole listing, so at most {@link #MAX_PREFETCH_TASKS}
+ * prefetch tasks are queued or running at the same time, leaving the remaining threads to short requests.
+ */
+@ApplicationScoped
+public class GitHubRequestExecutor {
+
+    static final int MAX_THREADS = 8;
+    static final int QUEUE_CAPACITY = 500;
+    static final int MAX_PREFETCH_TASKS = 2;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ExecutorService executor;
+
+    private final BlockingQueue<FutureTask<?>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger prefetchTasks = new AtomicInteger();
+
+    public GitHubRequestExecutor() {
+    }
+
+    /**
+     * @param executor executor service running the tasks
+     */
+    public GitHubRequestExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Cancels tasks waiting for execution. Threads are owned by the container.
+     */
+    @PreDestroy
+    public void shutdown() {
+        final List<FutureTask<?>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (FutureTask<?> task : pending) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Submits single task for execution.
+     *
+     * @param task task to execute
+     * @return future representing the task
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        final FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * Submits long running task prefetching pages of a listing.
+     *
+     * @param task task to execute
+     * @return future representing the task
+     * @throws RejectedExecutionException if {@link #MAX_PREFETCH_TASKS} prefetch tasks are already queued or
+     * running, or if the queue is full
+     */
+    public <T> Future<T> submitPrefetch(Callable<T> task) {
+        int count;
+        do {
+            count = prefetchTasks.get();
+            if (count >= MAX_PREFETCH_TASKS) {
+                throw new RejectedExecutionException("Too many GitHub pages being prefetched");
+            }
+        } while (!prefetchTasks.compareAndSet(count, count + 1));
+
+        final FutureTask<T> future = new FutureTask<T>(task) {
+            @Override
+            protected void done() {
+                // called when the task completes or is cancelled
+                prefetchTasks.decrementAndGet();
+            }
+        };
+        try {
+            execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            throw e;
+        }
+        return future;
+    }
+
+    private void execute(FutureTask<?> future) {
+        if (!queue.offer(future)) {
+            throw new RejectedExecutionException("Queue of GitHub requests is full");
+        }
+        if (claimWorker()) {
+            try {
+                executor.execute(new Worker());
+            } catch (RejectedExecutionException e) {
+                workers.decrementAndGet();
+                if (workers.get() == 0 && queue.remove(future)) {
+                    // there is no worker that would execute the task
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes given tasks in parallel and waits for their results.
+     *
+     * Failure of a task doesn't affect other tasks. Tasks that fail, are rejected or don't finish before
+     * the timeout elapses have null in place of their result.
+     *
+     * @param tasks tasks to execute
+     * @param timeout maximum time to wait for all results
+     * @param unit timeout unit
+     * @return task results, in the same order as given tasks
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                futures.add(submit(task));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        final List<T> results = new ArrayList<>(tasks.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<T> future = futures.get(i);
+            T result = null;
+            if (future == null) {
+                logger.warnf("GitHub request #%d rejected, too many requests queued", i);
+            } else {
+                try {
+                    result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    logger.warnf(e.getCause(), "GitHub request #%d failed", i);
+                } catch (TimeoutException e) {
+                    logger.warnf("GitHub request #%d timed out", i);
+                    future.cancel(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                }
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * @return number of tasks currently being executed
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    private boolean claimWorker() {
+        int count;
+        while ((count = workers.get()) < MAX_THREADS) {
+            if (workers.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Executes queued tasks until the queue is empty.
+     */
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                final FutureTask<?> task = queue.poll();
+                if (task == null) {
+                    workers.decrementAndGet();
+                    // a task could have been queued while all workers were busy, before this worker retired
+                    if (queue.isEmpty() || !claimWorker()) {
+                        return;
+                    }
+                    continue;
+                }
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.jboss.set.mjolnir.server.github;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Application wide cache of GitHub GET responses, used for conditional requests.
+ *
+ * Entries are keyed by request URI (including page parameters) and hold the validators (ETag, Last-Modified)
+ * returned by GitHub together with the parsed response body. Cached bodies are shared between callers and
+ * must be treated as read-only.
+ */
+@ApplicationScoped
+public class GitHubResponseCache {
+
+    private static final int MAX_ENTRIES = 5000;
+
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public CachedResponse get(String uri) {
+        synchronized (entries) {
+            return entries.get(uri);
+        }
+    }
+
+    public void put(String uri, CachedResponse entry) {
+        synchronized (entries) {
+            entries.put(uri, entry);
+        }
+    }
+
+    public void remove(String uri) {
+        synchronized (entries) {
+            entries.remove(uri);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    /**
+     * Cached response.
+     */
+    public static class CachedResponse {
+
+        private final String eTag;
+        private final String lastModified;
+        private final String link;
+        private final Object body;
+
+        public CachedResponse(String eTag, String lastModified, String link, Object body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.link = link;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return value of the Link header of the original response, needed for paging
+         */
+        public String getLink() {
+            return link;
+        }
+
+        public Object getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.jboss.set.mjolnir.server.github;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a GitHub request while {@link GitHubCircuitBreaker} is open.
+ */
+public class GitHubUnavailableException extends IOException {
+
+    public GitHubUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,103 @@
+package org.jboss.set.mjolnir.server.github;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Last known good member lists of organizations and teams, retrieved from GitHub.
+ *
+ * Used to serve member lists when GitHub is unavailable or slow (stale-while-revalidate): callers start a refresh
+ * and if it doesn't finish in time, serve the cached list while the refresh continues in background.
+ */
+@ApplicationScoped
+public class MemberListCache {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Future<List<String>>> refreshes = new ConcurrentHashMap<>();
+
+    @Inject
+    private GitHubRequestExecutor requestExecutor;
+
+    /**
+     * @param key organization or team key
+     * @return cached member list or null
+     */
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public void put(String key, Collection<String> logins) {
+        entries.put(key, new Entry(logins, new Date()));
+    }
+
+    /**
+     * Reloads member list in background. If a refresh of given key is already in progress, it is returned instead
+     * of starting a new one.
+     *
+     * @param key organization or team key
+     * @param loader retrieves current member list from GitHub
+     * @return future member list, the cache is updated when it completes successfully
+     */
+    public Future<List<String>> refresh(final String key, final Callable<List<String>> loader) {
+        final FutureTask<List<String>> task = new FutureTask<>(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                final List<String> logins = loader.call();
+                put(key, logins);
+                return logins;
+            }
+        });
+        final Future<List<String>> existing = refreshes.putIfAbsent(key, task);
+        if (existing != null) {
+            return existing;
+        }
+
+        requestExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    task.run();
+                } finally {
+                    refreshes.remove(key, task);
+                }
+                return null;
+            }
+        });
+        return task;
+    }
+
+    @SuppressWarnings("unused")
+    public void setRequestExecutor(GitHubRequestExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+
+    public static class Entry {
+
+        private final List<String> logins;
+        private final Date retrievedAt;
+
+        Entry(Collection<String> logins, Date retrievedAt) {
+            this.logins = Collections.unmodifiableList(new ArrayList<>(logins));
+            this.retrievedAt = retrievedAt;
+        }
+
+        public List<String> getLogins() {
+            return logins;
+        }
+
+        public Date getRetrievedAt() {
+            return retrievedAt;
+        }
+    }
+}
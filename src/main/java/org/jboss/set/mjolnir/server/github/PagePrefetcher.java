@@ -0,0 +1,135 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches pages of a GitHub listing in background, so that the caller can process a page while following pages
+ * are being fetched.
+ *
+ * Pages are fetched by the {@link GitHubRequestExecutor} and handed over through an unbounded queue, so the fetching
+ * never waits for the consumer (a page holds at most 100 items). If the executor doesn't accept another prefetch
+ * task, pages are fetched by the consumer itself when requested.
+ */
+public class PagePrefetcher<V> {
+
+    static final long PAGE_TIMEOUT = 120; // seconds
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final PageIterator<V> pages;
+    private final Future<Void> fetchTask; // null if pages are fetched by the consumer
+    private boolean finished;
+
+    public PagePrefetcher(final PageIterator<V> pages, GitHubRequestExecutor executor) {
+        this.pages = pages;
+        fetchTask = submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    while (pages.hasNext()) {
+                        queue.add(pages.next());
+                    }
+                    queue.add(Done.INSTANCE);
+                } catch (NoSuchPageException e) {
+                    queue.add(e.getCause());
+                } catch (RuntimeException e) {
+                    queue.add(e);
+                } catch (Error e) {
+                    // the consumer mustn't wait for a page that will never come
+                    queue.add(e);
+                    throw e;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static Future<Void> submit(GitHubRequestExecutor executor, Callable<Void> task) {
+        try {
+            return executor.submitPrefetch(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns next page, waiting for it to be fetched if needed.
+     *
+     * @return next page or null if there are no more pages
+     * @throws IOException if fetching of the page failed or timed out
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<V> nextPage() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (fetchTask == null) {
+            return fetchPage();
+        }
+
+        final Object item;
+        try {
+            item = queue.poll(PAGE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new InterruptedIOException("Interrupted while waiting for GitHub page");
+        }
+
+        if (item == null) {
+            close();
+            throw new IOException("Timed out while waiting for GitHub page");
+        } else if (item == Done.INSTANCE) {
+            finished = true;
+            return null;
+        } else if (item instanceof IOException) {
+            finished = true;
+            throw (IOException) item;
+        } else if (item instanceof RuntimeException) {
+            finished = true;
+            throw (RuntimeException) item;
+        } else if (item instanceof Error) {
+            finished = true;
+            throw new IOException("Fetching of GitHub page failed", (Error) item);
+        }
+        return (Collection<V>) item;
+    }
+
+    private Collection<V> fetchPage() throws IOException {
+        try {
+            if (!pages.hasNext()) {
+                finished = true;
+                return null;
+            }
+            return pages.next();
+        } catch (NoSuchPageException e) {
+            finished = true;
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Stops fetching of remaining pages.
+     */
+    public void close() {
+        finished = true;
+        if (fetchTask != null) {
+            fetchTask.cancel(true);
+        }
+    }
+
+
+    private enum Done {
+        INSTANCE
+    }
+}
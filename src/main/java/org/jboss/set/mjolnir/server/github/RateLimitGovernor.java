@@ -0,0 +1,215 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Governs outbound GitHub API traffic according to the rate limit of the application token.
+ *
+ * Rate limit state is taken from X-RateLimit-* headers of every response. While the remaining budget is high,
+ * requests pass through without delay. When it drops below {@link #LOW_BUDGET_RATIO} of the limit, requests are
+ * paced so that the remaining budget is spread evenly until the limit resets. When the budget is exhausted,
+ * or GitHub asks to back off via Retry-After header (secondary rate limits), requests wait until they are allowed
+ * again. Requests that would have to wait longer than {@link #MAX_WAIT_MILLIS} fail with an IOException instead.
+ *
+ * Budget and pacing slot are reserved when a request is sent. GitHub doesn't charge 304 Not Modified responses
+ * to conditional requests, so the reservation is given back when such response arrives.
+ *
+ * (See https://developer.github.com/v3/#rate-limiting).
+ */
+@ApplicationScoped
+public class RateLimitGovernor {
+
+    static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    static final String HEADER_RESET = "X-RateLimit-Reset";
+    static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    static final double LOW_BUDGET_RATIO = 0.1;
+    static final long MAX_WAIT_MILLIS = 60 * 1000;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    // state is guarded by this
+    private int limit = -1;
+    private int remaining = -1;
+    private long resetAt; // millis
+    private long blockedUntil; // millis
+    private long nextSlot; // millis
+    private int waiting;
+    private long throttledCount;
+    private long rejectedCount;
+
+    // reservation of the request sent by the current thread, see acquire() and update()
+    private final ThreadLocal<Reservation> reservation = new ThreadLocal<>();
+
+    /**
+     * Called before a request is sent. Blocks the caller if the request has to be delayed.
+     *
+     * @throws IOException if the request would have to wait too long, or the caller was interrupted
+     */
+    public void acquire() throws IOException {
+        final long delay;
+        reservation.remove();
+        synchronized (this) {
+            final long now = currentTimeMillis();
+            long start = Math.max(now, blockedUntil);
+            if (remaining >= 0 && resetAt > now) {
+                if (remaining == 0) {
+                    start = Math.max(start, resetAt);
+                } else {
+                    long interval = 0;
+                    if (remaining < limit * LOW_BUDGET_RATIO) {
+                        start = Math.max(start, nextSlot);
+                        interval = (resetAt - now) / remaining;
+                        nextSlot = start + interval;
+                    }
+                    remaining--; // reserve budget for this request, actual value comes with the response
+                    reservation.set(new Reservation(interval));
+                }
+            }
+
+            delay = start - now;
+            if (delay > MAX_WAIT_MILLIS) {
+                rejectedCount++;
+                throw new IOException("GitHub API rate limit exhausted, requests are allowed again at "
+                        + formatTime(start));
+            }
+            if (delay > 0) {
+                waiting++;
+                throttledCount++;
+            }
+        }
+
+        if (delay > 0) {
+            logger.debugf("Delaying GitHub request by %d ms", delay);
+            try {
+                sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for GitHub rate limit");
+            } finally {
+                synchronized (this) {
+                    waiting--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after response has been received. Updates rate limit state from response headers, and gives back
+     * the reservation of a request that wasn't charged (304 Not Modified).
+     *
+     * @param response received response
+     */
+    public void update(HttpURLConnection response) {
+        final Integer newLimit = parseHeader(response, HEADER_LIMIT);
+        final Integer newRemaining = parseHeader(response, HEADER_REMAINING);
+        final Integer newReset = parseHeader(response, HEADER_RESET);
+        final Integer retryAfter = parseHeader(response, HEADER_RETRY_AFTER);
+        final Reservation reserved = reservation.get();
+        reservation.remove();
+        final boolean notModified = getResponseCode(response) == HttpURLConnection.HTTP_NOT_MODIFIED;
+
+        synchronized (this) {
+            if (newLimit != null && newRemaining != null && newReset != null) {
+                limit = newLimit;
+                remaining = newRemaining;
+                resetAt = newReset * 1000L;
+            } else if (notModified && reserved != null && remaining >= 0) {
+                remaining = Math.min(remaining + 1, limit);
+            }
+            if (notModified && reserved != null && reserved.interval > 0) {
+                // the slot isn't needed, following requests may be sent earlier
+                nextSlot = Math.max(currentTimeMillis(), nextSlot - reserved.interval);
+            }
+            if (retryAfter != null) {
+                blockedUntil = Math.max(blockedUntil, currentTimeMillis() + retryAfter * 1000L);
+                logger.warnf("GitHub requested to retry after %d seconds", retryAfter);
+            }
+        }
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * @return true if no requests can be sent at this moment
+     */
+    public synchronized boolean isExhausted() {
+        final long now = currentTimeMillis();
+        return blockedUntil > now || (remaining == 0 && resetAt > now);
+    }
+
+    /**
+     * @return human readable description of current state, for status page
+     */
+    public synchronized String getStatus() {
+        if (limit < 0) {
+            return "no requests sent yet";
+        }
+        final StringBuilder sb = new StringBuilder()
+                .append(remaining).append("/").append(limit).append(" requests remaining, resets at ")
+                .append(formatTime(resetAt))
+                .append(", ").append(waiting).append(" waiting")
+                .append(", ").append(throttledCount).append(" delayed")
+                .append(", ").append(rejectedCount).append(" rejected");
+        if (blockedUntil > currentTimeMillis()) {
+            sb.append(", blocked until ").append(formatTime(blockedUntil));
+        }
+        return sb.toString();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    private static int getResponseCode(HttpURLConnection response) {
+        try {
+            return response.getResponseCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static Integer parseHeader(HttpURLConnection response, String name) {
+        final String value = response.getHeaderField(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String formatTime(long millis) {
+        return new SimpleDateFormat("HH:mm:ss").format(new Date(millis));
+    }
+
+
+    private static class Reservation {
+
+        private final long interval; // pacing interval reserved for the request, 0 if not paced
+
+        Reservation(long interval) {
+            this.interval = interval;
+        }
+    }
+}
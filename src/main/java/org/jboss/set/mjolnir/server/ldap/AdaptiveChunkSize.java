@@ -0,0 +1,64 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+/**
+ * Number of users to query for in a single LDAP search, adapted to observed server behavior.
+ *
+ * The size grows while searches complete well under {@link #TARGET_MILLIS} and shrinks when they take much longer.
+ * When the server refuses a search because of its size limit, the size is halved and capped, so that the limit
+ * is not hit again.
+ *
+ * Thread safe.
+ */
+public class AdaptiveChunkSize {
+
+    static final int MIN_SIZE = 10;
+    static final int MAX_SIZE = 500;
+    static final int INITIAL_SIZE = 50;
+    static final long TARGET_MILLIS = 500;
+
+    // guarded by this
+    private int size;
+    private int ceiling;
+
+    public AdaptiveChunkSize() {
+        this(INITIAL_SIZE);
+    }
+
+    AdaptiveChunkSize(int initialSize) {
+        this.size = initialSize;
+        this.ceiling = MAX_SIZE;
+    }
+
+    public synchronized int get() {
+        return size;
+    }
+
+    public synchronized int getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * Records duration of a search.
+     *
+     * @param chunkSize number of users searched for
+     * @param millis search duration
+     */
+    public synchronized void recordDuration(int chunkSize, long millis) {
+        if (millis > 2 * TARGET_MILLIS) {
+            size = Math.max(MIN_SIZE, Math.min(size, chunkSize) / 2);
+        } else if (millis < TARGET_MILLIS / 2 && chunkSize >= size) {
+            // only full size chunks tell whether larger chunks would still be fast
+            size = Math.min(ceiling, size + size / 2);
+        }
+    }
+
+    /**
+     * Records that a search was refused by the server because of its size limit.
+     *
+     * @param chunkSize number of users searched for
+     */
+    public synchronized void recordSizeLimitExceeded(int chunkSize) {
+        ceiling = Math.max(MIN_SIZE, Math.min(ceiling, chunkSize / 2));
+        size = Math.min(size, ceiling);
+    }
+}
@@ -0,0 +1,122 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of strings stored in a compact form, for holding large numbers of short strings (e.g. uids).
+ *
+ * All strings are UTF-8 encoded into a single byte array, indexed by an open addressing hash table of ints.
+ * For typical uids this takes several times less memory than a {@code HashSet<String>}.
+ */
+public final class CompactStringSet {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] data;
+    private final int[] offsets; // string i occupies data[offsets[i]] to data[offsets[i + 1]]
+    private final int[] table; // string index + 1, 0 for empty slot
+    private final int size;
+
+    private CompactStringSet(byte[] data, int[] offsets, int[] table, int size) {
+        this.data = data;
+        this.offsets = offsets;
+        this.table = table;
+        this.size = size;
+    }
+
+    /**
+     * @param strings strings to include, duplicates are ignored
+     */
+    public static CompactStringSet of(Collection<String> strings) {
+        final byte[][] encoded = new byte[strings.size()][];
+        int length = 0;
+        int i = 0;
+        for (String string : strings) {
+            encoded[i] = string.getBytes(UTF_8);
+            length += encoded[i].length;
+            i++;
+        }
+
+        final byte[] data = new byte[length];
+        final int[] offsets = new int[encoded.length + 1];
+        final int[] table = new int[tableCapacity(encoded.length)];
+        int size = 0;
+        int position = 0;
+        for (byte[] bytes : encoded) {
+            final int slot = findSlot(data, offsets, table, bytes);
+            if (table[slot] != 0) {
+                continue; // duplicate
+            }
+            System.arraycopy(bytes, 0, data, position, bytes.length);
+            offsets[size] = position;
+            position += bytes.length;
+            offsets[size + 1] = position;
+            table[slot] = ++size;
+        }
+
+        return new CompactStringSet(Arrays.copyOf(data, position), Arrays.copyOf(offsets, size + 1), table, size);
+    }
+
+    public boolean contains(String string) {
+        return table[findSlot(data, offsets, table, string.getBytes(UTF_8))] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return approximate memory occupied by the set, in bytes
+     */
+    public long getMemoryUsage() {
+        return data.length + 4L * offsets.length + 4L * table.length;
+    }
+
+    private static int tableCapacity(int count) {
+        int capacity = 16;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @return slot containing given string, or empty slot where it belongs
+     */
+    private static int findSlot(byte[] data, int[] offsets, int[] table, byte[] bytes) {
+        final int mask = table.length - 1;
+        int slot = hash(bytes) & mask;
+        while (table[slot] != 0) {
+            final int index = table[slot] - 1;
+            if (equals(data, offsets[index], offsets[index + 1], bytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean equals(byte[] data, int from, int to, byte[] bytes) {
+        if (to - from != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data[from + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes) {
+        // FNV-1a
+        int hash = 0x811c9dc5;
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
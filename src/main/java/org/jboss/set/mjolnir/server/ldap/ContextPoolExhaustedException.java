@@ -0,0 +1,14 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import javax.naming.NamingException;
+
+/**
+ * Thrown by {@link LdapContextPool#borrow()} when no context became available in time. Unlike connection failures,
+ * it doesn't indicate that the server is failing, only that all contexts of the pool are in use.
+ */
+public class ContextPoolExhaustedException extends NamingException {
+
+    public ContextPoolExhaustedException(String explanation) {
+        super(explanation);
+    }
+}
@@ -0,0 +1,148 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches results of LDAP account lookups, keyed by normalized uid.
+ *
+ * Accounts are created and deactivated a few times a day at most, so found accounts are cached for
+ * {@link #POSITIVE_TTL_MILLIS}. Accounts that weren't found are cached for shorter {@link #NEGATIVE_TTL_MILLIS},
+ * so that newly created accounts are picked up soon. Number of entries is capped, least recently used entries
+ * are evicted first.
+ */
+@ApplicationScoped
+public class LdapAccountCache {
+
+    static final long POSITIVE_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final long NEGATIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final int MAX_ENTRIES = 20000;
+
+    private final int maxEntries;
+
+    // guarded by this
+    private final Map<String, CacheEntry<Boolean>> existence;
+    private final Map<String, CacheEntry<List<String>>> uids;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public LdapAccountCache() {
+        this(MAX_ENTRIES);
+    }
+
+    LdapAccountCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.existence = new LruMap<>();
+        this.uids = new LruMap<>();
+    }
+
+    /**
+     * @param uid normalized uid
+     * @return whether account exists, or null if not cached
+     */
+    public Boolean getExists(String uid) {
+        return lookup(existence, uid);
+    }
+
+    public void putExists(String uid, boolean exists) {
+        store(existence, uid, exists, exists);
+    }
+
+    /**
+     * @param uid normalized uid
+     * @return current and prior uids of the account, empty list if there is no such account, or null if not cached
+     */
+    public List<String> getAllUids(String uid) {
+        return lookup(uids, uid);
+    }
+
+    public void putAllUids(String uid, List<String> allUids) {
+        store(uids, uid, Collections.unmodifiableList(new ArrayList<>(allUids)), !allUids.isEmpty());
+    }
+
+    /**
+     * Discards all cached entries.
+     */
+    public synchronized void invalidateAll() {
+        existence.clear();
+        uids.clear();
+    }
+
+    public synchronized int size() {
+        return existence.size() + uids.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return human readable description of the cache state, for status page
+     */
+    public String getStatus() {
+        return String.format("%d entries, %d hits, %d misses, %d evictions", size(), hitCount.get(), missCount.get(),
+                evictionCount.get());
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private synchronized <V> V lookup(Map<String, CacheEntry<V>> map, String key) {
+        final CacheEntry<V> entry = map.get(key);
+        if (entry == null || entry.expiresAt <= currentTimeMillis()) {
+            if (entry != null) {
+                map.remove(key);
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    private synchronized <V> void store(Map<String, CacheEntry<V>> map, String key, V value, boolean positive) {
+        final long ttl = positive ? POSITIVE_TTL_MILLIS : NEGATIVE_TTL_MILLIS;
+        map.put(key, new CacheEntry<>(value, currentTimeMillis() + ttl));
+    }
+
+
+    private static class CacheEntry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private class LruMap<V> extends LinkedHashMap<String, CacheEntry<V>> {
+
+        LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<V>> eldest) {
+            if (size() > maxEntries) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
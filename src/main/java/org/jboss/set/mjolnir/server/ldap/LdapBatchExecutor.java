@@ -0,0 +1,275 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.jboss.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.naming.NamingException;
+import javax.naming.SizeLimitExceededException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes LDAP searches for large sets of values (e.g. user names) in chunks, several chunks in parallel.
+ *
+ * Each call is processed by the calling thread and at most {@link #PARALLELISM} - 1 helper tasks, so that a single
+ * call can't occupy the whole {@link LdapContextPool}. Helper tasks run on the container managed executor service,
+ * at most {@link #MAX_HELPERS} of them are submitted at the same time. When no more helpers can be submitted,
+ * or the executor rejects them, the chunks are queried by fewer threads, in the worst case only by the calling one.
+ *
+ * Chunk size is shared by all calls and adapts to search durations and to size limit errors
+ * (see {@link AdaptiveChunkSize}). A chunk refused because of the server size limit is split in halves and retried.
+ */
+@ApplicationScoped
+public class LdapBatchExecutor {
+
+    static final int PARALLELISM = 4;
+    static final int MAX_HELPERS = 8;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ExecutorService executor;
+
+    private final AdaptiveChunkSize chunkSize;
+    private final AtomicInteger helpers = new AtomicInteger();
+
+    public LdapBatchExecutor() {
+        this.chunkSize = new AdaptiveChunkSize();
+    }
+
+    /**
+     * @param executor executor service running the helper tasks
+     */
+    public LdapBatchExecutor(ExecutorService executor) {
+        this(executor, new AdaptiveChunkSize());
+    }
+
+    LdapBatchExecutor(ExecutorService executor, AdaptiveChunkSize chunkSize) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Executes query for all given values.
+     *
+     * @param values values to query for, split in chunks
+     * @param query query executed for each chunk
+     * @return results of all chunk queries, in no particular order
+     * @throws NamingException first failure of a chunk query, remaining chunks are not queried then
+     */
+    public <R> List<R> execute(List<String> values, ChunkQuery<R> query) throws NamingException {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Batch<R> batch = new Batch<>(values, query);
+        final int workers = Math.min(PARALLELISM, (values.size() + chunkSize.get() - 1) / chunkSize.get());
+        final List<Future<?>> futures = new ArrayList<>(workers - 1);
+        for (int i = 1; i < workers && claimHelper(); i++) {
+            try {
+                futures.add(executor.submit(new Helper(batch)));
+            } catch (RejectedExecutionException e) {
+                helpers.decrementAndGet();
+                logger.debug("LDAP batch helper rejected, querying with fewer threads");
+                break;
+            }
+        }
+
+        try {
+            batch.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.fail(e);
+        } finally {
+            // helpers that haven't started yet have nothing left to do
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        batch.rethrowFailure();
+        return batch.results;
+    }
+
+    /**
+     * @return number of submitted helper tasks that haven't finished yet
+     */
+    public int getHelperCount() {
+        return helpers.get();
+    }
+
+    public int getChunkSize() {
+        return chunkSize.get();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+
+    /**
+     * Query for a chunk of values.
+     */
+    public interface ChunkQuery<R> {
+
+        R query(List<String> chunk) throws NamingException;
+    }
+
+
+    private boolean claimHelper() {
+        int count;
+        while ((count = helpers.get()) < MAX_HELPERS) {
+            if (helpers.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Helper task querying chunks of a batch along with the calling thread.
+     */
+    private class Helper implements Runnable {
+
+        private final Batch<?> batch;
+
+        Helper(Batch<?> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                batch.queryChunks();
+            } catch (Throwable t) {
+                batch.fail(t);
+            } finally {
+                helpers.decrementAndGet();
+            }
+        }
+    }
+
+
+    /**
+     * State of single {@link #execute(List, ChunkQuery)} call, shared by the calling thread and its helpers.
+     */
+    private class Batch<R> {
+
+        private final List<String> values;
+        private final ChunkQuery<R> query;
+        private final List<R> results = Collections.synchronizedList(new ArrayList<R>());
+
+        // guarded by this
+        private int position;
+        private int inFlight;
+        private final Deque<List<String>> retries = new ArrayDeque<>();
+        private Throwable failure;
+
+        Batch(List<String> values, ChunkQuery<R> query) {
+            this.values = values;
+            this.query = query;
+        }
+
+        /**
+         * Queries chunks until all values are queried, including chunks split by other threads, or a query fails.
+         */
+        void run() throws InterruptedException {
+            while (true) {
+                queryChunks();
+                synchronized (this) {
+                    while (inFlight > 0 && failure == null) {
+                        wait();
+                    }
+                    if (failure != null || (retries.isEmpty() && position >= values.size())) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Queries chunks until no chunk is available.
+         */
+        void queryChunks() {
+            List<String> chunk;
+            while ((chunk = nextChunk()) != null) {
+                try {
+                    final long start = currentTimeMillis();
+                    results.add(query.query(chunk));
+                    chunkSize.recordDuration(chunk.size(), currentTimeMillis() - start);
+                } catch (SizeLimitExceededException e) {
+                    if (chunk.size() == 1) {
+                        fail(e);
+                        break;
+                    }
+                    logger.debugf("LDAP size limit exceeded for chunk of %d values, splitting", chunk.size());
+                    chunkSize.recordSizeLimitExceeded(chunk.size());
+                    retry(chunk);
+                } catch (NamingException | RuntimeException e) {
+                    fail(e);
+                    break;
+                } finally {
+                    chunkDone();
+                }
+            }
+        }
+
+        private synchronized List<String> nextChunk() {
+            if (failure != null) {
+                return null;
+            }
+            if (!retries.isEmpty()) {
+                inFlight++;
+                return retries.poll();
+            }
+            if (position >= values.size()) {
+                return null;
+            }
+            final int end = Math.min(values.size(), position + chunkSize.get());
+            final List<String> chunk = values.subList(position, end);
+            position = end;
+            inFlight++;
+            return chunk;
+        }
+
+        private synchronized void chunkDone() {
+            inFlight--;
+            notifyAll();
+        }
+
+        private synchronized void retry(List<String> chunk) {
+            final int half = chunk.size() / 2;
+            retries.add(chunk.subList(0, half));
+            retries.add(chunk.subList(half, chunk.size()));
+        }
+
+        private synchronized void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+            notifyAll();
+        }
+
+        private synchronized void rethrowFailure() throws NamingException {
+            if (failure instanceof NamingException) {
+                throw (NamingException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IllegalStateException("LDAP batch search failed", failure);
+            }
+        }
+    }
+
+}
@@ -1,40 +1,278 @@
 package org.jboss.set.mjolnir.server.ldap;
 
+import org.jboss.logging.Logger;
+
+import javax.naming.CommunicationException;
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
-import javax.naming.directory.InitialDirContext;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.List;
 
 /**
+ * Executes LDAP searches against one or more replicated LDAP servers, each with its own {@link LdapContextPool}.
+ *
+ * Every search goes to the healthy server with the lowest latency (see {@link LdapEndpoint#PREFERENCE}). If the
+ * server fails on connection level (including read timeouts), it's marked unhealthy and the search is repeated
+ * on the next server, so a batch of searches (see {@link LdapBatchExecutor}) continues on the remaining servers.
+ * If all contexts of the server's pool are in use, the search is repeated on the next server as well, but the server
+ * is not marked unhealthy. Health and latency of servers are
+ * refreshed by {@link #checkEndpoints()} and idle pooled contexts are closed by {@link #evictIdleContexts()}, both are
+ * expected to be called periodically.
+ *
+ * Single instance is shared by the whole application (see {@link LdapClientProducer}).
+ *
  * @author Tomas Hofman (thofman@redhat.com)
  */
 public class LdapClient {
 
-    private SearchControls searchControls;
-    private String ldapUrl;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    static final int CONNECT_TIMEOUT = 5 * 1000;
+    static final int READ_TIMEOUT = 30 * 1000;
+
+    private static final String[] DEFAULT_ATTRIBUTES = {"uid", "rhatPriorUid"};
+
+    /**
+     * Message of the plain NamingException thrown by the JDK LDAP provider when "com.sun.jndi.ldap.read.timeout"
+     * elapses.
+     */
+    private static final String READ_TIMEOUT_MESSAGE = "LDAP response read timed out";
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private List<LdapEndpoint> endpoints;
+    private int pageSize;
 
-    public LdapClient(String ldapUrl) throws NamingException {
-        this.ldapUrl = ldapUrl;
+    /**
+     * Required for CDI proxies.
+     */
+    protected LdapClient() {
+    }
+
+    /**
+     * @param ldapUrls URLs of replicated servers, in order of preference for the time before their latency is known
+     * @param pageSize search page size
+     */
+    public LdapClient(List<String> ldapUrls, int pageSize) {
+        this(pageSize, createEndpoints(ldapUrls));
+    }
+
+    LdapClient(int pageSize, LdapEndpoint... endpoints) {
+        if (endpoints.length == 0) {
+            throw new IllegalArgumentException("At least one LDAP endpoint is required");
+        }
+        this.endpoints = Collections.unmodifiableList(Arrays.asList(endpoints));
+        this.pageSize = pageSize;
+    }
 
-        // prepare SearchControls instance
-        searchControls = new SearchControls();
-        searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
-        searchControls.setReturningAttributes(new String[] {"uid", "rhatPriorUid"});
+    /**
+     * Performs a search and reads all results into memory. Prefer {@link #search(String, String, SearchResultHandler)}
+     * for searches that may return many results.
+     *
+     * @param contextName name of the context to search
+     * @param filter search filter
+     * @return search results
+     */
+    public List<SearchResult> search(String contextName, String filter) throws NamingException {
+        final List<SearchResult> list = new ArrayList<>();
+        search(contextName, filter, new SearchResultHandler() {
+            @Override
+            public void handle(SearchResult result) {
+                list.add(result);
+            }
+        });
+        return list;
     }
 
-    public NamingEnumeration<SearchResult> search(String contextName, String filter) throws NamingException {
-        // prepare naming context
+    /**
+     * Performs a search retrieving uid and rhatPriorUid attributes and passes results to the handler as they are
+     * read. See {@link #search(String, String, String[], SearchResultHandler)}.
+     */
+    public void search(String contextName, String filter, SearchResultHandler handler) throws NamingException {
+        search(contextName, filter, DEFAULT_ATTRIBUTES, handler);
+    }
+
+    /**
+     * Performs a search and passes results to the handler as they are read, without collecting them in memory.
+     * Results are retrieved in pages, so the whole result set is processed regardless of server size limit.
+     * The context is returned to the pool before this method returns.
+     *
+     * If the server fails while results are being read, the search is repeated from the start on another server,
+     * so the handler may receive some results twice.
+     *
+     * @param contextName name of the context to search
+     * @param filter search filter
+     * @param attributes attributes to retrieve
+     * @param handler receives the results
+     */
+    public void search(String contextName, String filter, String[] attributes, SearchResultHandler handler)
+            throws NamingException {
+        NamingException failure = null;
+        for (LdapEndpoint endpoint : getEndpointsByPreference()) {
+            try {
+                final NamingEnumeration<SearchResult> results = openSearch(endpoint, contextName, filter, attributes);
+                try {
+                    while (results.hasMore()) {
+                        handler.handle(results.next());
+                    }
+                } finally {
+                    results.close();
+                }
+                return;
+            } catch (ContextPoolExhaustedException e) {
+                // the server is busy, not failing
+                logger.debugf("No LDAP context for %s available, trying next server", endpoint.getUrl());
+                failure = e;
+            } catch (NamingException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                endpoint.recordFailure(e);
+                logger.debugf("LDAP search on %s failed, trying next server: %s", endpoint.getUrl(), e.toString());
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Starts a search whose results are retrieved in pages (RFC 2696) as the returned enumeration is read.
+     *
+     * The enumeration holds a pooled context until it's exhausted or closed, the caller must close it. Only opening
+     * the search fails over to another server, failure while reading the results is thrown to the caller.
+     *
+     * @param contextName name of the context to search
+     * @param filter search filter
+     * @param attributes attributes to retrieve
+     * @return search results
+     */
+    public NamingEnumeration<SearchResult> openSearch(String contextName, String filter, String[] attributes)
+            throws NamingException {
+        NamingException failure = null;
+        for (LdapEndpoint endpoint : getEndpointsByPreference()) {
+            try {
+                return openSearch(endpoint, contextName, filter, attributes);
+            } catch (ContextPoolExhaustedException e) {
+                logger.debugf("No LDAP context for %s available, trying next server", endpoint.getUrl());
+                failure = e;
+            } catch (NamingException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                endpoint.recordFailure(e);
+                logger.debugf("LDAP search on %s failed, trying next server: %s", endpoint.getUrl(), e.toString());
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Checks health and latency of all servers by reading their root DSE.
+     *
+     * @return number of healthy servers
+     */
+    public int checkEndpoints() {
+        int healthy = 0;
+        for (LdapEndpoint endpoint : endpoints) {
+            if (endpoint.check()) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Closes pooled contexts that were idle for longer than the pool's max idle time. Expected to be called
+     * periodically, so that idle connections are closed even when no searches are performed.
+     */
+    public void evictIdleContexts() {
+        for (LdapEndpoint endpoint : endpoints) {
+            endpoint.getContextPool().evictIdle();
+        }
+    }
+
+    /**
+     * @return all servers, in configured order
+     */
+    public List<LdapEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return all servers, in order in which they are tried by searches
+     */
+    List<LdapEndpoint> getEndpointsByPreference() {
+        final List<LdapEndpoint> sorted = new ArrayList<>(endpoints);
+        Collections.sort(sorted, LdapEndpoint.PREFERENCE); // stable, keeps configured order for equal endpoints
+        return sorted;
+    }
+
+    /**
+     * Closes pooled contexts.
+     */
+    public void close() {
+        for (LdapEndpoint endpoint : endpoints) {
+            endpoint.close();
+        }
+    }
+
+    /**
+     * @return true if the exception means that the connection to the server failed or timed out, so that the context
+     * can't be reused and the server should be considered failing
+     */
+    static boolean isConnectionFailure(NamingException e) {
+        if (e instanceof CommunicationException || e instanceof ServiceUnavailableException) {
+            return true;
+        }
+        return e.getClass() == NamingException.class && e.getMessage() != null
+                && e.getMessage().startsWith(READ_TIMEOUT_MESSAGE);
+    }
+
+    private NamingEnumeration<SearchResult> openSearch(LdapEndpoint endpoint, String contextName, String filter,
+                                                       String[] attributes) throws NamingException {
+        final SearchControls controls = new SearchControls();
+        controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        controls.setReturningAttributes(attributes);
+
+        final LdapContextPool contextPool = endpoint.getContextPool();
+        final DirContext ctx = contextPool.borrow();
+        if (!(ctx instanceof LdapContext)) {
+            contextPool.release(ctx, true);
+            throw new OperationNotSupportedException("Paged search requires LDAP context");
+        }
+        return new PagedSearchEnumeration(contextPool, (LdapContext) ctx, contextName, filter, controls, pageSize);
+    }
+
+    private static LdapEndpoint[] createEndpoints(List<String> ldapUrls) {
+        final LdapEndpoint[] endpoints = new LdapEndpoint[ldapUrls.size()];
+        for (int i = 0; i < endpoints.length; i++) {
+            final String url = ldapUrls.get(i);
+            endpoints[i] = new LdapEndpoint(url, new LdapContextPool(createEnvironment(url)));
+        }
+        return endpoints;
+    }
+
+    private static Hashtable<String, Object> createEnvironment(String ldapUrl) {
         final Hashtable<String, Object> env = new Hashtable<>();
         env.put(Context.SECURITY_AUTHENTICATION, "simple");
         env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
         env.put(Context.PROVIDER_URL, ldapUrl);
-        env.put("com.sun.jndi.ldap.connect.pool", "true"); // enable connection pooling, prevents "Connection closed" problems
-
-        InitialDirContext ctx = new InitialDirContext(env);
-
-        return ctx.search(contextName, filter, searchControls);
+        env.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(CONNECT_TIMEOUT));
+        env.put("com.sun.jndi.ldap.read.timeout", String.valueOf(READ_TIMEOUT));
+        return env;
     }
 }
@@ -0,0 +1,70 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.jboss.logging.Logger;
+import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Disposes;
+import javax.enterprise.inject.Produces;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Produces application wide LDAP client, connecting to servers configured by "ldap.url" application parameter.
+ *
+ * The parameter may contain several URLs of replicated servers, separated by commas or whitespace.
+ */
+public class LdapClientProducer {
+
+    private static final Logger logger = Logger.getLogger(LdapClientProducer.class);
+
+    @EJB
+    private ApplicationParameters applicationParameters;
+
+    @Produces @ApplicationScoped
+    LdapClient createLdapClient() {
+        final String ldapUrl = applicationParameters.getMandatoryParameter(ApplicationParameters.LDAP_URL_KEY);
+        final List<String> ldapUrls = parseUrls(ldapUrl);
+        if (ldapUrls.isEmpty()) {
+            throw new ApplicationException("Parameter " + ApplicationParameters.LDAP_URL_KEY + " contains no LDAP URL");
+        }
+        final int pageSize = getIntParameter(ApplicationParameters.LDAP_PAGE_SIZE_KEY, LdapClient.DEFAULT_PAGE_SIZE);
+        logger.debugf("Creating LDAP client for %s, page size %d", ldapUrls, pageSize);
+        return new LdapClient(ldapUrls, pageSize);
+    }
+
+    void closeLdapClient(@Disposes LdapClient ldapClient) {
+        ldapClient.close();
+    }
+
+    private int getIntParameter(String name, int defaultValue) {
+        final String value = applicationParameters.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int intValue = Integer.parseInt(value.trim());
+            if (intValue > 0) {
+                return intValue;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        logger.warnf("Invalid value of parameter %s: %s, using default %d", name, value, defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * @return distinct URLs in configured order
+     */
+    static List<String> parseUrls(String value) {
+        final List<String> urls = new ArrayList<>();
+        for (String url : value.split("[,\\s]+")) {
+            if (!url.isEmpty() && !urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,239 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.jboss.logging.Logger;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.InitialLdapContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of bound LDAP contexts.
+ *
+ * At most {@link #maxSize} contexts are in use at any time, callers wait up to {@link #borrowTimeoutMillis}
+ * for a context to become available. Idle contexts are reused most recently used first, so that surplus contexts
+ * stay idle and get closed after {@link #maxIdleMillis}. Contexts that were idle for longer than
+ * {@link #VALIDATION_INTERVAL_MILLIS} are validated by a root DSE lookup before they are handed out, to weed out
+ * connections dropped by the server.
+ *
+ * Every borrowed context must be returned by {@link #release(DirContext, boolean)}.
+ */
+public class LdapContextPool {
+
+    static final int DEFAULT_MAX_SIZE = 8;
+    static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 10 * 1000;
+    static final long DEFAULT_MAX_IDLE_MILLIS = 5 * 60 * 1000;
+    static final long VALIDATION_INTERVAL_MILLIS = 30 * 1000;
+
+    private static final String[] VALIDATION_ATTRIBUTES = {"objectClass"};
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final Hashtable<String, Object> environment;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long maxIdleMillis;
+    private final Semaphore permits;
+
+    // head is the most recently released context, guarded by itself
+    private final Deque<IdleContext> idle = new ArrayDeque<>();
+
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private volatile boolean closed;
+
+    public LdapContextPool(Hashtable<String, Object> environment) {
+        this(environment, DEFAULT_MAX_SIZE, DEFAULT_BORROW_TIMEOUT_MILLIS, DEFAULT_MAX_IDLE_MILLIS);
+    }
+
+    public LdapContextPool(Hashtable<String, Object> environment, int maxSize, long borrowTimeoutMillis,
+                           long maxIdleMillis) {
+        this.environment = environment;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a context from the pool, creating a new one if no valid idle context is available.
+     *
+     * @return bound context
+     * @throws ContextPoolExhaustedException if no context became available in time
+     * @throws ServiceUnavailableException if the pool is closed
+     * @throws NamingException if a new context couldn't be created
+     */
+    public DirContext borrow() throws NamingException {
+        if (closed) {
+            throw new ServiceUnavailableException("LDAP context pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new ContextPoolExhaustedException("Timed out waiting for LDAP context, all " + maxSize
+                        + " contexts are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for LDAP context");
+        }
+
+        try {
+            evictIdle();
+            IdleContext candidate;
+            while ((candidate = pollIdle()) != null) {
+                if (isValid(candidate)) {
+                    return candidate.context;
+                }
+                logger.debug("Discarding stale LDAP context");
+                destroy(candidate.context);
+            }
+            final DirContext context = createContext();
+            createdCount.incrementAndGet();
+            return context;
+        } catch (NamingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns borrowed context to the pool.
+     *
+     * @param context borrowed context
+     * @param reusable false if the context shouldn't be reused (e.g. its connection failed), it's closed then
+     */
+    public void release(DirContext context, boolean reusable) {
+        try {
+            if (reusable && !closed) {
+                synchronized (idle) {
+                    idle.addFirst(new IdleContext(context, currentTimeMillis()));
+                }
+            } else {
+                destroy(context);
+            }
+        } finally {
+            permits.release();
+        }
+        if (closed) {
+            destroyIdle(); // close() may have run while the context was being returned
+        }
+    }
+
+    /**
+     * Closes contexts that were idle for longer than the max idle time.
+     */
+    public void evictIdle() {
+        final long threshold = currentTimeMillis() - maxIdleMillis;
+        final List<DirContext> evicted = new ArrayList<>();
+        synchronized (idle) {
+            while (!idle.isEmpty() && idle.peekLast().lastUsed < threshold) {
+                evicted.add(idle.pollLast().context);
+            }
+        }
+        for (DirContext context : evicted) {
+            destroy(context);
+        }
+        if (!evicted.isEmpty()) {
+            logger.debugf("Evicted %d idle LDAP contexts", evicted.size());
+        }
+    }
+
+    /**
+     * Closes idle contexts and rejects further borrowing. Contexts in use are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        destroyIdle();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return human readable description of the pool state, for status page
+     */
+    public String getStatus() {
+        return String.format("%d/%d contexts in use, %d idle, %d created, %d closed, %d borrow timeouts",
+                getActiveCount(), maxSize, getIdleCount(), createdCount.get(), destroyedCount.get(),
+                timeoutCount.get());
+    }
+
+    DirContext createContext() throws NamingException {
+        // LDAP context is needed for request controls, e.g. paged results
+        return new InitialLdapContext(environment, null);
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private IdleContext pollIdle() {
+        synchronized (idle) {
+            return idle.pollFirst();
+        }
+    }
+
+    private boolean isValid(IdleContext candidate) {
+        if (currentTimeMillis() - candidate.lastUsed < VALIDATION_INTERVAL_MILLIS) {
+            return true;
+        }
+        try {
+            candidate.context.getAttributes("", VALIDATION_ATTRIBUTES);
+            return true;
+        } catch (NamingException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void destroyIdle() {
+        final List<DirContext> contexts = new ArrayList<>();
+        synchronized (idle) {
+            for (IdleContext idleContext : idle) {
+                contexts.add(idleContext.context);
+            }
+            idle.clear();
+        }
+        for (DirContext context : contexts) {
+            destroy(context);
+        }
+    }
+
+    private void destroy(DirContext context) {
+        destroyedCount.incrementAndGet();
+        try {
+            context.close();
+        } catch (NamingException | RuntimeException e) {
+            logger.debug("Failed to close LDAP context", e);
+        }
+    }
+
+
+    private static class IdleContext {
+
+        private final DirContext context;
+        private final long lastUsed;
+
+        IdleContext(DirContext context, long lastUsed) {
+            this.context = context;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.jboss.logging.Logger;
+
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single LDAP server with its own context pool, together with its observed health and latency.
+ *
+ * Latency is a moving average of root DSE reads performed by {@link #check()}. An endpoint is considered unhealthy
+ * from the first failure (either a health check or a query failing on connection level) until the next successful
+ * health check.
+ */
+public class LdapEndpoint {
+
+    /**
+     * Weight of the latest sample in the latency average.
+     */
+    static final double LATENCY_WEIGHT = 0.3;
+
+    private static final String[] CHECK_ATTRIBUTES = {"namingContexts"};
+
+    /**
+     * Orders healthy endpoints first, by latency, then unhealthy endpoints, the longest failing last.
+     * Endpoints with equal latency (e.g. not checked yet) keep their configured order when used with a stable sort.
+     */
+    static final Comparator<LdapEndpoint> PREFERENCE = new Comparator<LdapEndpoint>() {
+        @Override
+        public int compare(LdapEndpoint a, LdapEndpoint b) {
+            final Health ha = a.health;
+            final Health hb = b.health;
+            if (ha.healthy != hb.healthy) {
+                return ha.healthy ? -1 : 1;
+            }
+            if (ha.healthy) {
+                return Double.compare(ha.latencyMillis, hb.latencyMillis);
+            }
+            return Long.compare(hb.failingSince, ha.failingSince);
+        }
+    };
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final String url;
+    private final LdapContextPool contextPool;
+
+    private volatile Health health = new Health(true, 0, 0, 0, 0, null);
+
+    public LdapEndpoint(String url, LdapContextPool contextPool) {
+        this.url = url;
+        this.contextPool = contextPool;
+    }
+
+    /**
+     * Reads the root DSE and records the result. Never throws. If all contexts of the pool are in use, the server is
+     * busy rather than failing, the check is skipped then.
+     *
+     * @return true if the server responded, or it wasn't checked and is considered healthy
+     */
+    public boolean check() {
+        final long start = System.nanoTime();
+        try {
+            final DirContext ctx;
+            try {
+                ctx = contextPool.borrow();
+            } catch (ContextPoolExhaustedException e) {
+                logger.debugf("Skipping check of LDAP server %s, all contexts are in use", url);
+                return isHealthy();
+            }
+            boolean reusable = false;
+            try {
+                ctx.getAttributes("", CHECK_ATTRIBUTES);
+                reusable = true;
+            } finally {
+                contextPool.release(ctx, reusable);
+            }
+        } catch (NamingException | RuntimeException e) {
+            recordFailure(e);
+            return false;
+        }
+        recordSuccess(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000.0);
+        return true;
+    }
+
+    synchronized void recordSuccess(double latencyMillis) {
+        final Health current = health;
+        if (!current.healthy) {
+            logger.infof("LDAP server %s is available again", url);
+        }
+        final double average = current.checkedAt == 0 ? latencyMillis
+                : LATENCY_WEIGHT * latencyMillis + (1 - LATENCY_WEIGHT) * current.latencyMillis;
+        health = new Health(true, average, currentTimeMillis(), 0, 0, null);
+    }
+
+    /**
+     * Marks the endpoint unhealthy, so that queries are routed to other servers until the next successful check.
+     */
+    synchronized void recordFailure(Exception e) {
+        final Health current = health;
+        final long now = currentTimeMillis();
+        if (current.healthy) {
+            logger.warnf("LDAP server %s is failing: %s", url, e.toString());
+        }
+        health = new Health(false, current.latencyMillis, now, current.healthy ? now : current.failingSince,
+                current.failureCount + 1, e.toString());
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isHealthy() {
+        return health.healthy;
+    }
+
+    /**
+     * @return average latency in milliseconds, 0 if not checked yet
+     */
+    public double getLatencyMillis() {
+        return health.latencyMillis;
+    }
+
+    LdapContextPool getContextPool() {
+        return contextPool;
+    }
+
+    /**
+     * @return human readable description of the endpoint state, for status page
+     */
+    public String getStatus() {
+        final Health current = health;
+        final StringBuilder sb = new StringBuilder();
+        if (current.healthy) {
+            sb.append("up");
+        } else {
+            sb.append("down since ").append(new SimpleDateFormat("HH:mm:ss").format(new Date(current.failingSince)))
+                    .append(", ").append(current.failureCount).append(" failures, last error: ")
+                    .append(current.lastError);
+        }
+        if (current.checkedAt == 0) {
+            sb.append(", not checked yet");
+        } else {
+            sb.append(String.format(", latency %.1f ms, checked %d s ago", current.latencyMillis,
+                    TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis() - current.checkedAt)));
+        }
+        sb.append(", pool: ").append(contextPool.getStatus());
+        return sb.toString();
+    }
+
+    void close() {
+        contextPool.close();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+
+    /**
+     * Immutable health snapshot, replaced as a whole so that readers see consistent values without locking.
+     */
+    private static class Health {
+
+        private final boolean healthy;
+        private final double latencyMillis;
+        private final long checkedAt;
+        private final long failingSince;
+        private final int failureCount;
+        private final String lastError;
+
+        Health(boolean healthy, double latencyMillis, long checkedAt, long failingSince, int failureCount,
+               String lastError) {
+            this.healthy = healthy;
+            this.latencyMillis = latencyMillis;
+            this.checkedAt = checkedAt;
+            this.failingSince = failingSince;
+            this.failureCount = failureCount;
+            this.lastError = lastError;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Search results retrieved page by page using the paged results control (RFC 2696).
+ *
+ * Only the current page is held in memory, next page is requested when the current one is consumed. The search
+ * holds a pooled context until all results are read or the enumeration is closed, so callers must always close
+ * the enumeration (e.g. in a finally block).
+ */
+class PagedSearchEnumeration implements NamingEnumeration<SearchResult> {
+
+    private final LdapContextPool contextPool;
+    private final LdapContext context;
+    private final String contextName;
+    private final String filter;
+    private final SearchControls controls;
+    private final int pageSize;
+
+    private NamingEnumeration<SearchResult> page;
+    private byte[] cookie;
+    private boolean reusable = true;
+    private boolean done; // no paged search is in progress on the server
+    private boolean closed;
+
+    PagedSearchEnumeration(LdapContextPool contextPool, LdapContext context, String contextName, String filter,
+                           SearchControls controls, int pageSize) throws NamingException {
+        this.contextPool = contextPool;
+        this.context = context;
+        this.contextName = contextName;
+        this.filter = filter;
+        this.controls = controls;
+        this.pageSize = pageSize;
+        try {
+            requestPage();
+        } catch (RuntimeException e) {
+            reusable = false;
+            close();
+            throw e;
+        } catch (NamingException e) {
+            failed(e); // e.g. invalid filter, connection is fine
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasMore() throws NamingException {
+        if (closed) {
+            return false;
+        }
+        try {
+            while (!page.hasMore()) {
+                page.close();
+                cookie = getCookie(context.getResponseControls());
+                if (cookie == null || cookie.length == 0) {
+                    done = true;
+                    close();
+                    return false;
+                }
+                requestPage();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            reusable = false;
+            close();
+            throw e;
+        } catch (NamingException e) {
+            failed(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SearchResult next() throws NamingException {
+        if (!hasMore()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public boolean hasMoreElements() {
+        try {
+            return hasMore();
+        } catch (NamingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public SearchResult nextElement() {
+        try {
+            return next();
+        } catch (NamingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Abandons remaining results and returns the context to the pool.
+     *
+     * If the search is closed before all pages are read, the server is told to release the paged search state
+     * (see {@link #abandonSearch()}). If that fails, the context is discarded instead of being reused.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (page != null) {
+            try {
+                if (!done && reusable) {
+                    abandonSearch();
+                } else {
+                    page.close();
+                }
+            } catch (NamingException | RuntimeException e) {
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            // request controls stick to the context, reset them before it's reused
+            try {
+                context.setRequestControls(null);
+            } catch (NamingException e) {
+                reusable = false;
+            }
+        }
+        contextPool.release(context, reusable);
+    }
+
+    /**
+     * Closes the enumeration after a failed request. The context is discarded if the connection failed or timed out,
+     * otherwise the search ended with an error (e.g. size limit exceeded) and the context can be reused.
+     */
+    private void failed(NamingException e) {
+        if (LdapClient.isConnectionFailure(e)) {
+            reusable = false;
+        } else {
+            done = true;
+        }
+        close();
+    }
+
+    /**
+     * Reads the rest of the current page, so that its response cookie is available, and sends the cookie with
+     * page size 0, which makes the server discard the paged search (RFC 2696, section 3).
+     */
+    private void abandonSearch() throws NamingException {
+        while (page.hasMore()) {
+            page.next();
+        }
+        page.close();
+        final byte[] lastCookie = getCookie(context.getResponseControls());
+        if (lastCookie != null && lastCookie.length > 0) {
+            context.setRequestControls(new Control[] {createPagedResultsControl(0, lastCookie)});
+            context.search(contextName, filter, controls).close();
+        }
+    }
+
+    private void requestPage() throws NamingException {
+        context.setRequestControls(new Control[] {createPagedResultsControl(pageSize, cookie)});
+        page = context.search(contextName, filter, controls);
+    }
+
+    private static PagedResultsControl createPagedResultsControl(int pageSize, byte[] cookie) throws NamingException {
+        try {
+            return new PagedResultsControl(pageSize, cookie, Control.CRITICAL);
+        } catch (IOException e) {
+            final NamingException namingException = new NamingException("Couldn't create paged results control");
+            namingException.setRootCause(e);
+            throw namingException;
+        }
+    }
+
+    private static byte[] getCookie(Control[] responseControls) {
+        if (responseControls != null) {
+            for (Control control : responseControls) {
+                if (control instanceof PagedResultsResponseControl) {
+                    return ((PagedResultsResponseControl) control).getCookie();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import javax.naming.NamingException;
+import javax.naming.directory.SearchResult;
+
+/**
+ * Processes search results one by one, as they are read from the server.
+ */
+public interface SearchResultHandler {
+
+    void handle(SearchResult result) throws NamingException;
+}
@@ -0,0 +1,151 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory snapshot of all current and prior uids in the directory, normalized to lower case.
+ *
+ * The snapshot is loaded as a whole periodically (see {@link #replace(Collection, String)}) and entries modified
+ * in between are added incrementally (see {@link #addAll(Collection, String)}). Incremental refresh can't see
+ * deleted entries, so uids of removed accounts stay in the snapshot until the next full load.
+ *
+ * Snapshot that wasn't refreshed for longer than {@link #MAX_AGE_MILLIS} is considered unusable and callers should
+ * query the directory instead.
+ */
+@ApplicationScoped
+public class UidDirectorySnapshot {
+
+    static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private volatile State state;
+
+    /**
+     * @param uid normalized uid
+     * @return whether the uid exists, or null if the snapshot is not loaded or too old
+     */
+    public Boolean contains(String uid) {
+        final State current = state;
+        if (current == null || currentTimeMillis() - current.refreshedAt > MAX_AGE_MILLIS) {
+            return null;
+        }
+        return current.base.contains(uid) || current.additions.contains(uid);
+    }
+
+    public boolean isUsable() {
+        final State current = state;
+        return current != null && currentTimeMillis() - current.refreshedAt <= MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Replaces snapshot content with results of a full load.
+     *
+     * @param uids all normalized uids in the directory
+     * @param watermark highest modifyTimestamp seen during the load
+     */
+    public synchronized void replace(Collection<String> uids, String watermark) {
+        final long now = currentTimeMillis();
+        state = new State(CompactStringSet.of(uids), watermark, now, now);
+    }
+
+    /**
+     * Adds uids of entries modified since the last refresh.
+     *
+     * @param uids normalized uids of modified entries
+     * @param watermark highest modifyTimestamp seen during the refresh
+     */
+    public synchronized void addAll(Collection<String> uids, String watermark) {
+        final State current = state;
+        if (current == null) {
+            throw new IllegalStateException("Snapshot is not loaded");
+        }
+        for (String uid : uids) {
+            if (!current.base.contains(uid)) {
+                current.additions.add(uid);
+            }
+        }
+        state = new State(current, maxWatermark(current.watermark, watermark), currentTimeMillis());
+    }
+
+    /**
+     * Discards snapshot content, callers query the directory until the snapshot is loaded again.
+     */
+    public synchronized void clear() {
+        state = null;
+    }
+
+    /**
+     * @return highest modifyTimestamp seen so far, or null if the snapshot is not loaded
+     */
+    public String getWatermark() {
+        final State current = state;
+        return current == null ? null : current.watermark;
+    }
+
+    public int size() {
+        final State current = state;
+        return current == null ? 0 : current.base.size() + current.additions.size();
+    }
+
+    /**
+     * @return human readable description of the snapshot state, for status page
+     */
+    public String getStatus() {
+        final State current = state;
+        if (current == null) {
+            return "not loaded";
+        }
+        final long now = currentTimeMillis();
+        return String.format("%d uids (%d KiB), loaded %d min ago, refreshed %d min ago%s",
+                current.base.size() + current.additions.size(), current.base.getMemoryUsage() / 1024,
+                TimeUnit.MILLISECONDS.toMinutes(now - current.loadedAt),
+                TimeUnit.MILLISECONDS.toMinutes(now - current.refreshedAt),
+                isUsable() ? "" : " - stale, not used");
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Generalized time values of the same server have the same format, so they compare as strings.
+     */
+    public static String maxWatermark(String a, String b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+
+    private static class State {
+
+        private final CompactStringSet base;
+        private final Set<String> additions;
+        private final String watermark;
+        private final long loadedAt;
+        private final long refreshedAt;
+
+        State(CompactStringSet base, String watermark, long loadedAt, long refreshedAt) {
+            this.base = base;
+            this.additions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            this.watermark = watermark;
+            this.loadedAt = loadedAt;
+            this.refreshedAt = refreshedAt;
+        }
+
+        State(State previous, String watermark, long refreshedAt) {
+            this.base = previous.base;
+            this.additions = previous.additions;
+            this.watermark = watermark;
+            this.loadedAt = previous.loadedAt;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.jboss.set.mjolnir.server.bean.GitHubSubscriptionBean;
 
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -65,6 +66,11 @@ public class UnknownMembersReportBean extends AbstractReportBean<List<Subscripti
             sb.append("Following users are subscribed to GitHub organization ")
                     .append(summary.getOrganization().getName())
                     .append(" but are either not registered in Mjolnir, or do not have valid Kerberos account:\n\n");
+            if (summary.getOrganization().getMembersSyncedAt() != null) {
+                sb.append("(membership data as of ")
+                        .append(new SimpleDateFormat("yyyy-MM-dd HH:mm").format(summary.getOrganization().getMembersSyncedAt()))
+                        .append(")\n\n");
+            }
 
             // calculate column sizes
             int gitHubNameMaxLen = TABLE_HEADERS[0].length();
@@ -3,13 +3,19 @@ package org.jboss.set.mjolnir.server.service;
 import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.service.UserService;
 import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
 import org.jboss.set.mjolnir.client.exception.ApplicationException;
 import org.jboss.set.mjolnir.client.service.AdministrationService;
 import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
 import org.jboss.set.mjolnir.server.bean.GitHubSubscriptionBean;
 import org.jboss.set.mjolnir.server.bean.LdapRepository;
+import org.jboss.set.mjolnir.server.bean.LdapStatusRefreshBean;
+import org.jboss.set.mjolnir.server.bean.MembershipRepository;
 import org.jboss.set.mjolnir.server.bean.OrganizationRepository;
 import org.jboss.set.mjolnir.server.bean.UserRepository;
+import org.jboss.set.mjolnir.server.entities.GithubOrganizationEntity;
+import org.jboss.set.mjolnir.server.entities.GithubTeamEntity;
+import org.jboss.set.mjolnir.server.entities.UserEntity;
 import org.jboss.set.mjolnir.server.service.validation.GitHubNameExistsValidation;
 import org.jboss.set.mjolnir.server.service.validation.GitHubNameRegisteredValidation;
 import org.jboss.set.mjolnir.server.service.validation.KrbNameTakenValidation;
@@ -20,12 +26,18 @@ import org.jboss.set.mjolnir.shared.domain.EntityUpdateResult;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
 import org.jboss.set.mjolnir.shared.domain.GithubTeam;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 import org.jboss.set.mjolnir.shared.domain.SubscriptionSummary;
 import org.jboss.set.mjolnir.shared.domain.ValidationResult;
 
 import javax.ejb.EJB;
+import javax.inject.Inject;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import javax.servlet.ServletException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -50,9 +62,21 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
     @EJB
     private LdapRepository ldapRepository;
 
+    @EJB
+    private LdapStatusRefreshBean ldapStatusRefreshBean;
+
     @EJB
     private OrganizationRepository organizationRepository;
 
+    @EJB
+    private MembershipRepository membershipRepository;
+
+    @Inject
+    private GitHubClient gitHubClient;
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
     private Validator<RegisteredUser> editUserValidator;
     private Validator<RegisteredUser> addUserValidator;
 
@@ -60,11 +84,7 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
     public void init() throws ServletException {
         super.init();
 
-        String token = applicationParameters.getMandatoryParameter(ApplicationParameters.GITHUB_TOKEN_KEY);
-
-        GitHubClient client = new GitHubClient();
-        client.setOAuth2Token(token);
-        UserService userService = new UserService(client);
+        UserService userService = new UserService(gitHubClient);
 
 
         Validation<RegisteredUser> krbNameTakenValidation = new KrbNameTakenValidation(userRepository);
@@ -82,7 +102,9 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
 
     @Override
     public List<GithubOrganization> getOrganizations() throws ApplicationException {
-        return organizationRepository.getOrganizations();
+        final List<GithubOrganization> organizations = new ArrayList<>(organizationRepository.getOrganizations());
+        membershipRepository.setSyncTimes(organizations);
+        return organizations;
     }
 
     @Override
@@ -109,11 +131,34 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
         return gitHubSubscriptionBean.getRegisteredUsers();
     }
 
+    /**
+     * @see GitHubSubscriptionBean#getRegisteredUsersPage(RegisteredUsersQuery)
+     */
+    @Override
+    public RegisteredUsersPage getRegisteredUsersPage(RegisteredUsersQuery query) {
+        return gitHubSubscriptionBean.getRegisteredUsersPage(query);
+    }
+
     @Override
     public Boolean checkUserExists(String userName) {
         return ldapRepository.checkUserExists(userName);
     }
 
+    /**
+     * Also evicts users, organizations and teams from the second-level cache, so that rows modified directly
+     * in the database are read again.
+     *
+     * @see LdapRepository#invalidateCache()
+     * @see LdapStatusRefreshBean#refreshAll()
+     */
+    @Override
+    public void invalidateLdapCache() {
+        evictEntityCache();
+        ldapRepository.invalidateCache();
+        // stored statuses are shown by the views, they are refreshed in background
+        ldapStatusRefreshBean.refreshAll();
+    }
+
     @Override
     public EntityUpdateResult<RegisteredUser> registerUser(RegisteredUser user) {
         try {
@@ -142,6 +187,7 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
     @Override
     public void deleteUsers(Collection<RegisteredUser> users) {
         try {
+            // users that weren't found have been deleted in the meantime, the view drops them as well
             userRepository.deleteUsers(users);
         } catch (HibernateException e) {
             throw new ApplicationException(e);
@@ -190,23 +236,39 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
     @Override
     public Collection<Subscription> whitelist(Collection<Subscription> subscriptions, boolean whitelist) {
         try {
+            // registered users only get their flag updated, the others are created
+            final List<RegisteredUser> registeredUsers = new ArrayList<>();
+            final List<RegisteredUser> newUsers = new ArrayList<>();
             for (Subscription subscription : subscriptions) {
                 RegisteredUser registeredUser = subscription.getRegisteredUser();
                 if (registeredUser == null) {
                     registeredUser = new RegisteredUser();
-                    subscription.setRegisteredUser(registeredUser);
                     registeredUser.setGitHubName(subscription.getGitHubName());
                     subscription.setRegisteredUser(registeredUser);
+                    newUsers.add(registeredUser);
+                } else {
+                    registeredUsers.add(registeredUser);
                 }
                 registeredUser.setWhitelisted(whitelist);
-                userRepository.saveOrUpdateUser(registeredUser);
             }
+            // users removed in the meantime are created again
+            newUsers.addAll(userRepository.setWhitelisted(registeredUsers, whitelist));
+            userRepository.saveOrUpdateUsers(newUsers);
             return subscriptions;
         } catch (HibernateException e) {
             throw new ApplicationException("Couldn't whitelist users.", e);
         }
     }
 
+    private void evictEntityCache() {
+        final Cache cache = entityManagerFactory.getCache();
+        cache.evict(UserEntity.class);
+        cache.evict(GithubOrganizationEntity.class);
+        cache.evict(GithubTeamEntity.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        organizationRepository.invalidateCatalogue();
+    }
+
 
     // setters
 
@@ -221,5 +283,4 @@ public class AdministrationServiceImpl extends AbstractAdminRestrictedService im
     public void setUserRepository(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
-
 }
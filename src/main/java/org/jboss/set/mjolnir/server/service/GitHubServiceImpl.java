@@ -27,7 +27,8 @@ import org.eclipse.egit.github.core.service.UserService;
 import org.hibernate.HibernateException;
 import org.jboss.set.mjolnir.client.exception.ApplicationException;
 import org.jboss.set.mjolnir.client.service.GitHubService;
-import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
+import org.jboss.set.mjolnir.server.bean.GitHubSubscriptionBean;
+import org.jboss.set.mjolnir.server.bean.MembershipRepository;
 import org.jboss.set.mjolnir.server.bean.OrganizationRepository;
 import org.jboss.set.mjolnir.server.bean.UserRepository;
 import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
@@ -36,11 +37,11 @@ import org.jboss.set.mjolnir.server.service.validation.GitHubNameRegisteredValid
 import org.jboss.set.mjolnir.server.service.validation.Validator;
 import org.jboss.set.mjolnir.shared.domain.EntityUpdateResult;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
-import org.jboss.set.mjolnir.shared.domain.GithubTeam;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
 import org.jboss.set.mjolnir.shared.domain.ValidationResult;
 
 import javax.ejb.EJB;
+import javax.inject.Inject;
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -56,9 +57,13 @@ public class GitHubServiceImpl extends AbstractServiceServlet implements GitHubS
     @EJB
     private OrganizationRepository organizationRepository;
     @EJB
-    private ApplicationParameters applicationParameters;
-    @EJB
     private UserRepository userRepository;
+    @EJB
+    private GitHubSubscriptionBean gitHubSubscriptionBean;
+    @EJB
+    private MembershipRepository membershipRepository;
+    @Inject
+    private GitHubClient gitHubClient;
 
     private ExtendedTeamService teamService;
 
@@ -68,12 +73,8 @@ public class GitHubServiceImpl extends AbstractServiceServlet implements GitHubS
     public void init() throws ServletException {
         super.init();
 
-        String token = applicationParameters.getMandatoryParameter(ApplicationParameters.GITHUB_TOKEN_KEY);
-
-        GitHubClient client = new GitHubClient();
-        client.setOAuth2Token(token);
-        teamService = new ExtendedTeamService(client);
-        UserService userService = new UserService(client);
+        teamService = new ExtendedTeamService(gitHubClient);
+        UserService userService = new UserService(gitHubClient);
 
         validator = new Validator<>();
         validator.addValidation(new GitHubNameRegisteredValidation(userRepository));
@@ -112,6 +113,7 @@ public class GitHubServiceImpl extends AbstractServiceServlet implements GitHubS
         final String githubName = getCurrentUserGitHubName();
         try {
             final String state = teamService.addMembership(teamId, githubName);
+            membershipRepository.addTeamMember(teamId, githubName, state);
             log("Successfully added " + githubName + " to team.");            return state;
         } catch (IOException e) {
             final String message = "Unable to subscribe user " + githubName + " to team #" + teamId + ": " + e.getMessage();
@@ -125,6 +127,7 @@ public class GitHubServiceImpl extends AbstractServiceServlet implements GitHubS
         final String githubName = getCurrentUserGitHubName();
         try {
             teamService.removeMembership(teamId, githubName);
+            membershipRepository.removeTeamMember(teamId, githubName);
             log("Successfully removed " + githubName + " from team.");
         } catch (IOException e) {
             throw new ApplicationException("Unable to unsubscribe user " + githubName
@@ -148,23 +151,11 @@ public class GitHubServiceImpl extends AbstractServiceServlet implements GitHubS
      * is subscribed to given team.
      *
      * @return organizations
+     * @see GitHubSubscriptionBean#getSubscriptions(String)
      */
     @Override
     public List<GithubOrganization> getSubscriptions() {
-        try {
-            final List<GithubOrganization> organizations = getAvailableOrganizations();
-            final String gitHubName = getCurrentUserGitHubName();
-
-            for (GithubOrganization organization : organizations) {
-                for (GithubTeam team : organization.getTeams()) {
-                    final String membershipState = teamService.getMembership(team.getId(), gitHubName);
-                    team.setMembershipState(membershipState);
-                }
-            }
-            return organizations;
-        } catch (IOException e) {
-            throw new ApplicationException("Can't obtain membership information from GH API.", e);
-        }
+        return gitHubSubscriptionBean.getSubscriptions(getCurrentUserGitHubName());
     }
 
     private String getCurrentUserGitHubName() {
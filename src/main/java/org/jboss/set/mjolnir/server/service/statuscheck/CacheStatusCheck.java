@@ -0,0 +1,77 @@
+package org.jboss.set.mjolnir.server.service.statuscheck;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Reports hit ratios of the Hibernate second-level and query caches.
+ *
+ * Cache state never fails the check, the figures are informational.
+ */
+@Singleton
+public class CacheStatusCheck extends AbstractStatusCheck {
+
+    private static final String TITLE = "Entity cache";
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    public CacheStatusCheck() {
+        super(TITLE);
+    }
+
+    @Override
+    protected StatusCheckResult doCheckStatus() throws Exception {
+        StatusCheckResult result = new StatusCheckResult();
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            result.addInfo("Statistics are disabled (hibernate.generate_statistics).");
+            return result;
+        }
+
+        result.addInfo("Second-level cache: " + formatRatio(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount()));
+        result.addInfo("Query cache: " + formatRatio(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount()));
+
+        final String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames) {
+            final SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+            if (region != null) {
+                result.addInfo(String.format("%s: %s, %d elements", shortRegionName(regionName),
+                        formatRatio(region.getHitCount(), region.getMissCount()), region.getElementCountInMemory()));
+            }
+        }
+        return result;
+    }
+
+    static String formatRatio(long hits, long misses) {
+        final long total = hits + misses;
+        if (total == 0) {
+            return "no requests";
+        }
+        return String.format(Locale.ENGLISH, "%.1f%% hits (%d hits, %d misses)", 100.0 * hits / total, hits, misses);
+    }
+
+    /**
+     * Region names are prefixed by deployment and persistence unit names, and contain full entity class names.
+     */
+    static String shortRegionName(String regionName) {
+        return regionName.substring(regionName.lastIndexOf('.') + 1);
+    }
+
+    @SuppressWarnings("unused")
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
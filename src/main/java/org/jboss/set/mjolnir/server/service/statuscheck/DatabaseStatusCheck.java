@@ -28,7 +28,10 @@ public class DatabaseStatusCheck extends AbstractStatusCheck {
             "application_parameters",
             "users",
             "github_teams",
-            "github_orgs"
+            "github_orgs",
+            "org_members",
+            "team_members",
+            "uid_aliases"
     };
 
     @Inject
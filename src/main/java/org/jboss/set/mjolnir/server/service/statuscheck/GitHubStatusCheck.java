@@ -3,13 +3,16 @@ package org.jboss.set.mjolnir.server.service.statuscheck;
 import java.io.IOException;
 
 import javax.ejb.Singleton;
+import javax.inject.Inject;
 
 import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.client.GitHubRequest;
-import org.eclipse.egit.github.core.client.IGitHubConstants;
+import org.jboss.set.mjolnir.server.github.GitHubCircuitBreaker;
+import org.jboss.set.mjolnir.server.github.GitHubLatencyStats;
+import org.jboss.set.mjolnir.server.github.RateLimitGovernor;
 
 /**
- * Checks that GitHub is reachable.
+ * Checks that GitHub is reachable and that the rate limit of application token is not exhausted.
  *
  * @author Tomas Hofman (thofman@redhat.com)
  */
@@ -17,7 +20,17 @@ import org.eclipse.egit.github.core.client.IGitHubConstants;
 public class GitHubStatusCheck extends AbstractStatusCheck {
 
     private static final String TITLE = "GitHub";
-    private String hostName = IGitHubConstants.HOST_API;
+    @Inject
+    private GitHubClient client;
+
+    @Inject
+    private RateLimitGovernor rateLimitGovernor;
+
+    @Inject
+    private GitHubLatencyStats latencyStats;
+
+    @Inject
+    private GitHubCircuitBreaker circuitBreaker;
 
     public GitHubStatusCheck() {
         super(TITLE);
@@ -27,7 +40,6 @@ public class GitHubStatusCheck extends AbstractStatusCheck {
     protected StatusCheckResult doCheckStatus() throws Exception {
         StatusCheckResult result = new StatusCheckResult();
 
-        GitHubClient client = new GitHubClient(hostName);
         GitHubRequest request = new GitHubRequest();
         request.setUri("/");
 
@@ -37,10 +49,28 @@ public class GitHubStatusCheck extends AbstractStatusCheck {
             result.addProblem("Can't contact GitHub API", e);
         }
 
+        if (rateLimitGovernor != null) {
+            if (rateLimitGovernor.isExhausted()) {
+                result.addProblem("GitHub API rate limit exhausted");
+            }
+            result.addInfo("Rate limit: " + rateLimitGovernor.getStatus());
+        }
+        if (circuitBreaker != null) {
+            result.addInfo("Circuit breaker: " + circuitBreaker.getStatus());
+        }
+        if (latencyStats != null) {
+            for (String line : latencyStats.getSummary()) {
+                result.addInfo(line);
+            }
+        }
+
         return result;
     }
 
+    /**
+     * Replaces the application GitHub client by a new one, connecting to given host.
+     */
     public void setHostName(String hostName) {
-        this.hostName = hostName;
+        this.client = new GitHubClient(hostName);
     }
 }
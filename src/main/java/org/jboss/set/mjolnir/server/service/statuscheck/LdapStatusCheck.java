@@ -2,12 +2,16 @@ package org.jboss.set.mjolnir.server.service.statuscheck;
 
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
+import javax.inject.Inject;
 
 import org.jboss.set.mjolnir.server.bean.ApplicationParameters;
-import org.jboss.set.mjolnir.server.bean.LdapRepository;
+import org.jboss.set.mjolnir.server.ldap.LdapAccountCache;
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.LdapEndpoint;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
 
 /**
- * Checks that LDAP server is configured and reachable.
+ * Checks that LDAP servers are configured and reachable.
  *
  * @author Tomas Hofman (thofman@redhat.com)
  */
@@ -16,12 +20,18 @@ public class LdapStatusCheck extends AbstractStatusCheck {
 
     private static final String TITLE = "LDAP";
 
-    @EJB
-    private LdapRepository ldapRepository;
-
     @EJB
     private ApplicationParameters applicationParameters;
 
+    @Inject
+    private LdapClient ldapClient;
+
+    @Inject
+    private LdapAccountCache accountCache;
+
+    @Inject
+    private UidDirectorySnapshot uidSnapshot;
+
     public LdapStatusCheck() {
         super(TITLE);
     }
@@ -35,7 +45,20 @@ public class LdapStatusCheck extends AbstractStatusCheck {
             result.addProblem("LDAP URL is not configured.");
         }
 
-        ldapRepository.checkUserExists("testuser");
+        // account lookups may be served from cache, check the connections directly
+        final int healthy = ldapClient.checkEndpoints();
+        for (LdapEndpoint endpoint : ldapClient.getEndpoints()) {
+            if (endpoint.isHealthy()) {
+                result.addInfo(endpoint.getUrl() + ": " + endpoint.getStatus());
+            } else {
+                result.addProblem(endpoint.getUrl() + ": " + endpoint.getStatus());
+            }
+        }
+        if (healthy == 0) {
+            result.addProblem("No LDAP server is reachable.");
+        }
+        result.addInfo("Account cache: " + accountCache.getStatus());
+        result.addInfo("Uid snapshot: " + uidSnapshot.getStatus());
         return result;
     }
 }
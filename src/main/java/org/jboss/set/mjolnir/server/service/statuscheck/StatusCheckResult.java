@@ -12,6 +12,7 @@ public final class StatusCheckResult {
 
     private boolean success;
     private List<Problem> problems = new ArrayList<>();
+    private List<String> infos = new ArrayList<>();
 
     public StatusCheckResult() {
         success = true;
@@ -26,25 +27,31 @@ public final class StatusCheckResult {
         addProblem(message, null);
     }
 
+    /**
+     * Adds informational message, which is printed on status page but doesn't affect result.
+     */
+    public void addInfo(String message) {
+        infos.add(message);
+    }
+
     public boolean isSuccess() {
         return success;
     }
 
     @Override
     public String toString() {
-        if (success) {
-            return "OK";
-        } else {
-            StringBuilder sb = new StringBuilder("ERROR");
-            for (Problem problem : problems) {
-                sb.append("\n  ")
-                        .append(problem.message);
-                if (problem.exception != null) {
-                    sb.append(": ").append(ExceptionUtils.getStackTrace(problem.exception));
-                }
+        StringBuilder sb = new StringBuilder(success ? "OK" : "ERROR");
+        for (Problem problem : problems) {
+            sb.append("\n  ")
+                    .append(problem.message);
+            if (problem.exception != null) {
+                sb.append(": ").append(ExceptionUtils.getStackTrace(problem.exception));
             }
-            return sb.toString();
         }
+        for (String info : infos) {
+            sb.append("\n  ").append(info);
+        }
+        return sb.toString();
     }
 
     private static class Problem {
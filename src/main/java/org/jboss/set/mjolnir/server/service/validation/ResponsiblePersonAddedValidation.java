@@ -1,5 +1,6 @@
 package org.jboss.set.mjolnir.server.service.validation;
 
+import org.apache.commons.lang3.StringUtils;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
 import org.jboss.set.mjolnir.shared.domain.ValidationResult;
 
@@ -8,9 +9,9 @@ public class ResponsiblePersonAddedValidation implements Validation<RegisteredUs
     @Override
     public ValidationResult validate(RegisteredUser entity) {
         ValidationResult result = new ValidationResult();
-        if (!entity.isWhitelisted() || (entity.isWhitelisted() && !entity.getResponsiblePerson().isEmpty())) {
+        if (!entity.isWhitelisted() || (entity.isWhitelisted() && !StringUtils.isEmpty(entity.getResponsiblePerson()))) {
             return result; // OK
-        } else if  (entity.isWhitelisted() && entity.getResponsiblePerson().isEmpty()) {
+        } else if  (entity.isWhitelisted() && StringUtils.isEmpty(entity.getResponsiblePerson())) {
             result.addFailure("Whitelisted person must have responsible person assigned.");
         }
         return result;
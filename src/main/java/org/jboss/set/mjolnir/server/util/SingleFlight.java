@@ -0,0 +1,88 @@
+package org.jboss.set.mjolnir.server.util;
+
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent identical computations.
+ *
+ * The first caller for given key runs the computation on its own thread, callers that arrive with the same key
+ * while it's in progress wait for it and receive the same result (or exception). Results are not cached, once
+ * the computation finishes, next caller starts a new one.
+ */
+@ApplicationScoped
+public class SingleFlight {
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    private final ConcurrentMap<Object, FutureTask<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Runs the computation, or joins the one already in progress for the same key.
+     *
+     * Callers sharing a key must expect the same result type.
+     *
+     * @param key computation key
+     * @param computation computation to run
+     * @return computation result, shared by all callers that joined the computation
+     * @throws RuntimeException thrown by the computation; checked exceptions are wrapped
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Object key, Callable<V> computation) {
+        final FutureTask<V> task = new FutureTask<>(computation);
+        final FutureTask<?> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            logger.debugf("Joining in-flight computation %s", key);
+            return (V) getResult(existing);
+        }
+
+        try {
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return getResult(task);
+    }
+
+    /**
+     * @return number of callers that joined a computation started by someone else
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private static <V> V getResult(FutureTask<V> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // the computation belongs to another caller, keep waiting and restore the flag afterwards
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ package org.jboss.set.mjolnir.shared.domain;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -38,6 +39,7 @@ public class GithubOrganization implements Serializable {
     private String name;
     private List<GithubTeam> teams;
     private String token;
+    private Date membersSyncedAt;
 
     public GithubOrganization(String name) {
         this.name = name;
@@ -68,6 +70,17 @@ public class GithubOrganization implements Serializable {
         return token;
     }
 
+    /**
+     * @return time when members were last synchronized into local mirror, null if not synchronized yet
+     */
+    public Date getMembersSyncedAt() {
+        return membersSyncedAt;
+    }
+
+    public void setMembersSyncedAt(Date membersSyncedAt) {
+        this.membersSyncedAt = membersSyncedAt;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -23,6 +23,7 @@
 package org.jboss.set.mjolnir.shared.domain;
 
 import java.io.Serializable;
+import java.util.Date;
 
 /**
  * Wrapper class that holds basic information of each team in the github-team-data.xml file.
@@ -37,6 +38,7 @@ public class GithubTeam implements Serializable {
     private Integer id;
     private String membershipState;
     private GithubOrganization organization;
+    private Date membersSyncedAt;
 
     public GithubTeam(String name, Integer id) {
         this.name = name;
@@ -70,6 +72,17 @@ public class GithubTeam implements Serializable {
         this.organization = organization;
     }
 
+    /**
+     * @return time when members were last synchronized into local mirror, null if not synchronized yet
+     */
+    public Date getMembersSyncedAt() {
+        return membersSyncedAt;
+    }
+
+    public void setMembersSyncedAt(Date membersSyncedAt) {
+        this.membersSyncedAt = membersSyncedAt;
+    }
+
     // GWT quirk - must implement equals method for null IDs, otherwise CellTable doesn't redraw items correctly
     // if an item with null id is displayed
     // if both object IDs are null, objects are equal
@@ -16,4 +16,9 @@ public final class MembershipStates {
 
     public static final String NONE = "none";
 
+    /**
+     * Membership couldn't be determined, e.g. GitHub request failed or timed out.
+     */
+    public static final String UNKNOWN = "unknown";
+
 }
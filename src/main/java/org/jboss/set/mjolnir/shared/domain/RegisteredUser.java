@@ -40,6 +40,7 @@ public class RegisteredUser implements Serializable {
     private boolean admin;
     private boolean whitelisted;
     private boolean loggedIn;
+    private Boolean ldapActive;
 
     public String getKrbName() {
         return krbName;
@@ -97,6 +98,17 @@ public class RegisteredUser implements Serializable {
         this.note = note;
     }
 
+    /**
+     * @return stored LDAP account status of the krb name, null if not checked yet
+     */
+    public Boolean getLdapActive() {
+        return ldapActive;
+    }
+
+    public void setLdapActive(Boolean ldapActive) {
+        this.ldapActive = ldapActive;
+    }
+
     public RegisteredUser copy() {
         RegisteredUser copy = new RegisteredUser();
         copy.setKrbName(this.getKrbName());
@@ -105,6 +117,7 @@ public class RegisteredUser implements Serializable {
         copy.setAdmin(this.isAdmin());
         copy.setNote(this.getNote());
         copy.setResponsiblePerson(this.getResponsiblePerson());
+        copy.setLdapActive(this.getLdapActive());
         return copy;
     }
 
@@ -117,6 +130,7 @@ public class RegisteredUser implements Serializable {
         other.setWhitelisted(whitelisted);
         other.setAdmin(admin);
         other.setResponsiblePerson(responsiblePerson);
+        other.setLdapActive(ldapActive);
     }
 
     @Override
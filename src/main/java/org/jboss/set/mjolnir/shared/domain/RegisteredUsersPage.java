@@ -0,0 +1,37 @@
+package org.jboss.set.mjolnir.shared.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page of registered users returned for a {@link RegisteredUsersQuery}.
+ */
+public class RegisteredUsersPage implements Serializable {
+
+    private List<Subscription> subscriptions = new ArrayList<>();
+    private String nextCursor;
+
+    public List<Subscription> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public void setSubscriptions(List<Subscription> subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    /**
+     * @return cursor of the following page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+}
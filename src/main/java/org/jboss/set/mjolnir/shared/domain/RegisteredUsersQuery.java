@@ -0,0 +1,168 @@
+package org.jboss.set.mjolnir.shared.domain;
+
+import java.io.Serializable;
+
+/**
+ * Query for a page of registered users: filtering criteria, sort order and position of the page.
+ *
+ * Pages are addressed by an opaque cursor returned with the previous page (see {@link RegisteredUsersPage}),
+ * null cursor denotes the first page.
+ */
+public class RegisteredUsersQuery implements Serializable {
+
+    public enum SortColumn {
+        KRB_NAME, GITHUB_NAME
+    }
+
+    private String krbNameExpression;
+    private String gitHubNameExpression;
+    private Boolean krbAccount;
+    private Boolean whitelisted;
+    private SortColumn sortColumn = SortColumn.KRB_NAME;
+    private boolean ascending = true;
+    private int pageSize = 50;
+    private String cursor;
+
+    /**
+     * @return substring the krb name must contain (case insensitive), or null
+     */
+    public String getKrbNameExpression() {
+        return krbNameExpression;
+    }
+
+    public void setKrbNameExpression(String krbNameExpression) {
+        this.krbNameExpression = krbNameExpression;
+    }
+
+    /**
+     * @return substring the GitHub name must contain (case insensitive), or null
+     */
+    public String getGitHubNameExpression() {
+        return gitHubNameExpression;
+    }
+
+    public void setGitHubNameExpression(String gitHubNameExpression) {
+        this.gitHubNameExpression = gitHubNameExpression;
+    }
+
+    /**
+     * @return required state of the LDAP account, or null for any
+     */
+    public Boolean getKrbAccount() {
+        return krbAccount;
+    }
+
+    public void setKrbAccount(Boolean krbAccount) {
+        this.krbAccount = krbAccount;
+    }
+
+    /**
+     * @return required whitelist state, or null for any
+     */
+    public Boolean getWhitelisted() {
+        return whitelisted;
+    }
+
+    public void setWhitelisted(Boolean whitelisted) {
+        this.whitelisted = whitelisted;
+    }
+
+    public SortColumn getSortColumn() {
+        return sortColumn;
+    }
+
+    public void setSortColumn(SortColumn sortColumn) {
+        this.sortColumn = sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return cursor of the requested page, null for the first page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return copy of this query addressing page at given cursor
+     */
+    public RegisteredUsersQuery withCursor(String cursor) {
+        final RegisteredUsersQuery copy = new RegisteredUsersQuery();
+        copy.krbNameExpression = krbNameExpression;
+        copy.gitHubNameExpression = gitHubNameExpression;
+        copy.krbAccount = krbAccount;
+        copy.whitelisted = whitelisted;
+        copy.sortColumn = sortColumn;
+        copy.ascending = ascending;
+        copy.pageSize = pageSize;
+        copy.cursor = cursor;
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RegisteredUsersQuery)) return false;
+
+        RegisteredUsersQuery that = (RegisteredUsersQuery) o;
+
+        return ascending == that.ascending
+                && pageSize == that.pageSize
+                && equal(krbNameExpression, that.krbNameExpression)
+                && equal(gitHubNameExpression, that.gitHubNameExpression)
+                && equal(krbAccount, that.krbAccount)
+                && equal(whitelisted, that.whitelisted)
+                && sortColumn == that.sortColumn
+                && equal(cursor, that.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = krbNameExpression != null ? krbNameExpression.hashCode() : 0;
+        result = 31 * result + (gitHubNameExpression != null ? gitHubNameExpression.hashCode() : 0);
+        result = 31 * result + (krbAccount != null ? krbAccount.hashCode() : 0);
+        result = 31 * result + (whitelisted != null ? whitelisted.hashCode() : 0);
+        result = 31 * result + (sortColumn != null ? sortColumn.hashCode() : 0);
+        result = 31 * result + (ascending ? 1 : 0);
+        result = 31 * result + pageSize;
+        result = 31 * result + (cursor != null ? cursor.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RegisteredUsersQuery{" +
+                "krbNameExpression='" + krbNameExpression + '\'' +
+                ", gitHubNameExpression='" + gitHubNameExpression + '\'' +
+                ", krbAccount=" + krbAccount +
+                ", whitelisted=" + whitelisted +
+                ", sortColumn=" + sortColumn +
+                ", ascending=" + ascending +
+                ", pageSize=" + pageSize +
+                ", cursor='" + cursor + '\'' +
+                '}';
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -1,6 +1,7 @@
 package org.jboss.set.mjolnir.shared.domain;
 
 import java.io.Serializable;
+import java.util.Date;
 
 /**
  * Domain object representing user subscribed to GitHub organization.
@@ -12,6 +13,7 @@ public class Subscription implements Serializable {
     private String gitHubName;
     private RegisteredUser registeredUser;
     private boolean activeKerberosAccount;
+    private Date staleSince;
 
     public String getGitHubName() {
         return gitHubName;
@@ -37,6 +39,18 @@ public class Subscription implements Serializable {
         this.activeKerberosAccount = hasActiveKerberosAccount;
     }
 
+    /**
+     * @return if GitHub was unavailable and membership data was served from cache, time when the data were
+     * retrieved; null otherwise
+     */
+    public Date getStaleSince() {
+        return staleSince;
+    }
+
+    public void setStaleSince(Date staleSince) {
+        this.staleSince = staleSince;
+    }
+
     public String getKerberosName() {
         return registeredUser != null ? registeredUser.getKrbName() : null;
     }
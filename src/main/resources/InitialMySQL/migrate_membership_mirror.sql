@@ -0,0 +1,26 @@
+-- Adds local mirror of GitHub organization and team membership, kept current by the application.
+-- To be applied on databases created before the mirror was introduced.
+
+alter table github_orgs add column members_synced_at timestamp null;
+alter table github_teams add column members_synced_at timestamp null;
+
+create table org_members (
+    org_id bigint not null,
+    github_name_lower varchar(255) not null,
+    github_name varchar(255) not null,
+    constraint pk_org_members primary key (org_id, github_name_lower),
+    constraint fk_org_members_org_id foreign key (org_id) references github_orgs (id) on delete cascade
+);
+
+create index ix_org_members_github_name_lower on org_members (github_name_lower);
+
+create table team_members (
+    team_id bigint not null,
+    github_name_lower varchar(255) not null,
+    github_name varchar(255) not null,
+    state varchar(16) not null,
+    constraint pk_team_members primary key (team_id, github_name_lower),
+    constraint fk_team_members_team_id foreign key (team_id) references github_teams (id) on delete cascade
+);
+
+create index ix_team_members_github_name_lower on team_members (github_name_lower);
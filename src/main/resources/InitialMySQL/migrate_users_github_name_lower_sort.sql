@@ -0,0 +1,15 @@
+-- Makes lower cased GitHub name column an indexed sort key of the list of registered users, like krb_name_lower.
+-- To be applied after migrate_users_github_name_lower_unique.sql, on databases created before the column became
+-- not null.
+--
+-- Users without GitHub name get empty github_name_lower, the unique index (a functional index, requires MySQL 8.0.13
+-- or later) covers only non-empty names.
+
+drop index ux_users_github_name_lower on users;
+
+update users set github_name_lower = '' where github_name_lower is null;
+
+alter table users modify github_name_lower varchar(255) not null default '';
+
+create unique index ux_users_github_name_lower on users ((nullif(github_name_lower, '')));
+create index ix_users_github_name_lower on users (github_name_lower, id);
@@ -0,0 +1,15 @@
+-- Makes lower cased GitHub names unique, GitHub names are case insensitive.
+-- To be applied after migrate_users_github_name_lower.sql, on databases created before the unique index was introduced.
+--
+-- Of users whose GitHub names differ only in case, the first registered one keeps the name, the GitHub name of others
+-- is cleared. Review such users before the migration:
+--
+-- select * from users where github_name_lower in
+--     (select github_name_lower from users group by github_name_lower having count(*) > 1) order by github_name_lower, id;
+
+update users u join users u2 on u2.github_name_lower = u.github_name_lower and u2.id < u.id
+set u.github_name = null, u.github_name_lower = null;
+
+drop index ix_users_github_name_lower on users;
+
+create unique index ux_users_github_name_lower on users (github_name_lower);
@@ -0,0 +1,8 @@
+-- Adds lower cased kerberos name column, used to sort and page the list of registered users by kerberos name.
+-- To be applied on databases created before the column was introduced.
+
+alter table users add column krb_name_lower varchar(255) not null default '';
+
+update users set krb_name_lower = lower(krb_name) where krb_name is not null;
+
+create index ix_users_krb_name_lower on users (krb_name_lower, id);
@@ -0,0 +1,9 @@
+-- Adds table of processed GitHub webhook deliveries, used to recognize redelivered events.
+-- To be applied on databases created before the table was introduced.
+
+create table webhook_deliveries (
+    delivery_id varchar(64) primary key,
+    received_at datetime not null
+);
+
+create index ix_webhook_deliveries_received_at on webhook_deliveries (received_at);
@@ -3,7 +3,8 @@ create sequence sq_github_orgs;
 create table github_orgs (
     id bigint default nextval('sq_github_orgs') primary key,
     name varchar(255) unique,
-    subscriptions_enabled boolean default true;
+    subscriptions_enabled boolean default true,
+    members_synced_at timestamp
 );
 
 create sequence sq_github_teams;
@@ -13,21 +14,72 @@ create table github_teams (
     org_id bigint not null,
     name varchar(255),
     github_id bigint unique,
+    members_synced_at timestamp,
     constraint fk_github_teams_org_id foreign key (org_id) references github_orgs (id)
 );
 
+create table org_members (
+    org_id bigint not null,
+    github_name_lower varchar(255) not null,
+    github_name varchar(255) not null,
+    constraint pk_org_members primary key (org_id, github_name_lower),
+    constraint fk_org_members_org_id foreign key (org_id) references github_orgs (id) on delete cascade
+);
+
+create index ix_org_members_github_name_lower on org_members (github_name_lower);
+
+create table team_members (
+    team_id bigint not null,
+    github_name_lower varchar(255) not null,
+    github_name varchar(255) not null,
+    state varchar(16) not null,
+    constraint pk_team_members primary key (team_id, github_name_lower),
+    constraint fk_team_members_team_id foreign key (team_id) references github_teams (id) on delete cascade
+);
+
+create index ix_team_members_github_name_lower on team_members (github_name_lower);
+
 create sequence sq_users;
 
 create table users (
     id bigint default nextval('sq_users') primary key,
     krb_name varchar(255) unique,
+    krb_name_lower varchar(255) not null default '',
     github_name varchar(255) unique,
+    github_name_lower varchar(255) not null default '',
     note varchar(255),
     admin boolean not null default false,
     whitelisted boolean not null default false,
-    responsible_person varchar(255)
+    responsible_person varchar(255),
+    ldap_active boolean,
+    ldap_checked_at timestamp,
+    ldap_changed_at timestamp
 );
 
+-- users without GitHub name have empty github_name_lower, only non-empty names must be unique
+create unique index ux_users_github_name_lower on users (github_name_lower) where github_name_lower <> '';
+create index ix_users_github_name_lower on users (github_name_lower, id);
+create index ix_users_krb_name_lower on users (krb_name_lower, id);
+create index ix_users_ldap_checked_at on users (ldap_checked_at);
+create index ix_users_ldap_changed_at on users (ldap_changed_at);
+
+create table uid_aliases (
+    alias varchar(255) primary key,
+    canonical_uid varchar(255) not null,
+    user_id bigint not null,
+    resolved_at timestamp not null,
+    constraint fk_uid_aliases_user_id foreign key (user_id) references users (id) on delete cascade
+);
+
+create index ix_uid_aliases_user_id on uid_aliases (user_id);
+
+create table webhook_deliveries (
+    delivery_id varchar(64) primary key,
+    received_at timestamp not null
+);
+
+create index ix_webhook_deliveries_received_at on webhook_deliveries (received_at);
+
 create table application_parameters (
     param_name varchar(255) primary key,
     param_value varchar(255)
@@ -0,0 +1,12 @@
+-- Adds map of current and prior LDAP uids to registered users, used to resolve users at login.
+-- To be applied on databases created before the table was introduced. The map is filled as users log in.
+
+create table uid_aliases (
+    alias varchar(255) primary key,
+    canonical_uid varchar(255) not null,
+    user_id bigint not null,
+    resolved_at timestamp not null,
+    constraint fk_uid_aliases_user_id foreign key (user_id) references users (id) on delete cascade
+);
+
+create index ix_uid_aliases_user_id on uid_aliases (user_id);
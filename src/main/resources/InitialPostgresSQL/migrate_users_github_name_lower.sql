@@ -0,0 +1,8 @@
+-- Adds lower cased GitHub name column, used for case insensitive lookups of users by GitHub name.
+-- To be applied on databases created before the column was introduced.
+
+alter table users add column github_name_lower varchar(255);
+
+update users set github_name_lower = lower(github_name);
+
+create index ix_users_github_name_lower on users (github_name_lower);
@@ -0,0 +1,15 @@
+-- Makes lower cased GitHub name column an indexed sort key of the list of registered users, like krb_name_lower.
+-- To be applied after migrate_users_github_name_lower_unique.sql, on databases created before the column became
+-- not null.
+--
+-- Users without GitHub name get empty github_name_lower, the unique index is restricted to non-empty names.
+
+drop index ux_users_github_name_lower;
+
+update users set github_name_lower = '' where github_name_lower is null;
+
+alter table users alter column github_name_lower set default '';
+alter table users alter column github_name_lower set not null;
+
+create unique index ux_users_github_name_lower on users (github_name_lower) where github_name_lower <> '';
+create index ix_users_github_name_lower on users (github_name_lower, id);
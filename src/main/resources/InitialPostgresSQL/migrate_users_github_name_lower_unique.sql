@@ -0,0 +1,15 @@
+-- Makes lower cased GitHub names unique, GitHub names are case insensitive.
+-- To be applied after migrate_users_github_name_lower.sql, on databases created before the unique index was introduced.
+--
+-- Of users whose GitHub names differ only in case, the first registered one keeps the name, the GitHub name of others
+-- is cleared. Review such users before the migration:
+--
+-- select * from users where github_name_lower in
+--     (select github_name_lower from users group by github_name_lower having count(*) > 1) order by github_name_lower, id;
+
+update users set github_name = null, github_name_lower = null
+where exists (select 1 from users u2 where u2.github_name_lower = users.github_name_lower and u2.id < users.id);
+
+drop index ix_users_github_name_lower;
+
+create unique index ux_users_github_name_lower on users (github_name_lower);
@@ -0,0 +1,9 @@
+-- Adds persisted LDAP account status of users, refreshed in background by the application.
+-- To be applied on databases created before the columns were introduced.
+
+alter table users add column ldap_active boolean;
+alter table users add column ldap_checked_at timestamp;
+alter table users add column ldap_changed_at timestamp;
+
+create index ix_users_ldap_checked_at on users (ldap_checked_at);
+create index ix_users_ldap_changed_at on users (ldap_changed_at);
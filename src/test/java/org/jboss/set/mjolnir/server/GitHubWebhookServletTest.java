@@ -0,0 +1,31 @@
+package org.jboss.set.mjolnir.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+public class GitHubWebhookServletTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final byte[] PAYLOAD = "Hello, World!".getBytes(Charset.forName("UTF-8"));
+
+    // example from GitHub documentation
+    private static final String SIGNATURE = "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17";
+
+    @Test
+    public void testValidSignature() {
+        Assert.assertTrue(GitHubWebhookServlet.isSignatureValid(SECRET, PAYLOAD, SIGNATURE));
+        Assert.assertTrue(GitHubWebhookServlet.isSignatureValid(SECRET, PAYLOAD, SIGNATURE.toUpperCase()
+                .replace("SHA256=", "sha256=")));
+    }
+
+    @Test
+    public void testInvalidSignature() {
+        Assert.assertFalse(GitHubWebhookServlet.isSignatureValid("other secret", PAYLOAD, SIGNATURE));
+        Assert.assertFalse(GitHubWebhookServlet.isSignatureValid(SECRET, "Hello, World?".getBytes(), SIGNATURE));
+        Assert.assertFalse(GitHubWebhookServlet.isSignatureValid(SECRET, PAYLOAD, SIGNATURE.substring(7)));
+        Assert.assertFalse(GitHubWebhookServlet.isSignatureValid(SECRET, PAYLOAD, "sha256="));
+        Assert.assertFalse(GitHubWebhookServlet.isSignatureValid(SECRET, PAYLOAD, null));
+    }
+}
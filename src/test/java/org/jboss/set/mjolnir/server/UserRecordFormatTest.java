@@ -0,0 +1,121 @@
+package org.jboss.set.mjolnir.server;
+
+import org.jboss.set.mjolnir.server.bean.UserImportResult;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class UserRecordFormatTest {
+
+    @Test
+    public void testCsvRoundTrip() throws IOException {
+        final RegisteredUser user = createUser("jdoe", "jdoe-gh");
+        user.setNote("Leaves; see \"offboarding\"\nticket");
+        user.setResponsiblePerson("manager");
+        user.setWhitelisted(true);
+
+        final StringWriter writer = new StringWriter();
+        UserRecordFormat.CSV.writeHeader(writer);
+        UserRecordFormat.CSV.write(writer, user);
+        UserRecordFormat.CSV.write(writer, createUser(null, "anna-gh"));
+
+        final BufferedReader reader = new BufferedReader(new StringReader(writer.toString()));
+        final RegisteredUser read = UserRecordFormat.CSV.read(reader);
+        Assert.assertEquals("jdoe", read.getKrbName());
+        Assert.assertEquals("jdoe-gh", read.getGitHubName());
+        Assert.assertEquals("Leaves; see \"offboarding\"\nticket", read.getNote());
+        Assert.assertEquals("manager", read.getResponsiblePerson());
+        Assert.assertFalse(read.isAdmin());
+        Assert.assertTrue(read.isWhitelisted());
+
+        final RegisteredUser second = UserRecordFormat.CSV.read(reader);
+        Assert.assertNull(second.getKrbName());
+        Assert.assertEquals("anna-gh", second.getGitHubName());
+        Assert.assertNull(UserRecordFormat.CSV.read(reader));
+    }
+
+    @Test
+    public void testCsvMalformedRowSkipped() throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader("jdoe;jdoe-gh;;;maybe\r\n\r\nanna;anna-gh\r\n"));
+
+        try {
+            UserRecordFormat.CSV.read(reader);
+            Assert.fail("Invalid flag value expected to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Invalid value of Admin: maybe", e.getMessage());
+        }
+        Assert.assertEquals("anna-gh", UserRecordFormat.CSV.read(reader).getGitHubName());
+        Assert.assertNull(UserRecordFormat.CSV.read(reader));
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader(
+                "{\"krbName\":\"jdoe\",\"gitHubName\":\"jdoe-gh\",\"whitelisted\":true,\"responsiblePerson\":\"x\"}\n"
+                        + "not json\n"
+                        + "\n"
+                        + "{\"gitHubName\":\"anna-gh\",\"admin\":\"true\"}\n"));
+
+        final RegisteredUser first = UserRecordFormat.JSON_LINES.read(reader);
+        Assert.assertEquals("jdoe", first.getKrbName());
+        Assert.assertTrue(first.isWhitelisted());
+        try {
+            UserRecordFormat.JSON_LINES.read(reader);
+            Assert.fail("Invalid JSON expected to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        final RegisteredUser second = UserRecordFormat.JSON_LINES.read(reader);
+        Assert.assertEquals("anna-gh", second.getGitHubName());
+        Assert.assertTrue(second.isAdmin());
+        Assert.assertNull(UserRecordFormat.JSON_LINES.read(reader));
+
+        final StringWriter writer = new StringWriter();
+        UserRecordFormat.JSON_LINES.write(writer, second);
+        Assert.assertEquals("{\"gitHubName\":\"anna-gh\",\"admin\":true,\"whitelisted\":false}\n", writer.toString());
+    }
+
+    @Test
+    public void testResults() throws IOException {
+        final UserImportResult result = new UserImportResult(3, createUser("jdoe", "jdoe-gh"));
+        result.addFailure("This GitHub name has already been registered.");
+
+        final StringWriter csv = new StringWriter();
+        UserRecordFormat.CSV.writeResult(csv, result);
+        Assert.assertEquals("3;jdoe;jdoe-gh;INVALID;This GitHub name has already been registered.\n",
+                csv.toString());
+
+        final StringWriter json = new StringWriter();
+        UserRecordFormat.JSON_LINES.writeResult(json, result);
+        Assert.assertEquals("{\"row\":3,\"krbName\":\"jdoe\",\"gitHubName\":\"jdoe-gh\",\"result\":\"INVALID\","
+                + "\"messages\":[\"This GitHub name has already been registered.\"]}\n", json.toString());
+    }
+
+    @Test
+    public void testFormatSelection() {
+        Assert.assertEquals(UserRecordFormat.CSV, UserRecordFormat.forName(null));
+        Assert.assertEquals(UserRecordFormat.JSON_LINES, UserRecordFormat.forName("JSONL"));
+        Assert.assertEquals(UserRecordFormat.CSV, UserRecordFormat.forContentType("text/csv"));
+        Assert.assertEquals(UserRecordFormat.JSON_LINES,
+                UserRecordFormat.forContentType("application/x-ndjson; charset=UTF-8"));
+    }
+
+    @Test
+    public void testFormContentTypesNotRecognized() {
+        Assert.assertNull(UserRecordFormat.forContentType(null));
+        Assert.assertNull(UserRecordFormat.forContentType("text/plain"));
+        Assert.assertNull(UserRecordFormat.forContentType("application/x-www-form-urlencoded"));
+        Assert.assertNull(UserRecordFormat.forContentType("multipart/form-data; boundary=x"));
+    }
+
+    private static RegisteredUser createUser(String krbName, String gitHubName) {
+        final RegisteredUser user = new RegisteredUser();
+        user.setKrbName(krbName);
+        user.setGitHubName(gitHubName);
+        return user;
+    }
+}
@@ -0,0 +1,120 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process LDAP server listening on localhost, seeded with generated user accounts.
+ *
+ * Users have uids "user0000000", "user0000001", ...; every n-th user (according to alias ratio) also has a prior
+ * uid "prior0000000", "prior0000001", ... with the same number.
+ */
+class EmbeddedLdapServer {
+
+    private static final String BASE_DN = "dc=redhat,dc=com";
+    private static final int ADD_BATCH_SIZE = 10000;
+
+    private final InMemoryDirectoryServer server;
+    private final int userCount;
+    private final int aliasCount;
+    private final int aliasEvery;
+
+    /**
+     * @param userCount number of user accounts
+     * @param aliasRatio fraction of users having a prior uid, between 0 and 1
+     */
+    EmbeddedLdapServer(int userCount, double aliasRatio) throws LDAPException {
+        final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+        config.setSchema(createSchema());
+        config.setEqualityIndexAttributes("uid", "rhatPriorUid");
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("ldap",
+                InetAddress.getLoopbackAddress(), 0, null));
+        server = new InMemoryDirectoryServer(config);
+
+        server.add(new Entry(BASE_DN, new Attribute("objectClass", "top", "domain"),
+                new Attribute("dc", "redhat")));
+        server.add(new Entry(LdapRepositoryBean.CONTEXT_NAME, new Attribute("objectClass", "top", "organizationalUnit"),
+                new Attribute("ou", "users")));
+
+        aliasEvery = aliasRatio > 0 ? (int) Math.max(1, Math.round(1 / aliasRatio)) : 0;
+        int aliases = 0;
+        final List<Entry> batch = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            final Entry entry = new Entry("uid=" + uid(i) + "," + LdapRepositoryBean.CONTEXT_NAME,
+                    new Attribute("objectClass", "top", "person", "inetOrgPerson", "rhatPerson"),
+                    new Attribute("uid", uid(i)),
+                    new Attribute("cn", "User " + i),
+                    new Attribute("sn", String.valueOf(i)));
+            if (hasAlias(i)) {
+                entry.addAttribute("rhatPriorUid", priorUid(i));
+                aliases++;
+            }
+            batch.add(entry);
+            if (batch.size() == ADD_BATCH_SIZE) {
+                server.addEntries(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            server.addEntries(batch);
+        }
+        this.userCount = userCount;
+        this.aliasCount = aliases;
+    }
+
+    void start() throws LDAPException {
+        server.startListening();
+    }
+
+    void stop() {
+        server.shutDown(true);
+    }
+
+    String getUrl() {
+        return "ldap://localhost:" + server.getListenPort();
+    }
+
+    int getUserCount() {
+        return userCount;
+    }
+
+    int getAliasCount() {
+        return aliasCount;
+    }
+
+    /**
+     * @return whether user with given number has a prior uid
+     */
+    boolean hasAlias(int i) {
+        return aliasEvery > 0 && i % aliasEvery == 0;
+    }
+
+    /**
+     * Standard schema extended by the rhatPriorUid attribute, equality indexes require schema.
+     */
+    private static Schema createSchema() throws LDAPException {
+        final Entry schemaEntry = Schema.getDefaultStandardSchema().getSchemaEntry().duplicate();
+        schemaEntry.addAttribute("attributeTypes", "( rhatPriorUid-oid NAME 'rhatPriorUid' "
+                + "EQUALITY caseIgnoreMatch SUBSTR caseIgnoreSubstringsMatch SYNTAX 1.3.6.1.4.1.1466.115.121.1.15 )");
+        schemaEntry.addAttribute("objectClasses", "( rhatPerson-oid NAME 'rhatPerson' SUP top AUXILIARY "
+                + "MAY rhatPriorUid )");
+        return new Schema(schemaEntry);
+    }
+
+    static String uid(int i) {
+        return String.format("user%07d", i);
+    }
+
+    static String priorUid(int i) {
+        return String.format("prior%07d", i);
+    }
+}
@@ -1,23 +1,41 @@
 package org.jboss.set.mjolnir.server.bean;
 
 import org.eclipse.egit.github.core.User;
-import org.eclipse.egit.github.core.service.OrganizationService;
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.jboss.set.mjolnir.server.github.ExtendedOrganizationService;
+import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
+import org.jboss.set.mjolnir.server.github.GitHubCircuitBreaker;
+import org.jboss.set.mjolnir.server.github.GitHubRequestExecutor;
+import org.jboss.set.mjolnir.server.github.MemberListCache;
+import org.jboss.set.mjolnir.server.util.SingleFlight;
 import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+import org.jboss.set.mjolnir.shared.domain.MembershipStates;
 import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersPage;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
 import org.jboss.set.mjolnir.shared.domain.Subscription;
 import org.jboss.set.mjolnir.shared.domain.SubscriptionSummary;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.util.Arrays.asList;
 
@@ -34,9 +52,13 @@ public class GitHubSubscriptionBeanTest {
     private User gitHubUser;
     private GitHubSubscriptionBean gitHubSubscriptionBean;
     private OrganizationRepository organizationRepository;
-    private OrganizationService organizationService;
+    private ExtendedOrganizationService organizationService;
+    private ExtendedTeamService teamService;
     private UserRepository userRepository;
     private LdapRepository ldapRepository;
+    private MembershipRepository membershipRepository;
+    private ExecutorService threadPool;
+    private GitHubRequestExecutor requestExecutor;
 
     @Before
     public void setup() throws SQLException, IOException {
@@ -50,26 +72,50 @@ public class GitHubSubscriptionBeanTest {
 
         // create mocked dependencies
         organizationRepository = Mockito.mock(OrganizationRepository.class);
-        organizationService = Mockito.mock(OrganizationService.class);
+        organizationService = Mockito.mock(ExtendedOrganizationService.class);
+        teamService = Mockito.mock(ExtendedTeamService.class);
         userRepository = Mockito.mock(UserRepository.class);
         ldapRepository = Mockito.mock(LdapRepository.class);
+        membershipRepository = Mockito.mock(MembershipRepository.class);
+        threadPool = Executors.newCachedThreadPool();
+        requestExecutor = new GitHubRequestExecutor(threadPool);
 
         // create service instance
         gitHubSubscriptionBean = new GitHubSubscriptionBean();
         gitHubSubscriptionBean.setOrganizationRepository(organizationRepository);
         gitHubSubscriptionBean.setOrganizationService(organizationService);
+        gitHubSubscriptionBean.setTeamService(teamService);
         gitHubSubscriptionBean.setUserRepository(userRepository);
         gitHubSubscriptionBean.setLdapRepository(ldapRepository);
+        gitHubSubscriptionBean.setMembershipRepository(membershipRepository);
+        gitHubSubscriptionBean.setSingleFlight(new SingleFlight());
+        gitHubSubscriptionBean.setRequestExecutor(requestExecutor);
+        final MemberListCache memberListCache = new MemberListCache();
+        memberListCache.setRequestExecutor(requestExecutor);
+        gitHubSubscriptionBean.setMemberListCache(memberListCache);
+        gitHubSubscriptionBean.setCircuitBreaker(new GitHubCircuitBreaker());
+    }
+
+    @After
+    public void tearDown() {
+        requestExecutor.shutdown();
+        threadPool.shutdownNow();
     }
 
     @Test
     public void testGetSubscriptionSummaries() throws SQLException, IOException {
         // setup mocks
         Mockito.when(organizationRepository.getOrganizations()).thenReturn(Collections.singletonList(new GithubOrganization(ORG_NAME)));
-        Mockito.when(organizationService.getMembers(ORG_NAME)).thenReturn(asList(gitHubUser));
+        @SuppressWarnings("unchecked")
+        final PageIterator<User> pages = Mockito.mock(PageIterator.class);
+        Mockito.when(pages.hasNext()).thenReturn(true, false);
+        Mockito.when(pages.next()).thenReturn(asList(gitHubUser));
+        Mockito.when(organizationService.pageMembers(Mockito.eq(ORG_NAME), Mockito.anyInt())).thenReturn(pages);
         Mockito.when(userRepository.getUsersByGitHubName(Collections.singletonList(GITHUB_USERNAME)))
                 .thenReturn(Collections.singletonMap(GITHUB_USERNAME, appUser));
         Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(Collections.singletonMap(KRB_USERNAME, true));
+        // organization not synchronized yet
+        Mockito.when(membershipRepository.getOrganizationMembers(ORG_NAME)).thenReturn(null);
 
         // perform a call
         final List<SubscriptionSummary> subscriptionsSummary = gitHubSubscriptionBean.getOrganizationMembers();
@@ -83,6 +129,126 @@ public class GitHubSubscriptionBeanTest {
         Assert.assertEquals(GITHUB_USERNAME, subscription.getGitHubName());
         Assert.assertEquals(KRB_USERNAME, subscription.getKerberosName());
         Assert.assertEquals(true, subscription.isActiveKerberosAccount());
+
+        // members retrieved from GitHub are stored in the mirror
+        Mockito.verify(membershipRepository).updateOrganizationMembers(ORG_NAME, asList(GITHUB_USERNAME));
+    }
+
+    @Test
+    public void testStaleMembersServedWhenGitHubUnavailable() throws IOException {
+        @SuppressWarnings("unchecked")
+        final PageIterator<User> pages = Mockito.mock(PageIterator.class);
+        Mockito.when(pages.hasNext()).thenReturn(true, false);
+        Mockito.when(pages.next()).thenReturn(asList(gitHubUser));
+        @SuppressWarnings("unchecked")
+        final PageIterator<User> failingPages = Mockito.mock(PageIterator.class);
+        Mockito.when(failingPages.hasNext()).thenReturn(true);
+        Mockito.when(failingPages.next()).thenThrow(new NoSuchPageException(new IOException("Read timed out")));
+        Mockito.when(organizationService.pageMembers(Mockito.eq(ORG_NAME), Mockito.anyInt()))
+                .thenReturn(pages, failingPages);
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(Collections.<String, Boolean>emptyMap());
+        // members couldn't be stored in the mirror
+        Mockito.when(membershipRepository.getOrganizationMembers(ORG_NAME)).thenReturn(null);
+        Mockito.doThrow(new IllegalStateException("database unavailable")).when(membershipRepository)
+                .updateOrganizationMembers(Mockito.eq(ORG_NAME), Mockito.anyCollectionOf(String.class));
+
+        final List<Subscription> fresh = gitHubSubscriptionBean.getOrganizationSubscriptions(ORG_NAME);
+        Assert.assertEquals(1, fresh.size());
+        Assert.assertNull(fresh.get(0).getStaleSince());
+
+        final List<Subscription> stale = gitHubSubscriptionBean.getOrganizationSubscriptions(ORG_NAME);
+        Assert.assertEquals(1, stale.size());
+        Assert.assertEquals(GITHUB_USERNAME, stale.get(0).getGitHubName());
+        Assert.assertNotNull(stale.get(0).getStaleSince());
+        // stale members are not written to the mirror
+        Mockito.verify(membershipRepository, Mockito.times(1))
+                .updateOrganizationMembers(Mockito.eq(ORG_NAME), Mockito.anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void testMembersServedFromMirror() throws IOException {
+        Mockito.when(membershipRepository.getOrganizationMembers(ORG_NAME)).thenReturn(asList("GH_User"));
+        Mockito.when(membershipRepository.getOrganizationSyncTime(ORG_NAME)).thenReturn(new Date());
+        Mockito.when(userRepository.getUsersByGitHubName(Collections.singletonList(GITHUB_USERNAME)))
+                .thenReturn(Collections.singletonMap(GITHUB_USERNAME, appUser));
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(Collections.<String, Boolean>emptyMap());
+
+        final List<Subscription> subscriptions = gitHubSubscriptionBean.getOrganizationSubscriptions(ORG_NAME);
+
+        // name is matched to the registered user case insensitively, and returned as stored
+        Assert.assertEquals(1, subscriptions.size());
+        Assert.assertEquals("GH_User", subscriptions.get(0).getGitHubName());
+        Assert.assertEquals(KRB_USERNAME, subscriptions.get(0).getKerberosName());
+        Assert.assertNull(subscriptions.get(0).getStaleSince());
+        Mockito.verifyZeroInteractions(organizationService);
+    }
+
+    @Test
+    public void testMembersKeepOrder() {
+        final List<String> members = asList("zed", "Alice", "mike", "bob");
+        Mockito.when(membershipRepository.getOrganizationMembers(ORG_NAME)).thenReturn(members);
+        Mockito.when(membershipRepository.getOrganizationSyncTime(ORG_NAME)).thenReturn(new Date());
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(Collections.<String, Boolean>emptyMap());
+
+        final List<Subscription> subscriptions = gitHubSubscriptionBean.getOrganizationSubscriptions(ORG_NAME);
+
+        Assert.assertEquals(members.size(), subscriptions.size());
+        for (int i = 0; i < members.size(); i++) {
+            Assert.assertEquals(members.get(i), subscriptions.get(i).getGitHubName());
+        }
+    }
+
+    @Test
+    public void testStaleMembersServedWhenMirrorNotSynchronized() throws IOException {
+        final Date syncedAt = new Date(System.currentTimeMillis() - GitHubSubscriptionBean.STALE_MEMBERS_AGE - 1000);
+        Mockito.when(membershipRepository.getOrganizationMembers(ORG_NAME)).thenReturn(asList(GITHUB_USERNAME));
+        Mockito.when(membershipRepository.getOrganizationSyncTime(ORG_NAME)).thenReturn(syncedAt);
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(Collections.<String, Boolean>emptyMap());
+
+        final List<Subscription> stale = gitHubSubscriptionBean.getOrganizationSubscriptions(ORG_NAME);
+
+        Assert.assertEquals(1, stale.size());
+        Assert.assertEquals(syncedAt, stale.get(0).getStaleSince());
+        Mockito.verifyZeroInteractions(organizationService);
+    }
+
+    @Test
+    public void testSubscriptionsResolvedFromMirror() throws IOException {
+        final GithubOrganization organization = new GithubOrganization(ORG_NAME);
+        organization.getTeams().add(new GithubTeam("synced", 1));
+        organization.getTeams().add(new GithubTeam("not-synced", 2));
+        organization.getTeams().add(new GithubTeam("failing", 3));
+        Mockito.when(organizationRepository.getCatalogue())
+                .thenReturn(new OrganizationCatalogue(1, Collections.singletonList(organization)));
+        Mockito.when(membershipRepository.getTeamMembershipStates(GITHUB_USERNAME))
+                .thenReturn(Collections.singletonMap(1, MembershipStates.PENDING));
+        Mockito.when(teamService.getMembership(2, GITHUB_USERNAME)).thenReturn(MembershipStates.ACTIVE);
+        Mockito.when(teamService.getMembership(3, GITHUB_USERNAME)).thenThrow(new IOException("failure"));
+
+        final List<GithubTeam> teams = gitHubSubscriptionBean.getSubscriptions(GITHUB_USERNAME).get(0).getTeams();
+
+        Assert.assertEquals(MembershipStates.PENDING, teams.get(0).getMembershipState());
+        Assert.assertEquals(MembershipStates.ACTIVE, teams.get(1).getMembershipState());
+        Assert.assertEquals(MembershipStates.UNKNOWN, teams.get(2).getMembershipState());
+        Mockito.verify(teamService, Mockito.never()).getMembership(1, GITHUB_USERNAME);
+    }
+
+    @Test
+    public void testMembershipNotRemovedWhenStateUnresolved() throws IOException {
+        Mockito.when(teamService.getMembership(1, GITHUB_USERNAME)).thenThrow(new IOException("timeout"));
+        Mockito.when(teamService.getMembership(2, GITHUB_USERNAME)).thenReturn(MembershipStates.ACTIVE);
+
+        try {
+            gitHubSubscriptionBean.setSubscriptions(GITHUB_USERNAME, Collections.singletonMap(1, false));
+            Assert.fail("Unresolved membership expected to be reported");
+        } catch (ApplicationException expected) {
+        }
+        gitHubSubscriptionBean.setSubscriptions(GITHUB_USERNAME, Collections.singletonMap(2, false));
+
+        Mockito.verify(teamService, Mockito.never()).removeMembership(1, GITHUB_USERNAME);
+        Mockito.verify(membershipRepository, Mockito.never()).removeTeamMember(1, GITHUB_USERNAME);
+        Mockito.verify(teamService).removeMembership(2, GITHUB_USERNAME);
+        Mockito.verify(membershipRepository).removeTeamMember(2, GITHUB_USERNAME);
     }
 
     @Test
@@ -104,6 +270,74 @@ public class GitHubSubscriptionBeanTest {
         Assert.assertEquals(false, findSubscriptionByKrbName(result, "b").isActiveKerberosAccount());
     }
 
+    @Test
+    public void getRegisteredUsersPageTest() {
+        final UserPage userPage = new UserPage(asList(createUser("a", "a"), createUser("b", "b")),
+                asList("1:a", "2:b"), true);
+        final Map<String, Boolean> usersInLdap = new HashMap<>();
+        usersInLdap.put("a", true);
+        usersInLdap.put("b", false);
+        Mockito.when(userRepository.getUsers(Mockito.any(RegisteredUsersQuery.class), Mockito.eq(2)))
+                .thenReturn(userPage);
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(usersInLdap);
+
+        final RegisteredUsersQuery query = new RegisteredUsersQuery();
+        query.setPageSize(2);
+        final RegisteredUsersPage page = gitHubSubscriptionBean.getRegisteredUsersPage(query);
+
+        Assert.assertEquals(2, page.getSubscriptions().size());
+        Assert.assertEquals("a", page.getSubscriptions().get(0).getKerberosName());
+        Assert.assertTrue(page.getSubscriptions().get(0).isActiveKerberosAccount());
+        Assert.assertEquals("b", page.getSubscriptions().get(1).getKerberosName());
+        Assert.assertFalse(page.getSubscriptions().get(1).isActiveKerberosAccount());
+        Assert.assertEquals("2:b", page.getNextCursor());
+
+        // only users on the page are checked in LDAP, their status is stored
+        Mockito.verify(userRepository, Mockito.never()).getAllUsers();
+        Mockito.verify(ldapRepository).checkUsersExists(new HashSet<>(asList("a", "b")));
+        Mockito.verify(userRepository).updateLdapStatus(usersInLdap);
+    }
+
+    @Test
+    public void getRegisteredUsersPageWithStoredLdapStatusTest() {
+        final RegisteredUser a = createUser("a", "a");
+        a.setLdapActive(true);
+        final RegisteredUser b = createUser("b", "b");
+        b.setLdapActive(false);
+        final UserPage userPage = new UserPage(asList(a, b, createUser(null, "c")), asList("1:a", "2:b", "3:c"), false);
+        Mockito.when(userRepository.getUsers(Mockito.any(RegisteredUsersQuery.class), Mockito.eq(3)))
+                .thenReturn(userPage);
+
+        final RegisteredUsersQuery query = new RegisteredUsersQuery();
+        query.setPageSize(3);
+        final RegisteredUsersPage page = gitHubSubscriptionBean.getRegisteredUsersPage(query);
+
+        Assert.assertTrue(page.getSubscriptions().get(0).isActiveKerberosAccount());
+        Assert.assertFalse(page.getSubscriptions().get(1).isActiveKerberosAccount());
+        Assert.assertFalse(page.getSubscriptions().get(2).isActiveKerberosAccount());
+        Assert.assertFalse(page.hasNextPage());
+        Mockito.verifyZeroInteractions(ldapRepository);
+    }
+
+    @Test
+    public void getRegisteredUsersPageFilteredByKrbAccountTest() {
+        final RegisteredUser a = createUser("a", "a");
+        a.setLdapActive(true);
+        Mockito.when(userRepository.getUsers(Mockito.any(RegisteredUsersQuery.class), Mockito.eq(2)))
+                .thenReturn(new UserPage(Collections.singletonList(a), Collections.singletonList("1:a"), false));
+
+        final RegisteredUsersQuery query = new RegisteredUsersQuery();
+        query.setPageSize(2);
+        query.setKrbAccount(true);
+        final RegisteredUsersPage page = gitHubSubscriptionBean.getRegisteredUsersPage(query);
+
+        // the filter is applied by the database, single query is made
+        Assert.assertEquals(1, page.getSubscriptions().size());
+        Assert.assertFalse(page.hasNextPage());
+        Mockito.verify(userRepository).getUsers(query, 2);
+        Mockito.verifyZeroInteractions(ldapRepository);
+    }
+
     private RegisteredUser createUser(String krbName, String gitHubName) {
         final RegisteredUser appUser = new RegisteredUser();
         appUser.setKrbName(krbName);
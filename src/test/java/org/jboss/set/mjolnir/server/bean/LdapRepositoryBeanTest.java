@@ -0,0 +1,159 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.ldap.LdapAccountCache;
+import org.jboss.set.mjolnir.server.ldap.LdapBatchExecutor;
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.SearchResultHandler;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LdapRepositoryBeanTest {
+
+    private final List<String> filters = Collections.synchronizedList(new ArrayList<String>());
+    private ExecutorService threadPool;
+    private LdapRepositoryBean repository;
+    private UidDirectorySnapshot uidSnapshot = new UidDirectorySnapshot();
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        repository = new LdapRepositoryBean();
+        repository.setBatchExecutor(new LdapBatchExecutor(threadPool));
+        repository.setAccountCache(new LdapAccountCache());
+        repository.setUidSnapshot(uidSnapshot);
+        repository.setLdapClient(new FakeLdapClient());
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testCheckUsersExists() {
+        final Map<String, Boolean> result = repository.checkUsersExists(
+                new HashSet<>(Arrays.asList("jdoe", "JDoe@REDHAT.COM", "old-jsmith", "nobody")));
+
+        Assert.assertEquals(4, result.size());
+        Assert.assertTrue(result.get("jdoe"));
+        Assert.assertTrue(result.get("JDoe@REDHAT.COM"));
+        Assert.assertTrue(result.get("old-jsmith"));
+        Assert.assertFalse(result.get("nobody"));
+
+        // "jdoe" queried only once
+        Assert.assertEquals(1, filters.size());
+        Assert.assertEquals(filters.get(0).indexOf("(uid=jdoe)"), filters.get(0).lastIndexOf("(uid=jdoe)"));
+    }
+
+    @Test
+    public void testResultsCached() {
+        repository.checkUsersExists(new HashSet<>(Arrays.asList("jdoe", "nobody")));
+        Assert.assertEquals(1, filters.size());
+
+        final Map<String, Boolean> result =
+                repository.checkUsersExists(new HashSet<>(Arrays.asList("JDOE", "nobody", "old-jsmith")));
+        Assert.assertTrue(result.get("JDOE"));
+        Assert.assertFalse(result.get("nobody"));
+        Assert.assertTrue(result.get("old-jsmith"));
+        Assert.assertEquals(2, filters.size());
+        Assert.assertFalse(filters.get(1).contains("jdoe"));
+        Assert.assertFalse(filters.get(1).contains("nobody"));
+
+        Assert.assertTrue(repository.checkUserExists("jdoe@REDHAT.COM"));
+        Assert.assertFalse(repository.checkUserExists("nobody"));
+        Assert.assertEquals(2, filters.size());
+
+        repository.invalidateCache();
+        Assert.assertFalse(repository.checkUserExists("nobody"));
+        Assert.assertEquals(3, filters.size());
+    }
+
+    @Test
+    public void testFindAllUserUidsCached() {
+        Assert.assertEquals(Arrays.asList("jsmith", "Old-JSmith"), repository.findAllUserUids("old-jsmith"));
+        Assert.assertEquals(Arrays.asList("jsmith", "Old-JSmith"), repository.findAllUserUids("Old-JSmith"));
+        Assert.assertEquals(1, filters.size());
+    }
+
+    @Test
+    public void testSnapshotUsedWhenLoaded() {
+        uidSnapshot.replace(Arrays.asList("jsmith", "old-jsmith"), "20261018120000Z");
+
+        // "jdoe" was created after the snapshot was taken
+        final Map<String, Boolean> result = repository.checkUsersExists(
+                new HashSet<>(Arrays.asList("JDoe@REDHAT.COM", "Old-JSmith", "nobody")));
+        Assert.assertTrue(result.get("JDoe@REDHAT.COM"));
+        Assert.assertTrue(result.get("Old-JSmith"));
+        Assert.assertFalse(result.get("nobody"));
+        Assert.assertTrue(repository.checkUserExists("jsmith"));
+
+        // only users missing in the snapshot are looked up
+        Assert.assertEquals(1, filters.size());
+        Assert.assertFalse(filters.get(0).contains("jsmith"));
+
+        Assert.assertFalse(repository.checkUserExists("nobody"));
+        Assert.assertEquals(1, filters.size());
+    }
+
+    @Test
+    public void testSnapshotClearedByInvalidation() {
+        // account "departed" was deleted since the snapshot was taken
+        uidSnapshot.replace(Arrays.asList("jsmith", "departed"), "20261018120000Z");
+        Assert.assertTrue(repository.checkUserExists("departed"));
+        Assert.assertEquals(0, filters.size());
+
+        repository.invalidateCache();
+        Assert.assertFalse(repository.checkUserExists("departed"));
+        Assert.assertEquals(1, filters.size());
+    }
+
+    @Test
+    public void testFilterValuesEscaped() {
+        Assert.assertEquals("a\\2a\\28b\\29\\5c", LdapRepositoryBean.escapeFilterValue("a*(b)\\"));
+    }
+
+
+    private class FakeLdapClient extends LdapClient {
+
+        @Override
+        public void search(String contextName, String filter, String[] attributes, SearchResultHandler handler)
+                throws NamingException {
+            filters.add(filter);
+            if (filter.contains("(uid=jdoe)")) {
+                handler.handle(record("JDoe"));
+            }
+            if (filter.contains("(rhatPriorUid=old-jsmith)")) {
+                handler.handle(record("jsmith", "Old-JSmith"));
+            }
+        }
+
+        private SearchResult record(String uid, String... priorUids) {
+            final BasicAttributes attributes = new BasicAttributes();
+            attributes.put("uid", uid);
+            if (priorUids.length > 0) {
+                final BasicAttribute priorUidAttr = new BasicAttribute("rhatPriorUid");
+                for (String priorUid : priorUids) {
+                    priorUidAttr.add(priorUid);
+                }
+                attributes.put(priorUidAttr);
+            }
+            return new SearchResult(uid, null, attributes);
+        }
+    }
+}
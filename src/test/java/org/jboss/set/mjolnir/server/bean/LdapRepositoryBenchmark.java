@@ -0,0 +1,329 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.ldap.LdapAccountCache;
+import org.jboss.set.mjolnir.server.ldap.LdapBatchExecutor;
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput and latency of {@link LdapRepositoryBean} against an in-process LDAP server.
+ *
+ * Not part of the regular test run, execute with {@code mvn test -Pldap-benchmark}. Directory sizes and the fraction
+ * of users with a prior uid can be changed by system properties "ldap.benchmark.sizes" (comma separated, default
+ * 1000,10000,100000) and "ldap.benchmark.alias_ratio" (default 0.1), search page size by "ldap.benchmark.page_size".
+ * Results are printed to standard output.
+ *
+ * Note that the in-memory server evaluates the whole search again for every page of paged results, so with large
+ * directories the snapshot load is much slower than against a real server.
+ *
+ * Besides timing, every scenario verifies its results, so the benchmark also fails if lookups return wrong answers.
+ */
+public class LdapRepositoryBenchmark {
+
+    private static final String DEFAULT_SIZES = "1000,10000,100000";
+    private static final double DEFAULT_ALIAS_RATIO = 0.1;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int BATCH_REPETITIONS = 10;
+    private static final int SINGLE_LOOKUPS = 500;
+    private static final int THREADS = 8;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void benchmark() throws Exception {
+        final double aliasRatio = Double.parseDouble(
+                System.getProperty("ldap.benchmark.alias_ratio", String.valueOf(DEFAULT_ALIAS_RATIO)));
+        final int pageSize = Integer.getInteger("ldap.benchmark.page_size", LdapClient.DEFAULT_PAGE_SIZE);
+        final StringBuilder report = new StringBuilder();
+        for (String size : System.getProperty("ldap.benchmark.sizes", DEFAULT_SIZES).split(",")) {
+            report.append(benchmark(Integer.parseInt(size.trim()), aliasRatio, pageSize));
+        }
+        System.out.println(report);
+    }
+
+    private String benchmark(int userCount, double aliasRatio, int pageSize) throws Exception {
+        final long seedStart = System.nanoTime();
+        final EmbeddedLdapServer server = new EmbeddedLdapServer(userCount, aliasRatio);
+        server.start();
+        final long seedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart);
+
+        final LdapClient client = new LdapClient(Collections.singletonList(server.getUrl()), pageSize);
+        final ExecutorService threadPool = Executors.newCachedThreadPool();
+        final LdapBatchExecutor batchExecutor = new LdapBatchExecutor(threadPool);
+        try {
+            final Report report = new Report(String.format("%d users, %d prior uids (seeded in %d ms), page size %d",
+                    server.getUserCount(), server.getAliasCount(), seedMillis, pageSize));
+
+            final Sample batch = sample(server, BATCH_SIZE);
+            final Set<String> batchUsers = new HashSet<>(batch.uids);
+
+            // warm up JIT and server side, not measured
+            createRepository(client, batchExecutor, new UidDirectorySnapshot()).checkUsersExists(batchUsers);
+
+            Scenario scenario = report.add("checkUsersExists, cold cache", BATCH_SIZE);
+            for (int i = 0; i < BATCH_REPETITIONS; i++) {
+                final LdapRepositoryBean repository =
+                        createRepository(client, batchExecutor, new UidDirectorySnapshot());
+                final long start = System.nanoTime();
+                final Map<String, Boolean> result = repository.checkUsersExists(batchUsers);
+                scenario.record(System.nanoTime() - start);
+                batch.verify(result);
+            }
+
+            LdapRepositoryBean repository = createRepository(client, batchExecutor, new UidDirectorySnapshot());
+            repository.checkUsersExists(batchUsers);
+            scenario = report.add("checkUsersExists, warm cache", BATCH_SIZE);
+            for (int i = 0; i < BATCH_REPETITIONS; i++) {
+                final long start = System.nanoTime();
+                final Map<String, Boolean> result = repository.checkUsersExists(batchUsers);
+                scenario.record(System.nanoTime() - start);
+                batch.verify(result);
+            }
+
+            final UidDirectorySnapshot snapshot = new UidDirectorySnapshot();
+            final LdapSnapshotSyncBean syncBean = new LdapSnapshotSyncBean();
+            syncBean.setLdapClient(client);
+            syncBean.setSnapshot(snapshot);
+            scenario = report.add("snapshot full load", userCount);
+            long start = System.nanoTime();
+            syncBean.load();
+            scenario.record(System.nanoTime() - start);
+            Assert.assertEquals(server.getUserCount() + server.getAliasCount(), snapshot.size());
+
+            repository = createRepository(client, batchExecutor, snapshot);
+            scenario = report.add("checkUsersExists, snapshot", BATCH_SIZE);
+            for (int i = 0; i < BATCH_REPETITIONS; i++) {
+                start = System.nanoTime();
+                final Map<String, Boolean> result = repository.checkUsersExists(batchUsers);
+                scenario.record(System.nanoTime() - start);
+                batch.verify(result);
+            }
+
+            final Sample singles = sample(server, SINGLE_LOOKUPS);
+            repository = createRepository(client, batchExecutor, new UidDirectorySnapshot());
+            scenario = report.add("checkUserExists, cold cache", 1);
+            for (String uid : singles.uids) {
+                start = System.nanoTime();
+                final boolean exists = repository.checkUserExists(uid);
+                scenario.record(System.nanoTime() - start);
+                Assert.assertEquals(uid, singles.existing.contains(uid), exists);
+            }
+            scenario = report.add("checkUserExists, warm cache", 1);
+            for (String uid : singles.uids) {
+                start = System.nanoTime();
+                final boolean exists = repository.checkUserExists(uid);
+                scenario.record(System.nanoTime() - start);
+                Assert.assertEquals(uid, singles.existing.contains(uid), exists);
+            }
+
+            repository = createRepository(client, batchExecutor, new UidDirectorySnapshot());
+            runConcurrently(report.add("checkUserExists, cold, " + THREADS + " threads", 1), repository, singles);
+
+            final List<Integer> aliasedUsers = new ArrayList<>();
+            for (int i = 0; i < userCount && aliasedUsers.size() < SINGLE_LOOKUPS; i++) {
+                if (server.hasAlias(i)) {
+                    aliasedUsers.add(i);
+                }
+            }
+            repository = createRepository(client, batchExecutor, new UidDirectorySnapshot());
+            for (String label : new String[] {"findAllUserUids, cold cache", "findAllUserUids, warm cache"}) {
+                scenario = report.add(label, 1);
+                for (int i : aliasedUsers) {
+                    start = System.nanoTime();
+                    final List<String> uids = repository.findAllUserUids(EmbeddedLdapServer.priorUid(i));
+                    scenario.record(System.nanoTime() - start);
+                    Assert.assertEquals(EmbeddedLdapServer.uid(i), uids.get(0));
+                }
+            }
+
+            return report.toString();
+        } finally {
+            threadPool.shutdownNow();
+            client.close();
+            server.stop();
+        }
+    }
+
+    private void runConcurrently(final Scenario scenario, final LdapRepositoryBean repository, final Sample sample)
+            throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<List<Long>>> futures = new ArrayList<>();
+            final long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() {
+                        final List<Long> durations = new ArrayList<>();
+                        for (int i = offset; i < sample.uids.size(); i += THREADS) {
+                            final String uid = sample.uids.get(i);
+                            final long callStart = System.nanoTime();
+                            final boolean exists = repository.checkUserExists(uid);
+                            durations.add(System.nanoTime() - callStart);
+                            Assert.assertEquals(uid, sample.existing.contains(uid), exists);
+                        }
+                        return durations;
+                    }
+                }));
+            }
+            for (Future<List<Long>> future : futures) {
+                for (long duration : future.get()) {
+                    scenario.record(duration);
+                }
+            }
+            scenario.setWallNanos(System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static LdapRepositoryBean createRepository(LdapClient client, LdapBatchExecutor batchExecutor,
+                                                       UidDirectorySnapshot snapshot) {
+        final LdapRepositoryBean repository = new LdapRepositoryBean();
+        repository.setLdapClient(client);
+        repository.setBatchExecutor(batchExecutor);
+        repository.setAccountCache(new LdapAccountCache());
+        repository.setUidSnapshot(snapshot);
+        return repository;
+    }
+
+    /**
+     * Random distinct uids: 60% current uids, 20% prior uids (if there are any) and the rest not existing.
+     */
+    private Sample sample(EmbeddedLdapServer server, int count) {
+        final Set<String> uids = new HashSet<>();
+        final Set<String> existing = new HashSet<>();
+        while (uids.size() < count) {
+            final int i = random.nextInt(server.getUserCount());
+            final int kind = random.nextInt(10);
+            final String uid;
+            if (kind < 6 || (kind < 8 && !server.hasAlias(i))) {
+                uid = EmbeddedLdapServer.uid(i);
+            } else if (kind < 8) {
+                uid = EmbeddedLdapServer.priorUid(i);
+            } else {
+                uid = String.format("missing%07d", i);
+            }
+            if (uids.add(uid) && !uid.startsWith("missing")) {
+                existing.add(uid);
+            }
+        }
+        return new Sample(new ArrayList<>(uids), existing);
+    }
+
+
+    private static class Sample {
+
+        private final List<String> uids;
+        private final Set<String> existing;
+
+        Sample(List<String> uids, Set<String> existing) {
+            this.uids = uids;
+            this.existing = existing;
+        }
+
+        void verify(Map<String, Boolean> result) {
+            Assert.assertEquals(uids.size(), result.size());
+            for (Map.Entry<String, Boolean> entry : result.entrySet()) {
+                Assert.assertEquals(entry.getKey(), existing.contains(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+
+    private static class Report {
+
+        private final String title;
+        private final List<Scenario> scenarios = new ArrayList<>();
+
+        Report(String title) {
+            this.title = title;
+        }
+
+        Scenario add(String name, int itemsPerOperation) {
+            final Scenario scenario = new Scenario(name, itemsPerOperation);
+            scenarios.add(scenario);
+            return scenario;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%n%s%n", title));
+            sb.append(String.format("%-40s %6s %12s %10s %10s %10s %10s%n",
+                    "scenario", "ops", "uids/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (Scenario scenario : scenarios) {
+                sb.append(scenario).append(String.format("%n"));
+            }
+            return sb.toString();
+        }
+    }
+
+
+    private static class Scenario {
+
+        private final String name;
+        private final int itemsPerOperation;
+        private final List<Long> durations = new ArrayList<>();
+        private long wallNanos = -1;
+
+        Scenario(String name, int itemsPerOperation) {
+            this.name = name;
+            this.itemsPerOperation = itemsPerOperation;
+        }
+
+        void record(long durationNanos) {
+            durations.add(durationNanos);
+        }
+
+        /**
+         * Sets elapsed time of concurrently executed operations, by default the sum of their durations is used.
+         */
+        void setWallNanos(long wallNanos) {
+            this.wallNanos = wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            final List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            long total = wallNanos;
+            if (total < 0) {
+                total = 0;
+                for (long duration : sorted) {
+                    total += duration;
+                }
+            }
+            final double throughput = total == 0 ? 0
+                    : (double) sorted.size() * itemsPerOperation * TimeUnit.SECONDS.toNanos(1) / total;
+            return String.format("%-40s %6d %12.0f %10.2f %10.2f %10.2f %10.2f", name, sorted.size(), throughput,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    percentile(sorted, 100));
+        }
+
+        private static double percentile(List<Long> sorted, int percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, index)) / 1000000.0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.ldap.LdapClient;
+import org.jboss.set.mjolnir.server.ldap.SearchResultHandler;
+import org.jboss.set.mjolnir.server.ldap.UidDirectorySnapshot;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchResult;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LdapSnapshotSyncBeanTest {
+
+    private final List<String> filters = new ArrayList<>();
+    private final List<SearchResult> entries = new ArrayList<>();
+    private boolean failing;
+    private UidDirectorySnapshot snapshot;
+    private LdapSnapshotSyncBean syncBean;
+
+    @Before
+    public void setUp() {
+        snapshot = new UidDirectorySnapshot();
+        syncBean = new LdapSnapshotSyncBean();
+        syncBean.setSnapshot(snapshot);
+        syncBean.setLdapClient(new FakeLdapClient());
+    }
+
+    @Test
+    public void testLoadAndRefresh() {
+        entries.add(entry("JDoe", "20261018100000Z", "johnd"));
+        entries.add(entry("jsmith", "20261018110000Z"));
+        syncBean.refresh(); // not loaded yet, performs full load
+
+        Assert.assertEquals("(uid=*)", filters.get(0));
+        Assert.assertTrue(snapshot.contains("jdoe"));
+        Assert.assertTrue(snapshot.contains("johnd"));
+        Assert.assertTrue(snapshot.contains("jsmith"));
+        Assert.assertEquals("20261018110000Z", snapshot.getWatermark());
+
+        entries.clear();
+        entries.add(entry("newhire", "20261018120000Z"));
+        syncBean.refresh();
+
+        Assert.assertEquals("(&(uid=*)(modifyTimestamp>=20261018110000Z))", filters.get(1));
+        Assert.assertTrue(snapshot.contains("newhire"));
+        Assert.assertTrue(snapshot.contains("jdoe"));
+        Assert.assertEquals("20261018120000Z", snapshot.getWatermark());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsSnapshot() {
+        entries.add(entry("jdoe", "20261018100000Z"));
+        syncBean.load();
+
+        failing = true;
+        syncBean.refresh();
+        syncBean.load();
+        Assert.assertTrue(snapshot.contains("jdoe"));
+        Assert.assertEquals("20261018100000Z", snapshot.getWatermark());
+    }
+
+    private static SearchResult entry(String uid, String modifyTimestamp, String... priorUids) {
+        final BasicAttributes attributes = new BasicAttributes();
+        attributes.put("uid", uid);
+        attributes.put("modifyTimestamp", modifyTimestamp);
+        if (priorUids.length > 0) {
+            final BasicAttribute priorUidAttr = new BasicAttribute("rhatPriorUid");
+            for (String priorUid : priorUids) {
+                priorUidAttr.add(priorUid);
+            }
+            attributes.put(priorUidAttr);
+        }
+        return new SearchResult(uid, null, attributes);
+    }
+
+
+    private class FakeLdapClient extends LdapClient {
+
+        @Override
+        public void search(String contextName, String filter, String[] attributes, SearchResultHandler handler)
+                throws NamingException {
+            filters.add(filter);
+            if (failing) {
+                throw new CommunicationException("Connection refused");
+            }
+            for (SearchResult entry : entries) {
+                handler.handle(entry);
+            }
+        }
+    }
+}
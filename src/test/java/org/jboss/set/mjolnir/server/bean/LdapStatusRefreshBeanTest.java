@@ -0,0 +1,142 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.client.exception.ApplicationException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class LdapStatusRefreshBeanTest {
+
+    private UserRepository userRepository;
+    private LdapRepository ldapRepository;
+    private LdapStatusRefreshBean refreshBean;
+
+    @Before
+    public void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        ldapRepository = Mockito.mock(LdapRepository.class);
+
+        refreshBean = new LdapStatusRefreshBean();
+        refreshBean.setUserRepository(userRepository);
+        refreshBean.setLdapRepository(ldapRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRefreshInBatches() {
+        final List<String> fullBatch = names("a", LdapStatusRefreshBean.BATCH_SIZE);
+        final List<String> lastBatch = names("b", 3);
+        final Date checkedBefore = new Date();
+        Mockito.when(userRepository.getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE))
+                .thenReturn(fullBatch, lastBatch);
+        final Map<String, Boolean> statuses = new HashMap<>();
+        statuses.put("b0", false);
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(statuses);
+        Mockito.when(userRepository.updateLdapStatus(statuses)).thenReturn(2, 1);
+
+        Assert.assertEquals(3, refreshBean.refresh(checkedBefore, 10));
+
+        Mockito.verify(ldapRepository).checkUsersExists(new HashSet<>(fullBatch));
+        Mockito.verify(ldapRepository).checkUsersExists(new HashSet<>(lastBatch));
+        // batch smaller than batch size is the last one
+        Mockito.verify(userRepository, Mockito.times(2))
+                .getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRefreshLimitedByMaxBatches() {
+        final Date checkedBefore = new Date();
+        Mockito.when(userRepository.getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE))
+                .thenReturn(names("a", LdapStatusRefreshBean.BATCH_SIZE), names("b", LdapStatusRefreshBean.BATCH_SIZE));
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(new HashMap<String, Boolean>());
+
+        refreshBean.refresh(checkedBefore, 1);
+
+        Mockito.verify(ldapRepository, Mockito.times(1)).checkUsersExists(Mockito.anySet());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRefreshStopsWithoutProgress() {
+        final Date checkedBefore = new Date();
+        // status of the same users is not updated, e.g. because they were renamed meanwhile
+        Mockito.when(userRepository.getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE))
+                .thenReturn(names("a", LdapStatusRefreshBean.BATCH_SIZE));
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(new HashMap<String, Boolean>());
+
+        refreshBean.refresh(checkedBefore, Integer.MAX_VALUE);
+
+        Mockito.verify(ldapRepository, Mockito.times(1)).checkUsersExists(Mockito.anySet());
+        Mockito.verify(userRepository, Mockito.times(2))
+                .getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLdapFailure() {
+        final Date checkedBefore = new Date();
+        Mockito.when(userRepository.getKrbNamesWithStaleLdapStatus(checkedBefore, LdapStatusRefreshBean.BATCH_SIZE))
+                .thenReturn(Collections.singletonList("a"));
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet()))
+                .thenThrow(new ApplicationException("LDAP unavailable"));
+
+        Assert.assertEquals(0, refreshBean.refresh(checkedBefore, 1));
+        Mockito.verify(userRepository, Mockito.never()).updateLdapStatus(Mockito.anyMap());
+
+        // next refresh is not blocked by the failed one
+        Mockito.reset(ldapRepository);
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenReturn(new HashMap<String, Boolean>());
+        refreshBean.refresh(checkedBefore, 1);
+        Mockito.verify(userRepository).updateLdapStatus(Mockito.anyMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRefreshAllRequestedDuringRefreshPerformedAfterIt() {
+        final Date checkedBefore = new Date(0);
+        Mockito.when(userRepository.getKrbNamesWithStaleLdapStatus(Mockito.any(Date.class), Mockito.anyInt()))
+                .thenReturn(Collections.singletonList("a"));
+        Mockito.when(ldapRepository.checkUsersExists(Mockito.anySet())).thenAnswer(new Answer<Map<String, Boolean>>() {
+            private boolean requested;
+
+            @Override
+            public Map<String, Boolean> answer(InvocationOnMock invocation) {
+                if (!requested) {
+                    requested = true;
+                    refreshBean.refreshAll();
+                }
+                return new HashMap<>();
+            }
+        });
+
+        refreshBean.refresh(checkedBefore, 1);
+
+        final ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        Mockito.verify(userRepository, Mockito.times(2))
+                .getKrbNamesWithStaleLdapStatus(captor.capture(), Mockito.eq(LdapStatusRefreshBean.BATCH_SIZE));
+        Assert.assertEquals(checkedBefore, captor.getAllValues().get(0));
+        Assert.assertTrue(captor.getAllValues().get(1).after(checkedBefore));
+        Mockito.verify(userRepository, Mockito.times(2)).updateLdapStatus(Mockito.anyMap());
+    }
+
+    private static List<String> names(String prefix, int count) {
+        final List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,151 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.GithubOrganizationEntity;
+import org.jboss.set.mjolnir.server.entities.GithubTeamEntity;
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class OrganizationRepositoryBeanTest {
+
+    private long now = 1000000;
+    private GithubOrganizationEntity orgEntity;
+    private GithubTeamEntity teamEntity;
+    private TypedQuery<GithubOrganizationEntity> orgQuery;
+    private OrganizationRepositoryBean repository;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        orgEntity = new GithubOrganizationEntity();
+        orgEntity.setId(1);
+        orgEntity.setName("testorg");
+        orgEntity.setSubscriptionsEnabled(true);
+        teamEntity = new GithubTeamEntity();
+        teamEntity.setId(2L);
+        teamEntity.setName("Developers");
+        teamEntity.setGithubId(20L);
+        teamEntity.setOrganization(orgEntity);
+
+        orgQuery = Mockito.mock(TypedQuery.class);
+        Mockito.when(orgQuery.setHint(Mockito.anyString(), Mockito.any())).thenReturn(orgQuery);
+        Mockito.when(orgQuery.getResultList()).thenReturn(Collections.singletonList(orgEntity));
+        final TypedQuery<GithubTeamEntity> teamQuery = Mockito.mock(TypedQuery.class);
+        Mockito.when(teamQuery.setHint(Mockito.anyString(), Mockito.any())).thenReturn(teamQuery);
+        Mockito.when(teamQuery.getResultList()).thenReturn(Collections.singletonList(teamEntity));
+
+        final EntityManager em = Mockito.mock(EntityManager.class);
+        Mockito.when(em.createQuery(Mockito.anyString(), Mockito.eq(GithubOrganizationEntity.class))).thenReturn(orgQuery);
+        Mockito.when(em.createQuery(Mockito.anyString(), Mockito.eq(GithubTeamEntity.class))).thenReturn(teamQuery);
+        final EntityManagerFactory emf = Mockito.mock(EntityManagerFactory.class);
+        Mockito.when(emf.createEntityManager()).thenReturn(em);
+
+        repository = new OrganizationRepositoryBean() {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+        repository.setEntityManagerFactory(emf);
+    }
+
+    @Test
+    public void testCatalogueLoaded() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+
+        Assert.assertEquals(1, catalogue.getVersion());
+        Assert.assertEquals(1, catalogue.getOrganizations().size());
+        final GithubOrganization organization = catalogue.getOrganization("TestOrg");
+        Assert.assertNotNull(organization);
+        Assert.assertSame(organization, catalogue.getTeam(20).getOrganization());
+        Assert.assertNull(catalogue.getTeam(21));
+    }
+
+    @Test
+    public void testCatalogueNotReloadedWhileFresh() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+        now += OrganizationRepositoryBean.MAX_AGE;
+
+        Assert.assertSame(catalogue, repository.getCatalogue());
+        Mockito.verify(orgQuery, Mockito.times(1)).getResultList();
+    }
+
+    @Test
+    public void testUnchangedCatalogueKeepsVersion() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+        repository.invalidateCatalogue();
+
+        Assert.assertSame(catalogue, repository.getCatalogue());
+        Mockito.verify(orgQuery, Mockito.times(2)).getResultList();
+    }
+
+    @Test
+    public void testChangedCatalogueGetsNewVersion() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+        teamEntity.setName("Maintainers");
+        now += OrganizationRepositoryBean.MAX_AGE + 1;
+
+        final OrganizationCatalogue reloaded = repository.getCatalogue();
+        Assert.assertEquals(2, reloaded.getVersion());
+        Assert.assertEquals("Maintainers", reloaded.getTeam(20).getName());
+        Assert.assertEquals("Developers", catalogue.getTeam(20).getName());
+    }
+
+    @Test
+    public void testSynchronizationKeepsVersion() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+        orgEntity.setMembersSyncedAt(new Date(now));
+        teamEntity.setMembersSyncedAt(new Date(now));
+        now += OrganizationRepositoryBean.MAX_AGE + 1;
+
+        Assert.assertSame(catalogue, repository.getCatalogue());
+        Assert.assertNull(catalogue.getTeam(20).getMembersSyncedAt());
+    }
+
+    @Test
+    public void testPreviousCatalogueKeptOnFailure() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+        Mockito.when(orgQuery.getResultList()).thenThrow(new IllegalStateException("connection refused"));
+        repository.invalidateCatalogue();
+
+        Assert.assertSame(catalogue, repository.getCatalogue());
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        final OrganizationCatalogue catalogue = repository.getCatalogue();
+
+        final List<GithubOrganization> copies = catalogue.copyOrganizations();
+        copies.get(0).getTeams().get(0).setMembershipState("active");
+
+        Assert.assertNull(catalogue.getTeam(20).getMembershipState());
+        Assert.assertSame(copies.get(0), copies.get(0).getTeams().get(0).getOrganization());
+    }
+
+    @Test
+    public void testOrganizationsCopied() {
+        final List<GithubOrganization> organizations = repository.getOrganizations();
+        organizations.get(0).getTeams().get(0).setMembershipState("active");
+
+        Assert.assertNotSame(repository.getCatalogue().getOrganizations().get(0), organizations.get(0));
+        Assert.assertNull(repository.getCatalogue().getTeam(20).getMembershipState());
+    }
+
+    @Test
+    public void testReloadBypassesCache() {
+        repository.getCatalogue();
+
+        Mockito.verify(orgQuery).setHint("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+        Mockito.verify(orgQuery, Mockito.never()).setHint(Mockito.eq("org.hibernate.cacheable"), Mockito.any());
+    }
+}
@@ -0,0 +1,149 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.UserEntity;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class UserBatchRepositoryBeanTest {
+
+    private EntityManager em;
+    private TypedQuery<UserEntity> query;
+    private Query aliasQuery;
+    private UserEntity existing;
+    private UserBatchRepositoryBean batchRepository;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        existing = new UserEntity();
+        existing.setId(5L);
+        existing.setKerberosName("jdoe");
+        existing.setGithubName("JDoe-GH");
+
+        query = Mockito.mock(TypedQuery.class);
+        Mockito.when(query.setParameter(Mockito.anyString(), Mockito.any())).thenReturn(query);
+        Mockito.when(query.getResultList()).thenReturn(Collections.singletonList(existing));
+
+        aliasQuery = Mockito.mock(Query.class);
+        Mockito.when(aliasQuery.setParameter(Mockito.anyString(), Mockito.any())).thenReturn(aliasQuery);
+
+        em = Mockito.mock(EntityManager.class);
+        Mockito.when(em.createQuery(Mockito.anyString(), Mockito.eq(UserEntity.class))).thenReturn(query);
+        Mockito.when(em.createQuery(Mockito.startsWith("DELETE FROM UidAliasEntity"))).thenReturn(aliasQuery);
+        final EntityManagerFactory emf = Mockito.mock(EntityManagerFactory.class);
+        Mockito.when(emf.createEntityManager()).thenReturn(em);
+
+        batchRepository = new UserBatchRepositoryBean();
+        batchRepository.setEntityManagerFactory(emf);
+    }
+
+    @Test
+    public void testExistingUsersLoadedBySingleQuery() {
+        batchRepository.saveOrUpdateUsers(Arrays.asList(createUser("jdoe", "jdoe-gh", true),
+                createUser("jsmith", "jsmith-gh", true), createUser("anon", null, false)));
+
+        Mockito.verify(em).createQuery(
+                "FROM UserEntity WHERE githubNameLower IN (:gitHubNames) OR kerberosName IN (:krbNames)",
+                UserEntity.class);
+        Mockito.verify(query).setParameter("gitHubNames", Arrays.asList("jdoe-gh", "jsmith-gh"));
+        Mockito.verify(query).setParameter("krbNames", Arrays.asList("jdoe", "jsmith", "anon"));
+        Mockito.verify(query, Mockito.times(1)).getResultList();
+
+        // existing user is updated, the others are inserted
+        Assert.assertTrue(existing.isWhitelisted());
+        Mockito.verify(em, Mockito.times(2)).persist(Mockito.any(UserEntity.class));
+        Mockito.verify(em, Mockito.never()).createQuery(Mockito.startsWith("DELETE FROM UidAliasEntity"));
+    }
+
+    @Test
+    public void testUserRepeatedInBatchInsertedOnce() {
+        Mockito.when(query.getResultList()).thenReturn(Collections.<UserEntity>emptyList());
+
+        batchRepository.saveOrUpdateUsers(Arrays.asList(createUser(null, "New-GH", false),
+                createUser(null, "new-gh", true)));
+
+        final ArgumentCaptor<UserEntity> captor = ArgumentCaptor.forClass(UserEntity.class);
+        Mockito.verify(em).persist(captor.capture());
+        Assert.assertTrue(captor.getValue().isWhitelisted());
+    }
+
+    @Test
+    public void testAliasesRemovedWhenKrbNameChanges() {
+        batchRepository.saveOrUpdateUsers(Collections.singletonList(createUser("jdoe2", "jdoe-gh", false)));
+
+        Mockito.verify(aliasQuery).setParameter("ids", Collections.singletonList(5L));
+        Mockito.verify(aliasQuery).executeUpdate();
+        Assert.assertEquals("jdoe2", existing.getKerberosName());
+    }
+
+    @Test
+    public void testDeleteMatchesExactGitHubName() {
+        final UserEntity other = new UserEntity();
+        other.setId(6L);
+        other.setKerberosName("jdoe2");
+        other.setGithubName("jdoe-gh");
+        Mockito.when(query.getResultList()).thenReturn(Arrays.asList(existing, other));
+
+        final List<RegisteredUser> notFound = batchRepository.deleteUsers(Arrays.asList(
+                createUser(null, "jdoe-gh", false), createUser(null, "JDOE-GH", false)));
+
+        Mockito.verify(em).remove(other);
+        Mockito.verify(em, Mockito.never()).remove(existing);
+        Assert.assertEquals(1, notFound.size());
+        Assert.assertEquals("JDOE-GH", notFound.get(0).getGitHubName());
+    }
+
+    @Test
+    public void testWhitelistFallsBackToKrbName() {
+        final List<RegisteredUser> notFound = batchRepository.setWhitelisted(Arrays.asList(
+                createUser("jdoe", "jdoe-renamed", false), createUser("jsmith", null, false)), true);
+
+        Mockito.verify(query).setParameter("krbNames", Arrays.asList("jdoe", "jsmith"));
+        Assert.assertTrue(existing.isWhitelisted());
+        Assert.assertEquals(1, notFound.size());
+        Assert.assertEquals("jsmith", notFound.get(0).getKrbName());
+    }
+
+    @Test
+    public void testLdapStatusStoredInLoadedUsers() {
+        final Date checkedAt = new Date();
+
+        Assert.assertEquals(1, batchRepository.updateLdapStatus(Collections.singletonList("jdoe"),
+                Collections.singletonList("jsmith"), checkedAt));
+
+        Mockito.verify(em).createQuery("FROM UserEntity WHERE kerberosName IN (:names)", UserEntity.class);
+        Mockito.verify(query).setParameter("names", Arrays.asList("jdoe", "jsmith"));
+        Assert.assertTrue(existing.getLdapActive());
+        Assert.assertEquals(checkedAt, existing.getLdapChangedAt());
+        Assert.assertEquals(checkedAt, existing.getLdapCheckedAt());
+
+        // change time is kept when the status doesn't change
+        final Date nextCheck = new Date(checkedAt.getTime() + 1000);
+        Assert.assertEquals(0, batchRepository.updateLdapStatus(Collections.singletonList("jdoe"),
+                Collections.<String>emptyList(), nextCheck));
+        Assert.assertEquals(checkedAt, existing.getLdapChangedAt());
+        Assert.assertEquals(nextCheck, existing.getLdapCheckedAt());
+        Mockito.verify(em, Mockito.never()).createQuery(Mockito.startsWith("UPDATE"));
+    }
+
+    private static RegisteredUser createUser(String krbName, String gitHubName, boolean whitelisted) {
+        final RegisteredUser user = new RegisteredUser();
+        user.setKrbName(krbName);
+        user.setGitHubName(gitHubName);
+        user.setWhitelisted(whitelisted);
+        return user;
+    }
+}
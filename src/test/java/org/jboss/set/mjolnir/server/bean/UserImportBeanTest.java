@@ -0,0 +1,167 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.eclipse.egit.github.core.RequestError;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.UserService;
+import org.jboss.set.mjolnir.server.github.GitHubRequestExecutor;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class UserImportBeanTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+    private ExecutorService threadPool;
+    private GitHubRequestExecutor requestExecutor;
+    private UserImportBean importBean;
+
+    @Before
+    public void setUp() throws IOException {
+        userRepository = Mockito.mock(UserRepository.class);
+        userService = Mockito.mock(UserService.class);
+        Mockito.when(userService.getUser(Mockito.anyString())).thenReturn(new User());
+        threadPool = Executors.newCachedThreadPool();
+        requestExecutor = new GitHubRequestExecutor(threadPool);
+
+        importBean = new UserImportBean();
+        importBean.setUserRepository(userRepository);
+        importBean.setUserService(userService);
+        importBean.setRequestExecutor(requestExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        requestExecutor.shutdown();
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTakenNamesLookedUpBySingleQuery() {
+        final RegisteredUser existing = createUser("jdoe", "JDoe-GH");
+        Mockito.when(userRepository.getUsersByNames(Mockito.anyCollection(), Mockito.anyCollection()))
+                .thenReturn(Collections.singletonList(existing));
+
+        final List<UserImportResult> rows = rows(createUser("jdoe", "other-gh"), createUser("jsmith", "jdoe-gh"),
+                createUser("anna", "anna-gh"));
+        importBean.importUsers(rows);
+
+        Mockito.verify(userRepository).getUsersByNames(Arrays.asList("jdoe", "jsmith", "anna"),
+                Arrays.asList("other-gh", "jdoe-gh", "anna-gh"));
+        Assert.assertEquals(UserImportResult.Status.INVALID, rows.get(0).getStatus());
+        Assert.assertEquals(Collections.singletonList("This Kerberos name is already taken by different user."),
+                rows.get(0).getMessages());
+        Assert.assertEquals(UserImportResult.Status.INVALID, rows.get(1).getStatus());
+        Assert.assertEquals(UserImportResult.Status.IMPORTED, rows.get(2).getStatus());
+        assertStored("anna-gh");
+    }
+
+    @Test
+    public void testDuplicatesAndMissingNamesRejected() throws IOException {
+        final RegisteredUser whitelisted = createUser("mark", "mark-gh");
+        whitelisted.setWhitelisted(true);
+
+        final List<UserImportResult> rows = rows(createUser("anna", "Anna-GH"), createUser("anna2", "anna-gh"),
+                createUser("anna", "anna3-gh"), createUser("bob", null), whitelisted);
+        importBean.importUsers(rows);
+
+        Assert.assertTrue(rows.get(0).isImported());
+        Assert.assertEquals(Collections.singletonList("This GitHub name is repeated in the import."),
+                rows.get(1).getMessages());
+        Assert.assertEquals(Collections.singletonList("This Kerberos name is repeated in the import."),
+                rows.get(2).getMessages());
+        Assert.assertEquals(Collections.singletonList("GitHub name is required."), rows.get(3).getMessages());
+        Assert.assertEquals(Collections.singletonList("Whitelisted person must have responsible person assigned."),
+                rows.get(4).getMessages());
+
+        // rejected rows are not checked on GitHub
+        Mockito.verify(userService).getUser("Anna-GH");
+        Mockito.verifyNoMoreInteractions(userService);
+        assertStored("Anna-GH");
+    }
+
+    @Test
+    public void testAdminFlagIgnored() throws IOException {
+        final RegisteredUser admin = createUser("anna", "anna-gh");
+        admin.setAdmin(true);
+
+        final List<UserImportResult> rows = rows(admin);
+        importBean.importUsers(rows);
+
+        Assert.assertTrue(rows.get(0).isImported());
+        Assert.assertFalse(admin.isAdmin());
+        assertStored("anna-gh");
+    }
+
+    @Test
+    public void testGitHubNamesVerified() throws IOException {
+        Mockito.when(userService.getUser("unknown-gh"))
+                .thenThrow(new RequestException(new RequestError(), 404));
+        Mockito.when(userService.getUser("broken-gh"))
+                .thenThrow(new RequestException(new RequestError(), 500));
+
+        final List<UserImportResult> rows = rows(createUser("anna", "anna-gh"), createUser("bob", "unknown-gh"),
+                createUser("carl", "broken-gh"));
+        importBean.importUsers(rows);
+
+        Assert.assertEquals(UserImportResult.Status.IMPORTED, rows.get(0).getStatus());
+        Assert.assertEquals(UserImportResult.Status.INVALID, rows.get(1).getStatus());
+        Assert.assertEquals(Collections.singletonList("Specified GitHub name is not registered on GitHub."),
+                rows.get(1).getMessages());
+        Assert.assertEquals(UserImportResult.Status.FAILED, rows.get(2).getStatus());
+        assertStored("anna-gh");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStoreFailureReported() {
+        Mockito.doThrow(new IllegalStateException("constraint violation")).when(userRepository)
+                .saveOrUpdateUsers(Mockito.anyCollection());
+
+        final List<UserImportResult> rows = rows(createUser("anna", "anna-gh"));
+        importBean.importUsers(rows);
+
+        Assert.assertEquals(UserImportResult.Status.FAILED, rows.get(0).getStatus());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertStored(String... gitHubNames) {
+        final ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(userRepository).saveOrUpdateUsers(captor.capture());
+        final List<String> stored = new ArrayList<>();
+        for (Object user : captor.getValue()) {
+            stored.add(((RegisteredUser) user).getGitHubName());
+        }
+        Assert.assertEquals(Arrays.asList(gitHubNames), stored);
+    }
+
+    private static List<UserImportResult> rows(RegisteredUser... users) {
+        final List<UserImportResult> rows = new ArrayList<>();
+        for (RegisteredUser user : users) {
+            rows.add(new UserImportResult(rows.size() + 1, user));
+        }
+        return rows;
+    }
+
+    private static RegisteredUser createUser(String krbName, String gitHubName) {
+        final RegisteredUser user = new RegisteredUser();
+        user.setKrbName(krbName);
+        user.setGitHubName(gitHubName);
+        return user;
+    }
+}
@@ -0,0 +1,199 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.entities.UidAliasEntity;
+import org.jboss.set.mjolnir.server.entities.UserEntity;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUser;
+import org.jboss.set.mjolnir.shared.domain.RegisteredUsersQuery;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class UserRepositoryBeanTest {
+
+    private LdapRepository ldapRepository;
+    private UidAliasRepository uidAliasRepository;
+    private UserBatchRepository userBatchRepository;
+    private TypedQuery<UserEntity> query;
+    private EntityManager em;
+    private UserEntity userEntity;
+    private UserRepositoryBean userRepository;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        userEntity = new UserEntity();
+        userEntity.setId(5L);
+        userEntity.setKerberosName("jdoe");
+        userEntity.setGithubName("jdoe-gh");
+
+        query = Mockito.mock(TypedQuery.class);
+        Mockito.when(query.setParameter(Mockito.anyString(), Mockito.any())).thenReturn(query);
+        Mockito.when(query.setHint(Mockito.anyString(), Mockito.any())).thenReturn(query);
+        Mockito.when(query.getResultList()).thenReturn(Collections.singletonList(userEntity));
+
+        em = Mockito.mock(EntityManager.class);
+        Mockito.when(em.createQuery(Mockito.anyString(), Mockito.eq(UserEntity.class))).thenReturn(query);
+        final EntityManagerFactory emf = Mockito.mock(EntityManagerFactory.class);
+        Mockito.when(emf.createEntityManager()).thenReturn(em);
+
+        ldapRepository = Mockito.mock(LdapRepository.class);
+        Mockito.when(ldapRepository.findAllUserUids("jdoe")).thenReturn(Arrays.asList("jdoe", "JohnD"));
+        uidAliasRepository = Mockito.mock(UidAliasRepository.class);
+        userBatchRepository = Mockito.mock(UserBatchRepository.class);
+
+        userRepository = new UserRepositoryBean();
+        userRepository.setEntityManagerFactory(emf);
+        userRepository.setLdapRepository(ldapRepository);
+        userRepository.setUidAliasRepository(uidAliasRepository);
+        userRepository.setUserBatchRepository(userBatchRepository);
+    }
+
+    @Test
+    public void testUsersSortedByIndexedGitHubNameColumn() {
+        final UserEntity withoutGitHubName = new UserEntity();
+        withoutGitHubName.setId(6L);
+        withoutGitHubName.setKerberosName("jroe");
+        Mockito.when(query.getResultList()).thenReturn(Arrays.asList(withoutGitHubName, userEntity));
+        Mockito.when(query.setMaxResults(Mockito.anyInt())).thenReturn(query);
+        final RegisteredUsersQuery usersQuery = new RegisteredUsersQuery();
+        usersQuery.setSortColumn(RegisteredUsersQuery.SortColumn.GITHUB_NAME);
+        usersQuery.setAscending(true);
+
+        final UserPage page = userRepository.getUsers(usersQuery, 10);
+
+        // the column is sorted as is, so that the (github_name_lower, id) index can be used
+        final ArgumentCaptor<String> jpql = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(em).createQuery(jpql.capture(), Mockito.eq(UserEntity.class));
+        Assert.assertTrue(jpql.getValue(), jpql.getValue().endsWith("ORDER BY u.githubNameLower asc, u.id asc"));
+        Assert.assertEquals("", withoutGitHubName.getGithubNameLower());
+        Assert.assertEquals(2, page.getUsers().size());
+    }
+
+    @Test
+    public void testResolvedByAlias() {
+        Mockito.when(uidAliasRepository.getAlias("johnd"))
+                .thenReturn(new UidAliasEntity("johnd", "jdoe", userEntity, new Date()));
+
+        final RegisteredUser user = userRepository.getOrCreateUser("JohnD");
+        Assert.assertEquals("jdoe-gh", user.getGitHubName());
+        Mockito.verifyZeroInteractions(ldapRepository);
+    }
+
+    @Test
+    public void testAliasesStoredOnMiss() {
+        final RegisteredUser user = userRepository.getOrCreateUser("jdoe");
+
+        Assert.assertEquals("jdoe-gh", user.getGitHubName());
+        Mockito.verify(ldapRepository).findAllUserUids("jdoe");
+        Mockito.verify(uidAliasRepository).storeAliases(new HashSet<>(Arrays.asList("jdoe", "johnd")), "jdoe", 5L);
+    }
+
+    @Test
+    public void testExpiredAliasResolvedAgain() {
+        final Date resolvedAt = new Date(System.currentTimeMillis() - UserRepositoryBean.ALIAS_TTL - 1);
+        Mockito.when(uidAliasRepository.getAlias("jdoe"))
+                .thenReturn(new UidAliasEntity("jdoe", "jdoe", userEntity, resolvedAt));
+
+        userRepository.getOrCreateUser("jdoe");
+        Mockito.verify(ldapRepository).findAllUserUids("jdoe");
+    }
+
+    @Test
+    public void testFailureToStoreAliasesIgnored() {
+        Mockito.doThrow(new IllegalStateException("duplicate key")).when(uidAliasRepository)
+                .storeAliases(Mockito.anyCollection(), Mockito.anyString(), Mockito.anyLong());
+
+        Assert.assertEquals("jdoe-gh", userRepository.getOrCreateUser("jdoe").getGitHubName());
+    }
+
+    @Test
+    public void testGetUserByGitHubNameIgnoresCase() {
+        Assert.assertEquals("jdoe-gh", userRepository.getUserByGitHubName("JDoe-GH").getGitHubName());
+        Mockito.verify(query).setParameter("name", "jdoe-gh");
+    }
+
+    @Test
+    public void testGetUserByGitHubNamePrefersExactCase() {
+        final UserEntity other = new UserEntity();
+        other.setId(6L);
+        other.setKerberosName("jdoe2");
+        other.setGithubName("JDoe-GH");
+        Mockito.when(query.getResultList()).thenReturn(Arrays.asList(userEntity, other));
+
+        Assert.assertEquals("jdoe2", userRepository.getUserByGitHubName("JDoe-GH").getKrbName());
+        Assert.assertEquals("jdoe", userRepository.getUserByGitHubName("jdoe-gh").getKrbName());
+        Assert.assertNull(userRepository.getUserByGitHubName("JDOE-GH"));
+    }
+
+    @Test
+    public void testGetUsersByGitHubNameKeyedByLowerCaseName() {
+        final Map<String, RegisteredUser> users = userRepository.getUsersByGitHubName(
+                Collections.singletonList("JDOE-GH"));
+
+        Assert.assertEquals(Collections.singleton("jdoe-gh"), users.keySet());
+        Mockito.verify(query).setParameter("list", Collections.singletonList("jdoe-gh"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDeleteUsersInBatches() {
+        final List<RegisteredUser> users = new ArrayList<>();
+        for (int i = 0; i < UserRepositoryBean.BATCH_SIZE * 2 + 1; i++) {
+            users.add(createUser("krb" + i, "GH" + i));
+        }
+        Mockito.when(userBatchRepository.deleteUsers(Mockito.anyList()))
+                .thenReturn(Collections.<RegisteredUser>emptyList());
+
+        userRepository.deleteUsers(users);
+
+        Mockito.verify(userBatchRepository, Mockito.times(3)).deleteUsers(Mockito.anyList());
+        Mockito.verify(userBatchRepository).deleteUsers(users.subList(UserRepositoryBean.BATCH_SIZE * 2,
+                users.size()));
+        Mockito.verifyZeroInteractions(query);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDeleteUsersReportsMissingUsers() {
+        final RegisteredUser missing = createUser("jsmith", null);
+        Mockito.when(userBatchRepository.deleteUsers(Mockito.anyList()))
+                .thenReturn(Collections.singletonList(missing));
+
+        final List<RegisteredUser> users = Arrays.asList(createUser("jdoe", "JDoe-GH"), missing);
+
+        Assert.assertEquals(Collections.singletonList(missing), userRepository.deleteUsers(users));
+        Mockito.verify(userBatchRepository).deleteUsers(users);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSetWhitelistedReturnsMissingUsers() {
+        final RegisteredUser missing = createUser("jsmith", null);
+        final List<RegisteredUser> users = Arrays.asList(createUser("jdoe", "JDoe-GH"), missing);
+        Mockito.when(userBatchRepository.setWhitelisted(Mockito.anyList(), Mockito.anyBoolean()))
+                .thenReturn(Collections.singletonList(missing));
+
+        Assert.assertEquals(Collections.singletonList(missing), userRepository.setWhitelisted(users, true));
+        Mockito.verify(userBatchRepository).setWhitelisted(users, true);
+    }
+
+    private static RegisteredUser createUser(String krbName, String gitHubName) {
+        final RegisteredUser user = new RegisteredUser();
+        user.setKrbName(krbName);
+        user.setGitHubName(gitHubName);
+        return user;
+    }
+}
@@ -0,0 +1,180 @@
+package org.jboss.set.mjolnir.server.bean;
+
+import org.jboss.set.mjolnir.server.github.ExtendedOrganizationService;
+import org.jboss.set.mjolnir.server.github.ExtendedTeamService;
+import org.jboss.set.mjolnir.shared.domain.GithubOrganization;
+import org.jboss.set.mjolnir.shared.domain.GithubTeam;
+import org.jboss.set.mjolnir.shared.domain.MembershipStates;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+/**
+ * Replays recorded webhook payloads (see src/test/resources/webhooks).
+ */
+public class WebhookEventProcessorTest {
+
+    private static final String ORG_NAME = "jboss-set";
+    private static final int TEAM_ID = 2961515;
+    private static final String LOGIN = "Octocat";
+
+    private long now = 1500000000000L;
+    private MembershipRepository membershipRepository;
+    private WebhookDeliveryRepository deliveryRepository;
+    private ExtendedOrganizationService organizationService;
+    private ExtendedTeamService teamService;
+    private WebhookEventProcessor processor;
+
+    @Before
+    public void setUp() {
+        final GithubOrganization organization = new GithubOrganization(ORG_NAME);
+        organization.getTeams().add(new GithubTeam("Developers", TEAM_ID));
+        final OrganizationRepository organizationRepository = Mockito.mock(OrganizationRepository.class);
+        Mockito.when(organizationRepository.getOrganizations()).thenReturn(Collections.singletonList(organization));
+        Mockito.when(organizationRepository.getCatalogue())
+                .thenReturn(new OrganizationCatalogue(1, Collections.singletonList(organization)));
+
+        membershipRepository = Mockito.mock(MembershipRepository.class);
+        deliveryRepository = Mockito.mock(WebhookDeliveryRepository.class);
+        Mockito.when(deliveryRepository.recordDelivery(Mockito.anyString())).thenReturn(true);
+        organizationService = Mockito.mock(ExtendedOrganizationService.class);
+        teamService = Mockito.mock(ExtendedTeamService.class);
+
+        processor = new WebhookEventProcessor() {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+        processor.setOrganizationRepository(organizationRepository);
+        processor.setMembershipRepository(membershipRepository);
+        processor.setDeliveryRepository(deliveryRepository);
+        processor.setOrganizationService(organizationService);
+        processor.setTeamService(teamService);
+    }
+
+    @Test
+    public void testTeamMemberAdded() throws IOException {
+        Assert.assertTrue(processor.process("1", "membership", payload("membership-added.json")));
+
+        Mockito.verify(membershipRepository).addTeamMember(TEAM_ID, LOGIN, MembershipStates.ACTIVE);
+        Mockito.verifyZeroInteractions(teamService);
+    }
+
+    @Test
+    public void testTeamMemberRemoved() throws IOException {
+        Assert.assertTrue(processor.process("1", "membership", payload("membership-removed.json")));
+
+        Mockito.verify(membershipRepository).removeTeamMember(TEAM_ID, LOGIN);
+    }
+
+    @Test
+    public void testOrganizationMemberAdded() throws IOException {
+        Assert.assertTrue(processor.process("1", "organization", payload("organization-member-added.json")));
+
+        Mockito.verify(membershipRepository).addOrganizationMember(ORG_NAME, LOGIN);
+        Mockito.verifyZeroInteractions(organizationService);
+    }
+
+    @Test
+    public void testOrganizationMemberRemoved() throws IOException {
+        Assert.assertTrue(processor.process("1", "organization", payload("organization-member-removed.json")));
+
+        Mockito.verify(membershipRepository).removeOrganizationMember(ORG_NAME, LOGIN);
+    }
+
+    @Test
+    public void testTeamDeleted() throws IOException {
+        Assert.assertTrue(processor.process("1", "team", payload("team-deleted.json")));
+
+        Mockito.verify(membershipRepository).removeTeamMembers(TEAM_ID);
+    }
+
+    @Test
+    public void testPing() throws IOException {
+        Assert.assertTrue(processor.process("1", "ping", payload("ping.json")));
+
+        Mockito.verifyZeroInteractions(membershipRepository);
+    }
+
+    @Test
+    public void testDuplicateDeliveryIgnored() throws IOException {
+        Mockito.when(deliveryRepository.recordDelivery("1")).thenReturn(true, false);
+        Assert.assertTrue(processor.process("1", "membership", payload("membership-added.json")));
+        Assert.assertFalse(processor.process("1", "membership", payload("membership-added.json")));
+
+        Mockito.verify(membershipRepository, Mockito.times(1)).addTeamMember(TEAM_ID, LOGIN, MembershipStates.ACTIVE);
+    }
+
+    @Test
+    public void testFailedDeliveryForgotten() throws IOException {
+        Mockito.doThrow(new IllegalStateException()).when(membershipRepository)
+                .addTeamMember(TEAM_ID, LOGIN, MembershipStates.ACTIVE);
+        try {
+            processor.process("1", "membership", payload("membership-added.json"));
+            Assert.fail("Exception expected");
+        } catch (IllegalStateException expected) {
+        }
+
+        Mockito.verify(deliveryRepository).removeDelivery("1");
+    }
+
+    @Test
+    public void testUnmanagedOrganizationIgnored() throws IOException {
+        final String payload = payload("organization-member-added.json").replace(ORG_NAME, "other-org");
+        Assert.assertTrue(processor.process("1", "organization", payload));
+
+        Mockito.verifyZeroInteractions(membershipRepository);
+    }
+
+    @Test
+    public void testReorderedDeliveriesResolvedFromGitHub() throws IOException {
+        // "removed" was sent after "added", but arrives first
+        Mockito.when(teamService.getMembership(TEAM_ID, LOGIN)).thenReturn(MembershipStates.NONE);
+        processor.process("2", "membership", payload("membership-removed.json"));
+        now += 1000;
+        processor.process("1", "membership", payload("membership-added.json"));
+
+        Mockito.verify(teamService).getMembership(TEAM_ID, LOGIN);
+        Mockito.verify(membershipRepository, Mockito.times(2)).removeTeamMember(TEAM_ID, LOGIN);
+        Mockito.verify(membershipRepository, Mockito.never())
+                .addTeamMember(Mockito.anyInt(), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testOppositeChangesOutsideReorderWindow() throws IOException {
+        processor.process("1", "membership", payload("membership-added.json"));
+        now += WebhookEventProcessor.REORDER_WINDOW_MILLIS;
+        processor.process("2", "membership", payload("membership-removed.json"));
+
+        Mockito.verifyZeroInteractions(teamService);
+        Mockito.verify(membershipRepository).removeTeamMember(TEAM_ID, LOGIN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedPayload() throws IOException {
+        processor.process("1", "membership", "{\"action\": \"added\", \"scope\": \"team\"}");
+    }
+
+    static String payload(String name) throws IOException {
+        final InputStream is = WebhookEventProcessorTest.class.getResourceAsStream("/webhooks/" + name);
+        Assert.assertNotNull("Missing payload " + name, is);
+        try {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+            }
+            return os.toString("UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
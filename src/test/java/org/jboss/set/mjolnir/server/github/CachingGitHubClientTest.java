@@ -0,0 +1,149 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CachingGitHubClientTest {
+
+    private static final String URI = "/orgs/testorg/members";
+    private static final String ETAG = "\"abc\"";
+
+    private GitHubResponseCache responseCache;
+    private List<FakeConnection> connections;
+    private List<Integer> responseCodes;
+    private int bodiesParsed;
+    private GitHubCircuitBreaker circuitBreaker;
+    private CachingGitHubClient client;
+
+    @Before
+    public void setUp() {
+        responseCache = new GitHubResponseCache();
+        connections = new ArrayList<>();
+        responseCodes = new ArrayList<>();
+        bodiesParsed = 0;
+        circuitBreaker = new GitHubCircuitBreaker();
+
+        client = new CachingGitHubClient(responseCache, new RateLimitGovernor(), new GitHubLatencyStats(),
+                circuitBreaker) {
+            @Override
+            protected HttpURLConnection createGet(String uri) throws IOException {
+                final FakeConnection connection = new FakeConnection(new URL("https://api.github.com" + uri),
+                        responseCodes.remove(0));
+                connections.add(connection);
+                return connection;
+            }
+
+            @Override
+            protected Object getBody(GitHubRequest request, InputStream stream) {
+                bodiesParsed++;
+                return Collections.singletonList("body" + bodiesParsed);
+            }
+        };
+    }
+
+    @Test
+    public void testNotModifiedServedFromCache() throws IOException {
+        responseCodes.add(HttpURLConnection.HTTP_OK);
+        responseCodes.add(HttpURLConnection.HTTP_NOT_MODIFIED);
+
+        final GitHubResponse first = client.get(createRequest());
+        final GitHubResponse second = client.get(createRequest());
+
+        Assert.assertNull(connections.get(0).getRequestProperty(CachingGitHubClient.HEADER_IF_NONE_MATCH));
+        Assert.assertEquals(ETAG, connections.get(1).getRequestProperty(CachingGitHubClient.HEADER_IF_NONE_MATCH));
+        Assert.assertEquals(1, bodiesParsed);
+        Assert.assertSame(first.getBody(), second.getBody());
+        Assert.assertEquals("<https://api.github.com/orgs/testorg/members?page=2>; rel=\"next\"",
+                second.getHeader(CachingGitHubClient.HEADER_LINK));
+    }
+
+    @Test
+    public void testModifiedResponseReplacesCacheEntry() throws IOException {
+        responseCodes.add(HttpURLConnection.HTTP_OK);
+        responseCodes.add(HttpURLConnection.HTTP_OK);
+
+        client.get(createRequest());
+        final GitHubResponse second = client.get(createRequest());
+
+        Assert.assertEquals(2, bodiesParsed);
+        Assert.assertSame(second.getBody(), responseCache.get(URI).getBody());
+    }
+
+    @Test
+    public void testServerErrorsReportedToCircuitBreaker() {
+        for (int i = 0; i < GitHubCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            responseCodes.add(HttpURLConnection.HTTP_UNAVAILABLE);
+            try {
+                client.get(createRequest());
+                Assert.fail("IOException expected");
+            } catch (IOException expected) {
+            }
+        }
+
+        Assert.assertFalse(circuitBreaker.isClosed());
+    }
+
+    private GitHubRequest createRequest() {
+        final GitHubRequest request = new GitHubRequest();
+        request.setUri(URI);
+        return request;
+    }
+
+
+    private static class FakeConnection extends HttpURLConnection {
+
+        private final int code;
+        private final Map<String, String> headers = new HashMap<>();
+
+        FakeConnection(URL url, int code) {
+            super(url);
+            this.code = code;
+            headers.put(CachingGitHubClient.HEADER_ETAG, ETAG);
+            if (code == HTTP_OK) {
+                headers.put(CachingGitHubClient.HEADER_LINK, "<https://api.github.com/orgs/testorg/members?page=2>; rel=\"next\"");
+            }
+        }
+
+        @Override
+        public int getResponseCode() {
+            return code;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GitHubCircuitBreakerTest {
+
+    private long now = 1500000000000L;
+    private GitHubCircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        circuitBreaker = new GitHubCircuitBreaker() {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testStaysClosedBelowThreshold() throws GitHubUnavailableException {
+        for (int i = 0; i < GitHubCircuitBreaker.FAILURE_THRESHOLD - 1; i++) {
+            circuitBreaker.recordFailure();
+        }
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        Assert.assertTrue(circuitBreaker.isClosed());
+        circuitBreaker.acquire();
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        openBreaker();
+
+        Assert.assertEquals(GitHubCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertRejected();
+    }
+
+    @Test
+    public void testSingleProbeAfterOpenPeriod() throws GitHubUnavailableException {
+        openBreaker();
+        now += GitHubCircuitBreaker.OPEN_DURATION_MILLIS;
+
+        circuitBreaker.acquire(); // probe
+        Assert.assertEquals(GitHubCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertRejected();
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesBreaker() throws GitHubUnavailableException {
+        openBreaker();
+        now += GitHubCircuitBreaker.OPEN_DURATION_MILLIS;
+
+        circuitBreaker.acquire();
+        circuitBreaker.recordSuccess();
+
+        Assert.assertTrue(circuitBreaker.isClosed());
+        circuitBreaker.acquire();
+        circuitBreaker.acquire();
+    }
+
+    @Test
+    public void testFailedProbeReopensBreaker() throws GitHubUnavailableException {
+        openBreaker();
+        now += GitHubCircuitBreaker.OPEN_DURATION_MILLIS;
+
+        circuitBreaker.acquire();
+        circuitBreaker.recordFailure();
+
+        Assert.assertEquals(GitHubCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertRejected();
+    }
+
+    @Test
+    public void testLostProbeReplaced() throws GitHubUnavailableException {
+        openBreaker();
+        now += GitHubCircuitBreaker.OPEN_DURATION_MILLIS;
+        circuitBreaker.acquire(); // probe never completes
+
+        now += GitHubCircuitBreaker.OPEN_DURATION_MILLIS;
+        circuitBreaker.acquire();
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < GitHubCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    private void assertRejected() {
+        try {
+            circuitBreaker.acquire();
+            Assert.fail("GitHubUnavailableException expected");
+        } catch (GitHubUnavailableException expected) {
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class GitHubLatencyStatsTest {
+
+    @Test
+    public void testEndpoint() {
+        Assert.assertEquals("/teams/*/memberships/*", GitHubLatencyStats.toEndpoint("/teams/123/memberships/joe"));
+        Assert.assertEquals("/orgs/*/members", GitHubLatencyStats.toEndpoint("/orgs/jbossas/members?per_page=100&page=2"));
+        Assert.assertEquals("/orgs/*/teams", GitHubLatencyStats.toEndpoint("/orgs/members/teams"));
+        Assert.assertEquals("/", GitHubLatencyStats.toEndpoint("/"));
+    }
+
+    @Test
+    public void testSummary() {
+        final GitHubLatencyStats stats = new GitHubLatencyStats();
+        stats.record("GET", "/teams/1/members", TimeUnit.MILLISECONDS.toNanos(100));
+        stats.record("GET", "/teams/2/members", TimeUnit.MILLISECONDS.toNanos(300));
+        stats.record("DELETE", "/teams/2/memberships/joe", TimeUnit.MILLISECONDS.toNanos(50));
+
+        final List<String> summary = stats.getSummary();
+        Assert.assertEquals(2, summary.size());
+        Assert.assertEquals("DELETE /teams/*/memberships/*: 1 requests, avg 50 ms, max 50 ms", summary.get(0));
+        Assert.assertEquals("GET /teams/*/members: 2 requests, avg 200 ms, max 300 ms", summary.get(1));
+    }
+}
@@ -0,0 +1,160 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class GitHubRequestExecutorTest {
+
+    private ExecutorService threadPool;
+    private GitHubRequestExecutor executor;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        executor = new GitHubRequestExecutor(threadPool);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testResultsKeepOrder() {
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws InterruptedException {
+                    Thread.sleep((20 - value) * 2);
+                    return value;
+                }
+            });
+        }
+
+        final List<Integer> results = executor.invokeAll(tasks, 10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(Integer.valueOf(i), results.get(i));
+        }
+    }
+
+    @Test
+    public void testFailedAndTimedOutTasksDontFailOthers() {
+        final CountDownLatch never = new CountDownLatch(1);
+        final List<Callable<String>> tasks = Arrays.<Callable<String>>asList(
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return "a";
+                    }
+                },
+                new Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        throw new IOException("failure");
+                    }
+                },
+                new Callable<String>() {
+                    @Override
+                    public String call() throws InterruptedException {
+                        never.await();
+                        return "never";
+                    }
+                },
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return "d";
+                    }
+                });
+
+        final List<String> results = executor.invokeAll(tasks, 200, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(Arrays.asList("a", null, null, "d"), results);
+    }
+
+    @Test
+    public void testTasksRejectedWhenQueueFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final int blocked = GitHubRequestExecutor.MAX_THREADS + GitHubRequestExecutor.QUEUE_CAPACITY;
+        for (int i = 0; i < blocked; i++) {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    release.await();
+                    return null;
+                }
+            });
+        }
+
+        final Thread caller = Thread.currentThread();
+        final List<Callable<Thread>> tasks = Arrays.<Callable<Thread>>asList(new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        });
+        final long start = System.nanoTime();
+        final List<Thread> results = executor.invokeAll(tasks, 10, TimeUnit.SECONDS);
+
+        // the task is neither queued, nor executed by the calling thread
+        Assert.assertNull(results.get(0));
+        Assert.assertNotSame(caller, results.get(0));
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertTrue(executor.getActiveCount() <= GitHubRequestExecutor.MAX_THREADS);
+        release.countDown();
+    }
+
+    @Test
+    public void testPrefetchTasksLimited() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Void> blocking = new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                release.await();
+                return null;
+            }
+        };
+        final List<Future<Void>> prefetches = new ArrayList<>();
+        for (int i = 0; i < GitHubRequestExecutor.MAX_PREFETCH_TASKS; i++) {
+            prefetches.add(executor.submitPrefetch(blocking));
+        }
+        try {
+            executor.submitPrefetch(blocking);
+            Assert.fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        // other requests are still executed
+        final Future<String> request = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        });
+        Assert.assertEquals("done", request.get(10, TimeUnit.SECONDS));
+
+        // finished prefetch frees its slot
+        prefetches.get(0).cancel(true);
+        executor.submitPrefetch(blocking);
+        release.countDown();
+    }
+}
@@ -0,0 +1,91 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MemberListCacheTest {
+
+    private static final String KEY = "org:testorg";
+
+    private ExecutorService threadPool;
+    private GitHubRequestExecutor requestExecutor;
+    private MemberListCache cache;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        requestExecutor = new GitHubRequestExecutor(threadPool);
+        cache = new MemberListCache();
+        cache.setRequestExecutor(requestExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        requestExecutor.shutdown();
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testRefreshUpdatesCache() throws Exception {
+        cache.put(KEY, Arrays.asList("a"));
+
+        final List<String> logins = cache.refresh(KEY, loader(null, "a", "b")).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), logins);
+        Assert.assertEquals(Arrays.asList("a", "b"), cache.get(KEY).getLogins());
+    }
+
+    @Test
+    public void testConcurrentRefreshesShared() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<List<String>> first = cache.refresh(KEY, loader(release, "a"));
+        final Future<List<String>> second = cache.refresh(KEY, loader(null, "b"));
+
+        Assert.assertSame(first, second);
+        release.countDown();
+        Assert.assertEquals(Arrays.asList("a"), second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsCachedEntry() throws Exception {
+        cache.put(KEY, Arrays.asList("a"));
+
+        try {
+            cache.refresh(KEY, new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    throw new GitHubUnavailableException("unavailable");
+                }
+            }).get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof GitHubUnavailableException);
+        }
+        Assert.assertEquals(Arrays.asList("a"), cache.get(KEY).getLogins());
+    }
+
+    private static Callable<List<String>> loader(final CountDownLatch release, final String... logins) {
+        return new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws InterruptedException {
+                if (release != null) {
+                    release.await();
+                }
+                return Arrays.asList(logins);
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.eclipse.egit.github.core.client.PagedRequest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class PagePrefetcherTest {
+
+    private ExecutorService threadPool;
+    private GitHubRequestExecutor executor;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        executor = new GitHubRequestExecutor(threadPool);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testPagesReturnedInOrder() throws IOException {
+        final PagePrefetcher<String> prefetcher = new PagePrefetcher<>(
+                new FakePageIterator(Arrays.asList("a", "b"), Arrays.asList("c")), executor);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), prefetcher.nextPage());
+        Assert.assertEquals(Arrays.asList("c"), prefetcher.nextPage());
+        Assert.assertNull(prefetcher.nextPage());
+        Assert.assertNull(prefetcher.nextPage());
+    }
+
+    @Test
+    public void testPageFailure() throws IOException {
+        final PagePrefetcher<String> prefetcher = new PagePrefetcher<>(
+                new FakePageIterator(Arrays.asList("a"), null, Arrays.asList("c")), executor);
+
+        Assert.assertEquals(Arrays.asList("a"), prefetcher.nextPage());
+        try {
+            prefetcher.nextPage();
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            Assert.assertEquals("page failed", e.getMessage());
+        }
+        Assert.assertNull(prefetcher.nextPage());
+    }
+
+    @Test
+    public void testErrorPassedToConsumer() throws IOException {
+        final PagePrefetcher<String> prefetcher = new PagePrefetcher<>(
+                new FakePageIterator(Arrays.asList("a"), Collections.<String>emptyList()), executor);
+
+        Assert.assertEquals(Arrays.asList("a"), prefetcher.nextPage());
+        final long start = System.nanoTime();
+        try {
+            prefetcher.nextPage();
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+        }
+        // failure is reported right away, not after the page timeout
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(PagePrefetcher.PAGE_TIMEOUT / 2));
+    }
+
+
+    @Test
+    public void testPagesFetchedByConsumerWhenPrefetchRejected() throws IOException {
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < GitHubRequestExecutor.MAX_PREFETCH_TASKS; i++) {
+            executor.submitPrefetch(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    release.await();
+                    return null;
+                }
+            });
+        }
+
+        final PagePrefetcher<String> prefetcher = new PagePrefetcher<>(
+                new FakePageIterator(Arrays.asList("a"), null), executor);
+
+        Assert.assertEquals(Arrays.asList("a"), prefetcher.nextPage());
+        try {
+            prefetcher.nextPage();
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            Assert.assertEquals("page failed", e.getMessage());
+        }
+        Assert.assertNull(prefetcher.nextPage());
+        release.countDown();
+    }
+
+
+    /**
+     * Page iterator over given pages, null page means failure, empty page means error.
+     */
+    private static class FakePageIterator extends PageIterator<String> {
+
+        private final Iterator<List<String>> pages;
+
+        @SafeVarargs
+        FakePageIterator(List<String>... pages) {
+            super(new PagedRequest<String>(), null);
+            this.pages = Arrays.asList(pages).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pages.hasNext();
+        }
+
+        @Override
+        public Collection<String> next() {
+            final List<String> page = pages.next();
+            if (page == null) {
+                throw new NoSuchPageException(new IOException("page failed"));
+            } else if (page.isEmpty()) {
+                throw new OutOfMemoryError("page error");
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.jboss.set.mjolnir.server.github;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RateLimitGovernorTest {
+
+    private static final long NOW = 1500000000000L;
+
+    private List<Long> sleeps;
+    private RateLimitGovernor governor;
+
+    @Before
+    public void setUp() {
+        sleeps = new ArrayList<>();
+        governor = new RateLimitGovernor() {
+            @Override
+            long currentTimeMillis() {
+                return NOW;
+            }
+
+            @Override
+            void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        };
+    }
+
+    @Test
+    public void testNoDelayWithoutRateLimitInfo() throws IOException {
+        governor.acquire();
+        governor.acquire();
+
+        Assert.assertTrue(sleeps.isEmpty());
+        Assert.assertFalse(governor.isExhausted());
+    }
+
+    @Test
+    public void testNoDelayWithHighBudget() throws IOException {
+        governor.update(rateLimitResponse(5000, 4000, 100));
+
+        governor.acquire();
+        governor.acquire();
+
+        Assert.assertTrue(sleeps.isEmpty());
+        Assert.assertEquals(3998, governor.getRemaining());
+    }
+
+    @Test
+    public void testRequestsPacedWithLowBudget() throws IOException {
+        governor.update(rateLimitResponse(5000, 100, 100)); // 100 requests in 100 seconds
+
+        governor.acquire();
+        governor.acquire();
+
+        Assert.assertEquals(1, sleeps.size());
+        Assert.assertEquals(1000L, (long) sleeps.get(0));
+    }
+
+    @Test
+    public void testExhaustedBudgetWaitsForReset() throws IOException {
+        governor.update(rateLimitResponse(5000, 0, 30));
+
+        Assert.assertTrue(governor.isExhausted());
+        governor.acquire();
+
+        Assert.assertEquals(1, sleeps.size());
+        Assert.assertEquals(30000L, (long) sleeps.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testExhaustedBudgetRejectsLongWait() throws IOException {
+        governor.update(rateLimitResponse(5000, 0, 3600));
+
+        governor.acquire();
+    }
+
+    @Test
+    public void testRetryAfter() throws IOException {
+        final FakeConnection response = rateLimitResponse(5000, 4000, 100);
+        response.headers.put(RateLimitGovernor.HEADER_RETRY_AFTER, "5");
+        governor.update(response);
+
+        governor.acquire();
+
+        Assert.assertEquals(1, sleeps.size());
+        Assert.assertEquals(5000L, (long) sleeps.get(0));
+    }
+
+    @Test
+    public void testNotModifiedResponseGivesReservationBack() throws IOException {
+        governor.update(rateLimitResponse(5000, 100, 100)); // 100 requests in 100 seconds
+
+        governor.acquire();
+        final FakeConnection notModified = new FakeConnection();
+        notModified.setResponseCode(HttpURLConnection.HTTP_NOT_MODIFIED);
+        governor.update(notModified);
+        governor.acquire();
+
+        Assert.assertTrue(sleeps.isEmpty());
+        Assert.assertEquals(99, governor.getRemaining());
+    }
+
+    private static FakeConnection rateLimitResponse(int limit, int remaining, int resetInSeconds) throws IOException {
+        final FakeConnection connection = new FakeConnection();
+        connection.headers.put(RateLimitGovernor.HEADER_LIMIT, String.valueOf(limit));
+        connection.headers.put(RateLimitGovernor.HEADER_REMAINING, String.valueOf(remaining));
+        connection.headers.put(RateLimitGovernor.HEADER_RESET, String.valueOf(NOW / 1000 + resetInSeconds));
+        return connection;
+    }
+
+
+    private static class FakeConnection extends HttpURLConnection {
+
+        private final Map<String, String> headers = new HashMap<>();
+
+        FakeConnection() throws IOException {
+            super(new URL("https://api.github.com/"));
+        }
+
+        void setResponseCode(int code) {
+            responseCode = code;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompactStringSetTest {
+
+    @Test
+    public void testContains() {
+        final CompactStringSet set = CompactStringSet.of(Arrays.asList("jdoe", "jsmith", "\u017elu\u0165ou\u010dk\u00fd", ""));
+
+        Assert.assertEquals(4, set.size());
+        Assert.assertTrue(set.contains("jdoe"));
+        Assert.assertTrue(set.contains("jsmith"));
+        Assert.assertTrue(set.contains("\u017elu\u0165ou\u010dk\u00fd"));
+        Assert.assertTrue(set.contains(""));
+        Assert.assertFalse(set.contains("jdo"));
+        Assert.assertFalse(set.contains("jdoee"));
+        Assert.assertFalse(set.contains("JDOE"));
+    }
+
+    @Test
+    public void testDuplicatesIgnored() {
+        final CompactStringSet set = CompactStringSet.of(Arrays.asList("jdoe", "jsmith", "jdoe"));
+
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.contains("jdoe"));
+    }
+
+    @Test
+    public void testEmpty() {
+        final CompactStringSet set = CompactStringSet.of(Collections.<String>emptyList());
+
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains("jdoe"));
+    }
+
+    @Test
+    public void testManyStrings() {
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            strings.add("user" + i);
+        }
+        final CompactStringSet set = CompactStringSet.of(strings);
+
+        Assert.assertEquals(strings.size(), set.size());
+        for (String string : strings) {
+            Assert.assertTrue(set.contains(string));
+        }
+        Assert.assertFalse(set.contains("user50000"));
+        // roughly 8 bytes of data + 4 bytes offset + 8 bytes of hash table per string
+        Assert.assertTrue(set.getMemoryUsage() < strings.size() * 30L);
+    }
+}
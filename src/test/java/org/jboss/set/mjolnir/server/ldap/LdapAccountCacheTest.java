@@ -0,0 +1,83 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class LdapAccountCacheTest {
+
+    private long now = 1500000000000L;
+    private LdapAccountCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new LdapAccountCache(3) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        Assert.assertNull(cache.getExists("jdoe"));
+        cache.putExists("jdoe", true);
+        Assert.assertTrue(cache.getExists("jdoe"));
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNegativeEntriesExpireSooner() {
+        cache.putExists("jdoe", true);
+        cache.putExists("nobody", false);
+
+        now += LdapAccountCache.NEGATIVE_TTL_MILLIS;
+        Assert.assertTrue(cache.getExists("jdoe"));
+        Assert.assertNull(cache.getExists("nobody"));
+
+        now += LdapAccountCache.POSITIVE_TTL_MILLIS;
+        Assert.assertNull(cache.getExists("jdoe"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEmptyUidListIsNegative() {
+        cache.putAllUids("jdoe", Arrays.asList("jdoe", "johndoe"));
+        cache.putAllUids("nobody", Collections.<String>emptyList());
+
+        now += LdapAccountCache.NEGATIVE_TTL_MILLIS;
+        Assert.assertEquals(Arrays.asList("jdoe", "johndoe"), cache.getAllUids("jdoe"));
+        Assert.assertNull(cache.getAllUids("nobody"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        cache.putExists("a", true);
+        cache.putExists("b", true);
+        cache.putExists("c", true);
+        cache.getExists("a");
+        cache.putExists("d", true);
+
+        Assert.assertNotNull(cache.getExists("a"));
+        Assert.assertNull(cache.getExists("b"));
+        Assert.assertNotNull(cache.getExists("c"));
+        Assert.assertNotNull(cache.getExists("d"));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        cache.putExists("jdoe", true);
+        cache.putAllUids("jdoe", Collections.singletonList("jdoe"));
+        cache.invalidateAll();
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.getExists("jdoe"));
+        Assert.assertNull(cache.getAllUids("jdoe"));
+    }
+}
@@ -0,0 +1,197 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.SizeLimitExceededException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LdapBatchExecutorTest {
+
+    private ExecutorService threadPool;
+    private LdapBatchExecutor executor;
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        executor = new LdapBatchExecutor(threadPool, new AdaptiveChunkSize(AdaptiveChunkSize.MIN_SIZE));
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testAllValuesQueried() throws NamingException {
+        final List<String> values = values(95);
+
+        final List<List<String>> chunks = executor.execute(values, new LdapBatchExecutor.ChunkQuery<List<String>>() {
+            @Override
+            public List<String> query(List<String> chunk) {
+                return new ArrayList<>(chunk);
+            }
+        });
+
+        final Set<String> queried = new HashSet<>();
+        int count = 0;
+        for (List<String> chunk : chunks) {
+            Assert.assertTrue(chunk.size() <= AdaptiveChunkSize.MAX_SIZE);
+            queried.addAll(chunk);
+            count += chunk.size();
+        }
+        Assert.assertEquals(new HashSet<>(values), queried);
+        Assert.assertEquals(values.size(), count);
+    }
+
+    @Test
+    public void testEmptyInput() throws NamingException {
+        Assert.assertTrue(executor.execute(Collections.<String>emptyList(), new FailingQuery()).isEmpty());
+    }
+
+    @Test
+    public void testChunksQueriedInParallel() throws NamingException {
+        final CountDownLatch latch = new CountDownLatch(LdapBatchExecutor.PARALLELISM);
+        final AtomicInteger notParallel = new AtomicInteger();
+
+        executor.execute(values(AdaptiveChunkSize.MIN_SIZE * LdapBatchExecutor.PARALLELISM),
+                new LdapBatchExecutor.ChunkQuery<Void>() {
+                    @Override
+                    public Void query(List<String> chunk) throws NamingException {
+                        latch.countDown();
+                        try {
+                            if (!latch.await(5, TimeUnit.SECONDS)) {
+                                notParallel.incrementAndGet();
+                            }
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return null;
+                    }
+                });
+
+        Assert.assertEquals(0, notParallel.get());
+    }
+
+    @Test
+    public void testQueriedByCallerWhenHelpersRejected() throws NamingException {
+        threadPool.shutdown();
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        final List<List<String>> chunks = executor.execute(values(AdaptiveChunkSize.MIN_SIZE * 3),
+                new LdapBatchExecutor.ChunkQuery<List<String>>() {
+                    @Override
+                    public List<String> query(List<String> chunk) {
+                        threads.add(Thread.currentThread());
+                        return chunk;
+                    }
+                });
+
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        Assert.assertEquals(0, executor.getHelperCount());
+    }
+
+    @Test
+    public void testChunkSplitWhenSizeLimitExceeded() throws NamingException {
+        final int limit = 3;
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        final List<List<String>> chunks = executor.execute(values(AdaptiveChunkSize.MIN_SIZE),
+                new LdapBatchExecutor.ChunkQuery<List<String>>() {
+                    @Override
+                    public List<String> query(List<String> chunk) throws NamingException {
+                        sizes.add(chunk.size());
+                        if (chunk.size() > limit) {
+                            throw new SizeLimitExceededException();
+                        }
+                        return chunk;
+                    }
+                });
+
+        int count = 0;
+        for (List<String> chunk : chunks) {
+            Assert.assertTrue(chunk.size() <= limit);
+            count += chunk.size();
+        }
+        Assert.assertEquals(AdaptiveChunkSize.MIN_SIZE, count);
+        Assert.assertEquals(Integer.valueOf(AdaptiveChunkSize.MIN_SIZE), sizes.get(0));
+    }
+
+    @Test
+    public void testFailurePropagated() {
+        try {
+            executor.execute(values(100), new FailingQuery());
+            Assert.fail("CommunicationException expected");
+        } catch (NamingException e) {
+            Assert.assertTrue(e instanceof CommunicationException);
+        }
+    }
+
+    @Test
+    public void testChunkSizeAdapts() {
+        final AdaptiveChunkSize size = new AdaptiveChunkSize();
+
+        size.recordDuration(AdaptiveChunkSize.INITIAL_SIZE, 10);
+        Assert.assertTrue(size.get() > AdaptiveChunkSize.INITIAL_SIZE);
+
+        final int grown = size.get();
+        size.recordDuration(grown / 2, 10); // partial chunk doesn't grow the size
+        Assert.assertEquals(grown, size.get());
+
+        size.recordDuration(grown, AdaptiveChunkSize.TARGET_MILLIS * 3);
+        Assert.assertEquals(grown / 2, size.get());
+
+        for (int i = 0; i < 100; i++) {
+            size.recordDuration(size.get(), AdaptiveChunkSize.TARGET_MILLIS * 3);
+        }
+        Assert.assertEquals(AdaptiveChunkSize.MIN_SIZE, size.get());
+
+        for (int i = 0; i < 100; i++) {
+            size.recordDuration(size.get(), 10);
+        }
+        Assert.assertEquals(AdaptiveChunkSize.MAX_SIZE, size.get());
+    }
+
+    @Test
+    public void testChunkSizeCappedBySizeLimit() {
+        final AdaptiveChunkSize size = new AdaptiveChunkSize();
+
+        size.recordSizeLimitExceeded(40);
+        Assert.assertEquals(20, size.get());
+        for (int i = 0; i < 100; i++) {
+            size.recordDuration(size.get(), 10);
+        }
+        Assert.assertEquals(20, size.get());
+    }
+
+    private static List<String> values(int count) {
+        final List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add("user" + i);
+        }
+        return values;
+    }
+
+
+    private static class FailingQuery implements LdapBatchExecutor.ChunkQuery<Void> {
+
+        @Override
+        public Void query(List<String> chunk) throws NamingException {
+            throw new CommunicationException("Connection refused");
+        }
+    }
+}
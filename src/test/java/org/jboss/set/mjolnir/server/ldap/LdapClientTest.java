@@ -0,0 +1,416 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class LdapClientTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private final List<FakeLdapContext> created = new ArrayList<>();
+    private LdapContextPool pool;
+    private LdapClient client;
+    private int entryCount = 5;
+    private int failOnPage = -1;
+    private NamingException pageFailure = new CommunicationException("Connection reset");
+
+    @Before
+    public void setUp() {
+        pool = createPool(created, false);
+        client = new LdapClient(PAGE_SIZE, new LdapEndpoint("ldap://primary", pool));
+    }
+
+    @Test
+    public void testAllPagesRead() throws NamingException {
+        final List<SearchResult> results = client.search("ou=users", "(uid=*)");
+
+        Assert.assertEquals(entryCount, results.size());
+        Assert.assertEquals("user0", results.get(0).getName());
+        Assert.assertEquals("user4", results.get(4).getName());
+        Assert.assertEquals(3, created.get(0).searches);
+        assertReleased(true);
+    }
+
+    @Test
+    public void testEmptyResult() throws NamingException {
+        entryCount = 0;
+
+        Assert.assertTrue(client.search("ou=users", "(uid=nobody)").isEmpty());
+        assertReleased(true);
+    }
+
+    @Test
+    public void testClosedEarly() throws NamingException {
+        final NamingEnumeration<SearchResult> results = client.openSearch("ou=users", "(uid=*)", new String[0]);
+        Assert.assertTrue(results.hasMore());
+        results.next();
+        Assert.assertEquals(1, pool.getActiveCount());
+
+        results.close();
+        Assert.assertFalse(results.hasMore());
+        assertReleased(true);
+
+        // rest of the first page read, the search abandoned with the cookie of the second page
+        Assert.assertEquals(2, created.get(0).searches);
+        Assert.assertEquals(0, created.get(0).lastPageSize);
+        Assert.assertEquals(PAGE_SIZE, created.get(0).lastFrom);
+    }
+
+    @Test
+    public void testClosedOnLastPage() throws NamingException {
+        entryCount = PAGE_SIZE;
+        final NamingEnumeration<SearchResult> results = client.openSearch("ou=users", "(uid=*)", new String[0]);
+        results.next();
+
+        results.close();
+        Assert.assertEquals(1, created.get(0).searches);
+        assertReleased(true);
+    }
+
+    @Test
+    public void testNextAfterEnd() throws NamingException {
+        entryCount = 1;
+        final NamingEnumeration<SearchResult> results = client.openSearch("ou=users", "(uid=*)", new String[0]);
+        results.next();
+        try {
+            results.next();
+            Assert.fail("NoSuchElementException expected");
+        } catch (NoSuchElementException expected) {
+        }
+        assertReleased(true);
+    }
+
+    @Test
+    public void testBrokenConnectionNotReused() {
+        failOnPage = 1;
+        try {
+            client.search("ou=users", "(uid=*)");
+            Assert.fail("CommunicationException expected");
+        } catch (NamingException e) {
+            Assert.assertTrue(e instanceof CommunicationException);
+        }
+        assertReleased(false);
+    }
+
+    @Test
+    public void testReadTimeoutTreatedAsConnectionFailure() throws NamingException {
+        final List<FakeLdapContext> replicaContexts = new ArrayList<>();
+        final LdapEndpoint primary = new LdapEndpoint("ldap://primary", pool);
+        final LdapEndpoint replica = new LdapEndpoint("ldap://replica", createPool(replicaContexts, true));
+        client = new LdapClient(PAGE_SIZE, primary, replica);
+        failOnPage = 1;
+        pageFailure = new NamingException("LDAP response read timed out, timeout used: 30000 ms.");
+
+        // results of the first page are read again from the replica
+        Assert.assertEquals(entryCount + PAGE_SIZE, client.search("ou=users", "(uid=*)").size());
+        Assert.assertEquals(1, replicaContexts.size());
+        Assert.assertFalse(primary.isHealthy());
+        assertReleased(false);
+    }
+
+    @Test
+    public void testOtherErrorsNotFailedOver() {
+        failOnPage = 1;
+        pageFailure = new NamingException("Unwilling to perform");
+
+        try {
+            client.search("ou=users", "(uid=*)");
+            Assert.fail("NamingException expected");
+        } catch (NamingException e) {
+            Assert.assertEquals("Unwilling to perform", e.getMessage());
+        }
+        Assert.assertTrue(client.getEndpoints().get(0).isHealthy());
+        assertReleased(true);
+    }
+
+    @Test
+    public void testExhaustedPoolNotMarkedFailing() throws NamingException {
+        final List<FakeLdapContext> replicaContexts = new ArrayList<>();
+        final LdapEndpoint primary = new LdapEndpoint("ldap://primary", pool);
+        final LdapEndpoint replica = new LdapEndpoint("ldap://replica", createPool(replicaContexts, true));
+        client = new LdapClient(PAGE_SIZE, primary, replica);
+        final DirContext first = pool.borrow();
+        final DirContext second = pool.borrow();
+
+        Assert.assertEquals(entryCount, client.search("ou=users", "(uid=*)").size());
+        Assert.assertEquals(1, replicaContexts.size());
+        Assert.assertTrue(primary.isHealthy());
+
+        Assert.assertEquals(2, client.checkEndpoints());
+        Assert.assertTrue(primary.isHealthy());
+        pool.release(first, true);
+        pool.release(second, true);
+    }
+
+    @Test
+    public void testFailoverToNextEndpoint() throws NamingException {
+        final List<FakeLdapContext> replicaContexts = new ArrayList<>();
+        final LdapEndpoint primary = new LdapEndpoint("ldap://primary", pool);
+        final LdapEndpoint replica = new LdapEndpoint("ldap://replica", createPool(replicaContexts, true));
+        client = new LdapClient(PAGE_SIZE, primary, replica);
+        failOnPage = 1;
+
+        // primary fails after the first page, the search is repeated on the replica
+        final Set<String> names = new HashSet<>();
+        client.search("ou=users", "(uid=*)", new String[0], new SearchResultHandler() {
+            @Override
+            public void handle(SearchResult result) {
+                names.add(result.getName());
+            }
+        });
+        Assert.assertEquals(entryCount, names.size());
+        Assert.assertFalse(primary.isHealthy());
+        Assert.assertTrue(replica.isHealthy());
+        assertReleased(false);
+
+        // following searches go to the replica first
+        Assert.assertEquals(Arrays.asList(replica, primary), client.getEndpointsByPreference());
+        failOnPage = -1;
+        Assert.assertEquals(entryCount, client.search("ou=users", "(uid=*)").size());
+        Assert.assertEquals(1, created.size());
+        Assert.assertEquals(1, replicaContexts.size());
+    }
+
+    @Test
+    public void testAllEndpointsFailing() {
+        final List<FakeLdapContext> replicaContexts = new ArrayList<>();
+        final LdapEndpoint replica = new LdapEndpoint("ldap://replica", createPool(replicaContexts, false));
+        client = new LdapClient(PAGE_SIZE, new LdapEndpoint("ldap://primary", pool), replica);
+        failOnPage = 0;
+
+        try {
+            client.search("ou=users", "(uid=*)");
+            Assert.fail("CommunicationException expected");
+        } catch (NamingException e) {
+            Assert.assertTrue(e instanceof CommunicationException);
+        }
+        Assert.assertEquals(1, created.size());
+        Assert.assertEquals(1, replicaContexts.size());
+        Assert.assertFalse(replica.isHealthy());
+    }
+
+    @Test
+    public void testLowestLatencyPreferred() {
+        final LdapEndpoint slow = new LdapEndpoint("ldap://slow", pool);
+        final LdapEndpoint fast = new LdapEndpoint("ldap://fast", pool);
+        final LdapEndpoint failing = new LdapEndpoint("ldap://failing", pool);
+        client = new LdapClient(PAGE_SIZE, failing, slow, fast);
+
+        // not checked yet, configured order
+        Assert.assertEquals(Arrays.asList(failing, slow, fast), client.getEndpointsByPreference());
+
+        slow.recordSuccess(200);
+        fast.recordSuccess(5);
+        failing.recordSuccess(1);
+        failing.recordFailure(new CommunicationException());
+        Assert.assertEquals(Arrays.asList(fast, slow, failing), client.getEndpointsByPreference());
+
+        // latency is averaged, single slow response doesn't reorder servers
+        fast.recordSuccess(300);
+        Assert.assertEquals(Arrays.asList(fast, slow, failing), client.getEndpointsByPreference());
+        fast.recordSuccess(300);
+        fast.recordSuccess(300);
+        fast.recordSuccess(300);
+        Assert.assertEquals(Arrays.asList(slow, fast, failing), client.getEndpointsByPreference());
+
+        // successful check brings the server back
+        failing.recordSuccess(1);
+        Assert.assertTrue(failing.isHealthy());
+        Assert.assertEquals(failing, client.getEndpointsByPreference().get(0));
+    }
+
+    @Test
+    public void testCheckEndpoints() {
+        final LdapEndpoint replica = new LdapEndpoint("ldap://replica", new LdapContextPool(
+                new Hashtable<String, Object>(), 1, 100, 60 * 1000) {
+            @Override
+            DirContext createContext() throws NamingException {
+                throw new CommunicationException("Connection refused");
+            }
+        });
+        final LdapEndpoint primary = new LdapEndpoint("ldap://primary", pool);
+        client = new LdapClient(PAGE_SIZE, primary, replica);
+
+        Assert.assertEquals(1, client.checkEndpoints());
+        Assert.assertTrue(primary.isHealthy());
+        Assert.assertFalse(replica.isHealthy());
+        Assert.assertTrue(replica.getStatus(), replica.getStatus().contains("Connection refused"));
+        Assert.assertEquals(Arrays.asList(primary, replica), client.getEndpoints());
+        assertReleased(true);
+    }
+
+    /**
+     * @param reliable if true, contexts of the pool ignore {@link #failOnPage}
+     */
+    private LdapContextPool createPool(final List<FakeLdapContext> contexts, final boolean reliable) {
+        return new LdapContextPool(new Hashtable<String, Object>(), 2, 100, 60 * 1000) {
+            @Override
+            DirContext createContext() {
+                final FakeLdapContext handler = new FakeLdapContext(reliable);
+                contexts.add(handler);
+                return (DirContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] {LdapContext.class}, handler);
+            }
+        };
+    }
+
+    private void assertReleased(boolean reusable) {
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(reusable ? 1 : 0, pool.getIdleCount());
+        Assert.assertEquals(!reusable, created.get(0).closed);
+        if (reusable) {
+            Assert.assertNull(created.get(0).requestControls);
+        }
+    }
+
+
+    /**
+     * LDAP context serving entries user0..userN in pages, the cookie is the index of the next entry.
+     */
+    private class FakeLdapContext implements InvocationHandler {
+
+        private final boolean reliable;
+
+        private Control[] requestControls;
+        private Control[] responseControls;
+        private int searches;
+        private int lastPageSize;
+        private int lastFrom;
+        private boolean closed;
+
+        FakeLdapContext(boolean reliable) {
+            this.reliable = reliable;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "setRequestControls":
+                    requestControls = (Control[]) args[0];
+                    return null;
+                case "getResponseControls":
+                    return responseControls;
+                case "search":
+                    return search();
+                case "getAttributes":
+                    return new BasicAttributes();
+                case "close":
+                    closed = true;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private NamingEnumeration<SearchResult> search() throws NamingException, IOException {
+            Assert.assertTrue(requestControls[0] instanceof PagedResultsControl);
+            searches++;
+            final int from = decodeCookie(requestControls[0].getEncodedValue());
+            lastPageSize = decodePageSize(requestControls[0].getEncodedValue());
+            lastFrom = from;
+            if (!reliable && from / PAGE_SIZE == failOnPage) {
+                throw pageFailure;
+            }
+            final int to = Math.min(entryCount, from + PAGE_SIZE);
+
+            final List<SearchResult> results = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                results.add(new SearchResult("user" + i, null, new BasicAttributes()));
+            }
+            final byte[] cookie = to < entryCount ? new byte[] {(byte) to} : new byte[0];
+            responseControls = new Control[] {new PagedResultsResponseControl(PagedResultsControl.OID, false,
+                    encodeResponseValue(entryCount, cookie))};
+            return enumeration(results);
+        }
+    }
+
+    /**
+     * @param value BER encoded SEQUENCE { size INTEGER, cookie OCTET STRING } of the request control
+     * @return index of the first entry of requested page
+     */
+    private static int decodeCookie(byte[] value) {
+        final int cookieLengthOffset = 4 + value[3] + 1;
+        return value[cookieLengthOffset] == 0 ? 0 : value[cookieLengthOffset + 1];
+    }
+
+    /**
+     * @param value BER encoded SEQUENCE { size INTEGER, cookie OCTET STRING } of the request control
+     * @return requested page size
+     */
+    private static int decodePageSize(byte[] value) {
+        int size = 0;
+        for (int i = 0; i < value[3]; i++) {
+            size = (size << 8) | (value[4 + i] & 0xff);
+        }
+        return size;
+    }
+
+    /**
+     * BER encoded SEQUENCE { size INTEGER, cookie OCTET STRING }.
+     */
+    private static byte[] encodeResponseValue(int size, byte[] cookie) {
+        final byte[] value = new byte[2 + 3 + 2 + cookie.length];
+        value[0] = 0x30;
+        value[1] = (byte) (value.length - 2);
+        value[2] = 0x02;
+        value[3] = 0x01;
+        value[4] = (byte) size;
+        value[5] = 0x04;
+        value[6] = (byte) cookie.length;
+        System.arraycopy(cookie, 0, value, 7, cookie.length);
+        return value;
+    }
+
+    private static NamingEnumeration<SearchResult> enumeration(final List<SearchResult> results) {
+        final Iterator<SearchResult> iterator = results.iterator();
+        return new NamingEnumeration<SearchResult>() {
+            @Override
+            public SearchResult next() {
+                return iterator.next();
+            }
+
+            @Override
+            public boolean hasMore() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public SearchResult nextElement() {
+                return iterator.next();
+            }
+        };
+    }
+}
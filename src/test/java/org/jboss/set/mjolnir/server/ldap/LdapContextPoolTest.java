@@ -0,0 +1,186 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+public class LdapContextPoolTest {
+
+    private static final int MAX_SIZE = 2;
+    private static final long MAX_IDLE = 60 * 1000;
+
+    private long now = 1500000000000L;
+    private List<FakeContext> created;
+    private LdapContextPool pool;
+
+    @Before
+    public void setUp() {
+        created = new ArrayList<>();
+        pool = new LdapContextPool(new Hashtable<String, Object>(), MAX_SIZE, 100, MAX_IDLE) {
+            @Override
+            DirContext createContext() throws NamingException {
+                final FakeContext context = new FakeContext();
+                created.add(context);
+                return context;
+            }
+
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testContextReused() throws NamingException {
+        final DirContext first = pool.borrow();
+        pool.release(first, true);
+        final DirContext second = pool.borrow();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, created.size());
+        Assert.assertEquals(1, pool.getActiveCount());
+        Assert.assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testBorrowTimesOutWhenExhausted() throws NamingException {
+        for (int i = 0; i < MAX_SIZE; i++) {
+            pool.borrow();
+        }
+        try {
+            pool.borrow();
+            Assert.fail("ContextPoolExhaustedException expected");
+        } catch (ContextPoolExhaustedException expected) {
+        }
+        Assert.assertEquals(MAX_SIZE, created.size());
+    }
+
+    @Test
+    public void testReleaseFreesCapacity() throws NamingException {
+        final DirContext first = pool.borrow();
+        pool.borrow();
+        pool.release(first, true);
+
+        Assert.assertSame(first, pool.borrow());
+    }
+
+    @Test
+    public void testBrokenContextClosed() throws NamingException {
+        final DirContext context = pool.borrow();
+        pool.release(context, false);
+
+        Assert.assertTrue(created.get(0).closed);
+        Assert.assertNotSame(context, pool.borrow());
+    }
+
+    @Test
+    public void testStaleContextDiscardedOnBorrow() throws NamingException {
+        final DirContext context = pool.borrow();
+        pool.release(context, true);
+        created.get(0).valid = false;
+        now += LdapContextPool.VALIDATION_INTERVAL_MILLIS;
+
+        final DirContext borrowed = pool.borrow();
+        Assert.assertNotSame(context, borrowed);
+        Assert.assertTrue(created.get(0).closed);
+        Assert.assertEquals(1, created.get(0).validations);
+    }
+
+    @Test
+    public void testRecentlyUsedContextNotValidated() throws NamingException {
+        pool.release(pool.borrow(), true);
+        pool.borrow();
+
+        Assert.assertEquals(0, created.get(0).validations);
+    }
+
+    @Test
+    public void testIdleContextsEvicted() throws NamingException {
+        final DirContext first = pool.borrow();
+        final DirContext second = pool.borrow();
+        pool.release(first, true);
+        now += MAX_IDLE / 2;
+        pool.release(second, true);
+        now += MAX_IDLE / 2 + 1;
+
+        pool.evictIdle();
+        Assert.assertTrue(created.get(0).closed);
+        Assert.assertFalse(created.get(1).closed);
+        Assert.assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testCloseReleasesContexts() throws NamingException {
+        final DirContext idle = pool.borrow();
+        final DirContext active = pool.borrow();
+        pool.release(idle, true);
+
+        pool.close();
+        Assert.assertTrue(created.get(0).closed);
+        Assert.assertFalse(created.get(1).closed);
+
+        pool.release(active, true);
+        Assert.assertTrue(created.get(1).closed);
+        try {
+            pool.borrow();
+            Assert.fail("ServiceUnavailableException expected");
+        } catch (ServiceUnavailableException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedCreationReleasesPermit() throws NamingException {
+        final LdapContextPool failingPool = new LdapContextPool(new Hashtable<String, Object>(), 1, 100, MAX_IDLE) {
+            @Override
+            DirContext createContext() throws NamingException {
+                throw new CommunicationException("Connection refused");
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            try {
+                failingPool.borrow();
+                Assert.fail("CommunicationException expected");
+            } catch (CommunicationException expected) {
+            }
+        }
+        Assert.assertEquals(0, failingPool.getActiveCount());
+    }
+
+
+    static class FakeContext extends InitialDirContext {
+
+        boolean valid = true;
+        boolean closed;
+        int validations;
+
+        FakeContext() throws NamingException {
+            super(true);
+        }
+
+        @Override
+        public Attributes getAttributes(String name, String[] attrIds) throws NamingException {
+            validations++;
+            if (!valid) {
+                throw new CommunicationException("Connection closed");
+            }
+            return new BasicAttributes();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
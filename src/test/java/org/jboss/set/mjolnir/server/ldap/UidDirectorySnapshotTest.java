@@ -0,0 +1,72 @@
+package org.jboss.set.mjolnir.server.ldap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class UidDirectorySnapshotTest {
+
+    private long now = 1500000000000L;
+    private UidDirectorySnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        snapshot = new UidDirectorySnapshot() {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testNotLoaded() {
+        Assert.assertNull(snapshot.contains("jdoe"));
+        Assert.assertFalse(snapshot.isUsable());
+        Assert.assertNull(snapshot.getWatermark());
+        Assert.assertEquals("not loaded", snapshot.getStatus());
+    }
+
+    @Test
+    public void testIncrementalRefresh() {
+        snapshot.replace(Arrays.asList("jdoe", "jsmith"), "20261018100000Z");
+        Assert.assertTrue(snapshot.contains("jdoe"));
+        Assert.assertFalse(snapshot.contains("newhire"));
+
+        snapshot.addAll(Arrays.asList("jdoe", "newhire"), "20261018110000Z");
+        Assert.assertTrue(snapshot.contains("newhire"));
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals("20261018110000Z", snapshot.getWatermark());
+
+        // empty refresh keeps the watermark
+        snapshot.addAll(Collections.<String>emptyList(), null);
+        Assert.assertEquals("20261018110000Z", snapshot.getWatermark());
+
+        snapshot.replace(Collections.singletonList("jsmith"), "20261018120000Z");
+        Assert.assertFalse(snapshot.contains("newhire"));
+        Assert.assertFalse(snapshot.contains("jdoe"));
+        Assert.assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void testStaleSnapshotNotUsed() {
+        snapshot.replace(Collections.singletonList("jdoe"), null);
+        now += UidDirectorySnapshot.MAX_AGE_MILLIS;
+        Assert.assertTrue(snapshot.contains("jdoe"));
+
+        now += 1;
+        Assert.assertNull(snapshot.contains("jdoe"));
+        Assert.assertTrue(snapshot.getStatus().contains("stale"));
+
+        snapshot.addAll(Collections.<String>emptyList(), null);
+        Assert.assertTrue(snapshot.contains("jdoe"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRefreshRequiresLoad() {
+        snapshot.addAll(Collections.singletonList("jdoe"), null);
+    }
+}
@@ -0,0 +1,62 @@
+package org.jboss.set.mjolnir.server.service.statuscheck;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CacheStatusCheckTest {
+
+    private static final String USER_REGION = "mjolnir.war#MjolnirPU.org.jboss.set.mjolnir.server.entities.UserEntity";
+
+    private Statistics statistics;
+    private CacheStatusCheck check;
+
+    @Before
+    public void setUp() {
+        statistics = Mockito.mock(Statistics.class);
+        final SessionFactory sessionFactory = Mockito.mock(SessionFactory.class);
+        Mockito.when(sessionFactory.getStatistics()).thenReturn(statistics);
+        final EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+        Mockito.when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+        check = new CacheStatusCheck();
+        check.setEntityManagerFactory(entityManagerFactory);
+    }
+
+    @Test
+    public void testHitRatios() {
+        final SecondLevelCacheStatistics userRegion = Mockito.mock(SecondLevelCacheStatistics.class);
+        Mockito.when(userRegion.getHitCount()).thenReturn(3L);
+        Mockito.when(userRegion.getMissCount()).thenReturn(1L);
+        Mockito.when(userRegion.getElementCountInMemory()).thenReturn(2L);
+        Mockito.when(statistics.isStatisticsEnabled()).thenReturn(true);
+        Mockito.when(statistics.getSecondLevelCacheHitCount()).thenReturn(3L);
+        Mockito.when(statistics.getSecondLevelCacheMissCount()).thenReturn(1L);
+        Mockito.when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] {USER_REGION});
+        Mockito.when(statistics.getSecondLevelCacheStatistics(USER_REGION)).thenReturn(userRegion);
+
+        final StatusCheckResult result = check.checkStatus();
+
+        Assert.assertTrue(result.isSuccess());
+        final String report = result.toString();
+        Assert.assertTrue(report, report.contains("Second-level cache: 75.0% hits (3 hits, 1 misses)"));
+        Assert.assertTrue(report, report.contains("Query cache: no requests"));
+        Assert.assertTrue(report, report.contains("UserEntity: 75.0% hits (3 hits, 1 misses), 2 elements"));
+    }
+
+    @Test
+    public void testStatisticsDisabled() {
+        Mockito.when(statistics.isStatisticsEnabled()).thenReturn(false);
+
+        final StatusCheckResult result = check.checkStatus();
+
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertTrue(result.toString().contains("Statistics are disabled"));
+    }
+}
@@ -0,0 +1,133 @@
+package org.jboss.set.mjolnir.server.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Test
+    public void testConcurrentCallersShareComputation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        final Callable<String> computation = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                invocations.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "result";
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Future<String> first = executor.submit(call("key", computation));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<String> second = executor.submit(call("key", computation));
+            final Future<String> third = executor.submit(call("key", computation));
+            waitForCoalescedCalls(2);
+            release.countDown();
+
+            Assert.assertEquals("result", first.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("result", second.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("result", third.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, invocations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResultNotCached() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final Callable<Integer> computation = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return invocations.incrementAndGet();
+            }
+        };
+
+        Assert.assertEquals(1, (int) singleFlight.execute("key", computation));
+        Assert.assertEquals(2, (int) singleFlight.execute("key", computation));
+        Assert.assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void testDifferentKeysNotCoalesced() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> blocked = executor.submit(call("key1", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    release.await();
+                    return "first";
+                }
+            }));
+
+            Assert.assertEquals("second", singleFlight.execute("key2", new Callable<String>() {
+                @Override
+                public String call() {
+                    return "second";
+                }
+            }));
+            release.countDown();
+            Assert.assertEquals("first", blocked.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExceptionPropagated() {
+        try {
+            singleFlight.execute("key", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new UnsupportedOperationException("failure");
+                }
+            });
+            Assert.fail("Exception expected");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals("failure", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCheckedExceptionWrapped() {
+        singleFlight.execute("key", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new Exception("failure");
+            }
+        });
+    }
+
+    private <V> Callable<V> call(final Object key, final Callable<V> computation) {
+        return new Callable<V>() {
+            @Override
+            public V call() {
+                return singleFlight.execute(key, computation);
+            }
+        };
+    }
+
+    private void waitForCoalescedCalls(long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalescedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, singleFlight.getCoalescedCount());
+    }
+}